@@ -0,0 +1,33 @@
+package com.mofari.heimdall;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 运行全部基准测试，结果以 JSON 写入 target/jmh-result.json，便于在版本之间对比。
+ * <p>
+ * 用法：{@code mvn -Pjmh test-compile exec:java}；
+ * 可通过 {@code -Dexec.args="..."} 传入 JMH 的命令行参数，例如 {@code -Dexec.args="NacosListener -f 1 -wi 2 -i 3"}。
+ */
+public class HeimdallBenchmarks {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(commandLine);
+        if (commandLine.getIncludes().isEmpty()) {
+            options.include("com\\.mofari\\.heimdall\\..*Benchmark");
+        }
+        if (!commandLine.getResult().hasValue()) {
+            options.result("target/jmh-result.json");
+        }
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        new Runner(options.build()).run();
+    }
+}
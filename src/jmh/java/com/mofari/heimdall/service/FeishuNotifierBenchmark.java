@@ -0,0 +1,60 @@
+package com.mofari.heimdall.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 飞书卡片的生成：Markdown 规整、卡片结构构建及序列化为请求体。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FeishuNotifierBenchmark {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private FeishuNotifierService notifier;
+    private String markdown;
+    private String normalized;
+
+    @Setup
+    public void setUp() {
+        notifier = new FeishuNotifierService();
+        markdown = "#### 🚨 服务宕机警报\n\n> **服务名**: order-service.app\n\n> **负责人**: zhangsan, lisi\n\n"
+                + "> **当前状态**: <font color='#dd0000'>**DOWN**</font>\n\n"
+                + "> **实例**: 8/8 个实例不健康：10.0.4.1:8080, 10.0.4.2:8080, 10.0.4.3:8080 等\n\n"
+                + "> **时间**: 2024-06-01 12:00:00";
+        normalized = notifier.normalizeToLarkMarkdown(markdown);
+    }
+
+    @Benchmark
+    public String normalizeToLarkMarkdown() {
+        return notifier.normalizeToLarkMarkdown(markdown);
+    }
+
+    @Benchmark
+    public Map<String, Object> buildInteractiveCard() {
+        return notifier.buildInteractiveCard("🚨 服务宕机警报", normalized, AlertLevel.DOWN);
+    }
+
+    @Benchmark
+    public byte[] buildAndSerializeCard() throws Exception {
+        return objectMapper.writeValueAsBytes(
+                notifier.buildInteractiveCard("🚨 服务宕机警报", notifier.normalizeToLarkMarkdown(markdown), AlertLevel.DOWN));
+    }
+}
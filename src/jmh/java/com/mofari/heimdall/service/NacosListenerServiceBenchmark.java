@@ -0,0 +1,129 @@
+package com.mofari.heimdall.service;
+
+import com.alibaba.nacos.api.naming.listener.NamingEvent;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import com.mofari.heimdall.config.MonitoringProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 事件处理热路径：状态计算、完整的事件处理（实例对比、抖动抑制、写入存储）以及服务过滤。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class NacosListenerServiceBenchmark {
+
+    private static final String SERVICE = "order-service.app";
+    private static final String CLUSTER = "dialy-default";
+
+    @Param({"10", "100", "1000"})
+    private int instanceCount;
+
+    private NacosListenerService listener;
+    private FlapDamper flapDamper;
+    private NamingEvent eventA;
+    private NamingEvent eventB;
+    private boolean flip;
+    private List<String> serviceNames;
+    private int healthy;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        MonitoringProperties properties = new MonitoringProperties();
+        properties.setTargetClusters(List.of(CLUSTER));
+        properties.setExcludeServiceKeywords(List.of("sidecar", "gateway", "-job"));
+        properties.setWhitelistServices(List.of("another-tool-service.app"));
+
+        flapDamper = new FlapDamper();
+        ReflectionTestUtils.setField(flapDamper, "monitoringProperties", properties);
+        flapDamper.init();
+
+        ClusterCoordinator clusterCoordinator = new ClusterCoordinator();
+        ReflectionTestUtils.setField(clusterCoordinator, "monitoringProperties", properties);
+
+        listener = new NacosListenerService();
+        ReflectionTestUtils.setField(listener, "appStatusStore", new AppStatusStore());
+        ReflectionTestUtils.setField(listener, "flapDamper", flapDamper);
+        ReflectionTestUtils.setField(listener, "monitoringProperties", properties);
+        ReflectionTestUtils.setField(listener, "clusterCoordinator", clusterCoordinator);
+        ReflectionTestUtils.setField(listener, "metrics", new HeimdallMetrics(new SimpleMeterRegistry()));
+        listener.init();
+        @SuppressWarnings("unchecked")
+        Set<String> tracked = (Set<String>) ReflectionTestUtils.getField(listener, "trackedServices");
+        tracked.add(SERVICE);
+
+        // 两次推送之间有一个实例健康状态翻转，服务始终为 DEGRADED，不触发告警
+        eventA = event(instanceCount, 1);
+        eventB = event(instanceCount, 2);
+
+        serviceNames = new ArrayList<>(10_000);
+        for (int i = 0; i < 10_000; i++) {
+            String suffix = switch (i % 10) {
+                case 0 -> "-sidecar";
+                case 1 -> "-job";
+                default -> "";
+            };
+            serviceNames.add("svc-" + i + suffix + ".app");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        flapDamper.shutdown();
+    }
+
+    @Benchmark
+    public ServiceStatus calculateStatus() {
+        healthy = (healthy + 1) % (instanceCount + 1);
+        return listener.calculateStatus(healthy, instanceCount);
+    }
+
+    @Benchmark
+    public void handleNacosEvent() {
+        flip = !flip;
+        listener.handleNacosEvent(flip ? eventA : eventB, System.nanoTime());
+    }
+
+    @Benchmark
+    public void filterServices10k(Blackhole blackhole) {
+        for (String serviceName : serviceNames) {
+            blackhole.consume(listener.isMonitoredService(serviceName));
+        }
+    }
+
+    private static NamingEvent event(int count, int unhealthyIndex) {
+        List<Instance> instances = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Instance instance = new Instance();
+            instance.setIp("10.0." + (i / 250) + "." + (i % 250));
+            instance.setPort(8080);
+            instance.setClusterName(i % 5 == 4 ? "other-cluster" : CLUSTER);
+            instance.setHealthy(i != unhealthyIndex);
+            instances.add(instance);
+        }
+        return new NamingEvent(SERVICE, "DEFAULT_GROUP", null, instances);
+    }
+}
@@ -0,0 +1,59 @@
+package com.mofari.heimdall.websocket;
+
+import com.mofari.heimdall.service.AppStatus;
+import com.mofari.heimdall.service.ServiceStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 推送消息的 Jackson 序列化：单个服务的增量，以及不同规模的全量快照。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BroadcastSerializationBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    private int serviceCount;
+
+    private StatusStreamMessage delta;
+    private StatusStreamMessage snapshot;
+
+    @Setup
+    public void setUp() {
+        ServiceStatus[] statuses = ServiceStatus.values();
+        List<AppStatus> services = new ArrayList<>(serviceCount);
+        for (int i = 0; i < serviceCount; i++) {
+            services.add(new AppStatus("svc-" + i + ".app", "svc-" + i, statuses[i % statuses.length], 3, 4,
+                    List.of("dialy-default"), 1_717_200_000_000L + i, i + 1));
+        }
+        delta = StatusStreamMessage.delta("epoch", services.get(0));
+        snapshot = StatusStreamMessage.snapshot("epoch", serviceCount, services);
+    }
+
+    @Benchmark
+    public String serializeDelta() {
+        return StatusStream.serialize(delta);
+    }
+
+    @Benchmark
+    public String serializeSnapshot() {
+        return StatusStream.serialize(snapshot);
+    }
+}
@@ -1,10 +1,16 @@
 package com.mofari.heimdall.config;
 
+import com.mofari.heimdall.service.AlertLevel;
+import com.mofari.heimdall.service.ServiceStatus;
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 一个专门用于映射 application.yml 中 'spring.monitoring' 前缀下所有配置的类。
@@ -31,10 +37,669 @@ public class MonitoringProperties {
      */
     private List<String> whitelistServices = new ArrayList<>();
 
+    /**
+     * 只监控名称匹配其中任一规则的服务，为空表示不限。规则为通配符（* 和 ?），或以 regex: 开头的正则表达式，需匹配整个服务名。
+     * 对应 YAML 中的 spring.monitoring.include-service-patterns
+     */
+    private List<String> includeServicePatterns = new ArrayList<>();
+
+    /**
+     * 名称匹配其中任一规则的服务不监控，规则格式同 includeServicePatterns。
+     * 对应 YAML 中的 spring.monitoring.exclude-service-patterns
+     */
+    private List<String> excludeServicePatterns = new ArrayList<>();
+
+    /**
+     * 监控的 Nacos 来源，每个来源有自己的地址、命名空间和分组。
+     * 为空时只使用 spring.nacos 配置的服务器、public 命名空间和 DEFAULT_GROUP，服务ID即 Nacos 服务名。
+     * 对应 YAML 中的 spring.monitoring.sources
+     */
+    private List<NacosSource> sources = new ArrayList<>();
+
     // ✅ 更新点：新增全局告警阈值，默认为30%
     private double globalDownThreshold = 0.30;
 
     // ✅ 更新点：新增全局告警专用的 Webhook 地址
     private String globalAlertWebhook;
 
+    /**
+     * 默认通知渠道：feishu / dingtalk。没有匹配任何路由规则的告警发送到该渠道的默认 Webhook。
+     */
+    private String alertChannel = "feishu";
+
+    /**
+     * 告警路由：按告警级别、服务名、负责人把告警发送到一个或多个目的地。
+     */
+    private AlertRouting alertRouting = new AlertRouting();
+
+    @Data
+    public static class AlertRouting {
+
+        /**
+         * 告警目的地，键为目的地名称，供路由规则引用。
+         */
+        private Map<String, AlertDestination> destinations = new LinkedHashMap<>();
+
+        /**
+         * 路由规则。一条告警发送到所有匹配规则的目的地（去重），没有匹配的规则时按 alert-channel 发送。
+         */
+        private List<AlertRule> rules = new ArrayList<>();
+    }
+
+    @Data
+    public static class AlertDestination {
+
+        /**
+         * 通知渠道：feishu / dingtalk。
+         */
+        private String channel;
+
+        /**
+         * Webhook 地址，为空时使用该渠道的默认 Webhook。
+         */
+        private String webhook;
+    }
+
+    @Data
+    public static class AlertRule {
+
+        /**
+         * 匹配的告警级别，为空表示任意级别。
+         */
+        private List<AlertLevel> levels = new ArrayList<>();
+
+        /**
+         * 匹配的服务名（不含来源和分组），支持 * 和 ? 通配符，如 pay-*；不含通配符时也可以写完整的服务ID。
+         * 为空表示任意服务。全局告警没有服务名，只匹配此项为空的规则。
+         */
+        private List<String> services = new ArrayList<>();
+
+        /**
+         * 匹配的 Nacos 来源名，为空表示任意来源。全局告警只匹配此项为空的规则。
+         */
+        private List<String> sources = new ArrayList<>();
+
+        /**
+         * 匹配的负责人，任一负责人在列表中即匹配；为空表示不限负责人。
+         */
+        private List<String> owners = new ArrayList<>();
+
+        /**
+         * 发送到的目的地名称。
+         */
+        private List<String> destinations = new ArrayList<>();
+    }
+
+    /**
+     * 异步告警派发配置。
+     * 对应 YAML 中的 spring.monitoring.alert-dispatch
+     */
+    private AlertDispatch alertDispatch = new AlertDispatch();
+
+    @Data
+    public static class AlertDispatch {
+
+        /**
+         * 每个 Webhook 独立队列的容量上限，超过后按 overflowPolicy 丢弃。
+         */
+        private int queueCapacity = 1000;
+
+        /**
+         * 负责调用 Webhook 的工作线程数。
+         */
+        private int workerThreads = 4;
+
+        /**
+         * 单个 Webhook 每次连续投递的最大条数，达到后让出线程，避免慢通道长期占用 worker。
+         */
+        private int drainBatchSize = 16;
+
+        /**
+         * 队列满时的处理策略：DROP_OLDEST 丢弃最早排队的告警，DROP_NEWEST 丢弃新到的告警。
+         */
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+
+        /**
+         * 应用关闭时等待队列中告警发送完成的最长时间（毫秒）。
+         */
+        private long shutdownTimeoutMillis = 5000;
+
+        /**
+         * 单条告警的最大发送次数（含首次），HTTP 4xx（429 除外）等不可恢复的错误不重试。
+         */
+        private int maxAttempts = 5;
+
+        /**
+         * 首次重试前的等待时间（毫秒），之后每次翻倍，并在 [一半, 全部] 之间随机抖动。
+         */
+        private long retryInitialBackoffMillis = 1000;
+
+        /**
+         * 重试等待时间的上限（毫秒）。
+         */
+        private long retryMaxBackoffMillis = 60000;
+
+        /**
+         * 同一 Webhook 连续失败达到该次数后熔断，熔断期间不再调用该 Webhook，告警在队列中等待。
+         */
+        private int circuitFailureThreshold = 5;
+
+        /**
+         * 熔断持续时间（毫秒），到期后试发一条，成功则恢复，失败则继续熔断。
+         */
+        private long circuitOpenMillis = 30000;
+
+        /**
+         * 每个 Webhook 的发送速率上限，按渠道配置，与机器人接口的频率限制一致。
+         * 默认：飞书每分钟 100 条、每秒 5 条；钉钉每分钟 20 条。
+         */
+        private Map<String, RateLimit> rateLimits = new LinkedHashMap<>(Map.of(
+                "feishu", new RateLimit(100, 5),
+                "dingtalk", new RateLimit(20, 20)));
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RateLimit {
+
+        /**
+         * 每分钟允许发送的条数。
+         */
+        private double permitsPerMinute;
+
+        /**
+         * 允许的最大突发条数。
+         */
+        private int burst;
+    }
+
+    /**
+     * 告警风暴合并配置。
+     * 对应 YAML 中的 spring.monitoring.alert-digest
+     */
+    private AlertDigest alertDigest = new AlertDigest();
+
+    @Data
+    public static class AlertDigest {
+
+        /**
+         * 是否启用合并。关闭后每次状态变更都单独发送。
+         */
+        private boolean enabled = true;
+
+        /**
+         * 合并窗口长度（毫秒）。窗口内的变更在窗口结束时统一发送。
+         */
+        private long windowMillis = 10000;
+
+        /**
+         * 单条汇总消息最多包含的变更数，攒满后立即发送，不等窗口结束。
+         */
+        private int maxBatchSize = 50;
+
+        /**
+         * 一个窗口内的变更数不超过该值时，仍然逐条发送原来的单条告警。
+         */
+        private int singleMessageThreshold = 3;
+    }
+
+    /**
+     * 状态抖动抑制配置。
+     * 对应 YAML 中的 spring.monitoring.flap-damping
+     */
+    private FlapDamping flapDamping = new FlapDamping();
+
+    @Data
+    public static class FlapDamping {
+
+        /**
+         * 是否启用。关闭后每次 Nacos 推送计算出的状态都会直接提交。
+         */
+        private boolean enabled = true;
+
+        /**
+         * 进入 DOWN/OFFLINE 前需要连续观察到的次数，与 severeHoldMillis 满足其一即提交。
+         */
+        private int severeConfirmObservations = 3;
+
+        /**
+         * DOWN/OFFLINE 状态需要持续的时间（毫秒），到期后由定时器提交。
+         */
+        private long severeHoldMillis = 15000;
+
+        /**
+         * 进入其它状态（RUNNING/DEGRADED）前需要连续观察到的次数。
+         */
+        private int recoverConfirmObservations = 1;
+
+        /**
+         * 进入其它状态需要持续的时间（毫秒）。
+         */
+        private long recoverHoldMillis = 0;
+
+        /**
+         * 在 flapWindowMillis 内原始状态变化达到该次数即判定为抖动（FLAPPING）。
+         */
+        private int flapThreshold = 6;
+
+        /**
+         * 抖动检测的时间窗口（毫秒）。
+         */
+        private long flapWindowMillis = 300000;
+
+        /**
+         * 原始状态保持不变达到该时长（毫秒）后退出 FLAPPING。
+         */
+        private long flapQuietMillis = 120000;
+    }
+
+    /**
+     * WebSocket 推送配置。
+     * 对应 YAML 中的 spring.monitoring.websocket
+     */
+    private WebSocket websocket = new WebSocket();
+
+    @Data
+    public static class WebSocket {
+
+        /**
+         * 每个会话待发送消息数的上限，超过后断开该会话（同一服务的多次更新只保留最新一条，不重复计数）。
+         */
+        private int maxQueuedMessages = 1000;
+
+        /**
+         * 待发送队列中最早一条消息允许的最大积压时长（毫秒），超过后断开该会话。
+         */
+        private long maxLagMillis = 30000;
+
+        /**
+         * 保留最近多少条增量消息用于断线重连补发，客户端落后更多时改发全量快照。
+         */
+        private int replayBufferSize = 10000;
+    }
+
+    /**
+     * 启动时服务发现与订阅的配置。
+     * 对应 YAML 中的 spring.monitoring.bootstrap
+     */
+    private Bootstrap bootstrap = new Bootstrap();
+
+    @Data
+    public static class Bootstrap {
+
+        /**
+         * 分页拉取服务列表时每页的服务数。
+         */
+        private int pageSize = 500;
+
+        /**
+         * 并发订阅的线程数。
+         */
+        private int parallelism = 8;
+
+        /**
+         * 对 Nacos 的请求速率上限（次/秒），查询实例和订阅各计一次。
+         */
+        private double rateLimitPerSecond = 200;
+
+        /**
+         * 订阅前是否主动查询一次实例列表来初始化状态。
+         */
+        private boolean primeInstances = true;
+
+        /**
+         * 增量发现的间隔（毫秒）。
+         */
+        private long discoveryIntervalMillis = 30000;
+
+        /**
+         * 服务连续多少轮不在 Nacos 服务列表中才停止监控并清理状态。
+         */
+        private int removeAfterMissedRounds = 2;
+    }
+
+    /**
+     * 全局健康度汇总及全局告警配置。
+     */
+    private GlobalHealth globalHealth = new GlobalHealth();
+
+    @Data
+    public static class GlobalHealth {
+
+        /**
+         * 计入全局告警比例的状态，默认只统计 DOWN。
+         */
+        private List<ServiceStatus> alertStatuses = new ArrayList<>(List.of(ServiceStatus.DOWN));
+
+        /**
+         * 滑动窗口长度（毫秒）：比例在整个窗口内都超过阈值才告警，都低于阈值才恢复。
+         */
+        private long windowMillis = 30000;
+
+        /**
+         * 采样间隔（毫秒），同时也是看板摘要的推送间隔。
+         */
+        private long sampleIntervalMillis = 1000;
+    }
+
+    /**
+     * 事件处理分片配置。
+     */
+    private EventProcessing eventProcessing = new EventProcessing();
+
+    @Data
+    public static class EventProcessing {
+
+        /**
+         * 分片（处理线程）数量，同一服务的事件总在同一分片上串行处理。小于等于 0 时使用 CPU 核数。
+         */
+        private int shards = 0;
+    }
+
+    /**
+     * 对外 HTTP 调用（告警 Webhook、appinfo 接口）配置。
+     */
+    private OutboundHttp outboundHttp = new OutboundHttp();
+
+    @Data
+    public static class OutboundHttp {
+
+        /**
+         * 建立连接的超时时间（毫秒）。
+         */
+        private long connectTimeoutMillis = 2000;
+
+        /**
+         * 单个请求从发送到收到响应头的超时时间（毫秒）。
+         */
+        private long requestTimeoutMillis = 5000;
+
+        /**
+         * 是否优先使用 HTTP/2，服务端不支持时自动回退到 HTTP/1.1。
+         */
+        private boolean http2 = true;
+
+        /**
+         * 处理异步响应的线程数。
+         */
+        private int executorThreads = 4;
+    }
+
+    /**
+     * 负责人缓存配置：启动时预热，过期前后台刷新，无负责人的应用使用较短的负缓存时间。
+     */
+    private OwnerCache ownerCache = new OwnerCache();
+
+    @Data
+    public static class OwnerCache {
+
+        /**
+         * 有负责人的结果的存活时间（分钟）。
+         */
+        private long ttlMinutes = 60;
+
+        /**
+         * 无负责人的结果（负缓存）的存活时间（分钟）。
+         */
+        private long negativeTtlMinutes = 5;
+
+        /**
+         * 写入多久后在下次访问时后台刷新（分钟），刷新失败时继续使用旧值直到过期。
+         */
+        private long refreshAfterMinutes = 30;
+
+        /**
+         * 缓存的应用数上限。
+         */
+        private long maxSize = 10000;
+
+        /**
+         * 同时访问 appinfo 接口的最大并发数，预热和后台刷新共用。
+         */
+        private int loaderThreads = 4;
+
+        /**
+         * 调用方等待一次负责人查询的最长时间（毫秒）。
+         */
+        private long lookupTimeoutMillis = 5000;
+    }
+
+    /**
+     * 本地状态日志配置，用于重启后恢复状态。
+     */
+    private Journal journal = new Journal();
+
+    @Data
+    public static class Journal {
+
+        private boolean enabled = true;
+
+        /**
+         * 日志和快照文件所在目录。
+         */
+        private String directory = "./data/journal";
+
+        /**
+         * 内存映射的日志文件大小（字节），写满后生成快照并清空。
+         */
+        private long mappedSizeBytes = 64L * 1024 * 1024;
+
+        /**
+         * 批量写入日志的间隔（毫秒）。
+         */
+        private long flushIntervalMillis = 200;
+
+        /**
+         * 生成全量快照的间隔（毫秒）。
+         */
+        private long snapshotIntervalMillis = 300000;
+
+        /**
+         * 每次批量写入后是否强制刷盘。关闭时进程崩溃不丢数据，只有机器掉电可能丢失最近的记录。
+         */
+        private boolean syncOnFlush = false;
+    }
+
+    /**
+     * 状态变化历史配置。
+     */
+    private History history = new History();
+
+    @Data
+    public static class History {
+
+        /**
+         * 每个服务保留的最近状态变化次数，每条记录占 9 字节。
+         */
+        private int capacity = 512;
+    }
+
+    /**
+     * 集群模式配置：多个 Heimdall 实例按一致性哈希划分服务，每个服务只由一个节点处理和告警。
+     */
+    private Cluster cluster = new Cluster();
+
+    @Data
+    public static class Cluster {
+
+        /**
+         * 是否启用集群模式。关闭时本节点负责所有服务。
+         */
+        private boolean enabled = false;
+
+        /**
+         * 成员发现方式：nacos 或 in-memory（仅进程内可见，用于单机和测试）。
+         */
+        private String membership = "in-memory";
+
+        /**
+         * 本节点ID，需在集群内唯一且重启后保持不变。为空时使用 "本机IP:端口"。
+         */
+        private String nodeId = "";
+
+        /**
+         * 在 Nacos 中注册集群成员所用的服务名。
+         */
+        private String serviceName = "heimdall-cluster";
+
+        /**
+         * 每个节点在哈希环上的虚拟节点数，越大分布越均匀。
+         */
+        private int virtualNodes = 160;
+
+        /**
+         * 向 Nacos 发送心跳的间隔。
+         */
+        private long heartbeatIntervalMillis = 1000;
+
+        /**
+         * 心跳超时后摘除节点，决定节点宕机后多快被接管。
+         */
+        private long heartbeatTimeoutMillis = 3000;
+
+        /**
+         * 发布本节点负责的服务数、告警服务数等信息的最小间隔，主节点据此计算全集群的告警比例。
+         */
+        private long metadataPublishIntervalMillis = 5000;
+    }
+
+    /**
+     * 压测配置，仅在 loadtest profile 下生效：用进程内的假 Nacos 代替真实的 Nacos。
+     */
+    private LoadTest loadTest = new LoadTest();
+
+    @Data
+    public static class LoadTest {
+
+        /**
+         * 假 Nacos 中注册的服务数。
+         */
+        private int services = 2000;
+
+        /**
+         * 每个服务的实例数，均匀分布在 target-clusters 中。
+         */
+        private int instancesPerService = 4;
+
+        /**
+         * 服务名前缀，服务名形如 lt-svc-00001.app。
+         */
+        private String servicePrefix = "lt-svc";
+    }
+
+    /**
+     * Nacos 事件录制配置：把收到的推送写入二进制文件，可通过 /api/v1/recordings 回放。
+     */
+    private Recorder recorder = new Recorder();
+
+    @Data
+    public static class Recorder {
+
+        private boolean enabled = false;
+
+        /**
+         * 录制文件所在目录。
+         */
+        private String directory = "./data/recordings";
+
+        /**
+         * 单个录制文件的大小上限（字节），超过后切换到新文件。
+         */
+        private long maxFileBytes = 64L * 1024 * 1024;
+
+        /**
+         * 最多保留的录制文件数，超出时删除最早的文件。
+         */
+        private int maxFiles = 20;
+
+        /**
+         * 待写入事件队列的容量，写入跟不上时丢弃新事件并计数，不阻塞事件处理。
+         */
+        private int queueCapacity = 100000;
+
+        /**
+         * 写缓冲区大小（字节）。
+         */
+        private int bufferBytes = 256 * 1024;
+
+        /**
+         * 缓冲区未满时最长多久写一次文件（毫秒）。
+         */
+        private long flushIntervalMillis = 200;
+
+        /**
+         * 是否开放回放接口（/api/v1/recordings）。回放的事件会进入实时处理流程，只应在测试环境或 loadtest profile 下开启；
+         * 回放期间及结束后的一段时间内告警只记录日志、不发送。
+         */
+        private boolean replayEnabled = false;
+    }
+
+    /**
+     * 配置热加载：target-clusters 及服务过滤规则可以从文件或 Nacos 配置中心热加载，无需重启。
+     */
+    private Reload reload = new Reload();
+
+    @Data
+    public static class Reload {
+
+        /**
+         * 监视的配置文件（.yml/.yaml/.properties），格式与 application.yml 相同，为空表示不启用。
+         */
+        private String file = "";
+
+        /**
+         * 检查配置文件是否变化的间隔（毫秒）。
+         */
+        private long pollIntervalMillis = 5000;
+
+        /**
+         * Nacos 配置中心的 dataId，为空表示不启用；内容格式与 application.yml 相同。
+         */
+        private String nacosDataId = "";
+
+        private String nacosGroup = "DEFAULT_GROUP";
+
+        /**
+         * 连接配置中心使用的 Nacos 来源名（见 sources），使用该来源的服务器地址、命名空间和账号；不配置时使用第一个可用来源。
+         */
+        private String nacosSource;
+    }
+
+    @Data
+    public static class NacosSource {
+
+        /**
+         * 来源名，作为服务ID的前缀（来源@@分组@@服务名），不能包含 "@@"；最多一个来源可以不命名，其服务ID不带来源前缀。
+         */
+        private String name = "";
+
+        /**
+         * 服务器地址，为空时使用 spring.nacos.server-addr。
+         */
+        private String serverAddr = "";
+
+        /**
+         * 命名空间ID，为空表示 public。
+         */
+        private String namespace = "";
+
+        /**
+         * 用户名和密码，为空时使用 spring.nacos 中的配置。
+         */
+        private String username = "";
+
+        private String password = "";
+
+        /**
+         * 监控的分组。
+         */
+        private List<String> groups = new ArrayList<>(List.of("DEFAULT_GROUP"));
+    }
+
+    public enum OverflowPolicy {
+        DROP_OLDEST,
+        DROP_NEWEST
+    }
+
 }
@@ -1,13 +1,16 @@
 package com.mofari.heimdall.config;
 
-import com.alibaba.nacos.api.NacosFactory;
 import com.alibaba.nacos.api.naming.NamingService;
 import com.alibaba.nacos.api.exception.NacosException;
+import com.mofari.heimdall.loadtest.FakeNamingService;
+import com.mofari.heimdall.service.NacosSources;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 
-import java.util.Properties;
+import java.util.List;
+import java.util.Map;
 
 @Configuration
 public class NacosConfig {
@@ -23,24 +26,59 @@ public class NacosConfig {
     private String password;
 
     /**
-     * 手动创建一个 NamingService 的 Bean
-     * @return NamingService 实例
-     * @throws NacosException 如果创建过程中发生错误
+     * 为 spring.monitoring.sources 中的每个来源创建一个 NamingService；未配置时只连接 spring.nacos 指定的服务器。
+     * @return 各来源的客户端
+     * @throws NacosException 只有一个来源且创建失败
      */
     @Bean
-    public NamingService namingService() throws NacosException {
-        System.out.println("====== Manually Creating NamingService Bean ======");
+    @Profile("!loadtest")
+    public NacosSources nacosSources(MonitoringProperties monitoringProperties) throws NacosException {
+        MonitoringProperties.NacosSource defaults = new MonitoringProperties.NacosSource();
+        defaults.setServerAddr(serverAddr);
+        defaults.setUsername(username);
+        defaults.setPassword(password);
+        return NacosSources.create(monitoringProperties, defaults);
+    }
 
-        Properties properties = new Properties();
-        properties.setProperty("serverAddr", serverAddr);
-        properties.setProperty("username", username);
-        properties.setProperty("password", password);
+    /**
+     * 第一个来源的 NamingService，集群成员注册使用。
+     * @return NamingService 实例
+     */
+    @Bean
+    @Profile("!loadtest")
+    public NamingService namingService(NacosSources nacosSources) {
+        return nacosSources.primary().namingService();
+    }
 
-        // 使用 Nacos 提供的工厂类来创建实例
-        NamingService namingService = NacosFactory.createNamingService(properties);
+    /**
+     * 压测用的进程内假 Nacos，启动时注册 spring.monitoring.load-test 指定数量的服务。
+     */
+    @Bean
+    @Profile("loadtest")
+    public FakeNamingService fakeNamingService(MonitoringProperties monitoringProperties) {
+        MonitoringProperties.LoadTest config = monitoringProperties.getLoadTest();
+        List<String> clusters = monitoringProperties.getTargetClusters().isEmpty()
+                ? List.of("DEFAULT") : monitoringProperties.getTargetClusters();
+        FakeNamingService fake = new FakeNamingService();
+        fake.registerServices(config.getServices(), config.getInstancesPerService(), clusters, config.getServicePrefix());
+        return fake;
+    }
 
-        System.out.println("====== NamingService Bean Created Successfully! ======");
+    /**
+     * loadtest profile 下以假 Nacos 代替真实的 NamingService，其余组件无需改动。
+     */
+    @Bean
+    @Profile("loadtest")
+    public NamingService fakeNamingServiceProxy(FakeNamingService fakeNamingService) {
+        return fakeNamingService.namingService();
+    }
 
-        return namingService;
+    /**
+     * loadtest profile 下假 Nacos 作为唯一的未命名来源。
+     */
+    @Bean
+    @Profile("loadtest")
+    public NacosSources fakeNacosSources(NamingService fakeNamingServiceProxy) {
+        return new NacosSources(List.of(new NacosSources.Source("", "", List.of("DEFAULT_GROUP"), fakeNamingServiceProxy)), Map.of());
     }
-}
\ No newline at end of file
+}
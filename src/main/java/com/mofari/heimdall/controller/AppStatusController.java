@@ -1,31 +1,145 @@
 package com.mofari.heimdall.controller;
 
+import com.mofari.heimdall.config.MonitoringProperties;
 import com.mofari.heimdall.service.AppStatusStore;
+import com.mofari.heimdall.service.GlobalHealthAggregator;
+import com.mofari.heimdall.service.NacosSources;
+import com.mofari.heimdall.service.ServiceStatus;
+import com.mofari.heimdall.service.StatusSnapshot;
+import com.mofari.heimdall.service.StatusSnapshotCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
-import java.util.Collection;
-import java.util.Map;
+import java.nio.charset.StandardCharsets;
 
 @RestController
 @RequestMapping("/api/v1") // 统一的 API 前缀
 public class AppStatusController {
 
+    private static final byte[] EMPTY_ARRAY = "[]".getBytes(StandardCharsets.UTF_8);
+
     private final AppStatusStore appStatusStore;
+    private final StatusSnapshotCache statusSnapshotCache;
+    private final MonitoringProperties monitoringProperties;
+    private final GlobalHealthAggregator globalHealthAggregator;
+    private final NacosSources nacosSources;
 
     @Autowired
-    public AppStatusController(AppStatusStore appStatusStore) {
+    public AppStatusController(AppStatusStore appStatusStore, StatusSnapshotCache statusSnapshotCache,
+                               MonitoringProperties monitoringProperties, GlobalHealthAggregator globalHealthAggregator,
+                               NacosSources nacosSources) {
         this.appStatusStore = appStatusStore;
+        this.statusSnapshotCache = statusSnapshotCache;
+        this.monitoringProperties = monitoringProperties;
+        this.globalHealthAggregator = globalHealthAggregator;
+        this.nacosSources = nacosSources;
     }
 
     /**
      * 提供一个获取所有应用当前状态快照的 HTTP GET 接口。
+     * 返回预先编码好的 JSON（客户端支持时返回 gzip），并支持 ETag / If-None-Match，内容未变化时返回 304。
+     * ETag 由内容得出，gzip 与未压缩的响应各有一个强 ETag。
+     * 集群模式下只包含归属本节点的服务（约 1/N），完整列表需汇总各节点的结果。
+     * 多个过滤条件同时给出时返回同时满足所有条件的服务。
+     * @param status      (可选) 只返回该状态的服务
+     * @param cluster     (可选) 只返回在该集群中有实例的服务
+     * @param source      (可选) 只返回该 Nacos 来源的服务
+     * @param ifNoneMatch 客户端缓存的 ETag
+     * @param acceptEncoding 客户端支持的压缩方式
      * @return 所有应用状态的列表
      */
     @GetMapping("/status/all")
-    public Collection<Map<String, Object>> getAllStatuses() {
-        return appStatusStore.getAllStatuses();
+    public ResponseEntity<byte[]> getAllStatuses(@RequestParam(required = false) String status,
+                                                 @RequestParam(required = false) String cluster,
+                                                 @RequestParam(required = false) String source,
+                                                 @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                 @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        ServiceStatus statusFilter = status == null ? null : parseStatus(status);
+        // 不在监控范围内的集群、未配置的来源不会有任何服务，也不为其建立缓存
+        if (cluster != null && !monitoringProperties.getTargetClusters().contains(cluster)) {
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(EMPTY_ARRAY);
+        }
+        if (source != null && !nacosSources.getNames().contains(source)) {
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(EMPTY_ARRAY);
+        }
+        StatusSnapshotCache.EncodedSnapshot snapshot = statusSnapshotCache.filtered(statusFilter, cluster, source);
+
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        // 不同的内容编码使用不同的强 ETag
+        String etag = "\"" + snapshot.etag() + (gzip ? "-gz" : "") + "\"";
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(etag);
+        headers.setCacheControl(CacheControl.noCache());
+        headers.set(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        if (matches(ifNoneMatch, etag)) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            return new ResponseEntity<>(snapshot.gzip(), headers, HttpStatus.OK);
+        }
+        return new ResponseEntity<>(snapshot.json(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * 获取带全局序号的状态快照，序号可用于判断两次读取之间是否发生过变化。
+     * @return 快照
+     */
+    @GetMapping("/status/snapshot")
+    public StatusSnapshot getSnapshot() {
+        return appStatusStore.snapshot();
+    }
+
+    /**
+     * 全局健康度摘要：各状态、各集群的服务数及全局告警状态，供看板顶部展示。
+     * 返回最近一次采样的结果，不遍历服务列表。
+     * @return 摘要
+     */
+    @GetMapping("/status/summary")
+    public GlobalHealthAggregator.HealthSummary getSummary() {
+        return globalHealthAggregator.getSummary();
+    }
+
+    private static ServiceStatus parseStatus(String status) {
+        try {
+            return ServiceStatus.valueOf(status.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown status: " + status);
+        }
+    }
+
+    /**
+     * If-None-Match 按 HTTP 规范使用弱比较：去掉 W/ 前缀后与本次响应的 ETag（含引号及内容编码后缀）逐字比较。
+     * @param etag 本次响应的强 ETag
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isEmpty()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,121 @@
+package com.mofari.heimdall.controller;
+
+import com.mofari.heimdall.service.AlertDispatcher;
+import com.mofari.heimdall.service.AppInfoService;
+import com.mofari.heimdall.service.ClusterCoordinator;
+import com.mofari.heimdall.service.MonitoringConfigReloader;
+import com.mofari.heimdall.service.NacosBootstrapService;
+import com.mofari.heimdall.service.OutboundHttpClient;
+import com.mofari.heimdall.service.ShardedEventProcessor;
+import com.mofari.heimdall.service.StatusJournal;
+import com.mofari.heimdall.websocket.AppStatusWebSocketServer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Heimdall 自身运行状况的诊断接口，用于排查队列积压、丢弃等问题。
+ */
+@RestController
+@RequestMapping("/api/v1/diagnostics")
+public class DiagnosticsController {
+
+    private final AlertDispatcher alertDispatcher;
+    private final AppInfoService appInfoService;
+    private final NacosBootstrapService nacosBootstrapService;
+    private final ShardedEventProcessor eventProcessor;
+    private final OutboundHttpClient outboundHttpClient;
+    private final StatusJournal statusJournal;
+    private final ClusterCoordinator clusterCoordinator;
+    private final MonitoringConfigReloader configReloader;
+
+    @Autowired
+    public DiagnosticsController(AlertDispatcher alertDispatcher, AppInfoService appInfoService,
+                                 NacosBootstrapService nacosBootstrapService, ShardedEventProcessor eventProcessor,
+                                 OutboundHttpClient outboundHttpClient, StatusJournal statusJournal,
+                                 ClusterCoordinator clusterCoordinator, MonitoringConfigReloader configReloader) {
+        this.alertDispatcher = alertDispatcher;
+        this.appInfoService = appInfoService;
+        this.nacosBootstrapService = nacosBootstrapService;
+        this.eventProcessor = eventProcessor;
+        this.outboundHttpClient = outboundHttpClient;
+        this.statusJournal = statusJournal;
+        this.clusterCoordinator = clusterCoordinator;
+        this.configReloader = configReloader;
+    }
+
+    /**
+     * 告警派发队列的统计信息：各 Webhook 的排队数、已发送、丢弃和失败数量。
+     */
+    @GetMapping("/alert-dispatch")
+    public Map<String, Object> getAlertDispatchStats() {
+        return alertDispatcher.getStats();
+    }
+
+    /**
+     * 负责人缓存的统计信息：命中率、加载次数及耗时。
+     */
+    @GetMapping("/owner-cache")
+    public Map<String, Object> getOwnerCacheStats() {
+        return appInfoService.getOwnerCacheStats();
+    }
+
+    /**
+     * WebSocket 会话的发送队列统计：队列深度、积压时长、合并及丢弃数量。
+     */
+    @GetMapping("/websocket")
+    public Map<String, Object> getWebSocketStats() {
+        return AppStatusWebSocketServer.getSessionStats();
+    }
+
+    /**
+     * 启动订阅进度：已发现、已订阅、失败的服务数量及耗时。
+     */
+    @GetMapping("/bootstrap")
+    public Map<String, Object> getBootstrapProgress() {
+        return nacosBootstrapService.getProgress();
+    }
+
+    /**
+     * 事件处理分片的统计：每个分片的队列深度、合并数量以及排队和处理耗时。
+     */
+    @GetMapping("/event-shards")
+    public Map<String, Object> getEventShardStats() {
+        return eventProcessor.getStats();
+    }
+
+    /**
+     * 对外 HTTP 调用的统计：每个主机的请求数、错误数、在途请求数及耗时。
+     */
+    @GetMapping("/outbound-http")
+    public Map<String, Object> getOutboundHttpStats() {
+        return outboundHttpClient.getStats();
+    }
+
+    /**
+     * 状态日志的统计：写入量、压缩次数、启动恢复的服务数及耗时。
+     */
+    @GetMapping("/journal")
+    public Map<String, Object> getJournalStats() {
+        return statusJournal.getStats();
+    }
+
+    /**
+     * 集群状态：本节点ID、成员列表、是否为主节点及服务归属重新划分的次数。
+     */
+    @GetMapping("/cluster")
+    public Map<String, Object> getClusterStats() {
+        return clusterCoordinator.getStats();
+    }
+
+    /**
+     * 配置热加载：加载次数、最近一次的来源和错误，以及当前生效的过滤规则。
+     */
+    @GetMapping("/config-reload")
+    public Map<String, Object> getConfigReloadStats() {
+        return configReloader.getStats();
+    }
+}
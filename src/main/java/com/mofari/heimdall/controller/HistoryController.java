@@ -0,0 +1,77 @@
+package com.mofari.heimdall.controller;
+
+import com.mofari.heimdall.service.ServiceRef;
+import com.mofari.heimdall.service.StatusHistory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 状态历史查询：可用率、故障次数、MTTR 及时间线。
+ * 时间参数均为毫秒时间戳，默认统计最近 7 天。
+ */
+@RestController
+@RequestMapping("/api/v1/history")
+public class HistoryController {
+
+    private static final long DEFAULT_RANGE_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    private final StatusHistory statusHistory;
+
+    @Autowired
+    public HistoryController(StatusHistory statusHistory) {
+        this.statusHistory = statusHistory;
+    }
+
+    /**
+     * 所有服务在指定区间内的统计（不含时间线），可用率最低的排在最前。
+     * @param from (可选) 区间起点
+     * @param to   (可选) 区间终点，默认为当前时间
+     * @param source (可选) 只返回该 Nacos 来源的服务
+     */
+    @GetMapping
+    public List<StatusHistory.Availability> getAll(@RequestParam(required = false) Long from,
+                                                   @RequestParam(required = false) Long to,
+                                                   @RequestParam(required = false) String source) {
+        long end = to == null ? System.currentTimeMillis() : to;
+        List<StatusHistory.Availability> all = statusHistory.getAllAvailability(start(from, end), end);
+        if (source == null) {
+            return all;
+        }
+        return all.stream().filter(a -> ServiceRef.sourceOf(a.id()).equals(source)).toList();
+    }
+
+    /**
+     * 单个服务在指定区间内的统计及时间线。
+     * @param serviceId 服务ID，见 {@link ServiceRef}
+     * @param from      (可选) 区间起点
+     * @param to        (可选) 区间终点，默认为当前时间
+     */
+    @GetMapping("/{serviceId}")
+    public StatusHistory.Availability getOne(@PathVariable String serviceId,
+                                             @RequestParam(required = false) Long from,
+                                             @RequestParam(required = false) Long to) {
+        long end = to == null ? System.currentTimeMillis() : to;
+        StatusHistory.Availability availability = statusHistory.getAvailability(serviceId, start(from, end), end);
+        if (availability == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown service: " + serviceId);
+        }
+        return availability;
+    }
+
+    private static long start(Long from, long end) {
+        long start = from == null ? end - DEFAULT_RANGE_MILLIS : from;
+        if (start >= end) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'from' must be earlier than 'to'");
+        }
+        return start;
+    }
+}
@@ -0,0 +1,81 @@
+package com.mofari.heimdall.controller;
+
+import com.mofari.heimdall.loadtest.LoadPattern;
+import com.mofari.heimdall.loadtest.LoadTestHarness;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 压测接口，仅在 loadtest profile 下可用。
+ * 同时提供告警 Webhook 和 appinfo 接口的桩，压测期间告警和负责人查询都不会访问外部服务。
+ */
+@RestController
+@Profile("loadtest")
+@RequestMapping("/api/v1/loadtest")
+public class LoadTestController {
+
+    private final LoadTestHarness harness;
+
+    @Autowired
+    public LoadTestController(LoadTestHarness harness) {
+        this.harness = harness;
+    }
+
+    /**
+     * 开始一次压测，正在进行的压测会被停止。
+     * @param pattern         事件模式
+     * @param rate            目标事件速率（每秒）
+     * @param durationSeconds 持续时间，0 表示直到调用 stop
+     * @param fraction        MASS_OUTAGE/FLAPPING 中受影响服务的比例
+     * @param clients         模拟 WebSocket 客户端数
+     */
+    @PostMapping("/start")
+    public Map<String, Object> start(@RequestParam(defaultValue = "STEADY_CHURN") LoadPattern pattern,
+                                     @RequestParam(defaultValue = "1000") double rate,
+                                     @RequestParam(defaultValue = "60") long durationSeconds,
+                                     @RequestParam(defaultValue = "0.3") double fraction,
+                                     @RequestParam(defaultValue = "10") int clients) {
+        harness.start(pattern, rate, durationSeconds * 1000, fraction, clients);
+        return harness.report();
+    }
+
+    @PostMapping("/stop")
+    public Map<String, Object> stop() {
+        harness.stop();
+        return harness.report();
+    }
+
+    /**
+     * 吞吐量及 store / websocket / webhook 三个阶段的耗时分位数。
+     */
+    @GetMapping("/report")
+    public Map<String, Object> report() {
+        return harness.report();
+    }
+
+    /**
+     * 告警 Webhook 的桩。
+     */
+    @PostMapping("/webhook")
+    public Map<String, Object> webhook(@RequestBody String body) {
+        harness.onWebhook(body);
+        return Map.of("code", 0);
+    }
+
+    /**
+     * appinfo 接口的桩，所有应用的负责人均为 loadtest。
+     */
+    @GetMapping("/appinfo")
+    public Map<String, Object> appInfo(@RequestParam String app) {
+        return Map.of("data", Map.of("roleUsers", Map.of("OWNER", List.of("loadtest"))));
+    }
+}
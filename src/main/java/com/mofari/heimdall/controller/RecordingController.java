@@ -0,0 +1,93 @@
+package com.mofari.heimdall.controller;
+
+import com.mofari.heimdall.service.EventRecorder;
+import com.mofari.heimdall.service.EventReplayer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Nacos 事件录制文件的查询与回放，只在 spring.monitoring.recorder.replay-enabled 开启时注册。
+ */
+@RestController
+@ConditionalOnProperty(prefix = "spring.monitoring.recorder", name = "replay-enabled", havingValue = "true")
+@RequestMapping("/api/v1/recordings")
+public class RecordingController {
+
+    private final EventRecorder eventRecorder;
+    private final EventReplayer eventReplayer;
+
+    @Autowired
+    public RecordingController(EventRecorder eventRecorder, EventReplayer eventReplayer) {
+        this.eventRecorder = eventRecorder;
+        this.eventReplayer = eventReplayer;
+    }
+
+    /**
+     * 录制状态及录制目录下的文件列表。
+     */
+    @GetMapping
+    public Map<String, Object> list() {
+        Map<String, Object> result = new LinkedHashMap<>(eventRecorder.getStats());
+        result.put("files", eventRecorder.listFiles());
+        return result;
+    }
+
+    /**
+     * 开始回放。
+     * @param files (可选) 按顺序回放的文件名，默认回放录制目录下的全部文件
+     * @param speed (可选) 回放倍速，默认 1，小于等于 0 表示尽快回放
+     */
+    @PostMapping("/replay")
+    public Map<String, Object> replay(@RequestParam(required = false) List<String> files,
+                                      @RequestParam(defaultValue = "1") double speed) {
+        List<Path> recordings = new ArrayList<>();
+        if (files == null || files.isEmpty()) {
+            for (EventRecorder.RecordingFile file : eventRecorder.listFiles()) {
+                recordings.add(eventRecorder.resolve(file.name()));
+            }
+        } else {
+            for (String name : files) {
+                Path file = eventRecorder.resolve(name);
+                if (file == null) {
+                    throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown recording: " + name);
+                }
+                recordings.add(file);
+            }
+        }
+        recordings.removeIf(file -> file == null);
+        if (recordings.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No recordings to replay");
+        }
+        if (!eventReplayer.start(recordings, speed)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "A replay is already running");
+        }
+        return eventReplayer.getStats();
+    }
+
+    /**
+     * 回放进度及速率。
+     */
+    @GetMapping("/replay")
+    public Map<String, Object> replayStatus() {
+        return eventReplayer.getStats();
+    }
+
+    @PostMapping("/replay/stop")
+    public Map<String, Object> stopReplay() {
+        eventReplayer.stop();
+        return eventReplayer.getStats();
+    }
+}
@@ -0,0 +1,264 @@
+package com.mofari.heimdall.loadtest;
+
+import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.naming.listener.EventListener;
+import com.alibaba.nacos.api.naming.listener.NamingEvent;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import com.alibaba.nacos.api.naming.pojo.ListView;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 进程内的假 Nacos，用于压测：注册 N 个服务 × M 个实例，由 {@link LoadGenerator} 修改实例健康状态并推送事件。
+ * <p>
+ * 通过动态代理实现 {@link NamingService}，只支持 Heimdall 用到的方法（分页列服务、查询实例、订阅/退订、
+ * 注册/注销实例），其它方法抛出 {@link UnsupportedOperationException}。
+ * 推送在调用方线程上同步回调监听器，Heimdall 的监听器只做入队，不会阻塞生成器。
+ */
+@Slf4j
+public class FakeNamingService implements InvocationHandler {
+
+    /**
+     * 单个服务的实例和监听器。实例状态只由生成器线程修改，推送时复制一份新的实例列表。
+     */
+    static final class FakeService {
+        final String name;
+        final String[] ips;
+        final int[] ports;
+        final String[] clusters;
+        final boolean[] healthy;
+        final List<EventListener> listeners = new CopyOnWriteArrayList<>();
+        volatile List<Instance> published = List.of();
+
+        FakeService(String name, int instances) {
+            this.name = name;
+            this.ips = new String[instances];
+            this.ports = new int[instances];
+            this.clusters = new String[instances];
+            this.healthy = new boolean[instances];
+        }
+    }
+
+    private final Map<String, FakeService> services = new ConcurrentHashMap<>();
+    private final List<String> serviceNames = new CopyOnWriteArrayList<>();
+    // 服务名 -> 最近一次推送的 System.nanoTime()，用于计算端到端耗时
+    private final Map<String, Long> lastPushNanos = new ConcurrentHashMap<>();
+    private final NamingService proxy;
+
+    public FakeNamingService() {
+        this.proxy = (NamingService) Proxy.newProxyInstance(NamingService.class.getClassLoader(),
+                new Class<?>[]{NamingService.class}, this);
+    }
+
+    /**
+     * @return 实现了 {@link NamingService} 的代理
+     */
+    public NamingService namingService() {
+        return proxy;
+    }
+
+    /**
+     * 注册一批服务，实例全部健康，均匀分布在给定的集群中。
+     * @param count      服务数
+     * @param instances  每个服务的实例数
+     * @param clusters   集群名
+     * @param namePrefix 服务名前缀，服务名形如 {@code prefix-00001.app}
+     */
+    public void registerServices(int count, int instances, List<String> clusters, String namePrefix) {
+        for (int s = 0; s < count; s++) {
+            String name = String.format("%s-%05d.app", namePrefix, s);
+            FakeService service = new FakeService(name, instances);
+            for (int i = 0; i < instances; i++) {
+                service.ips[i] = "10." + (s >> 8 & 0xff) + "." + (s & 0xff) + "." + (i + 1);
+                service.ports[i] = 8080;
+                service.clusters[i] = clusters.get(i % clusters.size());
+                service.healthy[i] = true;
+            }
+            service.published = snapshot(service);
+            if (services.putIfAbsent(name, service) == null) {
+                serviceNames.add(name);
+            }
+        }
+        log.info("Fake Nacos registered {} services x {} instances.", count, instances);
+    }
+
+    /**
+     * @return 已注册的服务名（不含通过 registerInstance 注册的服务）
+     */
+    public List<String> getServiceNames() {
+        return serviceNames;
+    }
+
+    /**
+     * @return 服务的实例数
+     */
+    public int instanceCount(String serviceName) {
+        return services.get(serviceName).healthy.length;
+    }
+
+    /**
+     * 修改实例健康状态，需随后调用 {@link #push} 才会通知监听器。只应由一个线程调用。
+     */
+    public void setHealthy(String serviceName, int instance, boolean healthy) {
+        services.get(serviceName).healthy[instance] = healthy;
+    }
+
+    public boolean isHealthy(String serviceName, int instance) {
+        return services.get(serviceName).healthy[instance];
+    }
+
+    /**
+     * 把服务当前的实例列表推送给所有监听器。
+     */
+    public void push(String serviceName) {
+        FakeService service = services.get(serviceName);
+        List<Instance> instances = snapshot(service);
+        service.published = instances;
+        lastPushNanos.put(serviceName, System.nanoTime());
+        for (EventListener listener : service.listeners) {
+            listener.onEvent(new NamingEvent(serviceName, "DEFAULT_GROUP", null, instances));
+        }
+    }
+
+    /**
+     * @return 服务最近一次推送的 {@link System#nanoTime()}，没有推送过时返回 null
+     */
+    public Long lastPushNanos(String serviceName) {
+        return lastPushNanos.get(serviceName);
+    }
+
+    /**
+     * @return 已订阅的服务数
+     */
+    public int subscribedCount() {
+        int count = 0;
+        for (FakeService service : services.values()) {
+            if (!service.listeners.isEmpty()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static List<Instance> snapshot(FakeService service) {
+        List<Instance> instances = new ArrayList<>(service.healthy.length);
+        for (int i = 0; i < service.healthy.length; i++) {
+            Instance instance = new Instance();
+            instance.setIp(service.ips[i]);
+            instance.setPort(service.ports[i]);
+            instance.setClusterName(service.clusters[i]);
+            instance.setHealthy(service.healthy[i]);
+            instance.setServiceName(service.name);
+            instances.add(instance);
+        }
+        return instances;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        switch (name) {
+            case "getServicesOfServer":
+                return listServices((int) args[0], (int) args[1]);
+            case "getAllInstances":
+            case "selectInstances":
+                return selectInstances((String) args[0], method, args);
+            case "subscribe":
+                service((String) args[0]).listeners.add((EventListener) args[args.length - 1]);
+                return null;
+            case "unsubscribe":
+                service((String) args[0]).listeners.remove((EventListener) args[args.length - 1]);
+                return null;
+            case "registerInstance":
+                return registerInstance((String) args[0], args[args.length - 1]);
+            case "deregisterInstance":
+                return deregisterInstance((String) args[0], args[args.length - 1]);
+            case "getServerStatus":
+                return "UP";
+            case "shutDown":
+                return null;
+            case "toString":
+                return "FakeNamingService[" + services.size() + " services]";
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            default:
+                throw new UnsupportedOperationException("FakeNamingService does not support " + name);
+        }
+    }
+
+    private ListView<String> listServices(int pageNo, int pageSize) {
+        List<String> names = serviceNames;
+        int from = Math.min(names.size(), (pageNo - 1) * pageSize);
+        int to = Math.min(names.size(), from + pageSize);
+        ListView<String> view = new ListView<>();
+        view.setCount(names.size());
+        view.setData(new ArrayList<>(names.subList(from, to)));
+        return view;
+    }
+
+    private List<Instance> selectInstances(String serviceName, Method method, Object[] args) {
+        List<Instance> instances = service(serviceName).published;
+        // selectInstances(serviceName, groupName, healthy)
+        if (method.getName().equals("selectInstances") && args.length == 3 && args[2] instanceof Boolean healthy) {
+            List<Instance> selected = new ArrayList<>();
+            for (Instance instance : instances) {
+                if (instance.isHealthy() == healthy) {
+                    selected.add(instance);
+                }
+            }
+            return selected;
+        }
+        return instances;
+    }
+
+    /**
+     * 集群成员通过 registerInstance 注册自己，这里把实例直接加入服务并推送。
+     */
+    private Object registerInstance(String serviceName, Object instance) {
+        if (!(instance instanceof Instance registered)) {
+            throw new UnsupportedOperationException("registerInstance without Instance is not supported");
+        }
+        FakeService service = service(serviceName);
+        synchronized (service) {
+            List<Instance> updated = new ArrayList<>(service.published);
+            updated.add(registered);
+            service.published = updated;
+        }
+        notifyListeners(service);
+        return null;
+    }
+
+    private Object deregisterInstance(String serviceName, Object instance) {
+        if (!(instance instanceof Instance registered)) {
+            throw new UnsupportedOperationException("deregisterInstance without Instance is not supported");
+        }
+        FakeService service = service(serviceName);
+        synchronized (service) {
+            List<Instance> updated = new ArrayList<>(service.published);
+            updated.removeIf(i -> i.getIp().equals(registered.getIp()) && i.getPort() == registered.getPort());
+            service.published = updated;
+        }
+        notifyListeners(service);
+        return null;
+    }
+
+    private void notifyListeners(FakeService service) {
+        for (EventListener listener : service.listeners) {
+            listener.onEvent(new NamingEvent(service.name, "DEFAULT_GROUP", null, service.published));
+        }
+    }
+
+    private FakeService service(String serviceName) {
+        return services.computeIfAbsent(serviceName, n -> new FakeService(n, 0));
+    }
+}
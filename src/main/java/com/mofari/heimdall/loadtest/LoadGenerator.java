@@ -0,0 +1,156 @@
+package com.mofari.heimdall.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 按目标速率向 {@link FakeNamingService} 产生事件。
+ * <p>
+ * 以 1 毫秒为节拍补齐"应发数 - 已发数"，不为每个事件单独休眠，高速率下也能保持目标速率；
+ * 处理跟不上时体现为 Heimdall 侧的排队和合并，而不是生成器降速。
+ */
+@Slf4j
+public class LoadGenerator {
+
+    private final FakeNamingService nacos;
+    private final LongAdder emitted = new LongAdder();
+
+    private volatile Thread thread;
+    private volatile boolean running;
+
+    // 以下状态只由生成器线程访问
+    private SplittableRandom random;
+    private List<String> names;
+    private int cursorService;
+    private int cursorInstance;
+    private boolean cursorDown;
+
+    public LoadGenerator(FakeNamingService nacos) {
+        this.nacos = nacos;
+    }
+
+    /**
+     * 启动生成器，已在运行时先停止上一次。
+     * @param pattern         事件模式
+     * @param eventsPerSecond 目标速率
+     * @param durationMillis  持续时间，0 表示直到 {@link #stop()}
+     * @param fraction        MASS_OUTAGE/FLAPPING 中受影响服务的比例
+     */
+    public synchronized void start(LoadPattern pattern, double eventsPerSecond, long durationMillis, double fraction) {
+        stop();
+        this.names = List.copyOf(nacos.getServiceNames());
+        if (names.isEmpty()) {
+            throw new IllegalStateException("No fake services registered");
+        }
+        this.random = new SplittableRandom(42);
+        this.cursorService = 0;
+        this.cursorInstance = 0;
+        this.cursorDown = true;
+        int affected = Math.max(1, (int) Math.round(names.size() * Math.min(1, Math.max(0, fraction))));
+        this.running = true;
+        Thread t = new Thread(() -> run(pattern, eventsPerSecond, durationMillis, affected), "load-generator");
+        t.setDaemon(true);
+        this.thread = t;
+        t.start();
+        log.info("Load generator started: pattern={}, rate={}/s, duration={} ms, affected={}",
+                pattern, eventsPerSecond, durationMillis, affected);
+    }
+
+    public synchronized void stop() {
+        running = false;
+        Thread t = thread;
+        if (t != null) {
+            LockSupport.unpark(t);
+            try {
+                t.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return 已产生的事件数
+     */
+    public long getEmitted() {
+        return emitted.sum();
+    }
+
+    private void run(LoadPattern pattern, double eventsPerSecond, long durationMillis, int affected) {
+        long start = System.nanoTime();
+        long deadline = durationMillis > 0 ? start + TimeUnit.MILLISECONDS.toNanos(durationMillis) : Long.MAX_VALUE;
+        long sent = 0;
+        while (running) {
+            long now = System.nanoTime();
+            if (now >= deadline) {
+                break;
+            }
+            long due = (long) ((now - start) / 1e9 * eventsPerSecond);
+            for (; sent < due && running; sent++) {
+                next(pattern, affected);
+                emitted.increment();
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        running = false;
+        log.info("Load generator finished after {} events.", sent);
+    }
+
+    private void next(LoadPattern pattern, int affected) {
+        switch (pattern) {
+            case STEADY_CHURN -> {
+                String name = names.get(random.nextInt(names.size()));
+                int instance = random.nextInt(nacos.instanceCount(name));
+                nacos.setHealthy(name, instance, !nacos.isHealthy(name, instance));
+                nacos.push(name);
+            }
+            case ROLLING_DEPLOY -> {
+                String name = names.get(cursorService);
+                nacos.setHealthy(name, cursorInstance, !cursorDown);
+                nacos.push(name);
+                if (!cursorDown) {
+                    cursorInstance++;
+                    if (cursorInstance >= nacos.instanceCount(name)) {
+                        cursorInstance = 0;
+                        cursorService = (cursorService + 1) % names.size();
+                    }
+                }
+                cursorDown = !cursorDown;
+            }
+            case MASS_OUTAGE, FLAPPING -> {
+                // MASS_OUTAGE：依次让 affected 个服务宕机，再依次恢复；FLAPPING：每个服务宕机后紧接着恢复
+                String name = names.get(cursorService);
+                setAll(name, !cursorDown);
+                nacos.push(name);
+                if (pattern == LoadPattern.FLAPPING) {
+                    if (!cursorDown) {
+                        cursorService = (cursorService + 1) % affected;
+                    }
+                    cursorDown = !cursorDown;
+                } else {
+                    cursorService++;
+                    if (cursorService >= affected) {
+                        cursorService = 0;
+                        cursorDown = !cursorDown;
+                    }
+                }
+            }
+        }
+    }
+
+    private void setAll(String name, boolean healthy) {
+        for (int i = 0, n = nacos.instanceCount(name); i < n; i++) {
+            nacos.setHealthy(name, i, healthy);
+        }
+    }
+}
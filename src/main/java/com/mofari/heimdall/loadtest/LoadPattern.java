@@ -0,0 +1,27 @@
+package com.mofari.heimdall.loadtest;
+
+/**
+ * 压测事件模式。每个"事件"是一次实例状态修改加一次推送。
+ */
+public enum LoadPattern {
+
+    /**
+     * 持续扰动：随机挑选服务和实例，翻转其健康状态。服务多在 RUNNING/DEGRADED 之间变化。
+     */
+    STEADY_CHURN,
+
+    /**
+     * 滚动发布：逐个服务、逐个实例先下线再恢复，与真实发布时的推送顺序一致。
+     */
+    ROLLING_DEPLOY,
+
+    /**
+     * 大面积故障：一部分服务的全部实例依次变为不健康，全部宕机后再依次恢复，循环进行。会触发告警和全局告警。
+     */
+    MASS_OUTAGE,
+
+    /**
+     * 抖动：一小部分服务在全部健康和全部不健康之间反复切换，用于观察抖动抑制。
+     */
+    FLAPPING
+}
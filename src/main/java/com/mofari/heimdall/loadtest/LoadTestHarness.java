@@ -0,0 +1,252 @@
+package com.mofari.heimdall.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mofari.heimdall.config.MonitoringProperties;
+import com.mofari.heimdall.service.AppStatus;
+import com.mofari.heimdall.service.AppStatusStore;
+import com.mofari.heimdall.service.StatusListener;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 端到端压测：驱动 {@link LoadGenerator}，并统计从假 Nacos 推送到
+ * <ol>
+ *     <li>状态写入存储（store）；</li>
+ *     <li>K 个模拟客户端收到 WebSocket 帧（websocket）；</li>
+ *     <li>桩 Webhook 收到告警（webhook，包含抖动抑制的确认时间和告警合并窗口）</li>
+ * </ol>
+ * 的耗时分布及吞吐量。耗时以该服务最近一次推送为起点，排队期间被合并的事件按最新一次计算。
+ */
+@Slf4j
+@Component
+@Profile("loadtest")
+public class LoadTestHarness implements StatusListener {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+
+    @Autowired
+    private FakeNamingService fakeNamingService;
+
+    @Autowired
+    private AppStatusStore appStatusStore;
+
+    @Autowired
+    private MonitoringProperties monitoringProperties;
+
+    @Value("${server.port:8080}")
+    private int serverPort;
+
+    private LoadGenerator generator;
+    private Pattern serviceNamePattern;
+    private final List<WebSocket> clients = new ArrayList<>();
+
+    private volatile Run run;
+
+    /**
+     * 一次压测的统计，重新开始时整体替换。
+     */
+    private static final class Run {
+        final LoadPattern pattern;
+        final double targetRate;
+        final long startedAt = System.currentTimeMillis();
+        final long startedNanos = System.nanoTime();
+        final long emittedBefore;
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        final Timer store = timer(registry, "store");
+        final Timer webSocket = timer(registry, "websocket");
+        final Timer webhook = timer(registry, "webhook");
+
+        Run(LoadPattern pattern, double targetRate, long emittedBefore) {
+            this.pattern = pattern;
+            this.targetRate = targetRate;
+            this.emittedBefore = emittedBefore;
+        }
+
+        private static Timer timer(SimpleMeterRegistry registry, String stage) {
+            return Timer.builder("heimdall.loadtest.latency")
+                    .tag("stage", stage)
+                    .publishPercentiles(PERCENTILES)
+                    .distributionStatisticExpiry(Duration.ofDays(1))
+                    .distributionStatisticBufferLength(1)
+                    .register(registry);
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        this.generator = new LoadGenerator(fakeNamingService);
+        this.serviceNamePattern = Pattern.compile(Pattern.quote(monitoringProperties.getLoadTest().getServicePrefix()) + "-\\d+\\.app");
+        appStatusStore.addListener(this);
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        generator.stop();
+        closeClients();
+    }
+
+    /**
+     * 开始一次压测，正在进行的压测会被停止。
+     * @param clients 模拟 WebSocket 客户端数
+     */
+    public synchronized void start(LoadPattern pattern, double eventsPerSecond, long durationMillis, double fraction, int clients) {
+        generator.stop();
+        closeClients();
+        connectClients(clients);
+        this.run = new Run(pattern, eventsPerSecond, generator.getEmitted());
+        generator.start(pattern, eventsPerSecond, durationMillis, fraction);
+    }
+
+    public synchronized void stop() {
+        generator.stop();
+    }
+
+    /**
+     * 桩 Webhook 收到一条告警，按正文中出现的服务名计算耗时。
+     */
+    public void onWebhook(String body) {
+        Run r = run;
+        if (r == null || body == null) {
+            return;
+        }
+        Matcher matcher = serviceNamePattern.matcher(body);
+        while (matcher.find()) {
+            record(r.webhook, matcher.group());
+        }
+    }
+
+    @Override
+    public void onStatusUpdated(AppStatus previous, AppStatus status) {
+        Run r = run;
+        if (r != null) {
+            record(r.store, status.id());
+        }
+    }
+
+    private void record(Timer timer, String serviceId) {
+        Long pushed = fakeNamingService.lastPushNanos(serviceId);
+        if (pushed != null) {
+            timer.record(System.nanoTime() - pushed, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void connectClients(int count) {
+        HttpClient httpClient = HttpClient.newHttpClient();
+        URI uri = URI.create("ws://127.0.0.1:" + serverPort + "/api/v1/status");
+        for (int i = 0; i < count; i++) {
+            try {
+                clients.add(httpClient.newWebSocketBuilder().buildAsync(uri, new ClientListener()).get(10, TimeUnit.SECONDS));
+            } catch (Exception e) {
+                log.warn("Failed to connect load test client {}: {}", i, e.getMessage());
+            }
+        }
+        log.info("Connected {} load test WebSocket clients.", clients.size());
+    }
+
+    private void closeClients() {
+        for (WebSocket client : clients) {
+            client.abort();
+        }
+        clients.clear();
+    }
+
+    /**
+     * 模拟客户端：只解析 delta 消息中的服务ID，用于计算耗时。
+     */
+    private final class ClientListener implements WebSocket.Listener {
+
+        private final StringBuilder buffer = new StringBuilder();
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            buffer.append(data);
+            if (last) {
+                onMessage(buffer.toString());
+                buffer.setLength(0);
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        private void onMessage(String text) {
+            Run r = run;
+            if (r == null || !text.startsWith("{\"type\":\"delta\"")) {
+                return;
+            }
+            try {
+                JsonNode service = objectMapper.readTree(text).path("service");
+                record(r.webSocket, service.path("id").asText());
+            } catch (Exception e) {
+                log.debug("Unparseable frame: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return 本次压测的吞吐量和各阶段耗时分位数
+     */
+    public Map<String, Object> report() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        Run r = run;
+        report.put("running", generator.isRunning());
+        report.put("services", fakeNamingService.getServiceNames().size());
+        report.put("subscribed", fakeNamingService.subscribedCount());
+        if (r == null) {
+            return report;
+        }
+        double elapsedSeconds = Math.max(1e-3, (System.nanoTime() - r.startedNanos) / 1e9);
+        long emitted = generator.getEmitted() - r.emittedBefore;
+        report.put("pattern", r.pattern);
+        report.put("startedAt", r.startedAt);
+        report.put("elapsedSeconds", elapsedSeconds);
+        report.put("clients", clients.size());
+        report.put("targetEventsPerSecond", r.targetRate);
+        report.put("emitted", emitted);
+        report.put("emittedPerSecond", emitted / elapsedSeconds);
+        Map<String, Object> stages = new LinkedHashMap<>();
+        stages.put("store", stage(r.store, elapsedSeconds));
+        stages.put("websocket", stage(r.webSocket, elapsedSeconds));
+        stages.put("webhook", stage(r.webhook, elapsedSeconds));
+        report.put("stages", stages);
+        return report;
+    }
+
+    private static Map<String, Object> stage(Timer timer, double elapsedSeconds) {
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        Map<String, Object> stage = new LinkedHashMap<>();
+        stage.put("count", snapshot.count());
+        stage.put("perSecond", snapshot.count() / elapsedSeconds);
+        stage.put("meanMillis", snapshot.mean(TimeUnit.MILLISECONDS));
+        for (ValueAtPercentile p : snapshot.percentileValues()) {
+            double percent = Math.round(p.percentile() * 1000) / 10.0;
+            String label = percent == Math.rint(percent) ? String.valueOf((long) percent) : String.valueOf(percent);
+            stage.put("p" + label + "Millis", p.value(TimeUnit.MILLISECONDS));
+        }
+        stage.put("maxMillis", snapshot.max(TimeUnit.MILLISECONDS));
+        return stage;
+    }
+}
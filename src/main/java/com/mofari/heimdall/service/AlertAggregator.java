@@ -0,0 +1,251 @@
+package com.mofari.heimdall.service;
+
+import com.mofari.heimdall.config.MonitoringProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 告警风暴合并。
+ * <p>
+ * 位于 {@link AlertDispatcher} 之前：平时一条变更立即发出一条告警，同时为该 Webhook 打开一个合并窗口；
+ * 窗口内到达的后续变更先缓存，窗口结束时数量较少则逐条发送，数量较多则合并成一条汇总消息。
+ * 只要每个窗口都还有新变更，窗口就会持续滚动；一个窗口内没有变更时窗口关闭，恢复为立即发送。
+ * <p>
+ * 变更先经 {@link AlertRouter} 路由，发往多个目的地时每个目的地各有一个合并窗口。
+ */
+@Service
+public class AlertAggregator {
+
+    private static final Logger log = LoggerFactory.getLogger(AlertAggregator.class);
+
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    private static final String DEFAULT_WEBHOOK = "";
+
+    @Autowired
+    private AlertDispatcher alertDispatcher;
+
+    @Autowired
+    private AppInfoService appInfoService;
+
+    @Autowired
+    private AlertRouter alertRouter;
+
+    @Autowired
+    private MonitoringProperties monitoringProperties;
+
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "alert-digest");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // 关闭前把各窗口中尚未发送的变更交给派发器
+        for (Window window : windows.values()) {
+            window.flush(true);
+        }
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 提交一次状态变更，按路由规则发送；没有匹配的规则时发送到默认通知渠道的默认 Webhook。不会阻塞调用线程。
+     */
+    public void submit(ServiceTransition transition) {
+        if (!alertRouter.usesOwners()) {
+            route(transition, List.of());
+            return;
+        }
+        // 负责人缓存在启动时预热，通常已命中，此时同步完成；未命中时在查询完成后再路由，不阻塞调用线程
+        appInfoService.getAppOwnersAsync(transition.displayName()).thenAccept(owners -> route(transition, owners));
+    }
+
+    private void route(ServiceTransition transition, List<String> owners) {
+        List<AlertRouter.Destination> destinations = alertRouter.route(transition.level(), transition.serviceId(), owners);
+        if (destinations.isEmpty()) {
+            submit(null, null, transition);
+            return;
+        }
+        for (AlertRouter.Destination destination : destinations) {
+            submit(destination.channel(), destination.webhookUrl(), transition);
+        }
+    }
+
+    private void submit(String channel, String webhookUrl, ServiceTransition transition) {
+        if (!monitoringProperties.getAlertDigest().isEnabled()) {
+            alertDispatcher.dispatch(singleMessage(channel, webhookUrl, transition));
+            return;
+        }
+        String key = webhookUrl == null ? DEFAULT_WEBHOOK : webhookUrl;
+        if (channel != null) {
+            key = channel + "|" + key;
+        }
+        windows.computeIfAbsent(key, k -> new Window(channel, webhookUrl)).add(transition);
+    }
+
+    private AlertMessage singleMessage(String channel, String webhookUrl, ServiceTransition t) {
+        if (t.level() == AlertLevel.DOWN) {
+            String title = "🚨 服务宕机警报";
+            return AlertMessage.to(channel, webhookUrl, title, AlertLevel.DOWN, () -> {
+                String ownerText = ownerText(t.displayName());
+                return String.format("#### %s\n\n> **服务名**: %s\n\n> **负责人**: %s\n\n> **当前状态**: <font color='#dd0000'>**%s**</font>%s\n\n> **时间**: %s",
+                        title, t.serviceId(), ownerText, t.newStatus(), instancesText(t), formatTimestamp(t.occurredAt()));
+            });
+        }
+        String title = "✅ 服务恢复通知";
+        return AlertMessage.to(channel, webhookUrl, title, AlertLevel.RECOVERY, () ->
+                String.format("#### %s\n\n> **服务名**: %s\n\n> **当前状态**: <font color='#008000'>**%s**</font>%s\n\n> **时间**: %s",
+                        title, t.serviceId(), t.newStatus(), instancesText(t), formatTimestamp(t.occurredAt())));
+    }
+
+    private AlertMessage digestMessage(String channel, String webhookUrl, List<ServiceTransition> batch) {
+        long downCount = batch.stream().filter(t -> t.level() == AlertLevel.DOWN).count();
+        long recoveryCount = batch.size() - downCount;
+        AlertLevel level = downCount > 0 ? AlertLevel.DOWN : AlertLevel.RECOVERY;
+        String title = downCount > 0
+                ? String.format("🚨 服务状态汇总：%d 个宕机，%d 个恢复", downCount, recoveryCount)
+                : String.format("✅ 服务恢复汇总：%d 个恢复", recoveryCount);
+        long from = batch.get(0).occurredAt();
+        long to = batch.get(batch.size() - 1).occurredAt();
+        return AlertMessage.to(channel, webhookUrl, title, level, () -> {
+            StringBuilder text = new StringBuilder();
+            text.append("#### ").append(title).append("\n\n");
+            text.append("> **时间范围**: ").append(formatTimestamp(from)).append(" ~ ").append(formatTimestamp(to)).append("\n\n");
+            if (downCount > 0) {
+                text.append("**<font color='#dd0000'>宕机服务</font>**\n\n");
+                for (ServiceTransition t : batch) {
+                    if (t.level() == AlertLevel.DOWN) {
+                        text.append("> - ").append(t.serviceId()).append("（负责人：").append(ownerText(t.displayName())).append("）");
+                        if (t.instances() != null) {
+                            text.append("，").append(t.instances());
+                        }
+                        text.append("\n");
+                    }
+                }
+                text.append("\n");
+            }
+            if (recoveryCount > 0) {
+                text.append("**<font color='#008000'>已恢复服务</font>**\n\n");
+                for (ServiceTransition t : batch) {
+                    if (t.level() != AlertLevel.DOWN) {
+                        text.append("> - ").append(t.serviceId()).append("\n");
+                    }
+                }
+            }
+            return text.toString();
+        });
+    }
+
+    private static String instancesText(ServiceTransition t) {
+        return t.instances() == null ? "" : "\n\n> **实例**: " + t.instances();
+    }
+
+    private String ownerText(String appName) {
+        List<String> owners = appInfoService.getAppOwners(appName);
+        return owners.isEmpty() ? "未指定" : String.join(", ", owners);
+    }
+
+    static String formatTimestamp(long epochMillis) {
+        return TIMESTAMP_FORMATTER.format(Instant.ofEpochMilli(epochMillis));
+    }
+
+    /**
+     * 单个目的地（渠道 + Webhook）的合并窗口。
+     */
+    private final class Window {
+
+        private final String channel;
+        private final String webhookUrl;
+        private List<ServiceTransition> buffer = new ArrayList<>(); // guarded by this
+        private boolean open = false; // guarded by this
+
+        private Window(String channel, String webhookUrl) {
+            this.channel = channel;
+            this.webhookUrl = webhookUrl;
+        }
+
+        void add(ServiceTransition transition) {
+            MonitoringProperties.AlertDigest config = monitoringProperties.getAlertDigest();
+            List<ServiceTransition> full = null;
+            boolean sendNow = false;
+            synchronized (this) {
+                if (!open) {
+                    // 平静期的第一条变更立即发送，并开始一个合并窗口
+                    open = true;
+                    sendNow = true;
+                    scheduleFlush(config.getWindowMillis());
+                } else {
+                    buffer.add(transition);
+                    if (buffer.size() >= Math.max(1, config.getMaxBatchSize())) {
+                        full = buffer;
+                        buffer = new ArrayList<>();
+                    }
+                }
+            }
+            if (sendNow) {
+                alertDispatcher.dispatch(singleMessage(channel, webhookUrl, transition));
+            } else if (full != null) {
+                emit(full);
+            }
+        }
+
+        void flush(boolean closing) {
+            List<ServiceTransition> batch;
+            synchronized (this) {
+                batch = buffer;
+                buffer = new ArrayList<>();
+                if (batch.isEmpty() || closing) {
+                    // 整个窗口内没有新的变更，风暴已过去
+                    open = false;
+                } else {
+                    scheduleFlush(monitoringProperties.getAlertDigest().getWindowMillis());
+                }
+            }
+            if (!batch.isEmpty()) {
+                emit(batch);
+            }
+        }
+
+        private void scheduleFlush(long delayMillis) {
+            if (scheduler.isShutdown()) {
+                return;
+            }
+            scheduler.schedule(() -> flush(false), delayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        private void emit(List<ServiceTransition> batch) {
+            if (batch.size() <= monitoringProperties.getAlertDigest().getSingleMessageThreshold()) {
+                for (ServiceTransition t : batch) {
+                    alertDispatcher.dispatch(singleMessage(channel, webhookUrl, t));
+                }
+            } else {
+                log.info("Coalesced {} service transitions into one digest alert.", batch.size());
+                alertDispatcher.dispatch(digestMessage(channel, webhookUrl, batch));
+            }
+        }
+    }
+}
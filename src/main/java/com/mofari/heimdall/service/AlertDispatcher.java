@@ -0,0 +1,518 @@
+package com.mofari.heimdall.service;
+
+import com.mofari.heimdall.config.MonitoringProperties;
+import io.micrometer.core.instrument.Gauge;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 异步告警派发器。
+ * <p>
+ * 事件线程只负责把 {@link AlertMessage} 放入对应 Webhook 的有界队列后立即返回；
+ * 真正的 HTTP 调用由专用 worker 线程池完成。每个 Webhook 一条通道（lane），
+ * 同一时刻最多只有一个 worker 在处理某条通道，从而保证同一 Webhook 的告警按入队顺序发送，
+ * 而一个慢 Webhook 也不会阻塞其它 Webhook。
+ * <p>
+ * 所有通知渠道的实现都会加载，告警按 {@link AlertMessage#getChannel()} 选择渠道，未指定时使用 alert-channel；
+ * 路由到多个目的地的同一条告警进入各自的通道，由不同 worker 并行发送。
+ * <p>
+ * 每条通道内：
+ * <ul>
+ *   <li>按告警级别分优先级排队，CRITICAL、DOWN 先于 RECOVERY、INFO 发送，同级别内保持入队顺序；
+ *       队列满时优先丢弃低优先级的告警；</li>
+ *   <li>令牌桶限流，速率与机器人接口的频率限制一致，超出时通道延后处理，不占用 worker；</li>
+ *   <li>发送失败按指数退避加随机抖动重试，重试的告警仍排在同级别的最前面；</li>
+ *   <li>连续失败达到阈值后熔断，熔断期间不再调用该 Webhook，到期后试发一条决定是否恢复。</li>
+ * </ul>
+ */
+@Service
+public class AlertDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(AlertDispatcher.class);
+
+    private static final String DEFAULT_LANE = "default";
+
+    private static final AlertLevel[] PRIORITY = AlertLevel.values(); // 声明顺序即优先级
+
+    @Autowired
+    private List<AlertNotifier> notifiers;
+
+    @Autowired
+    private MonitoringProperties monitoringProperties;
+
+    @Autowired
+    private HeimdallMetrics metrics;
+
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final Map<String, AlertNotifier> notifiersByChannel = new HashMap<>();
+    private AlertNotifier defaultNotifier;
+
+    private ThreadPoolExecutor workers;
+    private ScheduledExecutorService timer;
+    private volatile boolean shuttingDown = false;
+
+    // 空跑（例如回放录制事件）期间投递的告警只记录日志，不调用通知渠道；可嵌套
+    private final AtomicInteger dryRuns = new AtomicInteger();
+    private final LongAdder dryRunSuppressed = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        for (AlertNotifier notifier : notifiers) {
+            notifiersByChannel.put(notifier.channel(), notifier);
+        }
+        this.defaultNotifier = notifiersByChannel.get(monitoringProperties.getAlertChannel());
+        if (defaultNotifier == null) {
+            throw new IllegalStateException("Unknown alert-channel '" + monitoringProperties.getAlertChannel()
+                    + "', available channels: " + notifiersByChannel.keySet());
+        }
+        MonitoringProperties.AlertDispatch config = monitoringProperties.getAlertDispatch();
+        int threads = Math.max(1, config.getWorkerThreads());
+        AtomicInteger threadIndex = new AtomicInteger();
+        // 工作队列中只会出现 lane 本身（每条 lane 至多排队一次），数量受 Webhook 数量约束
+        this.workers = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "alert-dispatch-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        // 限流、退避、熔断需要等待的通道由定时器到期后重新交给 worker，等待期间不占用 worker
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "alert-dispatch-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        Gauge.builder("heimdall.alert.queued", this, AlertDispatcher::pendingCount)
+                .description("告警派发队列中等待发送的告警数")
+                .register(metrics.registry());
+        log.info("Alert dispatcher started: workers={}, queueCapacity={}, overflowPolicy={}, maxAttempts={}, rateLimits={}",
+                threads, config.getQueueCapacity(), config.getOverflowPolicy(), config.getMaxAttempts(), config.getRateLimits());
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        shuttingDown = true;
+        timer.shutdownNow();
+        workers.shutdown();
+        long timeout = monitoringProperties.getAlertDispatch().getShutdownTimeoutMillis();
+        if (!workers.awaitTermination(timeout, TimeUnit.MILLISECONDS)) {
+            log.warn("Alert dispatcher did not drain within {} ms, {} alerts discarded.", timeout, pendingCount());
+            workers.shutdownNow();
+        } else if (pendingCount() > 0) {
+            // 熔断或退避中的通道在关闭时不再等待
+            log.warn("Alert dispatcher stopped with {} alerts waiting for retry, discarded.", pendingCount());
+        }
+    }
+
+    /**
+     * 投递一条告警，不会阻塞调用线程。
+     * @param message 告警
+     * @return 是否成功入队；队列已满且被丢弃的是这条告警，或派发器已关闭时返回 false
+     */
+    public boolean dispatch(AlertMessage message) {
+        if (shuttingDown) {
+            log.warn("Alert dispatcher is shutting down, dropping alert '{}'.", message.getTitle());
+            return false;
+        }
+        if (dryRuns.get() > 0) {
+            dryRunSuppressed.increment();
+            log.info("Dry run, not sending alert '{}' ({}).", message.getTitle(), message.getLevel());
+            return true;
+        }
+        String channel = message.getChannel();
+        String webhookUrl = message.getWebhookUrl();
+        String key = (webhookUrl == null || webhookUrl.isEmpty()) ? DEFAULT_LANE : webhookUrl;
+        if (channel != null) {
+            key = channel + "|" + key;
+        }
+        Lane lane = lanes.computeIfAbsent(key, k -> new Lane(k, channel, webhookUrl));
+        return lane.offer(message);
+    }
+
+    /**
+     * 开始空跑：此后投递的告警只记录日志并计数，不进入通道。必须与 {@link #endDryRun()} 成对调用。
+     */
+    public void beginDryRun() {
+        if (dryRuns.incrementAndGet() == 1) {
+            log.warn("Alert dispatcher entered dry-run mode, alerts will not be sent.");
+        }
+    }
+
+    public void endDryRun() {
+        if (dryRuns.decrementAndGet() == 0) {
+            log.warn("Alert dispatcher left dry-run mode ({} alerts suppressed so far).", dryRunSuppressed.sum());
+        }
+    }
+
+    /**
+     * @return 每条通道的排队、发送、重试、丢弃、失败统计及熔断状态
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> laneStats = new LinkedHashMap<>();
+        long queued = 0, delivered = 0, retried = 0, dropped = 0, failed = 0;
+        for (Lane lane : lanes.values()) {
+            Map<String, Object> s = lane.stats();
+            laneStats.put(abbreviate(lane.key), s);
+            queued += lane.size();
+            delivered += lane.delivered.sum();
+            retried += lane.retried.sum();
+            dropped += lane.dropped.sum();
+            failed += lane.failed.sum();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queued", queued);
+        stats.put("delivered", delivered);
+        stats.put("retried", retried);
+        stats.put("dropped", dropped);
+        stats.put("failed", failed);
+        stats.put("dryRun", dryRuns.get() > 0);
+        stats.put("dryRunSuppressed", dryRunSuppressed.sum());
+        stats.put("activeWorkers", workers.getActiveCount());
+        stats.put("lanes", laneStats);
+        return stats;
+    }
+
+    private int pendingCount() {
+        int pending = 0;
+        for (Lane lane : lanes.values()) {
+            pending += lane.size();
+        }
+        return pending;
+    }
+
+    private void deliver(Lane lane, Pending pending) throws Exception {
+        AlertNotifier notifier = lane.channel == null ? defaultNotifier : notifiersByChannel.get(lane.channel);
+        if (notifier == null) {
+            throw new IllegalStateException("Unknown alert channel '" + lane.channel + "'");
+        }
+        AlertMessage message = pending.message;
+        // 正文只生成一次，重试时不再重复查询负责人
+        if (pending.body == null) {
+            pending.body = message.renderBody();
+        }
+        if (lane.webhookUrl == null || lane.webhookUrl.isEmpty()) {
+            notifier.sendMarkdownMessage(message.getTitle(), pending.body, message.getLevel());
+        } else {
+            notifier.sendMarkdownMessage(message.getTitle(), pending.body, lane.webhookUrl, message.getLevel());
+        }
+    }
+
+    /**
+     * HTTP 4xx（429 除外）说明请求本身有问题（如 Webhook 地址错误），重试也不会成功。
+     */
+    private static boolean isRetryable(Exception e) {
+        if (e instanceof OutboundHttpClient.HttpStatusException status) {
+            int code = status.getStatusCode();
+            return code == 429 || code < 400 || code >= 500;
+        }
+        return !(e instanceof IllegalStateException);
+    }
+
+    /**
+     * 第 attempts 次失败后的等待时间：指数退避，在 [一半, 全部] 之间随机抖动，避免多个通道同时重试。
+     */
+    static long backoffNanos(int attempts, long initialMillis, long maxMillis) {
+        long millis = Math.min(maxMillis, initialMillis << Math.min(attempts - 1, 30));
+        long half = millis / 2;
+        return TimeUnit.MILLISECONDS.toNanos(half + ThreadLocalRandom.current().nextLong(millis - half + 1));
+    }
+
+    private static String abbreviate(String webhookKey) {
+        // 截断URL，避免在统计接口中暴露完整的 token
+        return webhookKey.length() <= 40 ? webhookKey : webhookKey.substring(0, 40) + "...";
+    }
+
+    private static int priority(AlertMessage message) {
+        return message.getLevel() == null ? AlertLevel.INFO.ordinal() : message.getLevel().ordinal();
+    }
+
+    /**
+     * 排队中的告警及其发送次数。
+     */
+    private static final class Pending {
+
+        private final AlertMessage message;
+        private final int priority;
+        private String body;
+        private int attempts;
+
+        private Pending(AlertMessage message) {
+            this.message = message;
+            this.priority = priority(message);
+        }
+    }
+
+    /**
+     * 单个渠道 + Webhook 的有界优先级队列。
+     * scheduled 标记保证同一时刻至多有一个 worker 在消费该队列，以下非 volatile 的状态只由该 worker 访问。
+     */
+    private final class Lane implements Runnable {
+
+        private final String key;
+        private final String channel;
+        private final String webhookUrl;
+        private final RateLimiter rateLimiter;
+        private final Map<AlertLevel, ArrayDeque<Pending>> queues = new EnumMap<>(AlertLevel.class); // guarded by this
+        private int size = 0; // guarded by this
+        private boolean scheduled = false; // guarded by this
+
+        private long retryAtNanos;
+        private volatile int consecutiveFailures;
+        private volatile long circuitOpenUntilNanos;
+
+        private final LongAdder delivered = new LongAdder();
+        private final LongAdder retried = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder circuitOpened = new LongAdder();
+
+        private Lane(String key, String channel, String webhookUrl) {
+            this.key = key;
+            this.channel = channel;
+            this.webhookUrl = webhookUrl;
+            // nanoTime 只能比较差值，初始化为当前时间而不是 0
+            this.retryAtNanos = System.nanoTime();
+            this.circuitOpenUntilNanos = retryAtNanos;
+            for (AlertLevel level : PRIORITY) {
+                queues.put(level, new ArrayDeque<>());
+            }
+            MonitoringProperties.RateLimit limit = monitoringProperties.getAlertDispatch().getRateLimits()
+                    .get(channel == null ? monitoringProperties.getAlertChannel() : channel);
+            this.rateLimiter = limit == null || limit.getPermitsPerMinute() <= 0 ? null
+                    : new RateLimiter(limit.getPermitsPerMinute() / 60.0, limit.getBurst());
+        }
+
+        boolean offer(AlertMessage message) {
+            MonitoringProperties.AlertDispatch config = monitoringProperties.getAlertDispatch();
+            Pending pending = new Pending(message);
+            Pending evicted = null;
+            boolean accepted = true;
+            boolean schedule = false;
+            synchronized (this) {
+                if (size >= config.getQueueCapacity()) {
+                    dropped.increment();
+                    ArrayDeque<Pending> lowest = lowestNonEmpty();
+                    // 新告警的优先级比队列中所有告警都低时直接丢弃新告警，否则从最低优先级中按策略丢弃
+                    if (lowest == null || pending.priority > lowest.peekFirst().priority) {
+                        accepted = false;
+                    } else if (config.getOverflowPolicy() == MonitoringProperties.OverflowPolicy.DROP_NEWEST) {
+                        if (pending.priority == lowest.peekFirst().priority) {
+                            accepted = false;
+                        } else {
+                            evicted = lowest.pollLast();
+                        }
+                    } else {
+                        evicted = lowest.pollFirst();
+                    }
+                    if (evicted != null) {
+                        size--;
+                    }
+                }
+                if (accepted) {
+                    queues.get(PRIORITY[pending.priority]).addLast(pending);
+                    size++;
+                    if (!scheduled) {
+                        scheduled = true;
+                        schedule = true;
+                    }
+                }
+            }
+            if (evicted != null) {
+                log.warn("Alert queue for {} is full, dropped alert '{}'.", abbreviate(key), evicted.message.getTitle());
+            }
+            if (!accepted) {
+                log.warn("Alert queue for {} is full, dropped new alert '{}'.", abbreviate(key), message.getTitle());
+                return false;
+            }
+            if (schedule) {
+                submit();
+            }
+            return true;
+        }
+
+        private ArrayDeque<Pending> lowestNonEmpty() {
+            for (int i = PRIORITY.length - 1; i >= 0; i--) {
+                ArrayDeque<Pending> queue = queues.get(PRIORITY[i]);
+                if (!queue.isEmpty()) {
+                    return queue;
+                }
+            }
+            return null;
+        }
+
+        private Pending pollHighest() {
+            for (AlertLevel level : PRIORITY) {
+                Pending pending = queues.get(level).pollFirst();
+                if (pending != null) {
+                    size--;
+                    return pending;
+                }
+            }
+            return null;
+        }
+
+        private void submit() {
+            try {
+                workers.execute(this);
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    scheduled = false;
+                }
+                log.warn("Alert dispatcher rejected lane {}: {}", abbreviate(key), e.getMessage());
+            }
+        }
+
+        /**
+         * 等待 delayNanos 后再处理本通道，期间 scheduled 保持为 true，新告警只入队。
+         */
+        private void resumeLater(long delayNanos) {
+            if (shuttingDown) {
+                synchronized (this) {
+                    scheduled = false;
+                }
+                return;
+            }
+            try {
+                timer.schedule(this::submit, delayNanos, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    scheduled = false;
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            MonitoringProperties.AlertDispatch config = monitoringProperties.getAlertDispatch();
+            int batch = Math.max(1, config.getDrainBatchSize());
+            // 关闭过程中不再让出线程，尽量在超时前把队列发完
+            for (int i = 0; i < batch || shuttingDown; i++) {
+                synchronized (this) {
+                    if (size == 0) {
+                        scheduled = false;
+                        return;
+                    }
+                }
+                long now = System.nanoTime();
+                long wait = Math.max(retryAtNanos - now, circuitOpenUntilNanos - now);
+                if (wait > 0) {
+                    resumeLater(wait);
+                    return;
+                }
+                if (rateLimiter != null && !rateLimiter.tryAcquire()) {
+                    if (!shuttingDown) {
+                        resumeLater(rateLimiter.nanosUntilAvailable());
+                        return;
+                    }
+                    // 关闭过程中在 worker 上等待令牌，避免超出频率限制被渠道拒绝
+                    try {
+                        rateLimiter.acquire();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                Pending pending;
+                synchronized (this) {
+                    pending = pollHighest();
+                    if (pending == null) {
+                        scheduled = false;
+                        return;
+                    }
+                }
+                attempt(pending, config);
+            }
+            // 本批次已用完，重新排队让其它 Webhook 的通道也能得到 worker
+            submit();
+        }
+
+        private void attempt(Pending pending, MonitoringProperties.AlertDispatch config) {
+            AlertMessage message = pending.message;
+            pending.attempts++;
+            try {
+                deliver(this, pending);
+                consecutiveFailures = 0;
+                delivered.increment();
+                metrics.alertDelivered(message.getCreatedAt());
+                return;
+            } catch (Exception e) {
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                onFailure(pending, e, config);
+            }
+        }
+
+        private void onFailure(Pending pending, Exception e, MonitoringProperties.AlertDispatch config) {
+            AlertMessage message = pending.message;
+            long now = System.nanoTime();
+            int failures = ++consecutiveFailures;
+            if (failures >= Math.max(1, config.getCircuitFailureThreshold())) {
+                // 半开状态下的试发失败也会走到这里，重新开始熔断计时
+                circuitOpenUntilNanos = now + TimeUnit.MILLISECONDS.toNanos(config.getCircuitOpenMillis());
+                circuitOpened.increment();
+                log.warn("Circuit opened for {} after {} consecutive failures, pausing for {} ms.",
+                        abbreviate(key), failures, config.getCircuitOpenMillis());
+            }
+            if (isRetryable(e) && pending.attempts < config.getMaxAttempts() && !shuttingDown) {
+                retried.increment();
+                retryAtNanos = now + backoffNanos(pending.attempts, config.getRetryInitialBackoffMillis(), config.getRetryMaxBackoffMillis());
+                synchronized (this) {
+                    // 放回同级别队首，保持同一 Webhook 的发送顺序
+                    queues.get(PRIORITY[pending.priority]).addFirst(pending);
+                    size++;
+                }
+                log.warn("Failed to deliver alert '{}' to {} (attempt {}/{}), will retry: {}", message.getTitle(),
+                        abbreviate(key), pending.attempts, config.getMaxAttempts(), e.getMessage());
+            } else {
+                failed.increment();
+                log.error("Failed to deliver alert '{}' to {} after {} attempt(s), giving up: {}", message.getTitle(),
+                        abbreviate(key), pending.attempts, e.getMessage(), e);
+            }
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        private String circuitState() {
+            if (consecutiveFailures < Math.max(1, monitoringProperties.getAlertDispatch().getCircuitFailureThreshold())) {
+                return "CLOSED";
+            }
+            return circuitOpenUntilNanos - System.nanoTime() > 0 ? "OPEN" : "HALF_OPEN";
+        }
+
+        Map<String, Object> stats() {
+            Map<String, Object> s = new LinkedHashMap<>();
+            s.put("queued", size());
+            s.put("delivered", delivered.sum());
+            s.put("retried", retried.sum());
+            s.put("dropped", dropped.sum());
+            s.put("failed", failed.sum());
+            s.put("circuit", circuitState());
+            s.put("circuitOpened", circuitOpened.sum());
+            s.put("consecutiveFailures", consecutiveFailures);
+            return s;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.mofari.heimdall.service;
+
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * 一条待发送的告警。
+ * 正文通过 Supplier 延迟生成，负责人查询等耗时操作由告警 worker 线程完成，而不是在 Nacos 回调线程里。
+ */
+public final class AlertMessage {
+
+    private final String title;
+    private final AlertLevel level;
+    private final String channel; // 为 null 时使用 alert-channel 配置的默认渠道
+    private final String webhookUrl; // 为 null 时使用通知渠道的默认 Webhook
+    private final Supplier<String> body;
+    private final long createdAt;
+
+    private AlertMessage(String title, AlertLevel level, String channel, String webhookUrl, Supplier<String> body) {
+        this.title = Objects.requireNonNull(title, "title");
+        this.level = level;
+        this.channel = channel;
+        this.webhookUrl = webhookUrl;
+        this.body = Objects.requireNonNull(body, "body");
+        this.createdAt = System.currentTimeMillis();
+    }
+
+    /**
+     * 发送到通知渠道默认 Webhook 的告警。
+     */
+    public static AlertMessage of(String title, AlertLevel level, Supplier<String> body) {
+        return new AlertMessage(title, level, null, null, body);
+    }
+
+    /**
+     * 发送到指定 Webhook 的告警。
+     */
+    public static AlertMessage to(String webhookUrl, String title, AlertLevel level, Supplier<String> body) {
+        return new AlertMessage(title, level, null, webhookUrl, body);
+    }
+
+    /**
+     * 通过指定渠道发送到指定 Webhook 的告警。
+     */
+    public static AlertMessage to(String channel, String webhookUrl, String title, AlertLevel level, Supplier<String> body) {
+        return new AlertMessage(title, level, channel, webhookUrl, body);
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public AlertLevel getLevel() {
+        return level;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    public String getWebhookUrl() {
+        return webhookUrl;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * 生成 Markdown 正文，可能包含阻塞调用，只应在告警 worker 线程中调用。
+     */
+    public String renderBody() {
+        return body.get();
+    }
+}
@@ -1,14 +1,24 @@
 package com.mofari.heimdall.service;
 
+import java.io.IOException;
+
+/**
+ * 通知渠道。发送失败（包括渠道在响应体中返回的错误码）时抛出异常，由 {@link AlertDispatcher} 决定是否重试。
+ */
 public interface AlertNotifier {
+    /**
+     * @return 通知渠道名称，如 feishu、dingtalk，对应 alert-channel 及路由目的地中的 channel
+     */
+    String channel();
+
     /**
      * Send a markdown-like alert message. Implementations can map this into
      * their own rich message format (e.g., Feishu post).
      */
-    void sendMarkdownMessage(String title, String markdownText, AlertLevel level);
+    void sendMarkdownMessage(String title, String markdownText, AlertLevel level) throws IOException, InterruptedException;
 
     /**
      * Send a markdown-like alert message to a specified webhook.
      */
-    void sendMarkdownMessage(String title, String markdownText, String webhookUrl, AlertLevel level);
+    void sendMarkdownMessage(String title, String markdownText, String webhookUrl, AlertLevel level) throws IOException, InterruptedException;
 }
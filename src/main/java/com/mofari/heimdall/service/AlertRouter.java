@@ -0,0 +1,231 @@
+package com.mofari.heimdall.service;
+
+import com.mofari.heimdall.config.MonitoringProperties;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * 告警路由：根据 spring.monitoring.alert-routing 把告警发送到一个或多个目的地（渠道 + Webhook）。
+ * <p>
+ * 规则在启动时编译成位图：每条规则占一位，按告警级别、服务名、Nacos 来源、负责人分别建立"哪些规则匹配"的索引，
+ * 一条告警的匹配结果是这些位图的交集，不需要逐条扫描规则。服务名和来源的匹配结果（含通配符规则）按服务缓存，
+ * 匹配结果到目的地列表的映射也会缓存，因此每条告警只需几次哈希查找。
+ */
+@Service
+public class AlertRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(AlertRouter.class);
+
+    private static final int MAX_RULES = Long.SIZE;
+
+    @Autowired
+    private MonitoringProperties monitoringProperties;
+
+    @Autowired
+    private List<AlertNotifier> notifiers;
+
+    private final Map<AlertLevel, Long> levelMasks = new EnumMap<>(AlertLevel.class);
+    private final Map<String, Long> exactServiceMasks = new HashMap<>();
+    private final List<Pattern> servicePatterns = new ArrayList<>();
+    private final List<Long> servicePatternMasks = new ArrayList<>();
+    private final Map<String, Long> sourceMasks = new HashMap<>();
+    private final Map<String, Long> ownerMasks = new HashMap<>();
+    // 服务ID -> 服务名与来源规则的匹配结果，服务不再被监控时清理
+    private final Map<String, Long> serviceMasks = new ConcurrentHashMap<>();
+    private final Map<Long, List<Destination>> routes = new ConcurrentHashMap<>();
+
+    private Destination[][] ruleDestinations = new Destination[0][];
+    private long anyServiceMask;
+    private long serviceRuleMask;
+    private long anySourceMask;
+    private long sourceRuleMask;
+    private long anyOwnerMask;
+    private long ownerRuleMask;
+
+    /**
+     * 告警目的地。
+     * @param name       配置中的目的地名称
+     * @param channel    通知渠道
+     * @param webhookUrl Webhook 地址，为 null 时使用渠道的默认 Webhook
+     */
+    public record Destination(String name, String channel, String webhookUrl) {
+
+        /**
+         * @return 合并窗口与派发队列使用的键，渠道和 Webhook 都相同的目的地共用一个队列
+         */
+        public String key() {
+            return channel + "|" + (webhookUrl == null ? "" : webhookUrl);
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        MonitoringProperties.AlertRouting config = monitoringProperties.getAlertRouting();
+        Set<String> channels = new LinkedHashSet<>();
+        for (AlertNotifier notifier : notifiers) {
+            channels.add(notifier.channel());
+        }
+        Map<String, Destination> destinations = new LinkedHashMap<>();
+        config.getDestinations().forEach((name, d) -> {
+            if (!channels.contains(d.getChannel())) {
+                throw new IllegalStateException("Alert destination '" + name + "' uses unknown channel '"
+                        + d.getChannel() + "', available channels: " + channels);
+            }
+            String webhook = d.getWebhook() == null || d.getWebhook().isEmpty() ? null : d.getWebhook();
+            destinations.put(name, new Destination(name, d.getChannel(), webhook));
+        });
+
+        Set<String> sources = new LinkedHashSet<>();
+        for (MonitoringProperties.NacosSource source : monitoringProperties.getSources()) {
+            sources.add(source.getName());
+        }
+        if (sources.isEmpty()) {
+            sources.add("");
+        }
+
+        List<MonitoringProperties.AlertRule> rules = config.getRules();
+        if (rules.size() > MAX_RULES) {
+            throw new IllegalStateException("At most " + MAX_RULES + " alert routing rules are supported, got " + rules.size());
+        }
+        this.ruleDestinations = new Destination[rules.size()][];
+        for (int i = 0; i < rules.size(); i++) {
+            MonitoringProperties.AlertRule rule = rules.get(i);
+            long bit = 1L << i;
+            if (rule.getDestinations().isEmpty()) {
+                throw new IllegalStateException("Alert routing rule #" + (i + 1) + " has no destinations");
+            }
+            List<Destination> targets = new ArrayList<>();
+            for (String name : rule.getDestinations()) {
+                Destination destination = destinations.get(name);
+                if (destination == null) {
+                    throw new IllegalStateException("Alert routing rule #" + (i + 1) + " references unknown destination '" + name + "'");
+                }
+                targets.add(destination);
+            }
+            ruleDestinations[i] = targets.toArray(new Destination[0]);
+
+            Collection<AlertLevel> levels = rule.getLevels().isEmpty() ? List.of(AlertLevel.values()) : rule.getLevels();
+            for (AlertLevel level : levels) {
+                levelMasks.merge(level, bit, (a, b) -> a | b);
+            }
+            if (rule.getServices().isEmpty()) {
+                anyServiceMask |= bit;
+            } else {
+                serviceRuleMask |= bit;
+                for (String service : rule.getServices()) {
+                    if (service.indexOf('*') < 0 && service.indexOf('?') < 0) {
+                        exactServiceMasks.merge(service, bit, (a, b) -> a | b);
+                    } else {
+                        servicePatterns.add(Pattern.compile(ServiceFilter.globToRegex(service)));
+                        servicePatternMasks.add(bit);
+                    }
+                }
+            }
+            if (rule.getSources().isEmpty()) {
+                anySourceMask |= bit;
+            } else {
+                sourceRuleMask |= bit;
+                for (String source : rule.getSources()) {
+                    if (!sources.contains(source)) {
+                        throw new IllegalStateException("Alert routing rule #" + (i + 1) + " references unknown Nacos source '"
+                                + source + "', configured sources: " + sources);
+                    }
+                    sourceMasks.merge(source, bit, (a, b) -> a | b);
+                }
+            }
+            if (rule.getOwners().isEmpty()) {
+                anyOwnerMask |= bit;
+            } else {
+                ownerRuleMask |= bit;
+                for (String owner : rule.getOwners()) {
+                    ownerMasks.merge(owner, bit, (a, b) -> a | b);
+                }
+            }
+        }
+        if (!rules.isEmpty()) {
+            log.info("Alert routing enabled: {} destinations, {} rules, channels {}.", destinations.size(), rules.size(), channels);
+        }
+    }
+
+    /**
+     * @return 是否有按负责人匹配的规则；没有时路由前不需要查询负责人
+     */
+    public boolean usesOwners() {
+        return ownerRuleMask != 0;
+    }
+
+    /**
+     * 计算一条告警的目的地。
+     * @param level     告警级别
+     * @param serviceId 服务ID，全局告警为 null
+     * @param owners    服务负责人，没有按负责人匹配的规则时可传空列表
+     * @return 去重后的目的地；没有匹配的规则时为空列表，调用方按 alert-channel 发送
+     */
+    public List<Destination> route(AlertLevel level, String serviceId, Collection<String> owners) {
+        long mask = levelMasks.getOrDefault(level, 0L);
+        if (mask == 0) {
+            return List.of();
+        }
+        mask &= serviceId == null ? ~(serviceRuleMask | sourceRuleMask) : serviceMask(serviceId);
+        if (mask != 0 && (mask & ownerRuleMask) != 0) {
+            long ownerMask = anyOwnerMask;
+            for (String owner : owners) {
+                ownerMask |= ownerMasks.getOrDefault(owner, 0L);
+            }
+            mask &= ownerMask;
+        }
+        return mask == 0 ? List.of() : routes.computeIfAbsent(mask, this::destinationsOf);
+    }
+
+    /**
+     * 服务不再被监控时清理其缓存的匹配结果。
+     */
+    public void forget(String serviceId) {
+        serviceMasks.remove(serviceId);
+    }
+
+    private long serviceMask(String serviceId) {
+        Long cached = serviceMasks.get(serviceId);
+        if (cached != null) {
+            return cached;
+        }
+        // 服务名规则匹配 Nacos 服务名，精确规则也可以写完整的服务ID
+        ServiceRef ref = ServiceRef.parse(serviceId);
+        long mask = anyServiceMask | exactServiceMasks.getOrDefault(ref.name(), 0L) | exactServiceMasks.getOrDefault(serviceId, 0L);
+        for (int i = 0; i < servicePatterns.size(); i++) {
+            if (servicePatterns.get(i).matcher(ref.name()).matches()) {
+                mask |= servicePatternMasks.get(i);
+            }
+        }
+        mask &= anySourceMask | sourceMasks.getOrDefault(ref.source(), 0L);
+        serviceMasks.put(serviceId, mask);
+        return mask;
+    }
+
+    private List<Destination> destinationsOf(long mask) {
+        Map<String, Destination> unique = new LinkedHashMap<>();
+        for (int i = 0; i < ruleDestinations.length; i++) {
+            if ((mask & (1L << i)) != 0) {
+                for (Destination destination : ruleDestinations[i]) {
+                    unique.putIfAbsent(destination.key(), destination);
+                }
+            }
+        }
+        return List.copyOf(unique.values());
+    }
+}
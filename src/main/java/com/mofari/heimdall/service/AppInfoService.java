@@ -2,16 +2,32 @@ package com.mofari.heimdall.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.mofari.heimdall.config.MonitoringProperties;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class AppInfoService {
@@ -23,11 +39,57 @@ public class AppInfoService {
     private String detailApiUrl;
 
     @Autowired
-    private RestTemplate restTemplate;
+    private MonitoringProperties monitoringProperties;
+
+    @Autowired
+    private OutboundHttpClient httpClient;
 
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private HeimdallMetrics metrics;
+
+    private ExecutorService loaderExecutor;
+
+    // 缓存过期和刷新使用的时钟，测试中替换
+    private Ticker ticker = Ticker.systemTicker();
+
+    private long lookupTimeoutMillis;
+
+    /**
+     * 应用名 -> 负责人列表。
+     * 同一应用同一时刻只会有一个在途查询；查询失败的结果不会被缓存，空列表（无 OWNER）按负缓存的 TTL 缓存。
+     */
+    private AsyncLoadingCache<String, List<String>> ownerCache;
+
+    @PostConstruct
+    public void init() {
+        MonitoringProperties.OwnerCache config = monitoringProperties.getOwnerCache();
+        this.lookupTimeoutMillis = config.getLookupTimeoutMillis();
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.loaderExecutor = Executors.newFixedThreadPool(Math.max(1, config.getLoaderThreads()), r -> {
+            Thread t = new Thread(r, "owner-loader-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.ownerCache = Caffeine.newBuilder()
+                .maximumSize(config.getMaxSize())
+                .expireAfter(new OwnerExpiry(TimeUnit.MINUTES.toNanos(config.getTtlMinutes()),
+                        TimeUnit.MINUTES.toNanos(config.getNegativeTtlMinutes())))
+                .refreshAfterWrite(config.getRefreshAfterMinutes(), TimeUnit.MINUTES)
+                .ticker(ticker)
+                .executor(loaderExecutor)
+                .recordStats()
+                .buildAsync(this::fetchAppOwners);
+        CaffeineCacheMetrics.monitor(metrics.registry(), ownerCache, "owners");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loaderExecutor.shutdownNow();
+    }
+
     /**
      * 根据应用名称获取其负责人列表
      * @param appName 应用名
@@ -35,34 +97,134 @@ public class AppInfoService {
      */
     public List<String> getAppOwners(String appName) {
         try {
-            // 替换 URL 中的占位符
-            String url = detailApiUrl.replace("{appName}", appName);
-            String jsonResponse = restTemplate.getForObject(url, String.class);
-
-            if (jsonResponse == null) {
-                log.warn("API response for app '{}' was null.", appName);
-                return Collections.emptyList();
-            }
-
-            // 使用 Jackson 的 JsonNode 安全地解析嵌套的 JSON
-            JsonNode root = objectMapper.readTree(jsonResponse);
-            JsonNode ownerNode = root.path("data").path("roleUsers").path("OWNER");
-
-            if (ownerNode.isMissingNode() || !ownerNode.isArray()) {
-                log.warn("OWNER field is missing or not an array in API response for app '{}'", appName);
-                return Collections.emptyList();
-            }
-
-            // 遍历 JSON 数组，提取负责人名称
-            List<String> owners = new ArrayList<>();
-            for (JsonNode node : ownerNode) {
-                owners.add(node.asText());
-            }
-            return owners;
-
+            return ownerCache.get(appName).get(lookupTimeoutMillis, TimeUnit.MILLISECONDS);
         } catch (Exception e) {
             log.error("Failed to get app owners for '{}' from API.", appName, e);
             return Collections.emptyList(); // 发生任何异常都返回空列表，保证主流程不中断
         }
     }
+
+    /**
+     * 异步获取负责人，缓存命中时返回已完成的 Future，不阻塞调用线程。
+     * @return 负责人列表，查询失败时为空列表
+     */
+    public CompletableFuture<List<String>> getAppOwnersAsync(String appName) {
+        // 超时只作用于副本，不影响缓存中的 Future
+        return ownerCache.get(appName).copy()
+                .orTimeout(lookupTimeoutMillis, TimeUnit.MILLISECONDS)
+                .exceptionally(e -> {
+                    log.error("Failed to get app owners for '{}' from API.", appName, e);
+                    return Collections.emptyList();
+                });
+    }
+
+    /**
+     * 后台预热负责人缓存，不阻塞调用线程。
+     * 并发度受 loader 线程数限制，避免启动时对 appinfo 接口造成冲击。
+     * @param appNames 需要预热的应用名
+     */
+    public void warmUp(Collection<String> appNames) {
+        if (appNames.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        AtomicInteger remaining = new AtomicInteger(appNames.size());
+        log.info("Warming up owner cache for {} apps.", appNames.size());
+        for (String appName : appNames) {
+            ownerCache.get(appName).whenComplete((owners, error) -> {
+                if (remaining.decrementAndGet() == 0) {
+                    log.info("Owner cache warm-up finished in {} ms, cache size {}.",
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), ownerCache.synchronous().estimatedSize());
+                }
+            });
+        }
+    }
+
+    /**
+     * @return 负责人缓存的命中、加载耗时等统计
+     */
+    public Map<String, Object> getOwnerCacheStats() {
+        CacheStats stats = ownerCache.synchronous().stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", ownerCache.synchronous().estimatedSize());
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("loadSuccessCount", stats.loadSuccessCount());
+        result.put("loadFailureCount", stats.loadFailureCount());
+        result.put("averageLoadMillis", stats.averageLoadPenalty() / 1_000_000d);
+        result.put("totalLoadMillis", TimeUnit.NANOSECONDS.toMillis(stats.totalLoadTime()));
+        result.put("evictionCount", stats.evictionCount());
+        return result;
+    }
+
+    /**
+     * 调用 appinfo 接口查询负责人。异常直接抛出，由缓存决定不缓存失败结果。
+     */
+    private List<String> fetchAppOwners(String appName) throws Exception {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            List<String> owners = queryAppOwners(appName);
+            success = true;
+            return owners;
+        } finally {
+            metrics.ownerLookup(start, success);
+        }
+    }
+
+    private List<String> queryAppOwners(String appName) throws Exception {
+        // 替换 URL 中的占位符
+        String url = detailApiUrl.replace("{appName}", appName);
+        String jsonResponse = httpClient.get(url).body();
+
+        if (jsonResponse == null || jsonResponse.isEmpty()) {
+            throw new IllegalStateException("API response for app '" + appName + "' was null.");
+        }
+
+        // 使用 Jackson 的 JsonNode 安全地解析嵌套的 JSON
+        JsonNode root = objectMapper.readTree(jsonResponse);
+        JsonNode ownerNode = root.path("data").path("roleUsers").path("OWNER");
+
+        if (ownerNode.isMissingNode() || !ownerNode.isArray()) {
+            log.warn("OWNER field is missing or not an array in API response for app '{}'", appName);
+            return Collections.emptyList();
+        }
+
+        // 遍历 JSON 数组，提取负责人名称
+        List<String> owners = new ArrayList<>(ownerNode.size());
+        for (JsonNode node : ownerNode) {
+            owners.add(node.asText());
+        }
+        return Collections.unmodifiableList(owners);
+    }
+
+    /**
+     * 有负责人的结果使用正常 TTL，没有负责人的结果使用较短的负缓存 TTL。
+     */
+    private static final class OwnerExpiry implements Expiry<String, List<String>> {
+
+        private final long ttlNanos;
+        private final long negativeTtlNanos;
+
+        private OwnerExpiry(long ttlNanos, long negativeTtlNanos) {
+            this.ttlNanos = ttlNanos;
+            this.negativeTtlNanos = negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(String key, List<String> owners, long currentTime) {
+            return owners.isEmpty() ? negativeTtlNanos : ttlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, List<String> owners, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, owners, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, List<String> owners, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
@@ -0,0 +1,25 @@
+package com.mofari.heimdall.service;
+
+import java.util.List;
+
+/**
+ * 单个服务的状态，不可变。每次变化都会生成新的实例并写入 {@link AppStatusStore}。
+ *
+ * @param id               服务ID，见 {@link ServiceRef}
+ * @param name             展示名
+ * @param status           已提交的服务状态
+ * @param healthyInstances 目标集群中健康实例数
+ * @param totalInstances   目标集群中实例总数
+ * @param clusters         目标集群中有实例的集群名，不可修改
+ * @param lastChangeTime   最近一次状态（status）变化的时间（毫秒时间戳）
+ * @param version          写入时的全局序号，同一服务的版本单调递增
+ */
+public record AppStatus(String id,
+                        String name,
+                        ServiceStatus status,
+                        int healthyInstances,
+                        int totalInstances,
+                        List<String> clusters,
+                        long lastChangeTime,
+                        long version) {
+}
@@ -1,37 +1,224 @@
 package com.mofari.heimdall.service;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
+/**
+ * 服务状态存储。
+ * <p>
+ * 写入只在一个很短的临界区内分配全局序号、替换状态并把通知按序号排入投递队列，
+ * 监听器回调在锁外由当前负责投递的线程按序号顺序逐个执行（同一时刻只有一个线程投递）。
+ * 同一个服务只会由其所属的分片线程写入，因此"没有变化"的判断不需要加锁。
+ */
 @Service
 public class AppStatusStore {
 
+    private static final Logger log = LoggerFactory.getLogger(AppStatusStore.class);
+
     /**
-     * 使用 ConcurrentHashMap 作为线程安全的内存状态存储。
+     * 使用 ConcurrentHashMap 作为线程安全的内存状态存储，单个服务的读取无需加锁。
      * Key: service name (e.g., "UserService")
-     * Value: a Map representing the service's status info
+     * Value: 该服务当前的不可变状态
+     */
+    private final Map<String, AppStatus> statusCache = new ConcurrentHashMap<>();
+
+    /**
+     * 全局写入序号，每次写入（或删除）加一。只在持有 writeLock 时修改，读取无需加锁。
+     */
+    private volatile long sequence = 0;
+
+    /**
+     * 只保护序号分配、状态替换和通知入队，不在其中执行任何监听器回调。
+     */
+    private final Object writeLock = new Object();
+
+    /**
+     * 待投递的通知，在 writeLock 内入队，因此队列顺序就是序号顺序。
+     */
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 投递权：持有者负责把 pending 中的通知依次交给监听器。不可重入，
+     * 回调中再写入时只入队，由外层投递在当前通知交给所有监听器之后继续。
+     */
+    private final AtomicBoolean delivering = new AtomicBoolean();
+
+    /**
+     * 最近一次生成的快照。只有在序号变化后被读取时才重新生成（写时标记，读时复制）。
+     */
+    private volatile StatusSnapshot snapshot = new StatusSnapshot(0, Collections.emptyList());
+
+    private final List<StatusListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 注册变更监听器，监听器按序号顺序被逐个调用（可能在其他写入线程上），必须只做入队等快速操作。
      */
-    private final Map<String, Map<String, Object>> statusCache = new ConcurrentHashMap<>();
+    public void addListener(StatusListener listener) {
+        listeners.add(listener);
+    }
 
     /**
-     * 更新或添加一个服务的状态
-     * @param serviceStatus 包含 id, name, status 的 Map
+     * 更新或添加一个服务的状态。状态与实例数都没有变化时不产生新版本。
+     * @param id      服务ID
+     * @param name    展示名
+     * @param status  服务状态
+     * @param healthy 健康实例数
+     * @param total   实例总数
+     * @param clusters 有实例的集群名
+     * @return 写入后的新状态；没有任何变化时返回 null
      */
-    public void updateStatus(Map<String, Object> serviceStatus) {
-        if (serviceStatus != null && serviceStatus.containsKey("id")) {
-            statusCache.put((String) serviceStatus.get("id"), serviceStatus);
+    public AppStatus update(String id, String name, ServiceStatus status, int healthy, int total, List<String> clusters) {
+        // 同一服务只由其所属分片线程写入，读到的就是最新状态，无变化时不进入临界区
+        AppStatus old = statusCache.get(id);
+        if (old != null && old.status() == status && old.healthyInstances() == healthy && old.totalInstances() == total
+                && old.clusters().equals(clusters)) {
+            return null;
         }
+        long now = System.currentTimeMillis();
+        long lastChangeTime = (old != null && old.status() == status) ? old.lastChangeTime() : now;
+        // 集群列表通常不变，复用旧实例以减少分配
+        List<String> clusterList = (old != null && old.clusters().equals(clusters)) ? old.clusters() : List.copyOf(clusters);
+        AppStatus updated;
+        synchronized (writeLock) {
+            updated = new AppStatus(id, name, status, healthy, total, clusterList, lastChangeTime, ++sequence);
+            statusCache.put(id, updated);
+            AppStatus written = updated;
+            pending.add(() -> {
+                for (StatusListener listener : listeners) {
+                    listener.onStatusUpdated(old, written);
+                }
+            });
+        }
+        deliver();
+        return updated;
+    }
+
+    /**
+     * 删除一个服务的状态（服务不再被监控时）。
+     * @return 被删除的状态，不存在时返回 null
+     */
+    public AppStatus remove(String id) {
+        AppStatus removed;
+        synchronized (writeLock) {
+            removed = statusCache.remove(id);
+            if (removed == null) {
+                return null;
+            }
+            long removedAt = ++sequence;
+            pending.add(() -> {
+                for (StatusListener listener : listeners) {
+                    listener.onStatusRemoved(removed, removedAt);
+                }
+            });
+        }
+        deliver();
+        return removed;
+    }
+
+    /**
+     * 启动时从持久化的状态恢复，只在存储为空时生效。
+     * 全局序号从恢复出的最大序号继续递增，恢复结果通过 {@link StatusListener#onRestored} 通知监听器。
+     * @param statuses 恢复出的状态
+     * @param sequence 恢复出的最大全局序号
+     */
+    public void restore(List<AppStatus> statuses, long sequence) {
+        synchronized (writeLock) {
+            if (!statusCache.isEmpty()) {
+                return;
+            }
+            List<AppStatus> restored = List.copyOf(statuses);
+            long max = sequence;
+            for (AppStatus status : restored) {
+                statusCache.put(status.id(), status);
+                max = Math.max(max, status.version());
+            }
+            this.sequence = max;
+            long restoredAt = max;
+            pending.add(() -> {
+                for (StatusListener listener : listeners) {
+                    listener.onRestored(restored, restoredAt);
+                }
+            });
+        }
+        deliver();
+    }
+
+    /**
+     * 把待投递的通知按序号顺序交给监听器。已有其他线程在投递时直接返回，由它继续投递；
+     * 释放投递权后再检查一次队列，避免在释放前刚入队的通知无人投递。
+     */
+    private void deliver() {
+        while (!pending.isEmpty() && delivering.compareAndSet(false, true)) {
+            try {
+                Runnable notification;
+                while ((notification = pending.poll()) != null) {
+                    try {
+                        notification.run();
+                    } catch (RuntimeException e) {
+                        log.warn("Status listener failed: {}", e.getMessage(), e);
+                    }
+                }
+            } finally {
+                delivering.set(false);
+            }
+        }
+    }
+
+    /**
+     * 获取所有服务状态的一致性快照。
+     * 快照在两次写入之间被复用，多个读者只会触发一次复制。
+     * @return 快照
+     */
+    public StatusSnapshot snapshot() {
+        StatusSnapshot current = snapshot;
+        if (current.sequence() == currentSequence()) {
+            return current;
+        }
+        synchronized (writeLock) {
+            return snapshotLocked();
+        }
+    }
+
+    private StatusSnapshot snapshotLocked() {
+        if (snapshot.sequence() != sequence) {
+            List<AppStatus> statuses = new ArrayList<>(statusCache.values());
+            snapshot = new StatusSnapshot(sequence, Collections.unmodifiableList(statuses));
+        }
+        return snapshot;
+    }
+
+    /**
+     * 获取快照，并把回调按快照序号排入监听器的投递顺序：回调执行时，监听器已收到快照序号及之前的所有变更，
+     * 之后的变更都还没有投递，因此回调中注册的监听方能精确地从快照序号之后开始接收变更。
+     * 回调可能在其他写入线程上执行。
+     * @param action 回调，必须快速返回
+     */
+    public void withSnapshot(Consumer<StatusSnapshot> action) {
+        synchronized (writeLock) {
+            StatusSnapshot current = snapshotLocked();
+            pending.add(() -> action.accept(current));
+        }
+        deliver();
     }
 
     /**
      * 获取所有服务的状态列表
-     * @return 状态列表
+     * @return 状态列表（某一时刻的快照，不会随后续写入变化）
      */
-    public Collection<Map<String, Object>> getAllStatuses() {
-        return statusCache.values();
+    public List<AppStatus> getAllStatuses() {
+        return snapshot().statuses();
     }
 
     /**
@@ -39,7 +226,21 @@ public class AppStatusStore {
      * @param serviceId 服务ID
      * @return 单个服务的状态
      */
-    public Map<String, Object> getStatus(String serviceId) {
+    public AppStatus getStatus(String serviceId) {
         return statusCache.get(serviceId);
     }
-}
\ No newline at end of file
+
+    /**
+     * @return 当前的全局序号
+     */
+    public long currentSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return 当前存储的服务数量
+     */
+    public int size() {
+        return statusCache.size();
+    }
+}
@@ -0,0 +1,240 @@
+package com.mofari.heimdall.service;
+
+import com.mofari.heimdall.config.MonitoringProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 集群模式下的服务归属划分。
+ * <p>
+ * 所有节点根据同一份成员列表构建相同的一致性哈希环，每个服务只由一个节点订阅、处理和告警，
+ * 每个节点承担约 1/N 的事件量。成员变化（节点加入、宕机）时重新构建哈希环，
+ * 并通知订阅方立即接管新归属的服务、释放不再归属的服务。
+ * <p>
+ * 每个节点通过成员附加信息发布自己负责的服务中处于 DOWN 的服务（{@link #DOWN_SERVICES_METADATA}）。
+ * 成员变化时记下变化前的哈希环和各成员（包括刚离开的成员）最后发布的 DOWN 集合，
+ * 接管服务的节点据此得到服务在前一个归属节点上的状态（{@link #takeoverBaseline}），
+ * 而不是从 UNKNOWN 开始：交接期间宕机的服务照常告警，前一个节点已告警过的服务不重复告警，恢复时发送恢复通知。
+ * DOWN 集合的发布受 metadata-publish-interval-millis 限制，交接前最后一个间隔内的变化可能没有发布。
+ * <p>
+ * 未启用集群模式时，本节点负责所有服务。
+ */
+@Service
+public class ClusterCoordinator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterCoordinator.class);
+
+    /**
+     * 附加信息键：本节点负责的服务中处于 DOWN 的服务ID，逗号分隔。
+     */
+    public static final String DOWN_SERVICES_METADATA = "heimdall.down";
+
+    @Autowired
+    private ClusterMembership membership;
+
+    @Autowired
+    private MonitoringProperties monitoringProperties;
+
+    // 为 null 表示未启用集群模式
+    private volatile ConsistentHashRing ring;
+
+    private final List<Runnable> rebalanceListeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong rebalances = new AtomicLong();
+    private volatile long lastRebalanceAt;
+
+    /**
+     * 最近一次成员变化的交接信息。
+     * @param previousRing 变化前的哈希环
+     * @param downServices 成员ID -> 该成员最后发布的 DOWN 服务；没有发布过的成员不在其中
+     */
+    private record Takeover(ConsistentHashRing previousRing, Map<String, Set<String>> downServices) {
+    }
+
+    private volatile Takeover takeover;
+
+    // 最近一次发布的附加信息及发布时间，由 publishLock 保护
+    private final Object publishLock = new Object();
+    private Map<String, String> lastPublished = Map.of();
+    private long lastPublishedAt;
+
+    // 成员变化回调可能来自 Nacos 的推送线程，重新划分在独立线程上进行
+    private ExecutorService rebalanceExecutor;
+
+    @PostConstruct
+    public void init() {
+        if (!monitoringProperties.getCluster().isEnabled()) {
+            return;
+        }
+        this.rebalanceExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "cluster-rebalance");
+            t.setDaemon(true);
+            return t;
+        });
+        membership.setListener(this::onMembershipChanged);
+        try {
+            membership.join();
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to join Heimdall cluster: " + e.getMessage(), e);
+        }
+        onMembershipChanged(membership.members());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (rebalanceExecutor != null) {
+            membership.leave();
+            rebalanceExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 注册归属变化时的回调，在 "cluster-rebalance" 线程上执行。
+     */
+    public void addRebalanceListener(Runnable listener) {
+        rebalanceListeners.add(listener);
+    }
+
+    /**
+     * @return 是否启用了集群模式
+     */
+    public boolean isEnabled() {
+        return ring != null;
+    }
+
+    /**
+     * @return 服务是否由本节点负责；未启用集群模式时总是 true
+     */
+    public boolean isOwner(String serviceId) {
+        ConsistentHashRing r = ring;
+        return r == null || membership.localMemberId().equals(r.owner(serviceId));
+    }
+
+    /**
+     * 集群中成员ID最小的节点为主节点，负责发送全局告警等只需发送一次的通知。
+     * @return 本节点是否为主节点；未启用集群模式时总是 true
+     */
+    public boolean isLeader() {
+        ConsistentHashRing r = ring;
+        return r == null || membership.localMemberId().equals(r.members().get(0));
+    }
+
+    /**
+     * 发布本节点的附加信息供其它节点读取。内容变化后至多每 metadata-publish-interval-millis 发布一次，
+     * 被限制的变化在之后的调用中补发，因此调用方应周期性调用。未启用集群模式时不做任何事。
+     */
+    public void publishMetadata(Map<String, String> metadata) {
+        if (ring == null) {
+            return;
+        }
+        synchronized (publishLock) {
+            long now = System.currentTimeMillis();
+            if (metadata.equals(lastPublished)
+                    || now - lastPublishedAt < monitoringProperties.getCluster().getMetadataPublishIntervalMillis()) {
+                return;
+            }
+            lastPublished = Map.copyOf(metadata);
+            lastPublishedAt = now;
+        }
+        membership.publishMetadata(metadata);
+    }
+
+    /**
+     * @return 其它存活成员最近一次发布的附加信息；未启用集群模式时为空
+     */
+    public Map<String, Map<String, String>> memberMetadata() {
+        return ring == null ? Map.of() : membership.memberMetadata();
+    }
+
+    /**
+     * 服务因最近一次成员变化从其它节点转到本节点时，返回它在前一个归属节点上的状态，作为告警判断的起点：
+     * 在前一个节点发布的 DOWN 集合中为 DOWN，否则为 RUNNING。
+     * @return 起始状态；服务不是由这次变化转来、前一个节点没有发布过状态或未启用集群模式时为 null
+     */
+    public ServiceStatus takeoverBaseline(String serviceId) {
+        Takeover t = takeover;
+        ConsistentHashRing current = ring;
+        String local = membership.localMemberId();
+        if (t == null || current == null || !local.equals(current.owner(serviceId))) {
+            return null;
+        }
+        String previousOwner = t.previousRing().owner(serviceId);
+        if (local.equals(previousOwner)) {
+            return null;
+        }
+        Set<String> down = t.downServices().get(previousOwner);
+        if (down == null) {
+            return null;
+        }
+        return down.contains(serviceId) ? ServiceStatus.DOWN : ServiceStatus.RUNNING;
+    }
+
+    synchronized void onMembershipChanged(Set<String> members) {
+        // 本节点的注册在 Nacos 上生效前，推送的列表中可能还没有自己
+        Set<String> effective = new HashSet<>(members);
+        effective.add(membership.localMemberId());
+        ConsistentHashRing current = ring;
+        if (current != null && current.members().equals(effective.stream().sorted().toList())) {
+            return;
+        }
+        if (current != null) {
+            // 离开的成员的附加信息只在这次回调中可读，先记下
+            Map<String, Set<String>> downServices = new HashMap<>();
+            collectDownServices(membership.memberMetadata(), downServices);
+            collectDownServices(membership.departedMetadata(), downServices);
+            this.takeover = new Takeover(current, downServices);
+        }
+        this.ring = new ConsistentHashRing(effective, monitoringProperties.getCluster().getVirtualNodes());
+        rebalances.incrementAndGet();
+        lastRebalanceAt = System.currentTimeMillis();
+        logger.info("Cluster membership changed, {} members: {}", effective.size(), ring.members());
+        rebalanceExecutor.execute(() -> {
+            for (Runnable listener : rebalanceListeners) {
+                try {
+                    listener.run();
+                } catch (RuntimeException e) {
+                    logger.warn("Rebalance listener failed: {}", e.getMessage(), e);
+                }
+            }
+        });
+    }
+
+    private static void collectDownServices(Map<String, Map<String, String>> metadata, Map<String, Set<String>> result) {
+        metadata.forEach((member, values) -> {
+            String down = values.get(DOWN_SERVICES_METADATA);
+            if (down != null) {
+                result.put(member, down.isEmpty() ? Set.of() : Set.copyOf(Arrays.asList(down.split(","))));
+            }
+        });
+    }
+
+    /**
+     * @return 集群状态：本节点ID、成员列表、是否为主节点及重新划分次数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        ConsistentHashRing r = ring;
+        stats.put("enabled", r != null);
+        stats.put("nodeId", membership.localMemberId());
+        stats.put("members", r == null ? List.of(membership.localMemberId()) : r.members());
+        stats.put("leader", isLeader());
+        stats.put("rebalances", rebalances.get());
+        stats.put("lastRebalanceAt", lastRebalanceAt);
+        return stats;
+    }
+}
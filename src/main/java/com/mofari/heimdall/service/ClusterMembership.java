@@ -0,0 +1,57 @@
+package com.mofari.heimdall.service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 集群成员发现。多个 Heimdall 实例通过它互相发现，并据此划分服务的归属。
+ * <p>
+ * 实现由 {@code spring.monitoring.cluster.membership} 选择：nacos 使用 Nacos 临时实例，
+ * in-memory 只在进程内可见，用于单机运行和测试。
+ */
+public interface ClusterMembership {
+
+    /**
+     * @return 本节点的成员ID，在集群内唯一且重启后保持不变
+     */
+    String localMemberId();
+
+    /**
+     * 加入集群，之后成员变化会通知监听器。
+     */
+    void join() throws Exception;
+
+    /**
+     * 离开集群，其它节点会尽快接管本节点负责的服务。
+     */
+    void leave();
+
+    /**
+     * @return 当前存活的成员ID
+     */
+    Set<String> members();
+
+    /**
+     * 发布本节点的附加信息（例如负责的服务数），覆盖上一次发布的内容。
+     * 其它节点通过 {@link #memberMetadata()} 读取，可能有延迟；加入集群前调用不生效。
+     */
+    void publishMetadata(Map<String, String> metadata);
+
+    /**
+     * @return 其它存活成员最近一次发布的附加信息，成员ID -> 信息，不含本节点
+     */
+    Map<String, Map<String, String>> memberMetadata();
+
+    /**
+     * 成员离开后其附加信息不再出现在 {@link #memberMetadata()} 中，接管其服务的节点从这里读取它最后发布的内容。
+     * 在通知监听器之前更新，监听器回调中读取到的就是这次变化中离开的成员。
+     * @return 最近一次成员变化中离开的成员最后发布的附加信息，成员ID -> 信息
+     */
+    Map<String, Map<String, String>> departedMetadata();
+
+    /**
+     * 设置成员变化监听器，回调参数为变化后的全部存活成员ID。回调可能在任意线程上执行，不能阻塞。
+     */
+    void setListener(Consumer<Set<String>> listener);
+}
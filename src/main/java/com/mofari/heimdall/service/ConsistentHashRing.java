@@ -0,0 +1,82 @@
+package com.mofari.heimdall.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 一致性哈希环，不可变。每个成员在环上放置若干虚拟节点，服务归属于顺时针方向的第一个虚拟节点。
+ * 成员增减时只有相邻区间的服务会改变归属。
+ */
+public final class ConsistentHashRing {
+
+    private final long[] points;
+    private final String[] owners;
+    private final List<String> members;
+
+    /**
+     * @param members      成员ID
+     * @param virtualNodes 每个成员的虚拟节点数
+     */
+    public ConsistentHashRing(Collection<String> members, int virtualNodes) {
+        List<String> sorted = new ArrayList<>(members);
+        sorted.sort(null);
+        this.members = List.copyOf(sorted);
+        int replicas = Math.max(1, virtualNodes);
+        long[][] entries = new long[sorted.size() * replicas][];
+        int n = 0;
+        for (int m = 0; m < sorted.size(); m++) {
+            for (int v = 0; v < replicas; v++) {
+                entries[n++] = new long[]{hash(sorted.get(m) + "#" + v), m};
+            }
+        }
+        // 哈希相同时按成员排序，保证所有节点构建出相同的环
+        Arrays.sort(entries, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        this.points = new long[n];
+        this.owners = new String[n];
+        for (int i = 0; i < n; i++) {
+            points[i] = entries[i][0];
+            owners[i] = sorted.get((int) entries[i][1]);
+        }
+    }
+
+    /**
+     * @return 服务的归属成员，环为空时返回 null
+     */
+    public String owner(String key) {
+        if (points.length == 0) {
+            return null;
+        }
+        int index = Arrays.binarySearch(points, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    /**
+     * @return 环上的成员ID，已排序
+     */
+    public List<String> members() {
+        return members;
+    }
+
+    /**
+     * 64 位 FNV-1a 哈希，再经过 MurmurHash3 的 fmix64 打散，保证各节点计算结果一致。
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
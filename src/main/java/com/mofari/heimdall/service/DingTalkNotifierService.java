@@ -1,35 +1,55 @@
 package com.mofari.heimdall.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
 @Service
-@ConditionalOnProperty(prefix = "spring.monitoring", name = "alert-channel", havingValue = "dingtalk")
 public class DingTalkNotifierService implements AlertNotifier {
 
     private static final Logger log = LoggerFactory.getLogger(DingTalkNotifierService.class);
 
-    @Value("${dingtalk.webhook}") // 注入单个应用告警的 Webhook
+    @Value("${dingtalk.webhook:}") // 注入单个应用告警的 Webhook
     private String defaultWebhook;
 
     @Autowired
-    private RestTemplate restTemplate;
+    private OutboundHttpClient httpClient;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private HeimdallMetrics metrics;
+
+    private HeimdallMetrics.Notifier notifierMetrics;
+
+    @PostConstruct
+    public void init() {
+        this.notifierMetrics = metrics.notifier(channel());
+    }
 
     @Override
-    public void sendMarkdownMessage(String title, String markdownText, AlertLevel level) {
+    public String channel() {
+        return "dingtalk";
+    }
+
+    @Override
+    public void sendMarkdownMessage(String title, String markdownText, AlertLevel level) throws IOException, InterruptedException {
         sendMarkdownMessage(title, markdownText, this.defaultWebhook);
     }
 
     @Override
-    public void sendMarkdownMessage(String title, String markdownText, String webhookUrl, AlertLevel level) {
+    public void sendMarkdownMessage(String title, String markdownText, String webhookUrl, AlertLevel level)
+            throws IOException, InterruptedException {
         sendMarkdownMessage(title, markdownText, webhookUrl);
     }
 
@@ -38,7 +58,7 @@ public class DingTalkNotifierService implements AlertNotifier {
      * @param title 消息标题
      * @param markdownText Markdown 格式的消息内容
      */
-    public void sendMarkdownMessage(String title, String markdownText) {
+    public void sendMarkdownMessage(String title, String markdownText) throws IOException, InterruptedException {
         sendMarkdownMessage(title, markdownText, this.defaultWebhook);
     }
 
@@ -49,12 +69,13 @@ public class DingTalkNotifierService implements AlertNotifier {
      * @param text       Markdown 格式的消息内容
      * @param webhookUrl 目标 Webhook 地址
      */
-    public void sendMarkdownMessage(String title, String text, String webhookUrl) {
+    public void sendMarkdownMessage(String title, String text, String webhookUrl) throws IOException, InterruptedException {
         if (webhookUrl == null || webhookUrl.isEmpty()) {
             log.warn("Webhook URL is not configured. Skipping DingTalk message.");
             return;
         }
 
+        long start = System.nanoTime();
         try {
             Map<String, Object> markdown = new HashMap<>();
             markdown.put("title", title);
@@ -65,10 +86,27 @@ public class DingTalkNotifierService implements AlertNotifier {
             requestBody.put("markdown", markdown);
 
             // 发送消息
-            restTemplate.postForObject(webhookUrl, requestBody, String.class);
-            log.info("Successfully sent DingTalk message to {}", webhookUrl.substring(0, 30)); // 截断URL防日志刷屏
-        } catch (Exception e) {
-            log.error("Failed to send DingTalk message: " + e.getMessage(), e);
+            checkResponse(httpClient.postJson(webhookUrl, requestBody).body());
+            notifierMetrics.success(start);
+            log.info("Successfully sent DingTalk message to {}", webhookUrl.substring(0, Math.min(30, webhookUrl.length()))); // 截断URL防日志刷屏
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            notifierMetrics.failure(start);
+            log.warn("Failed to send DingTalk message: {}", e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * 钉钉机器人在 HTTP 200 的响应体中用 errcode 表示失败，如 130101 表示发送过快。
+     */
+    private void checkResponse(String body) throws IOException {
+        if (body == null || body.isEmpty()) {
+            return;
+        }
+        JsonNode root = objectMapper.readTree(body);
+        int code = root.path("errcode").asInt(0);
+        if (code != 0) {
+            throw new IOException("DingTalk rejected the message: errcode=" + code + ", errmsg=" + root.path("errmsg").asText());
         }
     }
 }
@@ -0,0 +1,238 @@
+package com.mofari.heimdall.service;
+
+import com.alibaba.nacos.api.naming.listener.NamingEvent;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Nacos 事件录制文件的格式。
+ * <p>
+ * 文件头：[int 魔数][int 版本]；之后每条记录为 [int 长度][int CRC32][正文]，与 {@link StatusJournal} 相同。
+ * 正文：[long 收到时间][服务名][分组][clusters][byte 集群数][集群名...][int 实例数][实例...]，
+ * 每个实例为 [ip][int 端口][byte 集群下标][byte 标志位][double 权重]，字符串为 [short 长度][UTF-8]。
+ * 集群名在记录内去重，实例的 metadata 和 instanceId 不录制，状态计算不依赖它们。
+ * <p>
+ * 单条记录的正文不超过 {@link #MAX_RECORD_BYTES}，写入时超出的事件不录制。
+ * 进程崩溃时文件末尾可能有写了一半的记录，读取时遇到长度越界（含超过上限）或 CRC 不匹配即视为文件结束，
+ * 损坏的长度字段不会导致按其分配内存。
+ */
+final class EventLog {
+
+    static final int MAGIC = 0x48444556; // "HDEV"
+    static final int FORMAT_VERSION = 1;
+    static final int FILE_HEADER = 8;
+    static final int RECORD_HEADER = 8;
+    static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+
+    private static final int FLAG_HEALTHY = 1;
+    private static final int FLAG_ENABLED = 1 << 1;
+    private static final int FLAG_EPHEMERAL = 1 << 2;
+
+    private EventLog() {
+    }
+
+    /**
+     * 一条录制的事件。
+     * @param timestamp 收到推送的时间（毫秒时间戳）
+     */
+    record RecordedEvent(long timestamp, NamingEvent event) {
+    }
+
+    static void writeFileHeader(ByteBuffer buffer) {
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION);
+    }
+
+    /**
+     * 把一条记录（含记录头）写入 buffer。
+     * @throws BufferOverflowException buffer 剩余空间不足，此时 buffer 的 position 不确定，调用方应扩容后重写
+     * @throws IllegalArgumentException 正文超过 {@link #MAX_RECORD_BYTES}
+     */
+    static void writeRecord(ByteBuffer buffer, long timestamp, NamingEvent event) {
+        int start = buffer.position();
+        buffer.position(start + RECORD_HEADER);
+        encode(buffer, timestamp, event);
+        int end = buffer.position();
+        if (end - start - RECORD_HEADER > MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("Event too large to record: " + (end - start - RECORD_HEADER) + " bytes");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), buffer.arrayOffset() + start + RECORD_HEADER, end - start - RECORD_HEADER);
+        buffer.putInt(start, end - start - RECORD_HEADER);
+        buffer.putInt(start + 4, (int) crc.getValue());
+    }
+
+    static void encode(ByteBuffer buffer, long timestamp, NamingEvent event) {
+        buffer.putLong(timestamp);
+        putString(buffer, event.getServiceName());
+        putString(buffer, event.getGroupName());
+        putString(buffer, event.getClusters());
+        List<Instance> instances = event.getInstances() == null ? List.of() : event.getInstances();
+        List<String> clusters = new ArrayList<>(2);
+        for (Instance instance : instances) {
+            String cluster = instance.getClusterName();
+            if (!clusters.contains(cluster)) {
+                clusters.add(cluster);
+            }
+        }
+        if (clusters.size() > 255) {
+            throw new IllegalArgumentException("Too many clusters in one event: " + clusters.size());
+        }
+        buffer.put((byte) clusters.size());
+        for (String cluster : clusters) {
+            putString(buffer, cluster);
+        }
+        buffer.putInt(instances.size());
+        for (Instance instance : instances) {
+            putString(buffer, instance.getIp());
+            buffer.putInt(instance.getPort());
+            buffer.put((byte) clusters.indexOf(instance.getClusterName()));
+            int flags = (instance.isHealthy() ? FLAG_HEALTHY : 0)
+                    | (instance.isEnabled() ? FLAG_ENABLED : 0)
+                    | (instance.isEphemeral() ? FLAG_EPHEMERAL : 0);
+            buffer.put((byte) flags);
+            buffer.putDouble(instance.getWeight());
+        }
+    }
+
+    static RecordedEvent decode(ByteBuffer buffer) {
+        long timestamp = buffer.getLong();
+        String serviceName = getString(buffer);
+        String groupName = getString(buffer);
+        String eventClusters = getString(buffer);
+        int clusterCount = Byte.toUnsignedInt(buffer.get());
+        String[] clusters = new String[clusterCount];
+        for (int i = 0; i < clusterCount; i++) {
+            clusters[i] = getString(buffer);
+        }
+        int count = buffer.getInt();
+        List<Instance> instances = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Instance instance = new Instance();
+            instance.setServiceName(serviceName);
+            instance.setIp(getString(buffer));
+            instance.setPort(buffer.getInt());
+            instance.setClusterName(clusters[Byte.toUnsignedInt(buffer.get())]);
+            int flags = buffer.get();
+            instance.setHealthy((flags & FLAG_HEALTHY) != 0);
+            instance.setEnabled((flags & FLAG_ENABLED) != 0);
+            instance.setEphemeral((flags & FLAG_EPHEMERAL) != 0);
+            instance.setWeight(buffer.getDouble());
+            instances.add(instance);
+        }
+        return new RecordedEvent(timestamp, new NamingEvent(serviceName, groupName, eventClusters, instances));
+    }
+
+    /**
+     * null 按空串写入。
+     */
+    private static void putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("String too long to record: " + bytes.length);
+        }
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 顺序读取一个录制文件，整个文件不会一次性读入内存。
+     */
+    static final class Reader implements Closeable {
+
+        private final FileChannel channel;
+        private ByteBuffer buffer;
+        private boolean eof;
+
+        Reader(Path file, int bufferBytes) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.buffer = ByteBuffer.allocate(Math.max(bufferBytes, 4096));
+            this.buffer.flip();
+            try {
+                if (!fill(FILE_HEADER) || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                    throw new IOException("Not a Heimdall event recording: " + file);
+                }
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /**
+         * @return 下一条事件；文件结束或遇到不完整的记录时返回 null
+         */
+        RecordedEvent next() throws IOException {
+            if (eof || !fill(RECORD_HEADER)) {
+                return null;
+            }
+            int length = buffer.getInt(buffer.position());
+            int checksum = buffer.getInt(buffer.position() + 4);
+            if (length <= 0 || length > MAX_RECORD_BYTES) {
+                eof = true;
+                return null;
+            }
+            if (buffer.capacity() < RECORD_HEADER + length) {
+                ByteBuffer larger = ByteBuffer.allocate(RECORD_HEADER + length);
+                larger.put(buffer).flip();
+                this.buffer = larger;
+            }
+            if (!fill(RECORD_HEADER + length)) {
+                eof = true;
+                return null;
+            }
+            buffer.position(buffer.position() + RECORD_HEADER);
+            CRC32 crc = new CRC32();
+            crc.update(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+            if ((int) crc.getValue() != checksum) {
+                eof = true;
+                return null;
+            }
+            ByteBuffer body = buffer.slice(buffer.position(), length);
+            buffer.position(buffer.position() + length);
+            return decode(body);
+        }
+
+        /**
+         * 保证 buffer 中至少有 bytes 个可读字节。
+         * @return 文件剩余内容不足时返回 false
+         */
+        private boolean fill(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return true;
+            }
+            buffer.compact();
+            try {
+                while (buffer.position() < bytes) {
+                    if (channel.read(buffer) < 0) {
+                        return false;
+                    }
+                }
+                return true;
+            } finally {
+                buffer.flip();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.mofari.heimdall.service;
+
+import com.alibaba.nacos.api.naming.listener.NamingEvent;
+import com.mofari.heimdall.config.MonitoringProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Nacos 事件录制：把收到的每次推送追加到二进制文件（格式见 {@link EventLog}），用于事后复现问题和回放压测。
+ * <p>
+ * Nacos 回调线程上只做一次入队，编码和写文件由后台线程完成：记录先写入缓冲区，缓冲区写满或到达刷新间隔时
+ * 一次写入文件；文件超过大小上限时切换到新文件，并删除超出保留个数的最早文件。
+ * 写入跟不上时丢弃新事件并计数，不会阻塞事件处理。
+ */
+@Service
+public class EventRecorder {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventRecorder.class);
+
+    static final String FILE_SUFFIX = ".rec";
+    private static final String FILE_PREFIX = "events-";
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    @Autowired
+    private MonitoringProperties monitoringProperties;
+
+    private MonitoringProperties.Recorder config;
+    private BlockingQueue<EventLog.RecordedEvent> pending;
+    private Path directory;
+    private Thread writer;
+    private volatile boolean running;
+
+    // 以下字段只由写线程访问
+    private FileChannel channel;
+    private ByteBuffer buffer;
+    private ByteBuffer scratch;
+    private long fileBytes;
+    private int fileIndex;
+
+    private volatile Path currentFile;
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long recorded;
+    private volatile long bytesWritten;
+    private volatile long rotations;
+
+    /**
+     * 录制文件的概况。
+     */
+    public record RecordingFile(String name, long bytes, long lastModified) {
+    }
+
+    @PostConstruct
+    public void init() {
+        this.config = monitoringProperties.getRecorder();
+        this.directory = Paths.get(config.getDirectory());
+        if (!config.isEnabled()) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            this.buffer = ByteBuffer.allocate(config.getBufferBytes());
+            this.scratch = ByteBuffer.allocate(4096);
+            openNewFile();
+        } catch (IOException e) {
+            logger.error("Failed to open event recording in '{}', recording disabled: {}", config.getDirectory(), e.getMessage(), e);
+            return;
+        }
+        this.pending = new ArrayBlockingQueue<>(config.getQueueCapacity());
+        this.running = true;
+        this.writer = new Thread(this::writeLoop, "event-recorder");
+        this.writer.setDaemon(true);
+        this.writer.start();
+        logger.info("Recording Nacos events to {}", directory.toAbsolutePath());
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        // 不能用 interrupt，中断会关闭正在写入的 FileChannel
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * 录制一次 Nacos 推送，只做入队，可在 Nacos 回调线程上调用。
+     */
+    public void record(NamingEvent event) {
+        if (!running) {
+            return;
+        }
+        if (!pending.offer(new EventLog.RecordedEvent(System.currentTimeMillis(), event))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    public boolean isEnabled() {
+        return running;
+    }
+
+    /**
+     * @return 录制目录下的所有录制文件，按时间先后排列
+     */
+    public List<RecordingFile> listFiles() {
+        List<RecordingFile> files = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+            for (Path file : stream) {
+                try {
+                    files.add(new RecordingFile(file.getFileName().toString(), Files.size(file),
+                            Files.getLastModifiedTime(file).toMillis()));
+                } catch (IOException e) {
+                    // 文件刚被轮转删除
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to list event recordings in {}: {}", directory, e.getMessage());
+        }
+        // 按文件名排序即按时间排序
+        files.sort(Comparator.comparing(RecordingFile::name));
+        return files;
+    }
+
+    /**
+     * 按文件名查找录制目录下的文件，不接受路径。
+     * @return 文件路径，文件不存在时返回 null
+     */
+    public Path resolve(String name) {
+        if (name == null || !name.endsWith(FILE_SUFFIX) || name.contains("/") || name.contains("\\")) {
+            return null;
+        }
+        Path file = directory.resolve(name);
+        return Files.isRegularFile(file) ? file : null;
+    }
+
+    /**
+     * @return 录制的写入量、丢弃数及当前文件
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", running);
+        stats.put("directory", directory.toAbsolutePath().toString());
+        Path file = currentFile;
+        stats.put("currentFile", file == null ? null : file.getFileName().toString());
+        stats.put("queued", pending == null ? 0 : pending.size());
+        stats.put("recorded", recorded);
+        stats.put("dropped", dropped.get());
+        stats.put("bytesWritten", bytesWritten);
+        stats.put("rotations", rotations);
+        return stats;
+    }
+
+    // ---------------------------------------------------------------- 写入
+
+    private void writeLoop() {
+        long flushInterval = config.getFlushIntervalMillis();
+        long nextFlush = System.currentTimeMillis() + flushInterval;
+        // 关闭时写完剩余记录再退出
+        while (running || !pending.isEmpty()) {
+            try {
+                EventLog.RecordedEvent event = pending.poll(flushInterval, TimeUnit.MILLISECONDS);
+                if (event != null) {
+                    append(event);
+                    recorded++;
+                }
+                if (System.currentTimeMillis() >= nextFlush) {
+                    flush();
+                    nextFlush = System.currentTimeMillis() + flushInterval;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (IOException | RuntimeException e) {
+                logger.error("Event recording write failed: {}", e.getMessage(), e);
+            }
+        }
+        try {
+            flush();
+            channel.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close event recording: {}", e.getMessage());
+        }
+    }
+
+    private void append(EventLog.RecordedEvent event) throws IOException {
+        ByteBuffer record = encode(event);
+        int size = record.remaining();
+        if (fileBytes + buffer.position() + size > config.getMaxFileBytes() && fileBytes + buffer.position() > EventLog.FILE_HEADER) {
+            flush();
+            rotate();
+        }
+        if (buffer.remaining() < size) {
+            flush();
+        }
+        if (buffer.remaining() < size) {
+            // 超过缓冲区大小的记录直接写入文件
+            write(record);
+        } else {
+            buffer.put(record);
+        }
+    }
+
+    private ByteBuffer encode(EventLog.RecordedEvent event) {
+        while (true) {
+            scratch.clear();
+            try {
+                EventLog.writeRecord(scratch, event.timestamp(), event.event());
+                return scratch.flip();
+            } catch (BufferOverflowException e) {
+                int limit = EventLog.RECORD_HEADER + EventLog.MAX_RECORD_BYTES;
+                if (scratch.capacity() >= limit) {
+                    throw new IllegalArgumentException("Event too large to record: " + event.event().getServiceName());
+                }
+                scratch = ByteBuffer.allocate(Math.min(scratch.capacity() * 2, limit));
+            }
+        }
+    }
+
+    private void flush() throws IOException {
+        if (buffer.position() == 0) {
+            return;
+        }
+        buffer.flip();
+        write(buffer);
+        buffer.clear();
+    }
+
+    private void write(ByteBuffer data) throws IOException {
+        int size = data.remaining();
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+        fileBytes += size;
+        bytesWritten += size;
+    }
+
+    private void rotate() throws IOException {
+        channel.close();
+        openNewFile();
+        rotations++;
+        deleteOldFiles();
+    }
+
+    private void openNewFile() throws IOException {
+        // 文件名为 时间-序号，同一毫秒内切换的文件也能按文件名排序
+        Path file;
+        do {
+            file = directory.resolve(String.format("%s%s-%05d%s", FILE_PREFIX, LocalDateTime.now().format(FILE_TIME),
+                    fileIndex++ % 100000, FILE_SUFFIX));
+        } while (Files.exists(file));
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        this.currentFile = file;
+        this.fileBytes = 0;
+        ByteBuffer header = ByteBuffer.allocate(EventLog.FILE_HEADER);
+        EventLog.writeFileHeader(header);
+        write(header.flip());
+    }
+
+    private void deleteOldFiles() {
+        List<RecordingFile> files = listFiles();
+        for (int i = 0; i < files.size() - config.getMaxFiles(); i++) {
+            Path file = directory.resolve(files.get(i).name());
+            if (file.equals(currentFile)) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.warn("Failed to delete old event recording {}: {}", file, e.getMessage());
+            }
+        }
+    }
+}
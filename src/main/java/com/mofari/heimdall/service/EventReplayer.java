@@ -0,0 +1,184 @@
+package com.mofari.heimdall.service;
+
+import com.mofari.heimdall.config.MonitoringProperties;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 回放录制的 Nacos 事件：按录制时的时间间隔（可按倍速缩放，或不等待）把事件重新送入
+ * {@link NacosListenerService} 的处理流程，状态计算、抖动抑制、告警、看板推送都与实时推送相同。
+ * <p>
+ * 回放会与实时推送混在一起，只在 spring.monitoring.recorder.replay-enabled 开启时（loadtest profile 默认开启）加载。
+ * 回放期间告警派发器处于空跑状态，告警只记录日志不发送；回放中临时加入监控的服务在回放结束后释放。
+ * 抖动抑制和告警合并会推迟回放事件产生的告警，因此空跑和释放都在回放结束一段时间后才结束。
+ */
+@Service
+@ConditionalOnProperty(prefix = "spring.monitoring.recorder", name = "replay-enabled", havingValue = "true")
+public class EventReplayer {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventReplayer.class);
+
+    private static final int READ_BUFFER_BYTES = 256 * 1024;
+
+    @Autowired
+    private NacosListenerService nacosListenerService;
+
+    @Autowired
+    private AlertDispatcher alertDispatcher;
+
+    @Autowired
+    private MonitoringProperties monitoringProperties;
+
+    private Thread replayer;
+    private volatile boolean running;
+
+    // 以下为最近一次回放的统计
+    private volatile List<String> files = List.of();
+    private volatile double speed;
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private volatile long startNanos;
+    private volatile long replayed;
+    private volatile long firstTimestamp;
+    private volatile long lastTimestamp;
+    private volatile String error;
+
+    /**
+     * 开始回放，同一时间只能有一个回放在进行。
+     * @param recordings 按顺序回放的录制文件
+     * @param speed      回放倍速，1 为按录制时的节奏，小于等于 0 表示不等待、尽快回放
+     * @return 已有回放在进行时返回 false
+     */
+    public synchronized boolean start(List<Path> recordings, double speed) {
+        if (running) {
+            return false;
+        }
+        List<String> names = new ArrayList<>(recordings.size());
+        for (Path recording : recordings) {
+            names.add(recording.getFileName().toString());
+        }
+        this.files = List.copyOf(names);
+        this.speed = speed;
+        this.startedAt = System.currentTimeMillis();
+        this.finishedAt = 0;
+        this.startNanos = System.nanoTime();
+        this.replayed = 0;
+        this.firstTimestamp = 0;
+        this.lastTimestamp = 0;
+        this.error = null;
+        this.running = true;
+        alertDispatcher.beginDryRun();
+        this.replayer = new Thread(() -> replay(List.copyOf(recordings), speed), "event-replay");
+        this.replayer.setDaemon(true);
+        this.replayer.start();
+        return true;
+    }
+
+    /**
+     * 停止正在进行的回放，已送入处理队列的事件仍会被处理。
+     */
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        if (replayer != null) {
+            LockSupport.unpark(replayer);
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return 最近一次回放的进度和速率
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("running", running);
+        stats.put("files", files);
+        stats.put("speed", speed <= 0 ? "max" : speed);
+        stats.put("startedAt", startedAt);
+        stats.put("finishedAt", finishedAt);
+        long events = replayed;
+        double seconds = startedAt == 0 ? 0
+                : (finishedAt == 0 ? System.nanoTime() - startNanos : TimeUnit.MILLISECONDS.toNanos(finishedAt - startedAt)) / 1e9;
+        stats.put("replayed", events);
+        stats.put("elapsedSeconds", seconds);
+        stats.put("eventsPerSecond", seconds > 0 ? events / seconds : 0.0);
+        // 当前回放到的录制时间，以及对应的录制时长
+        stats.put("recordedAt", lastTimestamp);
+        stats.put("recordedSeconds", (lastTimestamp - firstTimestamp) / 1000.0);
+        stats.put("error", error);
+        return stats;
+    }
+
+    private void replay(List<Path> recordings, double speed) {
+        logger.info("Replaying {} event recording(s) at {}.", recordings.size(), speed <= 0 ? "max speed" : speed + "x");
+        try {
+            long baseNanos = System.nanoTime();
+            long baseTimestamp = -1;
+            for (Path recording : recordings) {
+                try (EventLog.Reader reader = new EventLog.Reader(recording, READ_BUFFER_BYTES)) {
+                    EventLog.RecordedEvent recorded;
+                    while (running && (recorded = reader.next()) != null) {
+                        if (baseTimestamp < 0) {
+                            baseTimestamp = recorded.timestamp();
+                            firstTimestamp = baseTimestamp;
+                        }
+                        if (speed > 0) {
+                            long due = baseNanos + (long) (TimeUnit.MILLISECONDS.toNanos(recorded.timestamp() - baseTimestamp) / speed);
+                            long wait;
+                            while (running && (wait = due - System.nanoTime()) > 0) {
+                                LockSupport.parkNanos(wait);
+                            }
+                        }
+                        if (!running) {
+                            break;
+                        }
+                        nacosListenerService.replay(recorded.event());
+                        lastTimestamp = recorded.timestamp();
+                        replayed++;
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Event replay failed: {}", e.getMessage(), e);
+            error = e.getMessage();
+        } finally {
+            finishedAt = System.currentTimeMillis();
+            running = false;
+            settle();
+        }
+        logger.info("Event replay finished: {} events in {} ms.", replayed, finishedAt - startedAt);
+    }
+
+    /**
+     * 等回放事件引起的告警都经过抖动抑制和合并窗口后，释放临时加入监控的服务并结束空跑。
+     */
+    private void settle() {
+        long delayMillis = monitoringProperties.getFlapDamping().getSevereHoldMillis()
+                + monitoringProperties.getAlertDigest().getWindowMillis();
+        CompletableFuture.runAsync(() -> {
+            try {
+                int released = nacosListenerService.releaseReplayed();
+                logger.info("Released {} service(s) tracked only by the replay.", released);
+            } finally {
+                alertDispatcher.endDryRun();
+            }
+        }, CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS));
+    }
+}
@@ -1,20 +1,21 @@
 package com.mofari.heimdall.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 @Service
-@ConditionalOnProperty(prefix = "spring.monitoring", name = "alert-channel", havingValue = "feishu", matchIfMissing = true)
 public class FeishuNotifierService implements AlertNotifier {
 
     private static final Logger log = LoggerFactory.getLogger(FeishuNotifierService.class);
@@ -23,31 +24,68 @@ public class FeishuNotifierService implements AlertNotifier {
     private String defaultWebhook;
 
     @Autowired
-    private RestTemplate restTemplate;
+    private OutboundHttpClient httpClient;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private HeimdallMetrics metrics;
+
+    private HeimdallMetrics.Notifier notifierMetrics;
+
+    @PostConstruct
+    public void init() {
+        this.notifierMetrics = metrics.notifier(channel());
+    }
 
     @Override
-    public void sendMarkdownMessage(String title, String markdownText, AlertLevel level) {
+    public String channel() {
+        return "feishu";
+    }
+
+    @Override
+    public void sendMarkdownMessage(String title, String markdownText, AlertLevel level) throws IOException, InterruptedException {
         sendMarkdownMessage(title, markdownText, this.defaultWebhook, level);
     }
 
     @Override
-    public void sendMarkdownMessage(String title, String markdownText, String webhookUrl, AlertLevel level) {
+    public void sendMarkdownMessage(String title, String markdownText, String webhookUrl, AlertLevel level)
+            throws IOException, InterruptedException {
         if (webhookUrl == null || webhookUrl.isEmpty()) {
             log.warn("Webhook URL is not configured. Skipping Feishu message.");
             return;
         }
 
+        long start = System.nanoTime();
         try {
             String content = normalizeToLarkMarkdown(markdownText);
             Map<String, Object> requestBody = buildInteractiveCard(title, content, level);
-            restTemplate.postForObject(webhookUrl, requestBody, String.class);
+            checkResponse(httpClient.postJson(webhookUrl, requestBody).body());
+            notifierMetrics.success(start);
             log.info("Successfully sent Feishu message to {}", webhookUrl.substring(0, Math.min(30, webhookUrl.length())));
-        } catch (Exception e) {
-            log.error("Failed to send Feishu message: " + e.getMessage(), e);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            notifierMetrics.failure(start);
+            log.warn("Failed to send Feishu message: {}", e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * 飞书机器人在 HTTP 200 的响应体中用 code 表示失败，如 9499、11232 表示触发了频率限制。
+     */
+    private void checkResponse(String body) throws IOException {
+        if (body == null || body.isEmpty()) {
+            return;
+        }
+        JsonNode root = objectMapper.readTree(body);
+        int code = root.has("code") ? root.path("code").asInt() : root.path("StatusCode").asInt(0);
+        if (code != 0) {
+            throw new IOException("Feishu rejected the message: code=" + code + ", msg=" + root.path("msg").asText());
         }
     }
 
-    private Map<String, Object> buildInteractiveCard(String title, String content, AlertLevel level) {
+    Map<String, Object> buildInteractiveCard(String title, String content, AlertLevel level) {
         Map<String, Object> headerTitle = new HashMap<>();
         headerTitle.put("tag", "plain_text");
         headerTitle.put("content", title);
@@ -97,7 +135,7 @@ public class FeishuNotifierService implements AlertNotifier {
         }
     }
 
-    private String normalizeToLarkMarkdown(String markdownText) {
+    String normalizeToLarkMarkdown(String markdownText) {
         if (markdownText == null) {
             return "";
         }
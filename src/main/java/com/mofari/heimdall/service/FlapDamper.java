@@ -0,0 +1,268 @@
+package com.mofari.heimdall.service;
+
+import com.mofari.heimdall.config.MonitoringProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 服务状态变更的抖动抑制状态机。
+ * <p>
+ * 每次 Nacos 推送计算出的是"原始状态"，这里决定何时把它提交为服务的正式状态：
+ * <ul>
+ *     <li>滞后：进入 DOWN/OFFLINE 需要连续 N 次观察或持续 T 毫秒，其它状态使用单独的 N/T；</li>
+ *     <li>抖动检测：窗口内原始状态变化次数超过阈值时提交 FLAPPING，期间不再产生告警，
+ *     原始状态稳定一段时间后提交稳定后的状态。</li>
+ * </ul>
+ * 所有服务共用一个调度线程实现保持计时，而不是每个服务一个线程。
+ * <p>
+ * 本类不做并发控制：对同一服务的 {@link #observe} 与 {@link #evaluate} 调用必须由调用方串行化。
+ */
+@Service
+public class FlapDamper {
+
+    private static final Logger log = LoggerFactory.getLogger(FlapDamper.class);
+
+    @Autowired
+    private MonitoringProperties monitoringProperties;
+
+    private final Map<String, DampingState> states = new ConcurrentHashMap<>();
+
+    private ScheduledThreadPoolExecutor timer;
+
+    /**
+     * 计时到期时的回调，参数为服务名。回调方应在串行化后调用 {@link #evaluate}。
+     */
+    private volatile Consumer<String> timerCallback = serviceId -> { };
+
+    /**
+     * 一次提交决定。
+     *
+     * @param status    要提交的状态
+     * @param alertFrom 用于告警判断的"上一个稳定状态"，为 null 表示这次提交不应触发告警
+     */
+    public record Decision(ServiceStatus status, ServiceStatus alertFrom) {
+    }
+
+    @PostConstruct
+    public void init() {
+        this.timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "flap-damper");
+            t.setDaemon(true);
+            return t;
+        });
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    public void setTimerCallback(Consumer<String> timerCallback) {
+        this.timerCallback = timerCallback;
+    }
+
+    /**
+     * 记录一次原始状态观察。
+     *
+     * @param serviceId 服务名
+     * @param committed 当前已提交的状态
+     * @param observed  本次计算出的原始状态
+     * @param now       当前时间（毫秒）
+     * @return 需要提交的决定，暂不提交时返回 null
+     */
+    public Decision observe(String serviceId, ServiceStatus committed, ServiceStatus observed, long now) {
+        MonitoringProperties.FlapDamping config = monitoringProperties.getFlapDamping();
+        if (!config.isEnabled() || committed == ServiceStatus.UNKNOWN) {
+            // 首次观察没有可比较的历史，直接提交
+            DampingState state = states.computeIfAbsent(serviceId, k -> new DampingState(config.getFlapThreshold()));
+            state.reset(observed, now);
+            return observed == committed ? null : new Decision(observed, committed);
+        }
+
+        DampingState state = states.computeIfAbsent(serviceId, k -> new DampingState(config.getFlapThreshold()));
+        if (state.lastRaw != observed) {
+            state.lastRaw = observed;
+            state.recordRawChange(now);
+            if (!state.flapping && state.isFlapping(now, config.getFlapWindowMillis())) {
+                state.flapping = true;
+                state.statusBeforeFlapping = committed;
+                state.clearPending();
+                log.warn("服务 '{}' 在 {} 秒内状态变化 {} 次，判定为抖动，暂停告警。",
+                        serviceId, config.getFlapWindowMillis() / 1000, state.rawChanges.length);
+                schedule(serviceId, state, config.getFlapQuietMillis());
+                return committed == ServiceStatus.FLAPPING ? null : new Decision(ServiceStatus.FLAPPING, null);
+            }
+        }
+        if (!state.flapping) {
+            if (state.pending == observed) {
+                state.pendingCount++;
+            } else {
+                state.pending = observed;
+                state.pendingSince = now;
+                state.pendingCount = 1;
+            }
+        }
+        return evaluate(serviceId, committed, now);
+    }
+
+    /**
+     * 根据时间重新评估是否可以提交待定状态，由计时回调或 {@link #observe} 调用。
+     *
+     * @param serviceId 服务名
+     * @param committed 当前已提交的状态
+     * @param now       当前时间（毫秒）
+     * @return 需要提交的决定，暂不提交时返回 null
+     */
+    public Decision evaluate(String serviceId, ServiceStatus committed, long now) {
+        DampingState state = states.get(serviceId);
+        if (state == null) {
+            return null;
+        }
+        MonitoringProperties.FlapDamping config = monitoringProperties.getFlapDamping();
+
+        if (state.flapping) {
+            long quietFor = now - state.lastRawChange;
+            if (quietFor < config.getFlapQuietMillis()) {
+                schedule(serviceId, state, config.getFlapQuietMillis() - quietFor);
+                return null;
+            }
+            state.flapping = false;
+            state.rawChangeCount = 0;
+            state.cancelTimer();
+            ServiceStatus stable = state.lastRaw;
+            ServiceStatus before = state.statusBeforeFlapping;
+            state.clearPending();
+            log.info("服务 '{}' 已稳定为 '{}'，退出抖动状态。", serviceId, stable);
+            // 抖动前后状态一致时不告警，否则按抖动前的状态判断是否需要告警
+            return new Decision(stable, stable == before ? null : before);
+        }
+
+        ServiceStatus pending = state.pending;
+        if (pending == null || pending == committed) {
+            state.clearPending();
+            return null;
+        }
+        int requiredObservations = pending.isSevere() ? config.getSevereConfirmObservations() : config.getRecoverConfirmObservations();
+        long requiredHold = pending.isSevere() ? config.getSevereHoldMillis() : config.getRecoverHoldMillis();
+        long heldFor = now - state.pendingSince;
+        if (state.pendingCount >= requiredObservations || heldFor >= requiredHold) {
+            state.clearPending();
+            return new Decision(pending, committed);
+        }
+        schedule(serviceId, state, requiredHold - heldFor);
+        return null;
+    }
+
+    /**
+     * 服务不再被监控时清理其状态。
+     */
+    public void forget(String serviceId) {
+        DampingState state = states.remove(serviceId);
+        if (state != null) {
+            state.cancelTimer();
+        }
+    }
+
+    /**
+     * @return 当前处于抖动状态的服务数量
+     */
+    public int flappingCount() {
+        int count = 0;
+        for (DampingState state : states.values()) {
+            if (state.flapping) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void schedule(String serviceId, DampingState state, long delayMillis) {
+        state.cancelTimer();
+        if (timer.isShutdown()) {
+            return;
+        }
+        state.timer = timer.schedule(() -> timerCallback.accept(serviceId), Math.max(0, delayMillis), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 单个服务的抑制状态，只由持有该服务串行权的线程访问。
+     */
+    private static final class DampingState {
+
+        private ServiceStatus lastRaw = ServiceStatus.UNKNOWN;
+        private long lastRawChange;
+
+        private ServiceStatus pending;
+        private long pendingSince;
+        private int pendingCount;
+
+        private boolean flapping;
+        private ServiceStatus statusBeforeFlapping;
+
+        // 最近若干次原始状态变化的时间，环形数组
+        private final long[] rawChanges;
+        private int rawChangeIndex;
+        private int rawChangeCount;
+
+        private volatile ScheduledFuture<?> timer;
+
+        private DampingState(int flapThreshold) {
+            this.rawChanges = new long[Math.max(2, flapThreshold)];
+        }
+
+        void reset(ServiceStatus observed, long now) {
+            lastRaw = observed;
+            lastRawChange = now;
+            flapping = false;
+            statusBeforeFlapping = null;
+            rawChangeCount = 0;
+            clearPending();
+        }
+
+        void recordRawChange(long now) {
+            lastRawChange = now;
+            rawChanges[rawChangeIndex] = now;
+            rawChangeIndex = (rawChangeIndex + 1) % rawChanges.length;
+            if (rawChangeCount < rawChanges.length) {
+                rawChangeCount++;
+            }
+        }
+
+        /**
+         * 环形数组写满且其中最早的一次变化仍在窗口内，即窗口内变化次数达到阈值。
+         */
+        boolean isFlapping(long now, long windowMillis) {
+            if (rawChangeCount < rawChanges.length) {
+                return false;
+            }
+            long oldest = rawChanges[rawChangeIndex];
+            return now - oldest <= windowMillis;
+        }
+
+        void clearPending() {
+            pending = null;
+            pendingCount = 0;
+            cancelTimer();
+        }
+
+        void cancelTimer() {
+            ScheduledFuture<?> t = timer;
+            if (t != null) {
+                t.cancel(false);
+                timer = null;
+            }
+        }
+    }
+}
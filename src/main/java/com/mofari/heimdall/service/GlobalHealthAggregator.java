@@ -0,0 +1,323 @@
+package com.mofari.heimdall.service;
+
+import com.mofari.heimdall.config.MonitoringProperties;
+import com.mofari.heimdall.websocket.AppStatusWebSocketServer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 全局健康度汇总。
+ * <p>
+ * 监听状态存储，按状态、按目标集群以及按 Nacos 来源维护 {@link LongAdder} 计数，每次状态变更只做常数次加减，不加额外的锁。
+ * 定时任务每隔一个采样周期读取一次计数，告警比例在整个滑动窗口内都超过阈值才触发全局告警，
+ * 整个窗口都低于阈值才发送恢复通知，每次告警事件只发送一次告警和一次恢复。
+ * <p>
+ * 集群模式下每个节点只统计归属自己的服务（看板摘要也只含本节点的分片），
+ * 并通过成员附加信息发布本节点的服务数、告警服务数和全局告警状态；告警比例按本节点计数加上其它成员最近发布的计数计算，
+ * 因此每个节点看到的是同一个全集群比例，各自维护同样的滑动窗口和告警状态，全局告警只由主节点发送，避免每个节点各发一次。
+ * 主节点故障后新主节点已有完整的窗口和告警状态，不会重复告警，也不会漏发恢复；
+ * 刚加入集群、窗口尚未填满的节点若有成员报告告警处于触发状态，直接沿用该状态。
+ * 同时发布本节点处于 DOWN 的服务，供接管这些服务的节点确定起始状态，见 {@link ClusterCoordinator}。
+ */
+@Service
+public class GlobalHealthAggregator implements StatusListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(GlobalHealthAggregator.class);
+
+    private static final ServiceStatus[] STATUSES = ServiceStatus.values();
+
+    // 集群模式下发布给其它成员的附加信息键
+    static final String META_SERVICES = "heimdall.services";
+    static final String META_ALERTING = "heimdall.alerting";
+    static final String META_GLOBAL_ALERT = "heimdall.global-alert";
+
+    @Autowired
+    private AppStatusStore appStatusStore;
+
+    @Autowired
+    private AlertDispatcher alertDispatcher;
+
+    @Autowired
+    private AlertRouter alertRouter;
+
+    @Autowired
+    private MonitoringProperties monitoringProperties;
+
+    @Autowired
+    private ClusterCoordinator clusterCoordinator;
+
+    // 按状态计数，下标为 ServiceStatus.ordinal()
+    private final LongAdder[] byStatus = newCounters();
+
+    // 集群名 -> 按状态计数
+    private final Map<String, LongAdder[]> byCluster = new ConcurrentHashMap<>();
+
+    // 来源名 -> 按状态计数
+    private final Map<String, LongAdder[]> bySource = new ConcurrentHashMap<>();
+
+    // 处于 DOWN 的服务ID，集群模式下发布给其它成员
+    private final Set<String> downServices = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean globalAlertActive = new AtomicBoolean(false);
+
+    private Set<ServiceStatus> alertStatuses;
+
+    // 滑动窗口内每个采样点的告警比例，只由定时任务线程访问
+    private double[] window;
+    private int windowIndex;
+    private int windowFilled;
+
+    private volatile HealthSummary summary;
+
+    /**
+     * 全局健康度摘要，供看板顶部展示。
+     *
+     * @param total             监控的服务总数，集群模式下只含本节点的分片
+     * @param byStatus          各状态的服务数
+     * @param byCluster         各集群中各状态的服务数
+     * @param bySource          各 Nacos 来源中各状态的服务数，未命名的来源为空字符串
+     * @param alertRatio        最近一次采样时计入全局告警的服务比例，集群模式下为全集群比例
+     * @param threshold         全局告警阈值
+     * @param globalAlertActive 全局告警是否处于触发状态
+     * @param timestamp         采样时间
+     */
+    public record HealthSummary(long total,
+                                Map<ServiceStatus, Long> byStatus,
+                                Map<String, Map<ServiceStatus, Long>> byCluster,
+                                Map<String, Map<ServiceStatus, Long>> bySource,
+                                double alertRatio,
+                                double threshold,
+                                boolean globalAlertActive,
+                                long timestamp) {
+    }
+
+    /**
+     * 推送给 WebSocket 客户端的摘要消息。
+     */
+    public record SummaryMessage(String type, HealthSummary summary) {
+    }
+
+    @PostConstruct
+    public void init() {
+        MonitoringProperties.GlobalHealth config = monitoringProperties.getGlobalHealth();
+        this.alertStatuses = config.getAlertStatuses().isEmpty()
+                ? EnumSet.of(ServiceStatus.DOWN) : EnumSet.copyOf(config.getAlertStatuses());
+        int samples = (int) Math.max(1, config.getWindowMillis() / Math.max(1, config.getSampleIntervalMillis()));
+        this.window = new double[samples];
+        this.summary = buildSummary(0, System.currentTimeMillis());
+        appStatusStore.addListener(this);
+    }
+
+    @Override
+    public void onStatusUpdated(AppStatus previous, AppStatus status) {
+        if (previous != null) {
+            if (previous.status() == status.status() && previous.clusters().equals(status.clusters())) {
+                return; // 只有实例数变化
+            }
+            count(previous, -1);
+        }
+        count(status, 1);
+    }
+
+    @Override
+    public void onStatusRemoved(AppStatus removed, long sequence) {
+        count(removed, -1);
+    }
+
+    private void count(AppStatus status, int delta) {
+        int index = status.status().ordinal();
+        byStatus[index].add(delta);
+        for (String cluster : status.clusters()) {
+            byCluster.computeIfAbsent(cluster, k -> newCounters())[index].add(delta);
+        }
+        bySource.computeIfAbsent(ServiceRef.sourceOf(status.id()), k -> newCounters())[index].add(delta);
+        if (status.status() == ServiceStatus.DOWN) {
+            if (delta > 0) {
+                downServices.add(status.id());
+            } else {
+                downServices.remove(status.id());
+            }
+        }
+    }
+
+    /**
+     * 定时采样：更新滑动窗口、判断全局告警并推送摘要。
+     */
+    @Scheduled(fixedRateString = "${spring.monitoring.global-health.sample-interval-millis:1000}")
+    public void sample() {
+        long now = System.currentTimeMillis();
+        long total = sum(byStatus, null);
+        long alerting = sum(byStatus, alertStatuses);
+        long clusterTotal = total;
+        long clusterAlerting = alerting;
+        boolean peerAlertActive = false;
+        for (Map<String, String> peer : clusterCoordinator.memberMetadata().values()) {
+            clusterTotal += parseCount(peer.get(META_SERVICES));
+            clusterAlerting += parseCount(peer.get(META_ALERTING));
+            peerAlertActive |= Boolean.parseBoolean(peer.get(META_GLOBAL_ALERT));
+        }
+        double ratio = clusterTotal == 0 ? 0 : (double) clusterAlerting / clusterTotal;
+
+        window[windowIndex] = ratio;
+        windowIndex = (windowIndex + 1) % window.length;
+        windowFilled = Math.min(windowFilled + 1, window.length);
+
+        double threshold = monitoringProperties.getGlobalDownThreshold();
+        if (windowFilled < window.length) {
+            if (peerAlertActive && globalAlertActive.compareAndSet(false, true)) {
+                logger.info("沿用集群中其它节点的全局告警状态");
+            }
+        } else {
+            boolean allAbove = true;
+            boolean allBelow = true;
+            for (double sample : window) {
+                allAbove &= sample >= threshold;
+                allBelow &= sample < threshold;
+            }
+            if (allAbove && globalAlertActive.compareAndSet(false, true)) {
+                sendGlobalAlert(ratio, clusterAlerting, clusterTotal, threshold);
+            } else if (allBelow && globalAlertActive.compareAndSet(true, false)) {
+                sendGlobalRecovery(ratio, clusterAlerting, clusterTotal, threshold);
+            }
+        }
+        if (clusterCoordinator.isEnabled()) {
+            clusterCoordinator.publishMetadata(Map.of(META_SERVICES, Long.toString(total),
+                    META_ALERTING, Long.toString(alerting),
+                    META_GLOBAL_ALERT, Boolean.toString(globalAlertActive.get()),
+                    ClusterCoordinator.DOWN_SERVICES_METADATA, String.join(",", new TreeSet<>(downServices))));
+        }
+
+        HealthSummary previous = summary;
+        HealthSummary current = buildSummary(ratio, now);
+        summary = current;
+        if (previous == null || !sameCounts(previous, current)) {
+            AppStatusWebSocketServer.broadcast("summary", new SummaryMessage("summary", current));
+        }
+    }
+
+    /**
+     * @return 最近一次采样的摘要，读取不产生任何计算
+     */
+    public HealthSummary getSummary() {
+        return summary;
+    }
+
+    /**
+     * @return 全局告警是否处于触发状态
+     */
+    public boolean isGlobalAlertActive() {
+        return globalAlertActive.get();
+    }
+
+    private void sendGlobalAlert(double ratio, long alerting, long total, double threshold) {
+        String title = "🔥 系统重大告警";
+        String text = String.format("#### %s\n\n> **警告**: 系统中 **%d%%** 的服务处于%s状态（%d/%d），已持续 %d 秒超过 **%.0f%%** 的阈值！\n\n> **请立即检查系统！**\n\n> **时间**: %s",
+                title, (int) (ratio * 100), alertStatuses, alerting, total, windowSeconds(), threshold * 100,
+                AlertAggregator.formatTimestamp(System.currentTimeMillis()));
+        if (clusterCoordinator.isLeader()) {
+            dispatchGlobal(title, AlertLevel.CRITICAL, text);
+        }
+        logger.warn("全局告警阈值已触发 ({} {} / {} TOTAL = {}%)", alerting, alertStatuses, total, (int) (ratio * 100));
+    }
+
+    private void sendGlobalRecovery(double ratio, long alerting, long total, double threshold) {
+        String title = "✅ 系统已恢复";
+        String text = String.format("#### %s\n\n> **通知**: 系统已从重大告警中恢复。\n\n> **当前宕机比例**: **%d%%**（%d/%d），已持续 %d 秒低于 **%.0f%%** 的阈值。\n\n> **时间**: %s",
+                title, (int) (ratio * 100), alerting, total, windowSeconds(), threshold * 100,
+                AlertAggregator.formatTimestamp(System.currentTimeMillis()));
+        if (clusterCoordinator.isLeader()) {
+            dispatchGlobal(title, AlertLevel.RECOVERY, text);
+        }
+        logger.info("全局告警状态已恢复 ({} {} / {} TOTAL = {}%)", alerting, alertStatuses, total, (int) (ratio * 100));
+    }
+
+    /**
+     * 按路由规则发送全局告警（只匹配不限服务名的规则），没有匹配的规则时使用全局 Webhook 发送。
+     */
+    private void dispatchGlobal(String title, AlertLevel level, String text) {
+        List<AlertRouter.Destination> destinations = alertRouter.route(level, null, List.of());
+        if (destinations.isEmpty()) {
+            alertDispatcher.dispatch(AlertMessage.to(monitoringProperties.getGlobalAlertWebhook(), title, level, () -> text));
+            return;
+        }
+        for (AlertRouter.Destination destination : destinations) {
+            alertDispatcher.dispatch(AlertMessage.to(destination.channel(), destination.webhookUrl(), title, level, () -> text));
+        }
+    }
+
+    private long windowSeconds() {
+        return monitoringProperties.getGlobalHealth().getWindowMillis() / 1000;
+    }
+
+    private HealthSummary buildSummary(double ratio, long now) {
+        Map<String, Map<ServiceStatus, Long>> clusters = new TreeMap<>();
+        for (Map.Entry<String, LongAdder[]> entry : byCluster.entrySet()) {
+            clusters.put(entry.getKey(), toMap(entry.getValue()));
+        }
+        Map<String, Map<ServiceStatus, Long>> sources = new TreeMap<>();
+        for (Map.Entry<String, LongAdder[]> entry : bySource.entrySet()) {
+            sources.put(entry.getKey(), toMap(entry.getValue()));
+        }
+        return new HealthSummary(sum(byStatus, null), toMap(byStatus), clusters, sources, ratio,
+                monitoringProperties.getGlobalDownThreshold(), globalAlertActive.get(), now);
+    }
+
+    private static long parseCount(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static boolean sameCounts(HealthSummary a, HealthSummary b) {
+        return a.globalAlertActive() == b.globalAlertActive()
+                && a.byStatus().equals(b.byStatus())
+                && a.byCluster().equals(b.byCluster())
+                && a.bySource().equals(b.bySource());
+    }
+
+    private static Map<ServiceStatus, Long> toMap(LongAdder[] counters) {
+        Map<ServiceStatus, Long> map = new EnumMap<>(ServiceStatus.class);
+        for (ServiceStatus status : STATUSES) {
+            map.put(status, counters[status.ordinal()].sum());
+        }
+        return map;
+    }
+
+    private static long sum(LongAdder[] counters, Set<ServiceStatus> statuses) {
+        long total = 0;
+        for (ServiceStatus status : STATUSES) {
+            if (statuses == null || statuses.contains(status)) {
+                total += counters[status.ordinal()].sum();
+            }
+        }
+        return total;
+    }
+
+    private static LongAdder[] newCounters() {
+        LongAdder[] counters = new LongAdder[STATUSES.length];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+}
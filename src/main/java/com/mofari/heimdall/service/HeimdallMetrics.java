@@ -0,0 +1,182 @@
+package com.mofari.heimdall.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heimdall 自身的指标，通过 /actuator/prometheus 暴露。
+ * <p>
+ * 所有计时器、计数器在启动时（或首次使用某个渠道时）创建并缓存，热路径上只做一次 {@code record}/{@code increment}，
+ * 不再按名称和标签查找指标，也不创建 Timer.Sample 等对象。
+ */
+@Component
+public class HeimdallMetrics {
+
+    private final MeterRegistry registry;
+
+    private final Counter nacosEvents;
+    private final Timer nacosEventProcessing;
+    private final Timer nacosEventLatency;
+    private final Map<ServiceStatus, Counter> transitions = new EnumMap<>(ServiceStatus.class);
+    private final Timer alertDelivery;
+    private final Timer ownerLookupSuccess;
+    private final Timer ownerLookupFailure;
+    private final Map<String, Timer> fanOut = new ConcurrentHashMap<>();
+    private final Map<String, Notifier> notifiers = new ConcurrentHashMap<>();
+
+    /**
+     * 单个通知渠道的发送耗时，按结果区分。
+     */
+    public static final class Notifier {
+
+        private final Timer success;
+        private final Timer failure;
+
+        private Notifier(Timer success, Timer failure) {
+            this.success = success;
+            this.failure = failure;
+        }
+
+        public void success(long startNanos) {
+            success.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+
+        public void failure(long startNanos) {
+            failure.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Autowired
+    public HeimdallMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.nacosEvents = Counter.builder("heimdall.nacos.events")
+                .description("Nacos 推送的事件数（合并前）")
+                .register(registry);
+        this.nacosEventProcessing = latencyTimer("heimdall.nacos.event.processing",
+                "单个事件在分片线程上的处理耗时");
+        this.nacosEventLatency = latencyTimer("heimdall.nacos.event.latency",
+                "从收到 Nacos 推送到状态写入存储（并推送给看板）的耗时，包含排队时间");
+        for (ServiceStatus status : ServiceStatus.values()) {
+            transitions.put(status, Counter.builder("heimdall.status.transitions")
+                    .description("已提交的服务状态变化次数，按变化后的状态区分")
+                    .tag("status", status.name())
+                    .register(registry));
+        }
+        this.alertDelivery = Timer.builder("heimdall.alert.delivery")
+                .description("告警从生成到通知渠道发送完成的耗时，包含合并窗口和排队时间")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofMinutes(5))
+                .register(registry);
+        this.ownerLookupSuccess = ownerLookupTimer("success");
+        this.ownerLookupFailure = ownerLookupTimer("failure");
+    }
+
+    /**
+     * @return 指标注册表，供各组件注册与自身状态绑定的 Gauge
+     */
+    public MeterRegistry registry() {
+        return registry;
+    }
+
+    /**
+     * 收到一次 Nacos 推送。
+     */
+    public void nacosEventReceived() {
+        nacosEvents.increment();
+    }
+
+    /**
+     * 一次 Nacos 事件处理完成。
+     * @param receivedNanos 收到推送时的 {@link System#nanoTime()}
+     * @param startNanos    开始处理时的 {@link System#nanoTime()}
+     */
+    public void nacosEventProcessed(long receivedNanos, long startNanos) {
+        long now = System.nanoTime();
+        nacosEventProcessing.record(now - startNanos, TimeUnit.NANOSECONDS);
+        nacosEventLatency.record(now - receivedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 提交了一次状态变化。
+     */
+    public void statusTransition(ServiceStatus status) {
+        transitions.get(status).increment();
+    }
+
+    /**
+     * 一条告警发送完成。
+     * @param createdAtMillis 告警生成时间（毫秒时间戳）
+     */
+    public void alertDelivered(long createdAtMillis) {
+        alertDelivery.record(Math.max(0, System.currentTimeMillis() - createdAtMillis), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 一次负责人查询（appinfo 接口调用）结束。
+     */
+    public void ownerLookup(long startNanos, boolean success) {
+        (success ? ownerLookupSuccess : ownerLookupFailure).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 一次 WebSocket 广播（序列化并放入所有会话的发送队列）结束。
+     * @param type 消息类型，如 delta、summary、ping
+     */
+    public void webSocketFanOut(String type, long startNanos) {
+        fanOut.computeIfAbsent(type, t -> Timer.builder("heimdall.websocket.fanout")
+                        .description("一次广播分发到所有会话的耗时")
+                        .tag("type", t)
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofNanos(10_000))
+                        .maximumExpectedValue(Duration.ofSeconds(1))
+                        .register(registry))
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return 指定通知渠道的发送计时器，调用方应缓存返回值
+     */
+    public Notifier notifier(String channel) {
+        return notifiers.computeIfAbsent(channel, c -> new Notifier(notifierTimer(c, "success"), notifierTimer(c, "failure")));
+    }
+
+    private Timer latencyTimer(String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(10_000))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry);
+    }
+
+    private Timer ownerLookupTimer(String outcome) {
+        return Timer.builder("heimdall.owner.lookup")
+                .description("调用 appinfo 接口查询负责人的耗时（缓存未命中或后台刷新时）")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry);
+    }
+
+    private Timer notifierTimer(String channel, String outcome) {
+        return Timer.builder("heimdall.alert.notify")
+                .description("调用通知渠道 Webhook 的耗时")
+                .tag("channel", channel)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry);
+    }
+}
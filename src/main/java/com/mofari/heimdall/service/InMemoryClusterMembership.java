@@ -0,0 +1,123 @@
+package com.mofari.heimdall.service;
+
+import com.mofari.heimdall.config.MonitoringProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 进程内的集群成员发现：共享同一个 {@link Registry} 的节点互相可见。
+ * 单机运行时集群中只有本节点；测试中可以让多个节点共享一个 Registry 来模拟集群和节点故障。
+ */
+@Service
+@ConditionalOnProperty(prefix = "spring.monitoring.cluster", name = "membership", havingValue = "in-memory", matchIfMissing = true)
+public class InMemoryClusterMembership implements ClusterMembership {
+
+    /**
+     * 进程内的成员注册表。
+     */
+    public static final class Registry {
+
+        private final Map<String, InMemoryClusterMembership> members = new ConcurrentHashMap<>();
+        private volatile Map<String, Map<String, String>> departed = Map.of();
+
+        synchronized void register(InMemoryClusterMembership member) {
+            members.put(member.localMemberId(), member);
+            departed = Map.of();
+            publish(members.keySet());
+        }
+
+        synchronized void deregister(InMemoryClusterMembership member) {
+            if (members.remove(member.localMemberId(), member)) {
+                departed = Map.of(member.localMemberId(), member.metadata);
+                publish(members.keySet());
+            }
+        }
+
+        Set<String> memberIds() {
+            return Set.copyOf(members.keySet());
+        }
+
+        Map<String, Map<String, String>> metadataExcept(String memberId) {
+            Map<String, Map<String, String>> result = new HashMap<>();
+            members.forEach((id, member) -> {
+                if (!id.equals(memberId)) {
+                    result.put(id, member.metadata);
+                }
+            });
+            return result;
+        }
+
+        private void publish(Set<String> ids) {
+            Set<String> snapshot = Set.copyOf(ids);
+            for (InMemoryClusterMembership member : members.values()) {
+                Consumer<Set<String>> listener = member.listener;
+                if (listener != null) {
+                    listener.accept(snapshot);
+                }
+            }
+        }
+    }
+
+    private final Registry registry;
+    private final String memberId;
+    private volatile Consumer<Set<String>> listener;
+    private volatile Map<String, String> metadata = Map.of();
+
+    @Autowired
+    public InMemoryClusterMembership(MonitoringProperties monitoringProperties) {
+        this(new Registry(), monitoringProperties.getCluster().getNodeId());
+    }
+
+    public InMemoryClusterMembership(Registry registry, String memberId) {
+        this.registry = registry;
+        this.memberId = memberId == null || memberId.isEmpty() ? UUID.randomUUID().toString() : memberId;
+    }
+
+    @Override
+    public String localMemberId() {
+        return memberId;
+    }
+
+    @Override
+    public void join() {
+        registry.register(this);
+    }
+
+    @Override
+    public void leave() {
+        registry.deregister(this);
+    }
+
+    @Override
+    public Set<String> members() {
+        return registry.memberIds();
+    }
+
+    @Override
+    public void publishMetadata(Map<String, String> metadata) {
+        this.metadata = Map.copyOf(metadata);
+    }
+
+    @Override
+    public Map<String, Map<String, String>> memberMetadata() {
+        return registry.metadataExcept(memberId);
+    }
+
+    @Override
+    public Map<String, Map<String, String>> departedMetadata() {
+        return registry.departed;
+    }
+
+    @Override
+    public void setListener(Consumer<Set<String>> listener) {
+        this.listener = listener;
+    }
+}
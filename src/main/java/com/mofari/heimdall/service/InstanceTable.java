@@ -0,0 +1,229 @@
+package com.mofari.heimdall.service;
+
+import com.alibaba.nacos.api.naming.pojo.Instance;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 单个服务在目标集群中的实例表，以 ip:port 为键。
+ * <p>
+ * 每次收到 Nacos 推送的全量实例列表时与上一次对比，得出新增、移除和健康状态翻转的实例，
+ * 同时增量维护健康实例数、实例总数和各集群的实例数，不再每次重新统计。
+ * 实例未变化时不创建任何对象：以 Nacos 已有的 ip 字符串查表，再按端口匹配，不拼接键。
+ * <p>
+ * 非线程安全：只在服务所属的分片线程上访问。
+ */
+public final class InstanceTable {
+
+    /**
+     * 单个实例的变化。
+     *
+     * @param ip      实例 IP
+     * @param port    实例端口
+     * @param cluster 所属集群
+     * @param healthy 变化后是否健康（移除的实例为移除前的值）
+     */
+    public record InstanceChange(String ip, int port, String cluster, boolean healthy) {
+    }
+
+    /**
+     * 一次推送引起的实例变化。列表不可修改，没有变化时为空列表。
+     */
+    public record InstanceDiff(List<InstanceChange> added,
+                               List<InstanceChange> removed,
+                               List<InstanceChange> healthChanged) {
+
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty() && healthChanged.isEmpty();
+        }
+    }
+
+    static final InstanceDiff NO_CHANGE = new InstanceDiff(List.of(), List.of(), List.of());
+
+    private static final class Entry {
+        final String ip;
+        final int port;
+        String cluster;
+        boolean healthy;
+        int epoch;
+        Entry next; // 同一 IP 上的其它端口
+
+        Entry(String ip, int port) {
+            this.ip = ip;
+            this.port = port;
+        }
+    }
+
+    private final Map<String, Entry> byIp = new HashMap<>();
+    private final Map<String, int[]> clusterCounts = new HashMap<>();
+    private List<String> clusters = List.of();
+    private int epoch;
+    private int total;
+    private int healthy;
+
+    /**
+     * 用最新的全量实例列表更新实例表。
+     * @param instances      Nacos 推送的实例列表
+     * @param targetClusters 只统计这些集群中的实例
+     * @return 本次变化，没有变化时返回 {@link #NO_CHANGE}
+     */
+    InstanceDiff apply(List<Instance> instances, Set<String> targetClusters) {
+        int current = ++epoch;
+        List<InstanceChange> added = null;
+        List<InstanceChange> healthChanged = null;
+        boolean clustersChanged = false;
+        int seen = 0;
+        for (Instance instance : instances) {
+            String cluster = instance.getClusterName();
+            if (!targetClusters.contains(cluster)) {
+                continue;
+            }
+            String ip = instance.getIp();
+            int port = instance.getPort();
+            boolean isHealthy = instance.isHealthy();
+            Entry head = byIp.get(ip);
+            Entry entry = head;
+            while (entry != null && entry.port != port) {
+                entry = entry.next;
+            }
+            if (entry == null) {
+                entry = new Entry(ip, port);
+                entry.cluster = cluster;
+                entry.healthy = isHealthy;
+                entry.next = head;
+                byIp.put(ip, entry);
+                total++;
+                if (isHealthy) {
+                    healthy++;
+                }
+                clustersChanged |= incrementCluster(cluster);
+                if (added == null) {
+                    added = new ArrayList<>();
+                }
+                added.add(new InstanceChange(ip, port, cluster, isHealthy));
+            } else if (entry.epoch == current) {
+                // 同一次推送中重复出现的实例，只计一次
+                continue;
+            } else {
+                if (!entry.cluster.equals(cluster)) {
+                    clustersChanged |= decrementCluster(entry.cluster);
+                    clustersChanged |= incrementCluster(cluster);
+                    entry.cluster = cluster;
+                }
+                if (entry.healthy != isHealthy) {
+                    entry.healthy = isHealthy;
+                    healthy += isHealthy ? 1 : -1;
+                    if (healthChanged == null) {
+                        healthChanged = new ArrayList<>();
+                    }
+                    healthChanged.add(new InstanceChange(ip, port, cluster, isHealthy));
+                }
+            }
+            entry.epoch = current;
+            seen++;
+        }
+
+        List<InstanceChange> removed = null;
+        // 本次推送中没有出现的实例即为被移除的实例
+        if (seen < total) {
+            Iterator<Map.Entry<String, Entry>> iterator = byIp.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Entry> mapEntry = iterator.next();
+                Entry kept = null;
+                for (Entry entry = mapEntry.getValue(); entry != null; ) {
+                    Entry next = entry.next;
+                    if (entry.epoch == current) {
+                        entry.next = kept;
+                        kept = entry;
+                    } else {
+                        total--;
+                        if (entry.healthy) {
+                            healthy--;
+                        }
+                        clustersChanged |= decrementCluster(entry.cluster);
+                        if (removed == null) {
+                            removed = new ArrayList<>();
+                        }
+                        removed.add(new InstanceChange(entry.ip, entry.port, entry.cluster, entry.healthy));
+                    }
+                    entry = next;
+                }
+                if (kept == null) {
+                    iterator.remove();
+                } else if (kept != mapEntry.getValue()) {
+                    mapEntry.setValue(kept);
+                }
+            }
+        }
+
+        if (clustersChanged) {
+            List<String> names = new ArrayList<>(clusterCounts.keySet());
+            Collections.sort(names);
+            clusters = List.copyOf(names);
+        }
+        if (added == null && removed == null && healthChanged == null) {
+            return NO_CHANGE;
+        }
+        return new InstanceDiff(immutable(added), immutable(removed), immutable(healthChanged));
+    }
+
+    private static List<InstanceChange> immutable(List<InstanceChange> list) {
+        return list == null ? List.of() : Collections.unmodifiableList(list);
+    }
+
+    private boolean incrementCluster(String cluster) {
+        int[] count = clusterCounts.get(cluster);
+        if (count == null) {
+            clusterCounts.put(cluster, new int[]{1});
+            return true;
+        }
+        count[0]++;
+        return false;
+    }
+
+    private boolean decrementCluster(String cluster) {
+        int[] count = clusterCounts.get(cluster);
+        if (count != null && --count[0] == 0) {
+            clusterCounts.remove(cluster);
+            return true;
+        }
+        return false;
+    }
+
+    int total() {
+        return total;
+    }
+
+    int healthy() {
+        return healthy;
+    }
+
+    /**
+     * @return 有实例的集群名，已排序，不可修改；集群集合不变时返回同一个列表
+     */
+    List<String> clusters() {
+        return clusters;
+    }
+
+    /**
+     * 不健康实例的地址，最多 limit 个，按地址排序，用于告警正文。
+     */
+    List<String> unhealthyAddresses(int limit) {
+        List<String> result = new ArrayList<>();
+        for (Entry head : byIp.values()) {
+            for (Entry entry = head; entry != null; entry = entry.next) {
+                if (!entry.healthy) {
+                    result.add(entry.ip + ":" + entry.port);
+                }
+            }
+        }
+        Collections.sort(result);
+        return result.size() > limit ? result.subList(0, limit) : result;
+    }
+}
@@ -0,0 +1,277 @@
+package com.mofari.heimdall.service;
+
+import com.alibaba.nacos.api.NacosFactory;
+import com.alibaba.nacos.api.config.ConfigService;
+import com.alibaba.nacos.api.config.listener.Listener;
+import com.alibaba.nacos.api.exception.NacosException;
+import com.mofari.heimdall.config.MonitoringProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.PropertiesPropertySourceLoader;
+import org.springframework.boot.env.PropertySourceLoader;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.env.PropertySource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 配置热加载：从文件或 Nacos 配置中心读取 spring.monitoring 下的 target-clusters 和服务过滤规则，
+ * 变化后重新编译过滤规则，并只订阅/注销受影响的服务，无需重启。
+ * <p>
+ * 配置内容与 application.yml 格式相同，只覆盖其中出现的字段，没有出现的字段恢复为启动时的值，
+ * 因此从配置中删除一个字段即可撤销此前对它的热加载；其余配置项不支持热加载，会被忽略。
+ * 规则无效（如正则表达式写错）时保留原配置。加载和随后的订阅变更都在独立线程上执行，不占用调度线程和 Nacos 回调线程。
+ */
+@Service
+public class MonitoringConfigReloader {
+
+    private static final Logger log = LoggerFactory.getLogger(MonitoringConfigReloader.class);
+
+    private static final String PREFIX = "spring.monitoring.";
+
+    /**
+     * 支持热加载的字段：配置名 -> 读取、写入方法。
+     */
+    private static final List<ReloadableField> FIELDS = List.of(
+            new ReloadableField("target-clusters", MonitoringProperties::getTargetClusters, MonitoringProperties::setTargetClusters),
+            new ReloadableField("exclude-service-keywords", MonitoringProperties::getExcludeServiceKeywords, MonitoringProperties::setExcludeServiceKeywords),
+            new ReloadableField("whitelist-services", MonitoringProperties::getWhitelistServices, MonitoringProperties::setWhitelistServices),
+            new ReloadableField("include-service-patterns", MonitoringProperties::getIncludeServicePatterns, MonitoringProperties::setIncludeServicePatterns),
+            new ReloadableField("exclude-service-patterns", MonitoringProperties::getExcludeServicePatterns, MonitoringProperties::setExcludeServicePatterns));
+
+    @Autowired
+    private MonitoringProperties monitoringProperties;
+
+    @Autowired
+    private NacosListenerService nacosListenerService;
+
+    @Autowired
+    private NacosBootstrapService nacosBootstrapService;
+
+    @Autowired
+    private NacosSources nacosSources;
+
+    // 支持热加载的字段在启动时的值：字段名 -> 值
+    private final Map<String, List<String>> startupValues = new LinkedHashMap<>();
+
+    private ScheduledExecutorService executor;
+    private ConfigService configService;
+    private Path file;
+    private long fileModified = -1;
+    private String lastContent;
+
+    private volatile long lastReloadAt;
+    private volatile String lastSource;
+    private volatile String lastError;
+    private volatile long reloads;
+    private volatile long failures;
+
+    private record ReloadableField(String name,
+                                   Function<MonitoringProperties, List<String>> getter,
+                                   BiConsumer<MonitoringProperties, List<String>> setter) {
+    }
+
+    @PostConstruct
+    public void init() {
+        for (ReloadableField field : FIELDS) {
+            startupValues.put(field.name(), List.copyOf(field.getter().apply(monitoringProperties)));
+        }
+        MonitoringProperties.Reload config = monitoringProperties.getReload();
+        boolean watchFile = config.getFile() != null && !config.getFile().isEmpty();
+        boolean watchNacos = config.getNacosDataId() != null && !config.getNacosDataId().isEmpty();
+        if (!watchFile && !watchNacos) {
+            return;
+        }
+        ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "config-reloader");
+            t.setDaemon(true);
+            return t;
+        });
+        pool.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.executor = pool;
+
+        // 启动时先同步加载一次，启动订阅直接使用热加载的配置
+        if (watchFile) {
+            this.file = Paths.get(config.getFile());
+            pollFile();
+            long interval = Math.max(100, config.getPollIntervalMillis());
+            executor.scheduleWithFixedDelay(this::pollFile, interval, interval, TimeUnit.MILLISECONDS);
+            log.info("Watching {} for monitoring config changes.", file.toAbsolutePath());
+        }
+        if (watchNacos) {
+            subscribeNacos(config.getNacosSource(), config.getNacosDataId(), config.getNacosGroup());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        if (configService != null) {
+            try {
+                configService.shutDown();
+            } catch (NacosException e) {
+                log.warn("Failed to shut down Nacos config service: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 使用指定来源（未指定时为第一个可用来源）的服务器地址、命名空间和账号连接配置中心。
+     */
+    private void subscribeNacos(String sourceName, String dataId, String group) {
+        String source = "nacos:" + group + "/" + dataId;
+        NacosSources.Source nacos = sourceName == null ? nacosSources.primary() : nacosSources.get(sourceName);
+        Properties properties = nacos == null ? null : nacosSources.getClientProperties(nacos.name());
+        if (properties == null) {
+            failures++;
+            lastError = "No connection settings for Nacos source '" + sourceName + "'";
+            log.error("Nacos source '{}' is unknown or unavailable, hot reload from Nacos config {} disabled.",
+                    sourceName == null ? "(primary)" : sourceName, source);
+            return;
+        }
+        try {
+            this.configService = NacosFactory.createConfigService(properties);
+            String content = configService.getConfigAndSignListener(dataId, group, 5000, new Listener() {
+                @Override
+                public Executor getExecutor() {
+                    return executor;
+                }
+
+                @Override
+                public void receiveConfigInfo(String configInfo) {
+                    apply(configInfo, source, dataId);
+                }
+            });
+            apply(content, source, dataId);
+            log.info("Listening on Nacos config {} for monitoring config changes.", source);
+        } catch (NacosException e) {
+            failures++;
+            lastError = e.getMessage();
+            log.error("Failed to listen on Nacos config {}, hot reload from Nacos disabled: {}", source, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 检查文件是否有变化，只在修改时间变化且内容不同时加载。
+     */
+    private void pollFile() {
+        try {
+            long modified = Files.getLastModifiedTime(file).toMillis();
+            if (modified == fileModified) {
+                return;
+            }
+            fileModified = modified;
+            apply(Files.readString(file, StandardCharsets.UTF_8), "file:" + file, file.getFileName().toString());
+        } catch (NoSuchFileException e) {
+            fileModified = -1;
+        } catch (IOException | RuntimeException e) {
+            failures++;
+            lastError = e.getMessage();
+            log.warn("Failed to read monitoring config {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * 加载一份配置内容：解析、校验，有变化时替换过滤规则并增量调整订阅。内容中没有的字段使用启动时的值。
+     * @param content  配置内容，为 null 或与上次相同时忽略
+     * @param source   来源描述，用于日志
+     * @param fileName 文件名或 dataId，以 .properties 结尾时按 properties 格式解析，否则按 YAML 解析
+     * @return 配置是否发生变化
+     */
+    synchronized boolean apply(String content, String source, String fileName) {
+        if (content == null || content.equals(lastContent)) {
+            return false;
+        }
+        lastContent = content;
+        MonitoringProperties candidate = new MonitoringProperties();
+        List<String> changed = new ArrayList<>();
+        try {
+            Binder binder = new Binder(ConfigurationPropertySources.from(parse(content, source, fileName)));
+            for (ReloadableField field : FIELDS) {
+                List<String> current = field.getter().apply(monitoringProperties);
+                List<String> value = binder.bind(PREFIX + field.name(), Bindable.listOf(String.class))
+                        .orElse(startupValues.get(field.name()));
+                field.setter().accept(candidate, List.copyOf(value));
+                if (!Objects.equals(current, value)) {
+                    changed.add(field.name());
+                }
+            }
+            // 先编译一次，规则无效时不替换现有配置
+            ServiceFilter.compile(candidate);
+        } catch (IOException | RuntimeException e) {
+            failures++;
+            lastError = e.getMessage();
+            log.error("Rejected monitoring config from {}: {}", source, e.getMessage());
+            return false;
+        }
+        lastError = null;
+        if (changed.isEmpty()) {
+            return false;
+        }
+        for (ReloadableField field : FIELDS) {
+            field.setter().accept(monitoringProperties, field.getter().apply(candidate));
+        }
+        boolean clustersChanged = nacosListenerService.reloadFilters();
+        reloads++;
+        lastReloadAt = System.currentTimeMillis();
+        lastSource = source;
+        log.info("Monitoring config reloaded from {}, changed: {}", source, changed);
+        nacosBootstrapService.applyFilterChange(clustersChanged);
+        return true;
+    }
+
+    private static List<PropertySource<?>> parse(String content, String source, String fileName) throws IOException {
+        PropertySourceLoader loader = fileName.endsWith(".properties")
+                ? new PropertiesPropertySourceLoader() : new YamlPropertySourceLoader();
+        return loader.load(source, new ByteArrayResource(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * @return 热加载的次数、最近一次加载的来源和错误
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        MonitoringProperties.Reload config = monitoringProperties.getReload();
+        stats.put("file", config.getFile());
+        stats.put("nacosDataId", config.getNacosDataId());
+        stats.put("nacosSource", config.getNacosSource());
+        stats.put("reloads", reloads);
+        stats.put("failures", failures);
+        stats.put("lastReloadAt", lastReloadAt);
+        stats.put("lastSource", lastSource);
+        stats.put("lastError", lastError);
+        stats.put("targetClusters", monitoringProperties.getTargetClusters());
+        stats.put("excludeServiceKeywords", monitoringProperties.getExcludeServiceKeywords());
+        stats.put("whitelistServices", monitoringProperties.getWhitelistServices());
+        stats.put("includeServicePatterns", monitoringProperties.getIncludeServicePatterns());
+        stats.put("excludeServicePatterns", monitoringProperties.getExcludeServicePatterns());
+        return stats;
+    }
+}
@@ -0,0 +1,623 @@
+package com.mofari.heimdall.service;
+
+import com.alibaba.nacos.api.naming.pojo.ListView;
+import com.mofari.heimdall.config.MonitoringProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 启动时的服务发现与订阅。
+ * <p>
+ * 应用启动完成后在后台执行：分页拉取服务列表，过滤后以有限并发、限定速率的方式
+ * 先查询实例初始化状态，再注册监听器。订阅完成前应用已经可以对外提供服务，
+ * 看板会先看到部分数据，进度可通过诊断接口查看。
+ * <p>
+ * 每个 Nacos 来源（见 {@link NacosSources}）有独立的线程、线程池、限流器和进度，并行启动订阅；
+ * 一个来源不可用或失败不影响其它来源。启动订阅失败（如拉取服务列表出错）的来源在后续增量发现中继续重试，
+ * 成功后转为 COMPLETED；创建客户端失败的来源没有客户端可用，不会重试，始终报告为 FAILED，修正配置后需重启。
+ * <p>
+ * 启动订阅完成后，按固定间隔做增量发现，自动订阅新部署的服务并清理已删除的服务；
+ * 已监控但订阅失败（没有监听器）的服务也在每轮增量发现中重试。
+ * <p>
+ * 集群模式下只订阅归属本节点的服务；成员变化时立即做一次增量发现，接管新归属的服务并释放其它服务。
+ * 增量发现只在锁内计算差集，新增和重试的订阅提交到该来源的线程池异步执行，接管大量服务时不会长时间占住锁。
+ * <p>
+ * 过滤规则热加载后，用最近一次拉取的服务列表重新过滤，只订阅新纳入的服务、注销被排除的服务，不重新拉取列表。
+ */
+@Service
+public class NacosBootstrapService {
+
+    private static final Logger log = LoggerFactory.getLogger(NacosBootstrapService.class);
+
+    public enum Phase {
+        NOT_STARTED,
+        LISTING,
+        SUBSCRIBING,
+        COMPLETED,
+        FAILED
+    }
+
+    @Autowired
+    private NacosSources nacosSources;
+
+    @Autowired
+    private NacosListenerService nacosListenerService;
+
+    @Autowired
+    private AppInfoService appInfoService;
+
+    @Autowired
+    private MonitoringProperties monitoringProperties;
+
+    @Autowired
+    private ClusterCoordinator clusterCoordinator;
+
+    // 来源名 -> 该来源的启动订阅与增量发现状态
+    private final Map<String, SourceState> states = new LinkedHashMap<>();
+
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private volatile long lastRefreshAt;
+    private volatile long lastRefreshMillis;
+    private final AtomicInteger servicesAdded = new AtomicInteger();
+    private final AtomicInteger servicesRemoved = new AtomicInteger();
+    private final AtomicInteger servicesReleased = new AtomicInteger();
+    private final AtomicInteger servicesFiltered = new AtomicInteger();
+    private final AtomicInteger servicesRetried = new AtomicInteger();
+
+    /**
+     * 单个来源的状态。
+     */
+    private static final class SourceState {
+        final NacosSources.Source source;
+        volatile Phase phase = Phase.NOT_STARTED;
+        volatile long startedAt;
+        volatile long finishedAt;
+        volatile String error;
+        final AtomicInteger discovered = new AtomicInteger();
+        final AtomicInteger targeted = new AtomicInteger();
+        final AtomicInteger primed = new AtomicInteger();
+        final AtomicInteger subscribed = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        // 启动订阅完成后保留，增量发现、接管和过滤规则变化时的订阅也在这里执行
+        volatile ExecutorService workers;
+        // 已提交但尚未执行完的订阅，避免同一服务重复排队
+        final Set<String> pending = ConcurrentHashMap.newKeySet();
+        // 增量发现使用独立的限流器，速率与启动订阅相同
+        volatile RateLimiter refreshLimiter;
+        // 服务ID -> 连续缺失的轮数，只在持有 NacosBootstrapService 锁时访问
+        final Map<String, Integer> missingRounds = new HashMap<>();
+        // 最近一次拉取到的全部服务ID，过滤规则变化时据此重新过滤
+        volatile List<String> knownServices = List.of();
+
+        SourceState(NacosSources.Source source) {
+            this.source = source;
+        }
+
+        String name() {
+            return source.name();
+        }
+
+        boolean finished() {
+            return phase == Phase.COMPLETED || phase == Phase.FAILED;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        for (NacosSources.Source source : nacosSources.all()) {
+            states.put(source.name(), new SourceState(source));
+        }
+        clusterCoordinator.addRebalanceListener(() -> refresh(true));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        Thread thread = new Thread(this::bootstrap, "nacos-bootstrap");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (SourceState state : states.values()) {
+            ExecutorService w = state.workers;
+            if (w != null) {
+                w.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * 各来源并行启动订阅，全部结束后返回。
+     */
+    void bootstrap() {
+        this.startedAt = System.currentTimeMillis();
+        List<Thread> threads = new ArrayList<>();
+        for (SourceState state : states.values()) {
+            Thread thread = new Thread(() -> bootstrap(state), "nacos-bootstrap-" + state.source.label());
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        // 从状态日志恢复出、但所属来源已不在配置中的服务
+        Set<String> configured = nacosSources.getNames();
+        int evicted = nacosListenerService.evictUntracked(id -> !configured.contains(ServiceRef.sourceOf(id)));
+        if (evicted > 0) {
+            log.info("Evicted {} restored services of sources that are no longer configured.", evicted);
+        }
+        this.finishedAt = System.currentTimeMillis();
+        log.info("Nacos bootstrap of {} source(s) finished in {} ms: {}", states.size(), finishedAt - startedAt, getPhase());
+    }
+
+    private void bootstrap(SourceState state) {
+        MonitoringProperties.Bootstrap config = monitoringProperties.getBootstrap();
+        String label = state.source.label();
+        int parallelism = Math.max(1, config.getParallelism());
+        RateLimiter rateLimiter = new RateLimiter(config.getRateLimitPerSecond(), parallelism);
+        state.refreshLimiter = new RateLimiter(config.getRateLimitPerSecond(), parallelism);
+        // 限制已提交但未完成的任务数，避免一次性把几千个任务堆进队列
+        Semaphore inFlight = new Semaphore(parallelism * 2);
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "nacos-bootstrap-" + label + "-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        state.workers = workers;
+        state.startedAt = System.currentTimeMillis();
+        state.phase = Phase.LISTING;
+        List<String> displayNames = new ArrayList<>();
+
+        try {
+            // 分页期间列表发生变化也无妨，遗漏的服务会在下一次增量发现中补上
+            List<String> serviceIds = listAllServices(state, rateLimiter, config.getPageSize()).ids();
+            state.knownServices = serviceIds;
+            log.info("Found {} services in total from Nacos source '{}'.", serviceIds.size(), label);
+            state.phase = Phase.SUBSCRIBING;
+            for (String serviceId : serviceIds) {
+                state.discovered.incrementAndGet();
+                // 使用配置的关键词和白名单进行过滤，集群模式下只处理归属本节点的服务
+                if (!nacosListenerService.isMonitoredService(serviceId) || !clusterCoordinator.isOwner(serviceId)) {
+                    continue;
+                }
+                state.targeted.incrementAndGet();
+                nacosListenerService.track(serviceId);
+                displayNames.add(NacosListenerService.formatDisplayName(serviceId));
+                inFlight.acquire();
+                workers.execute(() -> {
+                    try {
+                        subscribeOne(state, serviceId, rateLimiter, config.isPrimeInstances());
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+
+            // 后台预热负责人缓存，避免大面积宕机时集中请求 appinfo 接口
+            appInfoService.warmUp(displayNames);
+
+            // 取回全部许可即表示已提交的订阅都已执行完；线程池保留给增量发现使用
+            inFlight.acquire(parallelism * 2);
+            inFlight.release(parallelism * 2);
+            // 从状态日志恢复出、但已不再存在的服务；只清理本来源的服务，其它来源可能还未完成
+            int evicted = nacosListenerService.evictUntracked(id -> ServiceRef.sourceOf(id).equals(state.name()));
+            if (evicted > 0) {
+                log.info("Evicted {} restored services of source '{}' that are no longer monitored.", evicted, label);
+            }
+            state.finishedAt = System.currentTimeMillis();
+            state.phase = Phase.COMPLETED;
+            log.info("Nacos bootstrap of source '{}' completed in {} ms: discovered={}, monitored={}, subscribed={}, failed={}",
+                    label, state.finishedAt - state.startedAt, state.discovered.get(), state.targeted.get(),
+                    state.subscribed.get(), state.failed.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            state.phase = Phase.FAILED;
+            log.warn("Nacos bootstrap of source '{}' interrupted.", label);
+        } catch (Exception e) {
+            state.finishedAt = System.currentTimeMillis();
+            state.error = e.getMessage();
+            state.phase = Phase.FAILED;
+            log.error("Nacos bootstrap of source '{}' failed after discovering {} services: {}",
+                    label, state.discovered.get(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 周期性增量发现：把 Nacos 当前的服务列表与已监控集合做差集，只订阅新增的服务、
+     * 清理已删除的服务。一次刷新只拉取服务名列表（数千个服务只需几页），差集计算为 O(n)。
+     * <p>
+     * 列表不完整（分页期间服务数变化）时本轮不做删除；服务需连续多轮缺失才会被清理，
+     * 避免 Nacos 短暂异常时误删整批服务。
+     * <p>
+     * 集群成员变化时也会调用，不再归属本节点的服务立即释放，不等待多轮确认。
+     * <p>
+     * 各来源分别刷新，一个来源出错只跳过该来源。
+     */
+    @Scheduled(fixedDelayString = "${spring.monitoring.bootstrap.discovery-interval-millis:30000}",
+            initialDelayString = "${spring.monitoring.bootstrap.discovery-interval-millis:30000}")
+    public void refresh() {
+        refresh(false);
+    }
+
+    /**
+     * @param takeover 由集群成员变化触发：新归属本节点的服务以前一个归属节点上的状态为告警起点，
+     *                 见 {@link ClusterCoordinator#takeoverBaseline}
+     */
+    private synchronized void refresh(boolean takeover) {
+        long start = System.currentTimeMillis();
+        boolean refreshed = false;
+        for (SourceState state : states.values()) {
+            if (!state.finished()) {
+                continue; // 该来源的启动订阅尚未结束
+            }
+            try {
+                refresh(state, takeover);
+                refreshed = true;
+                if (state.phase == Phase.FAILED) {
+                    state.phase = Phase.COMPLETED;
+                    state.error = null;
+                    log.info("Nacos source '{}' recovered, service discovery refresh succeeded.", state.source.label());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.warn("Service discovery refresh of source '{}' failed: {}", state.source.label(), e.getMessage());
+            }
+        }
+        if (refreshed) {
+            lastRefreshAt = System.currentTimeMillis();
+            lastRefreshMillis = lastRefreshAt - start;
+        }
+    }
+
+    private void refresh(SourceState state, boolean takeover) throws Exception {
+        MonitoringProperties.Bootstrap config = monitoringProperties.getBootstrap();
+        long start = System.currentTimeMillis();
+        ServiceList list = listAllServices(state, state.refreshLimiter, config.getPageSize());
+        List<String> serviceIds = list.ids();
+        boolean complete = list.complete();
+        state.knownServices = serviceIds;
+
+        List<String> tracked = trackedServicesOf(state);
+        Set<String> trackedSet = nacosListenerService.getTrackedServices();
+        Set<String> present = new HashSet<>(serviceIds.size() * 2);
+        int added = 0;
+        for (String serviceId : serviceIds) {
+            if (!nacosListenerService.isMonitoredService(serviceId) || !clusterCoordinator.isOwner(serviceId)) {
+                continue;
+            }
+            present.add(serviceId);
+            if (!trackedSet.contains(serviceId) && nacosListenerService.track(serviceId,
+                    takeover ? clusterCoordinator.takeoverBaseline(serviceId) : null)) {
+                added++;
+                appInfoService.warmUp(List.of(NacosListenerService.formatDisplayName(serviceId)));
+                submitSubscribe(state, serviceId, state.refreshLimiter, config.isPrimeInstances());
+            }
+        }
+
+        // 已由其它节点负责的服务立即释放，启动订阅期间过滤规则变化而漏掉的服务在这里清理；
+        // 此前订阅失败的服务重新订阅，否则它会一直停留在 UNKNOWN（或恢复出的旧状态）且不会告警
+        int released = 0;
+        int filtered = 0;
+        int retried = 0;
+        for (String serviceId : tracked) {
+            if (!clusterCoordinator.isOwner(serviceId) && nacosListenerService.untrack(serviceId)) {
+                released++;
+            } else if (!nacosListenerService.isMonitoredService(serviceId) && nacosListenerService.untrack(serviceId)) {
+                filtered++;
+            } else if (nacosListenerService.getTrackedServices().contains(serviceId)
+                    && !nacosListenerService.isSubscribed(serviceId)
+                    && submitSubscribe(state, serviceId, state.refreshLimiter, config.isPrimeInstances())) {
+                retried++;
+            }
+        }
+
+        int removed = 0;
+        if (complete && !present.isEmpty()) {
+            for (String serviceId : trackedServicesOf(state)) {
+                if (present.contains(serviceId)) {
+                    state.missingRounds.remove(serviceId);
+                    continue;
+                }
+                int missed = state.missingRounds.merge(serviceId, 1, Integer::sum);
+                if (missed >= Math.max(1, config.getRemoveAfterMissedRounds())) {
+                    state.missingRounds.remove(serviceId);
+                    if (nacosListenerService.untrack(serviceId)) {
+                        removed++;
+                    }
+                }
+            }
+        } else if (complete) {
+            log.warn("Nacos source '{}' returned an empty service list, skipping removal this round.", state.source.label());
+        }
+        state.missingRounds.keySet().retainAll(nacosListenerService.getTrackedServices());
+
+        servicesAdded.addAndGet(added);
+        servicesRemoved.addAndGet(removed);
+        servicesReleased.addAndGet(released);
+        servicesFiltered.addAndGet(filtered);
+        servicesRetried.addAndGet(retried);
+        if (added > 0 || removed > 0 || released > 0 || filtered > 0 || retried > 0) {
+            log.info("Service discovery refresh of source '{}': +{} -{}, released {}, filtered {}, retried {}, {} services monitored ({} ms).",
+                    state.source.label(), added, removed, released, filtered, retried,
+                    nacosListenerService.getTrackedServices().size(), System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * 过滤规则热加载后调用：用最近一次拉取的服务列表重新过滤，注销不再满足规则的服务、订阅新满足规则的服务。
+     * 目标集群变化时重新查询已监控服务的实例列表，不等下一次推送就按新集群统计。
+     * 启动订阅开始前调用时不做任何事，启动订阅会直接使用新规则。
+     */
+    public void applyFilterChange(boolean clustersChanged) {
+        MonitoringProperties.Bootstrap config = monitoringProperties.getBootstrap();
+        int added = 0;
+        int filtered = 0;
+        try {
+            synchronized (this) {
+                for (String serviceId : List.copyOf(nacosListenerService.getTrackedServices())) {
+                    if (!nacosListenerService.isMonitoredService(serviceId) && nacosListenerService.untrack(serviceId)) {
+                        filtered++;
+                    }
+                }
+                Set<String> tracked = nacosListenerService.getTrackedServices();
+                for (SourceState state : states.values()) {
+                    RateLimiter limiter = state.refreshLimiter;
+                    if (limiter == null) {
+                        continue;
+                    }
+                    for (String serviceId : state.knownServices) {
+                        if (tracked.contains(serviceId) || !nacosListenerService.isMonitoredService(serviceId)
+                                || !clusterCoordinator.isOwner(serviceId)) {
+                            continue;
+                        }
+                        if (nacosListenerService.track(serviceId)) {
+                            added++;
+                            appInfoService.warmUp(List.of(NacosListenerService.formatDisplayName(serviceId)));
+                            submitSubscribe(state, serviceId, limiter, config.isPrimeInstances());
+                        }
+                    }
+                }
+                servicesAdded.addAndGet(added);
+                servicesFiltered.addAndGet(filtered);
+            }
+            log.info("Service filters reloaded: +{} -{}, {} services monitored.",
+                    added, filtered, nacosListenerService.getTrackedServices().size());
+
+            // 重新查询不需要与增量发现互斥，放在锁外，避免长时间阻塞增量发现
+            if (clustersChanged) {
+                int reprimed = 0;
+                for (String serviceId : List.copyOf(nacosListenerService.getTrackedServices())) {
+                    SourceState state = states.get(ServiceRef.sourceOf(serviceId));
+                    if (state == null || state.refreshLimiter == null) {
+                        continue;
+                    }
+                    state.refreshLimiter.acquire();
+                    try {
+                        nacosListenerService.prime(serviceId);
+                        reprimed++;
+                    } catch (Exception e) {
+                        log.warn("Failed to re-prime service '{}': {}", serviceId, e.getMessage());
+                    }
+                }
+                log.info("Target clusters changed, re-primed {} services.", reprimed);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return 已监控的属于该来源的服务ID
+     */
+    private List<String> trackedServicesOf(SourceState state) {
+        List<String> result = new ArrayList<>();
+        for (String serviceId : nacosListenerService.getTrackedServices()) {
+            if (ServiceRef.sourceOf(serviceId).equals(state.name())) {
+                result.add(serviceId);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 一次分页拉取的结果。
+     * @param ids      服务ID
+     * @param complete 分页期间各分组的服务总数都没有变化，结果可视为完整
+     */
+    private record ServiceList(List<String> ids, boolean complete) {
+    }
+
+    /**
+     * 分页拉取来源中各分组的全部服务，转换为服务ID。
+     */
+    private ServiceList listAllServices(SourceState state, RateLimiter rateLimiter, int pageSize) throws Exception {
+        pageSize = Math.max(1, pageSize);
+        List<String> ids = new ArrayList<>();
+        boolean complete = true;
+        for (String group : state.source.groups()) {
+            int expected = -1;
+            int listed = 0;
+            for (int pageNo = 1; ; pageNo++) {
+                rateLimiter.acquire();
+                ListView<String> page = state.source.namingService().getServicesOfServer(pageNo, pageSize, group);
+                for (String name : page.getData()) {
+                    ids.add(new ServiceRef(state.name(), group, name).id());
+                }
+                listed += page.getData().size();
+                if (expected < 0) {
+                    expected = page.getCount();
+                } else if (expected != page.getCount()) {
+                    complete = false;
+                    break;
+                }
+                if (page.getData().size() < pageSize || listed >= expected) {
+                    break;
+                }
+            }
+        }
+        return new ServiceList(ids, complete);
+    }
+
+    /**
+     * 把订阅提交到来源的线程池异步执行，同一服务已在排队或执行中时不重复提交。
+     * @return 是否提交了新的订阅
+     */
+    private boolean submitSubscribe(SourceState state, String serviceId, RateLimiter rateLimiter, boolean prime) {
+        if (!state.pending.add(serviceId)) {
+            return false;
+        }
+        try {
+            state.workers.execute(() -> {
+                try {
+                    subscribeOne(state, serviceId, rateLimiter, prime);
+                } finally {
+                    state.pending.remove(serviceId);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            state.pending.remove(serviceId);
+            return false; // 正在关闭
+        }
+    }
+
+    /**
+     * 查询实例初始化状态（可选）并注册监听器。查询失败不影响订阅，订阅后的首次推送同样会初始化状态；
+     * 订阅失败的服务保持监控状态，由下一轮增量发现重试。
+     */
+    private void subscribeOne(SourceState state, String serviceId, RateLimiter rateLimiter, boolean prime) {
+        try {
+            if (!nacosListenerService.getTrackedServices().contains(serviceId)) {
+                return; // 排队期间已被释放或过滤
+            }
+            if (prime) {
+                rateLimiter.acquire();
+                try {
+                    nacosListenerService.prime(serviceId);
+                    state.primed.incrementAndGet();
+                } catch (Exception e) {
+                    log.warn("Failed to prime service '{}', subscribing anyway: {}", serviceId, e.getMessage());
+                }
+            }
+            rateLimiter.acquire();
+            nacosListenerService.subscribe(serviceId);
+            state.subscribed.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            state.failed.incrementAndGet();
+            log.warn("Failed to subscribe service '{}', will retry in the next refresh: {}", serviceId, e.getMessage());
+        }
+    }
+
+    /**
+     * @return 所有来源汇总后的阶段：有来源尚未完成时为其中最早的阶段，否则有来源失败时为 FAILED
+     */
+    public Phase getPhase() {
+        Phase lowest = Phase.COMPLETED;
+        boolean anyFailed = !nacosSources.getFailures().isEmpty();
+        for (SourceState state : states.values()) {
+            Phase phase = state.phase;
+            if (phase == Phase.FAILED) {
+                anyFailed = true;
+            } else if (phase.ordinal() < lowest.ordinal()) {
+                lowest = phase;
+            }
+        }
+        return lowest != Phase.COMPLETED ? lowest : anyFailed ? Phase.FAILED : Phase.COMPLETED;
+    }
+
+    /**
+     * @return 启动订阅的进度，顶层为各来源的合计，sources 中为各来源的明细
+     */
+    public Map<String, Object> getProgress() {
+        Map<String, Object> progress = new LinkedHashMap<>();
+        int discovered = 0;
+        int targeted = 0;
+        int primed = 0;
+        int subscribed = 0;
+        int failed = 0;
+        List<Map<String, Object>> sources = new ArrayList<>();
+        for (SourceState state : states.values()) {
+            Map<String, Object> source = new LinkedHashMap<>();
+            source.put("name", state.name());
+            source.put("namespace", state.source.namespace());
+            source.put("groups", state.source.groups());
+            source.put("phase", state.phase);
+            source.put("discovered", state.discovered.get());
+            source.put("monitored", state.targeted.get());
+            source.put("primed", state.primed.get());
+            source.put("subscribed", state.subscribed.get());
+            source.put("failed", state.failed.get());
+            long end = state.finishedAt > 0 ? state.finishedAt : System.currentTimeMillis();
+            source.put("elapsedMillis", state.startedAt > 0 ? end - state.startedAt : 0);
+            source.put("error", state.error);
+            source.put("retrying", state.phase == Phase.FAILED);
+            sources.add(source);
+            discovered += state.discovered.get();
+            targeted += state.targeted.get();
+            primed += state.primed.get();
+            subscribed += state.subscribed.get();
+            failed += state.failed.get();
+        }
+        nacosSources.getFailures().forEach((name, error) -> {
+            Map<String, Object> source = new LinkedHashMap<>();
+            source.put("name", name);
+            source.put("phase", Phase.FAILED);
+            source.put("error", error);
+            // 客户端创建失败，需修正配置后重启
+            source.put("retrying", false);
+            sources.add(source);
+        });
+        progress.put("phase", getPhase());
+        progress.put("discovered", discovered);
+        progress.put("monitored", targeted);
+        progress.put("primed", primed);
+        progress.put("subscribed", subscribed);
+        progress.put("failed", failed);
+        long end = finishedAt > 0 ? finishedAt : System.currentTimeMillis();
+        progress.put("elapsedMillis", startedAt > 0 ? end - startedAt : 0);
+        progress.put("tracked", nacosListenerService.getTrackedServices().size());
+        progress.put("servicesAdded", servicesAdded.get());
+        progress.put("servicesRemoved", servicesRemoved.get());
+        progress.put("servicesReleased", servicesReleased.get());
+        progress.put("servicesFiltered", servicesFiltered.get());
+        progress.put("servicesRetried", servicesRetried.get());
+        progress.put("lastRefreshAt", lastRefreshAt);
+        progress.put("lastRefreshMillis", lastRefreshMillis);
+        progress.put("sources", sources);
+        return progress;
+    }
+}
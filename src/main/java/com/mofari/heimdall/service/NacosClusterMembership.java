@@ -0,0 +1,181 @@
+package com.mofari.heimdall.service;
+
+import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.naming.listener.EventListener;
+import com.alibaba.nacos.api.naming.listener.NamingEvent;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import com.mofari.heimdall.config.MonitoringProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 基于 Nacos 的集群成员发现：每个节点把自己注册为一个临时实例，并订阅同名服务的实例列表。
+ * 节点宕机后 Nacos 在心跳超时后摘除其实例，其余节点收到推送后重新划分服务归属。
+ */
+@Service
+@ConditionalOnProperty(prefix = "spring.monitoring.cluster", name = "membership", havingValue = "nacos")
+public class NacosClusterMembership implements ClusterMembership {
+
+    private static final Logger logger = LoggerFactory.getLogger(NacosClusterMembership.class);
+
+    private static final String SERVICE_GROUP = "DEFAULT_GROUP";
+    private static final String NODE_ID_METADATA = "heimdall.node-id";
+
+    @Autowired
+    private NamingService namingService;
+
+    @Autowired
+    private MonitoringProperties monitoringProperties;
+
+    @Value("${server.port:8080}")
+    private int serverPort;
+
+    private volatile Consumer<Set<String>> listener;
+    private volatile Set<String> members = Set.of();
+    private volatile Map<String, Map<String, String>> memberMetadata = Map.of();
+    private volatile Map<String, Map<String, String>> departedMetadata = Map.of();
+    private volatile String memberId;
+    private Instance self;
+    private EventListener nacosListener;
+
+    @Override
+    public String localMemberId() {
+        if (memberId == null) {
+            String configured = monitoringProperties.getCluster().getNodeId();
+            memberId = configured == null || configured.isEmpty() ? localAddress() + ":" + serverPort : configured;
+        }
+        return memberId;
+    }
+
+    @Override
+    public synchronized void join() throws Exception {
+        MonitoringProperties.Cluster config = monitoringProperties.getCluster();
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put(NODE_ID_METADATA, localMemberId());
+        // 缩短心跳超时，节点宕机后尽快被摘除（Nacos 2.x 长连接断开时会立即摘除）
+        metadata.put("preserved.heart.beat.interval", String.valueOf(config.getHeartbeatIntervalMillis()));
+        metadata.put("preserved.heart.beat.timeout", String.valueOf(config.getHeartbeatTimeoutMillis()));
+        metadata.put("preserved.ip.delete.timeout", String.valueOf(config.getHeartbeatTimeoutMillis()));
+        Instance instance = new Instance();
+        instance.setIp(localAddress());
+        instance.setPort(serverPort);
+        instance.setEphemeral(true);
+        instance.setMetadata(metadata);
+        this.nacosListener = event -> {
+            if (event instanceof NamingEvent namingEvent) {
+                update(namingEvent.getInstances());
+            }
+        };
+        namingService.subscribe(config.getServiceName(), SERVICE_GROUP, nacosListener);
+        namingService.registerInstance(config.getServiceName(), SERVICE_GROUP, instance);
+        this.self = instance;
+        update(namingService.selectInstances(config.getServiceName(), SERVICE_GROUP, true));
+        logger.info("Joined Heimdall cluster '{}' as {}.", config.getServiceName(), localMemberId());
+    }
+
+    @Override
+    public synchronized void leave() {
+        String serviceName = monitoringProperties.getCluster().getServiceName();
+        try {
+            if (nacosListener != null) {
+                namingService.unsubscribe(serviceName, SERVICE_GROUP, nacosListener);
+            }
+            if (self != null) {
+                namingService.deregisterInstance(serviceName, SERVICE_GROUP, self);
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to leave Heimdall cluster '{}': {}", serviceName, e.getMessage());
+        }
+    }
+
+    @Override
+    public Set<String> members() {
+        return members;
+    }
+
+    /**
+     * 附加信息写入本节点实例的 metadata，通过重新注册实例更新，其它节点随实例列表推送收到。
+     */
+    @Override
+    public synchronized void publishMetadata(Map<String, String> metadata) {
+        if (self == null) {
+            return;
+        }
+        Map<String, String> updated = new HashMap<>(self.getMetadata());
+        updated.putAll(metadata);
+        self.setMetadata(updated);
+        String serviceName = monitoringProperties.getCluster().getServiceName();
+        try {
+            namingService.registerInstance(serviceName, SERVICE_GROUP, self);
+        } catch (Exception e) {
+            logger.warn("Failed to publish metadata to Heimdall cluster '{}': {}", serviceName, e.getMessage());
+        }
+    }
+
+    @Override
+    public Map<String, Map<String, String>> memberMetadata() {
+        return memberMetadata;
+    }
+
+    @Override
+    public Map<String, Map<String, String>> departedMetadata() {
+        return departedMetadata;
+    }
+
+    @Override
+    public void setListener(Consumer<Set<String>> listener) {
+        this.listener = listener;
+    }
+
+    private void update(List<Instance> instances) {
+        Set<String> ids = new HashSet<>();
+        Map<String, Map<String, String>> metadata = new HashMap<>();
+        for (Instance instance : instances) {
+            if (!instance.isHealthy() || !instance.isEnabled()) {
+                continue;
+            }
+            String id = instance.getMetadata() == null ? null : instance.getMetadata().get(NODE_ID_METADATA);
+            id = id != null ? id : instance.getIp() + ":" + instance.getPort();
+            ids.add(id);
+            if (!id.equals(localMemberId())) {
+                metadata.put(id, instance.getMetadata() == null ? Map.of() : Map.copyOf(instance.getMetadata()));
+            }
+        }
+        // 只有附加信息变化时成员列表不变，不触发重新划分
+        Map<String, Map<String, String>> previous = memberMetadata;
+        memberMetadata = metadata;
+        Set<String> updated = Set.copyOf(ids);
+        if (updated.equals(members)) {
+            return;
+        }
+        Map<String, Map<String, String>> departed = new HashMap<>(previous);
+        departed.keySet().removeAll(updated);
+        departedMetadata = departed;
+        members = updated;
+        Consumer<Set<String>> l = listener;
+        if (l != null) {
+            l.accept(updated);
+        }
+    }
+
+    private static String localAddress() {
+        try {
+            return InetAddress.getLocalHost().getHostAddress();
+        } catch (UnknownHostException e) {
+            return "127.0.0.1";
+        }
+    }
+}
@@ -1,21 +1,21 @@
 package com.mofari.heimdall.service;
 
-import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.exception.NacosException;
+import com.alibaba.nacos.api.naming.listener.EventListener;
 import com.alibaba.nacos.api.naming.listener.NamingEvent;
 import com.alibaba.nacos.api.naming.pojo.Instance;
 import com.mofari.heimdall.config.MonitoringProperties;
 import com.mofari.heimdall.websocket.AppStatusWebSocketServer;
+import io.micrometer.core.instrument.Gauge;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import jakarta.annotation.PostConstruct;
 
-import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
-import java.util.concurrent.atomic.AtomicInteger; // ✅ 更新点：引入原子计数器
+import java.util.function.Predicate;
 
 
 @Service
@@ -23,215 +23,449 @@ public class NacosListenerService {
     private static final Logger logger = LoggerFactory.getLogger(NacosListenerService.class);
 
     @Autowired
-    private NamingService namingService; // Nacos 客户端核心 API
+    private NacosSources nacosSources; // 各 Nacos 来源的客户端
 
     @Autowired
     private AppStatusStore appStatusStore; // ✅ 注入状态存储服务
 
     @Autowired
-    private AlertNotifier alertNotifier;
+    private AlertAggregator alertAggregator;
 
     @Autowired
-    private AppInfoService appInfoService;
+    private FlapDamper flapDamper;
+
+    @Autowired
+    private AlertRouter alertRouter;
 
     @Autowired
     private MonitoringProperties monitoringProperties;
 
-    // 假设我们只关心 "DEFAULT_GROUP" 分组下的服务
-    private static final String SERVICE_GROUP = "DEFAULT_GROUP";
+    @Autowired
+    private ShardedEventProcessor eventProcessor;
 
-    private final ConcurrentHashMap<String, Object> serviceLocks = new ConcurrentHashMap<>();
+    @Autowired
+    private ClusterCoordinator clusterCoordinator;
 
-    private Set<String> whitelistSet;
-    private Set<String> targetClusterSet;
-    private List<String> excludeKeywords;
+    @Autowired
+    private HeimdallMetrics metrics;
 
-    // ✅ 更新点：新增全局状态追踪变量
-    private int totalMonitoredServices = 0; // 监控的服务总数
-    private final AtomicInteger downServiceCount = new AtomicInteger(0); // 当前 DOWN 的服务数量
-    private volatile boolean isGlobalAlertSent = false; // 全局告警是否已发送的标记
+    @Autowired
+    private EventRecorder eventRecorder;
 
-    @PostConstruct
-    public void init() throws Exception {
-        this.whitelistSet = new HashSet<>(monitoringProperties.getWhitelistServices());
-        this.targetClusterSet = new HashSet<>(monitoringProperties.getTargetClusters());
-        this.excludeKeywords = monitoringProperties.getExcludeServiceKeywords();
-        logger.info("Monitoring properties loaded: targetClusters={}, whitelist={}, excludeKeywords={}",
-                this.targetClusterSet, this.whitelistSet, this.excludeKeywords);
+    // 告警正文中最多列出的不健康实例数
+    private static final int ALERT_INSTANCE_LIMIT = 5;
 
+    // 过滤规则和目标集群可热加载，整体替换
+    private volatile ServiceFilter serviceFilter;
+    private volatile Set<String> targetClusterSet;
 
-        // 获取 Nacos 中所有服务的名称
-        List<String> serviceNames = namingService.getServicesOfServer(1, Integer.MAX_VALUE, SERVICE_GROUP).getData();
-        logger.info("Found {} services in total from Nacos.", serviceNames.size());
+    // 当前被监控的服务
+    private final Set<String> trackedServices = ConcurrentHashMap.newKeySet();
 
-        // 使用配置的关键词和白名单进行过滤
-        List<String> targetServiceNames = serviceNames.stream()
-                .filter(serviceName -> excludeKeywords.stream()
-                        .noneMatch(keyword -> serviceName.toLowerCase().contains(keyword.toLowerCase())))
-                .filter(serviceName -> !whitelistSet.contains(serviceName))
-                .collect(Collectors.toList());
+    // 从其它节点接管、尚未提交过状态的服务 -> 告警判断的起点
+    private final Map<String, ServiceStatus> alertBaselines = new ConcurrentHashMap<>();
 
-        logger.info("After filtering, {} services will be monitored: {}", targetServiceNames.size(), targetServiceNames);
-        // ✅ 更新点：记录监控的服务总数
-        this.totalMonitoredServices = targetServiceNames.size();
-        logger.info("Total services to be monitored: {}", this.totalMonitoredServices);
+    // 服务名 -> 已注册的 Nacos 监听器
+    private final Map<String, EventListener> subscriptions = new ConcurrentHashMap<>();
 
-        // ✅ 更新点：在订阅前，初始化所有被监控服务的状态为 UNKNOWN
-        // 这对于后续计算全局宕机比例至关重要
-        for (String serviceName : targetServiceNames) {
-            appStatusStore.updateStatus(Map.of("id", serviceName, "name", formatDisplayName(serviceName), "status", "UNKNOWN"));
-        }
+    // 回放临时加入监控的服务，回放结束后释放
+    private final Set<String> replayTracked = ConcurrentHashMap.newKeySet();
+
+    // 服务名 -> 目标集群中的实例表，只在服务所属的分片线程上读写
+    private final Map<String, InstanceTable> instanceTables = new ConcurrentHashMap<>();
+
+    // 全局宕机比例及全局告警由 GlobalHealthAggregator 根据状态存储的变更统计
+
+    /**
+     * 推送给 WebSocket 客户端的实例变化消息，只在实例有新增、移除或健康状态翻转时发送。
+     */
+    public record InstanceDeltaMessage(String type,
+                                       String id,
+                                       int healthyInstances,
+                                       int totalInstances,
+                                       List<InstanceTable.InstanceChange> added,
+                                       List<InstanceTable.InstanceChange> removed,
+                                       List<InstanceTable.InstanceChange> healthChanged,
+                                       long timestamp) {
+    }
+
+    @PostConstruct
+    public void init() {
+        reloadFilters();
+        // 计时到期后回到服务所属的分片上处理，保证同一服务的状态只由一个线程修改
+        flapDamper.setTimerCallback(serviceId -> eventProcessor.execute(serviceId, () -> onDampingTimer(serviceId)));
+        Gauge.builder("heimdall.services.tracked", trackedServices, Set::size)
+                .description("当前被监控的服务数")
+                .register(metrics.registry());
+        Gauge.builder("heimdall.services.subscribed", subscriptions, Map::size)
+                .description("已注册 Nacos 监听器的服务数")
+                .register(metrics.registry());
+        // 服务的发现与订阅由 NacosBootstrapService 在应用启动后异步完成，不再阻塞启动
+    }
+
+    /**
+     * 按当前配置重新编译过滤规则和目标集群，配置热加载后调用。
+     * 已监控服务的增删由 {@link NacosBootstrapService#applyFilterChange(boolean)} 负责。
+     * @return 目标集群是否发生变化
+     * @throws IllegalArgumentException 过滤规则无效，此时保留原规则
+     */
+    public synchronized boolean reloadFilters() {
+        ServiceFilter filter = ServiceFilter.compile(monitoringProperties);
+        Set<String> clusters = Set.copyOf(monitoringProperties.getTargetClusters());
+        boolean clustersChanged = targetClusterSet != null && !targetClusterSet.equals(clusters);
+        this.serviceFilter = filter;
+        this.targetClusterSet = clusters;
+        logger.info("Monitoring properties loaded: targetClusters={}, whitelist={}, excludeKeywords={}, include={}, exclude={}",
+                clusters, monitoringProperties.getWhitelistServices(), monitoringProperties.getExcludeServiceKeywords(),
+                monitoringProperties.getIncludeServicePatterns(), monitoringProperties.getExcludeServicePatterns());
+        return clustersChanged;
+    }
 
-        for (String serviceName : targetServiceNames) {
-            // 为每个服务注册一个监听器
-            namingService.subscribe(serviceName, SERVICE_GROUP, event -> {
-                if (event instanceof com.alibaba.nacos.api.naming.listener.NamingEvent) {
-                    com.alibaba.nacos.api.naming.listener.NamingEvent namingEvent = (com.alibaba.nacos.api.naming.listener.NamingEvent) event;
-                    handleNacosEvent(namingEvent);
-                }
-            });
+    /**
+     * 使用配置的白名单、关键词和包含/排除规则判断一个服务是否需要监控，规则只匹配 Nacos 服务名，不含来源和分组。
+     * @param serviceId 服务ID，见 {@link ServiceRef}
+     */
+    public boolean isMonitoredService(String serviceId) {
+        return serviceFilter.matches(nacosName(serviceId));
+    }
+
+    /**
+     * 把服务加入监控集合，并在订阅前将其状态初始化为 UNKNOWN。
+     * 这对于后续计算全局宕机比例至关重要。
+     * 已从状态日志恢复出状态的服务保留原状态，首次收到实时数据时与之对比，有差异则照常告警。
+     * @return 是否为新加入的服务
+     */
+    public boolean track(String serviceName) {
+        return track(serviceName, null);
+    }
+
+    /**
+     * 开始监控一个从其它节点接管的服务。
+     * @param alertBaseline 服务在前一个归属节点上的状态（见 {@link ClusterCoordinator#takeoverBaseline}），
+     *                      首次提交状态时代替 UNKNOWN 作为告警判断的起点；为 null 时与 {@link #track(String)} 相同
+     */
+    public boolean track(String serviceName, ServiceStatus alertBaseline) {
+        if (!trackedServices.add(serviceName)) {
+            return false;
+        }
+        if (alertBaseline != null) {
+            alertBaselines.put(serviceName, alertBaseline);
         }
-        logger.info("Nacos listeners initialized for " + serviceNames.size() + " services.");
+        eventProcessor.execute(serviceName, () -> {
+            if (appStatusStore.getStatus(serviceName) == null) {
+                appStatusStore.update(serviceName, formatDisplayName(serviceName), ServiceStatus.UNKNOWN, 0, 0, List.of());
+            }
+        });
+        return true;
     }
 
     /**
-     * 统一处理 Nacos 事件
-     * @param namingEvent Nacos 推送的事件
+     * 清理未被监控的服务状态，例如从状态日志恢复出、但重启后已不存在或已被过滤掉的服务。
+     * @param scope 只清理满足条件的服务，例如只清理已完成启动订阅的来源下的服务
+     * @return 清理的服务数量
      */
-    private void handleNacosEvent(NamingEvent namingEvent) {
-        String serviceId = namingEvent.getServiceName();
-        Object lock = serviceLocks.computeIfAbsent(serviceId, k -> new Object());
-        String displayName = formatDisplayName(serviceId);
+    public int evictUntracked(Predicate<String> scope) {
+        int evicted = 0;
+        for (AppStatus status : appStatusStore.getAllStatuses()) {
+            String serviceId = status.id();
+            if (!trackedServices.contains(serviceId) && scope.test(serviceId)) {
+                evicted++;
+                eventProcessor.execute(serviceId, () -> {
+                    if (!trackedServices.contains(serviceId)) {
+                        appStatusStore.remove(serviceId);
+                        flapDamper.forget(serviceId);
+                        alertRouter.forget(serviceId);
+                        instanceTables.remove(serviceId);
+                    }
+                });
+            }
+        }
+        return evicted;
+    }
 
-        synchronized (lock) {
-            List<Instance> filteredInstances = namingEvent.getInstances().stream()
-                    .filter(instance -> targetClusterSet.contains(instance.getClusterName()))
-                    .collect(Collectors.toList());
-
-            // 计算新状态
-            String newStatus = calculateStatus(filteredInstances);
-
-            // ✅ 核心告警逻辑
-            // 1. 从状态存储中获取旧的状态
-            Map<String, Object> oldStatusMap = appStatusStore.getStatus(serviceId);
-            String oldStatus = (oldStatusMap != null && oldStatusMap.get("status") != null)
-                    ? oldStatusMap.get("status").toString()
-                    : "UNKNOWN"; // 如果是第一次看到这个服务，旧状态设为 UNKNOWN
-
-            // 2. 只有当状态发生变化时，才进行处理
-            if (!newStatus.equals(oldStatus)) {
-                logger.info("状态变更: 服务 '{}' 从 '{}' 变为 '{}'", serviceId, oldStatus, newStatus);
-                // --- ✅ 更新点：更新全局宕机计数 ---
-                if ("DOWN".equals(newStatus) && !"DOWN".equals(oldStatus)) {
-                    downServiceCount.incrementAndGet(); // 状态变为 DOWN，计数器+1
-                } else if (!"DOWN".equals(newStatus) && "DOWN".equals(oldStatus)) {
-                    downServiceCount.decrementAndGet(); // 状态从 DOWN 恢复，计数器-1
-                }
-                // 3. 判断是否需要发送告警
-                // ✅ 核心修改：增加对 oldStatus 的判断，确保不是从 UNKNOWN 状态变为 DOWN
-                if ("DOWN".equals(newStatus) && !"UNKNOWN".equals(oldStatus)) {
-
-                    // ✅ 在发送告警前，获取负责人信息
-                    List<String> owners = appInfoService.getAppOwners(displayName);
-                    String ownerText = owners.isEmpty() ? "未指定" : String.join(", ", owners);
-                    // 发送宕机告警
-                    String title = "🚨 服务宕机警报";
-                    String text = String.format("#### %s\n\n> **服务名**: %s\n\n> **负责人**: %s\n\n> **当前状态**: <font color='#dd0000'>**%s**</font>\n\n> **时间**: %s",
-                            title, serviceId, ownerText, newStatus, getCurrentTimestamp());
-                    alertNotifier.sendMarkdownMessage(title, text, AlertLevel.DOWN);
-
-                } else if ("RUNNING".equals(newStatus) && "DOWN".equals(oldStatus)) {
-                    // 如果是从 DOWN 恢复到 RUNNING，发送恢复通知
-                    String title = "✅ 服务恢复通知";
-                    String text = String.format("#### %s\n\n> **服务名**: %s\n\n> **当前状态**: <font color='#008000'>**%s**</font>\n\n> **时间**: %s",
-                            title, serviceId, newStatus, getCurrentTimestamp());
-                    alertNotifier.sendMarkdownMessage(title, text, AlertLevel.RECOVERY);
-                }
+    /**
+     * 停止监控一个服务：注销监听器，并在服务所属的分片上清理状态存储和抖动抑制状态。
+     * 看板会收到 removed 消息；服务下线不会触发告警。
+     * @return 该服务此前是否被监控
+     */
+    public boolean untrack(String serviceName) {
+        if (!trackedServices.remove(serviceName)) {
+            return false;
+        }
+        alertBaselines.remove(serviceName);
+        EventListener listener = subscriptions.remove(serviceName);
+        if (listener != null) {
+            try {
+                ServiceRef ref = ServiceRef.parse(serviceName);
+                sourceOf(ref).namingService().unsubscribe(ref.name(), ref.group(), listener);
+            } catch (NacosException | RuntimeException e) {
+                logger.warn("Failed to unsubscribe service '{}': {}", serviceName, e.getMessage());
             }
-            // 创建消息体并更新
-            Map<String, Object> message = new HashMap<>();
-            message.put("id", serviceId);
-            message.put("name", displayName);
-
-            // 只有当状态变化时才更新状态和广播，避免无效更新
-            if (!newStatus.equals(oldStatus)) {
-                message.put("status", newStatus);
-                appStatusStore.updateStatus(message);
-                AppStatusWebSocketServer.broadcast(message);
+        }
+        eventProcessor.execute(serviceName, () -> {
+            // 期间服务可能又被重新加入监控，此时保留状态
+            if (!trackedServices.contains(serviceName)) {
+                appStatusStore.remove(serviceName);
+                flapDamper.forget(serviceName);
+                alertRouter.forget(serviceName);
+                instanceTables.remove(serviceName);
             }
+        });
+        return true;
+    }
 
+    /**
+     * @return 当前被监控的服务名（只读视图）
+     */
+    public Set<String> getTrackedServices() {
+        return Collections.unmodifiableSet(trackedServices);
+    }
 
+    /**
+     * 主动查询一次实例列表并据此初始化服务状态，避免服务在首次推送前一直停留在 UNKNOWN。
+     * 从 UNKNOWN 变为任何状态都不会告警。
+     */
+    public void prime(String serviceName) throws NacosException {
+        ServiceRef ref = ServiceRef.parse(serviceName);
+        List<Instance> instances = sourceOf(ref).namingService().getAllInstances(ref.name(), ref.group(), false);
+        onNacosEvent(new NamingEvent(serviceName, ref.group(), null, instances));
+    }
+
+    /**
+     * 为服务注册 Nacos 监听器，重复调用不会重复注册。
+     * 推送中的服务名会换成服务ID，录制、回放和后续处理都使用服务ID。
+     */
+    public void subscribe(String serviceName) throws NacosException {
+        ServiceRef ref = ServiceRef.parse(serviceName);
+        NacosSources.Source source = sourceOf(ref);
+        EventListener listener = event -> {
+            if (event instanceof NamingEvent namingEvent) {
+                onNacosEvent(serviceName.equals(namingEvent.getServiceName()) ? namingEvent
+                        : new NamingEvent(serviceName, ref.group(), namingEvent.getClusters(), namingEvent.getInstances()));
+            }
+        };
+        if (subscriptions.putIfAbsent(serviceName, listener) != null) {
+            return;
         }
+        try {
+            source.namingService().subscribe(ref.name(), ref.group(), listener);
+        } catch (NacosException | RuntimeException e) {
+            subscriptions.remove(serviceName, listener);
+            throw e;
+        }
+    }
 
+    /**
+     * @return 服务是否已注册 Nacos 监听器
+     */
+    public boolean isSubscribed(String serviceName) {
+        return subscriptions.containsKey(serviceName);
     }
 
+    /**
+     * @return 已订阅的服务数量
+     */
+    public int getSubscribedCount() {
+        return subscriptions.size();
+    }
 
     /**
-     * 根据实例列表计算服务的总体状态
+     * 回放一条录制的事件：服务未被监控时临时加入监控，之后与实时推送走同样的处理流程，但不会被再次录制。
      */
-    private String calculateStatus(List<Instance> instances) {
-        if (instances.isEmpty()) {
-            return "OFFLINE";
+    public void replay(NamingEvent namingEvent) {
+        String serviceId = namingEvent.getServiceName();
+        if (track(serviceId)) {
+            replayTracked.add(serviceId);
         }
-        long totalInstances = instances.size();
-        long healthyInstances = instances.stream().filter(Instance::isHealthy).count();
-        if (healthyInstances == 0) {
-            return "DOWN";
-        } else if (healthyInstances < totalInstances) {
-            return "DEGRADED";
-        } else {
-            return "RUNNING";
+        enqueue(namingEvent);
+    }
+
+    /**
+     * 回放结束后释放回放临时加入监控的服务，期间已被正式订阅的服务保留。
+     * @return 释放的服务数量
+     */
+    public int releaseReplayed() {
+        int released = 0;
+        for (String serviceId : replayTracked) {
+            replayTracked.remove(serviceId);
+            if (!subscriptions.containsKey(serviceId) && untrack(serviceId)) {
+                released++;
+            }
         }
+        return released;
     }
 
-    private String getCurrentTimestamp() {
-        return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
+    /**
+     * 接收 Nacos 事件：录制（开启时）后入队。
+     * @param namingEvent Nacos 推送的事件
+     */
+    private void onNacosEvent(NamingEvent namingEvent) {
+        eventRecorder.record(namingEvent);
+        enqueue(namingEvent);
     }
 
-    private String formatDisplayName(String serviceId) {
-        return serviceId.endsWith(".app") ? serviceId.substring(0, serviceId.length() - 4) : serviceId;
+    /**
+     * 事件只做入队，处理在服务所属的分片线程上进行，不占用 Nacos 的回调线程。
+     * 排队期间同一服务的新事件会替换旧事件，只处理最新的实例列表。
+     */
+    private void enqueue(NamingEvent namingEvent) {
+        metrics.nacosEventReceived();
+        long receivedNanos = System.nanoTime();
+        eventProcessor.executeLatest(namingEvent.getServiceName(), () -> handleNacosEvent(namingEvent, receivedNanos));
     }
 
     /**
-     * ✅ 更新点：新增方法，检查并发送全局告警
+     * 统一处理 Nacos 事件，只在服务所属的分片线程上执行
+     * @param namingEvent   Nacos 推送的事件
+     * @param receivedNanos 收到推送时的 {@link System#nanoTime()}，用于统计端到端耗时
      */
-    private void checkAndSendGlobalAlert() {
-        if (totalMonitoredServices == 0) {
-            return; // 如果监控的服务总数为0，则不执行
+    void handleNacosEvent(NamingEvent namingEvent, long receivedNanos) {
+        long startNanos = System.nanoTime();
+        String serviceId = namingEvent.getServiceName();
+        // 已停止监控的服务可能还有在途事件，直接忽略，避免把已清理的状态重新写回
+        if (!trackedServices.contains(serviceId)) {
+            return;
+        }
+        // 与上一次的实例列表对比，增量维护目标集群中的实例数
+        InstanceTable table = instanceTables.computeIfAbsent(serviceId, k -> new InstanceTable());
+        InstanceTable.InstanceDiff diff = table.apply(namingEvent.getInstances(), targetClusterSet);
+        int totalInstances = table.total();
+        int healthyInstances = table.healthy();
+        if (!diff.isEmpty()) {
+            AppStatusWebSocketServer.broadcast(new InstanceDeltaMessage("instances", serviceId, healthyInstances,
+                    totalInstances, diff.added(), diff.removed(), diff.healthChanged(), System.currentTimeMillis()));
         }
 
-        double currentDownRatio = (double) downServiceCount.get() / totalMonitoredServices;
-        double threshold = monitoringProperties.getGlobalDownThreshold();
+        // 计算原始状态，再交给抖动抑制状态机决定是否提交
+        ServiceStatus observedStatus = calculateStatus(healthyInstances, totalInstances);
+        AppStatus current = appStatusStore.getStatus(serviceId);
+        ServiceStatus oldStatus = current == null ? ServiceStatus.UNKNOWN : current.status();
+        FlapDamper.Decision decision = flapDamper.observe(serviceId, oldStatus, observedStatus, System.currentTimeMillis());
+        ServiceStatus newStatus = decision == null ? oldStatus : decision.status();
+        if (decision != null) {
+            onStatusCommitted(serviceId, oldStatus, decision);
+        }
+        // 实例数的变化即使没有引起状态变化也会写入存储，方便看板展示
+        // 没有变化时存储不会产生新版本，也就不会推送，避免无效更新
+        appStatusStore.update(serviceId, formatDisplayName(serviceId), newStatus, healthyInstances, totalInstances, table.clusters());
+        metrics.nacosEventProcessed(receivedNanos, startNanos);
+    }
+
+    /**
+     * 抖动抑制计时到期，重新评估待定状态。
+     */
+    private void onDampingTimer(String serviceId) {
+        AppStatus current = appStatusStore.getStatus(serviceId);
+        if (current == null || !trackedServices.contains(serviceId)) {
+            return;
+        }
+        FlapDamper.Decision decision = flapDamper.evaluate(serviceId, current.status(), System.currentTimeMillis());
+        if (decision != null) {
+            onStatusCommitted(serviceId, current.status(), decision);
+            appStatusStore.update(serviceId, current.name(), decision.status(),
+                    current.healthyInstances(), current.totalInstances(), current.clusters());
+        }
+    }
 
-        // 1. 检查是否触发了宕机阈值
-        if (currentDownRatio >= threshold) {
-            // 如果超过阈值，并且告警 *尚未* 发送
-            if (!isGlobalAlertSent) {
-                String title = "🔥 系统重大告警";
-                String text = String.format("#### %s\n\n> **警告**: 系统中 **%d%%** 的服务处于DOWN状态（%d/%d），已超过 **%.0f%%** 的阈值！\n\n> **请立即检查系统！**\n\n> **时间**: %s",
-                        title, (int)(currentDownRatio * 100), downServiceCount.get(), totalMonitoredServices, threshold * 100, getCurrentTimestamp());
+    /**
+     * 处理一次已提交的状态变更：记录日志、发送告警。只在服务所属的分片线程上调用。
+     */
+    private void onStatusCommitted(String serviceId, ServiceStatus oldStatus, FlapDamper.Decision decision) {
+        ServiceStatus newStatus = decision.status();
+        // 只有当状态发生变化时，才进行处理
+        if (newStatus == oldStatus) {
+            return;
+        }
+        logger.info("状态变更: 服务 '{}' 从 '{}' 变为 '{}'", serviceId, oldStatus, newStatus);
+        metrics.statusTransition(newStatus);
+        // 判断是否需要发送告警，alertFrom 是抖动抑制后的"上一个稳定状态"，为 null 时（如进入 FLAPPING）不告警
+        ServiceStatus alertFrom = decision.alertFrom();
+        ServiceStatus baseline = alertBaselines.remove(serviceId);
+        if (alertFrom == ServiceStatus.UNKNOWN && baseline != null) {
+            // 接管的服务以前一个归属节点上的状态为起点，交接期间的宕机和恢复都不会漏报，已告警过的宕机不重复告警
+            alertFrom = baseline;
+        }
+        // 集群成员变化后、服务释放前的短暂窗口内，旧节点仍可能收到事件；只有当前归属节点告警，避免重复
+        if (alertFrom != null && !clusterCoordinator.isOwner(serviceId)) {
+            logger.info("服务 '{}' 已归属其它节点，跳过告警", serviceId);
+            return;
+        }
+        String displayName = formatDisplayName(serviceId);
+        // ✅ 核心修改：增加对 oldStatus 的判断，确保不是从 UNKNOWN 状态变为 DOWN
+        if (newStatus == ServiceStatus.DOWN && alertFrom != null && alertFrom != ServiceStatus.UNKNOWN && alertFrom != ServiceStatus.DOWN) {
+            // ✅ 告警只在这里入队，负责人查询和 Webhook 调用都在告警 worker 线程中完成，不再占用服务锁
+            alertAggregator.submit(new ServiceTransition(serviceId, displayName, alertFrom.name(), newStatus.name(),
+                    AlertLevel.DOWN, System.currentTimeMillis(), instanceSummary(serviceId)));
+
+        } else if (newStatus == ServiceStatus.RUNNING && alertFrom == ServiceStatus.DOWN) {
+            // 如果是从 DOWN 恢复到 RUNNING，发送恢复通知
+            alertAggregator.submit(new ServiceTransition(serviceId, displayName, alertFrom.name(), newStatus.name(),
+                    AlertLevel.RECOVERY, System.currentTimeMillis(), instanceSummary(serviceId)));
+        }
+    }
 
-                // 使用全局 Webhook 发送
-                alertNotifier.sendMarkdownMessage(title, text, monitoringProperties.getGlobalAlertWebhook(), AlertLevel.CRITICAL);
+    /**
+     * 告警正文中的实例概况，例如 "3/8 个实例不健康：10.0.4.1:8080, 10.0.4.2:8080, 10.0.4.3:8080"。
+     * 只在服务所属的分片线程上调用。
+     */
+    private String instanceSummary(String serviceId) {
+        InstanceTable table = instanceTables.get(serviceId);
+        if (table == null) {
+            return null;
+        }
+        int total = table.total();
+        if (total == 0) {
+            return "目标集群中没有实例";
+        }
+        int unhealthy = total - table.healthy();
+        if (unhealthy == 0) {
+            return String.format("%d/%d 个实例健康", total, total);
+        }
+        List<String> addresses = table.unhealthyAddresses(ALERT_INSTANCE_LIMIT);
+        return String.format("%d/%d 个实例不健康：%s%s", unhealthy, total, String.join(", ", addresses),
+                unhealthy > addresses.size() ? " 等" : "");
+    }
 
-                isGlobalAlertSent = true; // 将标记设置为已发送
-                logger.warn("全局告警阈值已触发 ({} DOWN / {} TOTAL = {}%)", downServiceCount.get(), totalMonitoredServices, (int)(currentDownRatio * 100));
-            }
+    /**
+     * 根据目标集群中的实例数计算服务的总体状态
+     */
+    ServiceStatus calculateStatus(int healthyInstances, int totalInstances) {
+        if (totalInstances == 0) {
+            return ServiceStatus.OFFLINE;
         }
-        // 2. 检查是否从宕机状态中恢复
-        else {
-            // 如果低于阈值，并且告警 *之前* 发送过
-            if (isGlobalAlertSent) {
-                String title = " recoveries: 系统已恢复";
-                String text = String.format("#### %s\n\n> **通知**: 系统已从重大告警中恢复。\n\n> **当前宕机比例**: **%d%%**（%d/%d），已低于 **%.0f%%** 的阈值。\n\n> **时间**: %s",
-                        title, (int)(currentDownRatio * 100), downServiceCount.get(), totalMonitoredServices, threshold * 100, getCurrentTimestamp());
+        if (healthyInstances == 0) {
+            return ServiceStatus.DOWN;
+        } else if (healthyInstances < totalInstances) {
+            return ServiceStatus.DEGRADED;
+        } else {
+            return ServiceStatus.RUNNING;
+        }
+    }
 
-                // 同样使用全局 Webhook 发送
-                alertNotifier.sendMarkdownMessage(title, text, monitoringProperties.getGlobalAlertWebhook(), AlertLevel.RECOVERY);
 
-                isGlobalAlertSent = false; // 重置标记
-                logger.info("全局告警状态已恢复 ({} DOWN / {} TOTAL = {}%)", downServiceCount.get(), totalMonitoredServices, (int)(currentDownRatio * 100));
-            }
+    private NacosSources.Source sourceOf(ServiceRef ref) throws NacosException {
+        NacosSources.Source source = nacosSources.get(ref.source());
+        if (source == null) {
+            throw new NacosException(NacosException.INVALID_PARAM, "Unknown or unavailable Nacos source '" + ref.source() + "'");
+        }
+        return source;
+    }
+
+    /**
+     * @return 服务ID中的 Nacos 服务名；单一来源、默认分组下的服务ID就是服务名，不做解析
+     */
+    private static String nacosName(String serviceId) {
+        if (serviceId.indexOf('@') < 0) {
+            return serviceId;
         }
+        return ServiceRef.parse(serviceId).name();
+    }
+
+    /**
+     * 服务展示名，同时用于查询负责人：去掉来源、分组和 ".app" 后缀。
+     */
+    public static String formatDisplayName(String serviceId) {
+        String name = nacosName(serviceId);
+        return name.endsWith(".app") ? name.substring(0, name.length() - 4) : name;
     }
 }
@@ -0,0 +1,190 @@
+package com.mofari.heimdall.service;
+
+import com.alibaba.nacos.api.NacosFactory;
+import com.alibaba.nacos.api.exception.NacosException;
+import com.alibaba.nacos.api.naming.NamingService;
+import com.mofari.heimdall.config.MonitoringProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * 监控的 Nacos 来源，每个来源一个 {@link NamingService}。
+ * <p>
+ * 单个来源创建客户端失败时只记录错误并跳过，其余来源照常工作；只有全部来源都失败时才终止启动。
+ * 客户端创建失败通常是配置错误（地址格式、命名空间等），运行期间不会重试，修正配置后需重启。
+ */
+public class NacosSources {
+
+    private static final Logger log = LoggerFactory.getLogger(NacosSources.class);
+
+    /**
+     * 一个可用的 Nacos 来源。
+     * @param name          来源名，未命名为空字符串
+     * @param namespace     命名空间ID
+     * @param groups        监控的分组
+     * @param namingService 该来源的客户端
+     */
+    public record Source(String name, String namespace, List<String> groups, NamingService namingService) {
+
+        /**
+         * @return 日志和线程名中使用的名称
+         */
+        public String label() {
+            return name.isEmpty() ? "default" : name;
+        }
+    }
+
+    private final Map<String, Source> sources;
+    private final Map<String, String> failures;
+    private final Map<String, Properties> clientProperties;
+
+    public NacosSources(List<Source> sources, Map<String, String> failures) {
+        this(sources, failures, Map.of());
+    }
+
+    /**
+     * @param clientProperties 来源名 -> 创建该来源客户端时使用的连接配置
+     */
+    public NacosSources(List<Source> sources, Map<String, String> failures, Map<String, Properties> clientProperties) {
+        Map<String, Source> byName = new LinkedHashMap<>();
+        for (Source source : sources) {
+            byName.put(source.name(), source);
+        }
+        this.sources = Collections.unmodifiableMap(byName);
+        this.failures = Map.copyOf(failures);
+        this.clientProperties = Map.copyOf(clientProperties);
+    }
+
+    /**
+     * 按配置创建各来源的客户端。没有配置 spring.monitoring.sources 时使用 spring.nacos 作为唯一的未命名来源。
+     * @param defaults spring.nacos 中的服务器地址、用户名和密码，作为各来源的默认值
+     * @throws NacosException 只有一个来源且创建失败
+     */
+    public static NacosSources create(MonitoringProperties monitoringProperties, MonitoringProperties.NacosSource defaults)
+            throws NacosException {
+        List<MonitoringProperties.NacosSource> configured = monitoringProperties.getSources().isEmpty()
+                ? List.of(new MonitoringProperties.NacosSource()) : monitoringProperties.getSources();
+        validate(configured);
+        List<Source> sources = new ArrayList<>();
+        Map<String, String> failures = new LinkedHashMap<>();
+        Map<String, Properties> clientProperties = new LinkedHashMap<>();
+        for (MonitoringProperties.NacosSource config : configured) {
+            Properties properties = new Properties();
+            properties.setProperty("serverAddr", orDefault(config.getServerAddr(), defaults.getServerAddr()));
+            properties.setProperty("username", orDefault(config.getUsername(), defaults.getUsername()));
+            properties.setProperty("password", orDefault(config.getPassword(), defaults.getPassword()));
+            if (!config.getNamespace().isEmpty()) {
+                properties.setProperty("namespace", config.getNamespace());
+            }
+            try {
+                NamingService namingService = NacosFactory.createNamingService(properties);
+                sources.add(new Source(config.getName(), config.getNamespace(), List.copyOf(config.getGroups()), namingService));
+                clientProperties.put(config.getName(), properties);
+            } catch (NacosException e) {
+                if (configured.size() == 1) {
+                    throw e;
+                }
+                failures.put(config.getName(), e.getMessage());
+                log.error("Failed to create Nacos client for source '{}' ({}), skipping it: {}",
+                        config.getName(), properties.getProperty("serverAddr"), e.getMessage(), e);
+            }
+        }
+        if (sources.isEmpty()) {
+            throw new IllegalStateException("Failed to create Nacos clients for all sources: " + failures);
+        }
+        log.info("Monitoring {} Nacos source(s): {}", sources.size(), sources.stream().map(Source::label).toList());
+        return new NacosSources(sources, failures, clientProperties);
+    }
+
+    private static void validate(List<MonitoringProperties.NacosSource> configured) {
+        Set<String> names = new HashSet<>();
+        for (MonitoringProperties.NacosSource config : configured) {
+            String name = config.getName();
+            if (name.contains(ServiceRef.SEPARATOR)) {
+                throw new IllegalStateException("Nacos source name must not contain '" + ServiceRef.SEPARATOR + "': " + name);
+            }
+            if (!names.add(name)) {
+                throw new IllegalStateException("Duplicate Nacos source name '" + name + "'");
+            }
+            if (config.getGroups().isEmpty()) {
+                throw new IllegalStateException("Nacos source '" + name + "' has no groups");
+            }
+        }
+    }
+
+    private static String orDefault(String value, String defaultValue) {
+        return value == null || value.isEmpty() ? defaultValue : value;
+    }
+
+    /**
+     * @return 可用的来源，按配置顺序排列
+     */
+    public List<Source> all() {
+        return List.copyOf(sources.values());
+    }
+
+    /**
+     * @return 指定名称的来源，不存在或创建失败时返回 null
+     */
+    public Source get(String name) {
+        return sources.get(name);
+    }
+
+    /**
+     * @return 第一个可用的来源，集群成员注册使用该来源
+     */
+    public Source primary() {
+        return sources.values().iterator().next();
+    }
+
+    /**
+     * @return 配置的全部来源名，包括创建失败的来源
+     */
+    public Set<String> getNames() {
+        Set<String> names = new LinkedHashSet<>(sources.keySet());
+        names.addAll(failures.keySet());
+        return names;
+    }
+
+    /**
+     * 其它 Nacos 客户端（如配置中心）复用来源的连接配置时使用。
+     * @return 创建该来源客户端时使用的服务器地址、命名空间、用户名和密码（副本）；
+     *         来源不存在或不是按配置创建（如压测的假 Nacos）时返回 null
+     */
+    public Properties getClientProperties(String name) {
+        Properties properties = clientProperties.get(name);
+        if (properties == null) {
+            return null;
+        }
+        Properties copy = new Properties();
+        copy.putAll(properties);
+        return copy;
+    }
+
+    /**
+     * @return 创建失败的来源及错误信息
+     */
+    public Map<String, String> getFailures() {
+        return failures;
+    }
+
+    public void shutdown() {
+        for (Source source : sources.values()) {
+            try {
+                source.namingService().shutDown();
+            } catch (NacosException | RuntimeException e) {
+                log.warn("Failed to shut down Nacos client for source '{}': {}", source.label(), e.getMessage());
+            }
+        }
+    }
+}
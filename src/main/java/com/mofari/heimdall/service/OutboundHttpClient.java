@@ -0,0 +1,248 @@
+package com.mofari.heimdall.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mofari.heimdall.config.MonitoringProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 对外 HTTP 调用（告警 Webhook、appinfo 接口）共用的客户端。
+ * <p>
+ * 基于 JDK {@link HttpClient}：按主机复用连接（keep-alive），HTTPS 下优先协商 HTTP/2，
+ * 连接和请求都有超时，卡住的 Webhook 不会无限期占用告警线程。
+ * 每个主机单独统计请求数、错误数、在途请求数和耗时。
+ */
+@Service
+public class OutboundHttpClient {
+
+    @Autowired
+    private MonitoringProperties monitoringProperties;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private HttpClient httpClient;
+    private ExecutorService executor;
+    private Duration requestTimeout;
+
+    private final Map<String, HostMetrics> hostMetrics = new ConcurrentHashMap<>();
+
+    /**
+     * 一次 HTTP 调用的结果。
+     *
+     * @param statusCode HTTP 状态码
+     * @param body       响应体
+     */
+    public record Response(int statusCode, String body) {
+
+        public boolean isSuccessful() {
+            return statusCode >= 200 && statusCode < 300;
+        }
+    }
+
+    /**
+     * 非 2xx 响应。
+     */
+    public static class HttpStatusException extends IOException {
+
+        private final int statusCode;
+
+        public HttpStatusException(String url, Response response) {
+            super("HTTP " + response.statusCode() + " from " + url);
+            this.statusCode = response.statusCode();
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        MonitoringProperties.OutboundHttp config = monitoringProperties.getOutboundHttp();
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, config.getExecutorThreads()), r -> {
+            Thread t = new Thread(r, "outbound-http-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.requestTimeout = Duration.ofMillis(config.getRequestTimeoutMillis());
+        this.httpClient = HttpClient.newBuilder()
+                .version(config.isHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(config.getConnectTimeoutMillis()))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(executor)
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 异步 GET。
+     * @return 响应，非 2xx 也会正常完成，由调用方判断
+     */
+    public CompletableFuture<Response> getAsync(String url) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(requestTimeout)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+        return send(request);
+    }
+
+    /**
+     * 异步 POST 一个 JSON 请求体。
+     * @param body 请求对象，使用 Jackson 序列化
+     * @return 响应，非 2xx 也会正常完成，由调用方判断
+     */
+    public CompletableFuture<Response> postJsonAsync(String url, Object body) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/json; charset=utf-8")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(json))
+                .build();
+        return send(request);
+    }
+
+    /**
+     * 同步 GET，等待时间不超过请求超时。
+     * @throws HttpStatusException 非 2xx 响应
+     */
+    public Response get(String url) throws IOException, InterruptedException {
+        return await(url, getAsync(url));
+    }
+
+    /**
+     * 同步 POST JSON，等待时间不超过请求超时。
+     * @throws HttpStatusException 非 2xx 响应
+     */
+    public Response postJson(String url, Object body) throws IOException, InterruptedException {
+        return await(url, postJsonAsync(url, body));
+    }
+
+    /**
+     * @return 每个主机的请求数、错误数、在途请求数及耗时
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> hosts = new TreeMap<>();
+        for (Map.Entry<String, HostMetrics> entry : hostMetrics.entrySet()) {
+            hosts.put(entry.getKey(), entry.getValue().toMap());
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("http2", monitoringProperties.getOutboundHttp().isHttp2());
+        stats.put("connectTimeoutMillis", monitoringProperties.getOutboundHttp().getConnectTimeoutMillis());
+        stats.put("requestTimeoutMillis", requestTimeout.toMillis());
+        stats.put("hosts", hosts);
+        return stats;
+    }
+
+    private CompletableFuture<Response> send(HttpRequest request) {
+        HostMetrics metrics = hostMetrics.computeIfAbsent(hostKey(request.uri()), k -> new HostMetrics());
+        long start = System.nanoTime();
+        metrics.inFlight.incrementAndGet();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .handle((response, error) -> {
+                    metrics.inFlight.decrementAndGet();
+                    boolean failed = error != null || response.statusCode() >= 400;
+                    metrics.record(System.nanoTime() - start, failed);
+                    if (error != null) {
+                        throw error instanceof CompletionException ce ? ce : new CompletionException(error);
+                    }
+                    return new Response(response.statusCode(), response.body());
+                });
+    }
+
+    private Response await(String url, CompletableFuture<Response> future) throws IOException, InterruptedException {
+        Response response;
+        try {
+            // HttpClient 自身的请求超时之外再留一点余量，保证调用线程一定会返回
+            response = future.get(requestTimeout.toMillis() + 1000, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new IOException("Request to " + url + " timed out", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Request to " + url + " failed: " + cause.getMessage(), cause);
+        }
+        if (!response.isSuccessful()) {
+            throw new HttpStatusException(url, response);
+        }
+        return response;
+    }
+
+    private static String hostKey(URI uri) {
+        int port = uri.getPort();
+        return port < 0 ? uri.getScheme() + "://" + uri.getHost() : uri.getScheme() + "://" + uri.getHost() + ":" + port;
+    }
+
+    /**
+     * 单个主机的调用统计。
+     */
+    private static final class HostMetrics {
+
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final LongAdder totalLatencyNanos = new LongAdder();
+        private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+        void record(long latencyNanos, boolean failed) {
+            requests.increment();
+            if (failed) {
+                errors.increment();
+            }
+            totalLatencyNanos.add(latencyNanos);
+            maxLatencyNanos.accumulateAndGet(latencyNanos, Math::max);
+        }
+
+        Map<String, Object> toMap() {
+            long count = requests.sum();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("requests", count);
+            map.put("errors", errors.sum());
+            map.put("inFlight", inFlight.get());
+            map.put("avgLatencyMillis", count == 0 ? 0 : totalLatencyNanos.sum() / count / 1_000_000d);
+            map.put("maxLatencyMillis", maxLatencyNanos.get() / 1_000_000d);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.mofari.heimdall.service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 简单的令牌桶限流器，线程安全。
+ * 令牌按固定速率生成，桶容量为 burst，空闲期间最多积攒 burst 个令牌。
+ */
+public class RateLimiter {
+
+    private final double permitsPerNano;
+    private final double burst;
+
+    private double tokens; // guarded by this
+    private long lastRefillNanos; // guarded by this
+
+    /**
+     * @param permitsPerSecond 每秒生成的令牌数，必须大于 0
+     * @param burst            桶容量，即允许的最大突发数
+     */
+    public RateLimiter(double permitsPerSecond, double burst) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive: " + permitsPerSecond);
+        }
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * 获取一个令牌，必要时阻塞等待。
+     * @throws InterruptedException 等待期间被中断
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos = reserve();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * 尝试立即获取一个令牌，不阻塞。
+     * @return 是否获取成功
+     */
+    public synchronized boolean tryAcquire() {
+        refill(System.nanoTime());
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return 距离下一个令牌可用还需要等待的纳秒数，当前有令牌时为 0
+     */
+    public synchronized long nanosUntilAvailable() {
+        refill(System.nanoTime());
+        return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / permitsPerNano);
+    }
+
+    /**
+     * 预订一个令牌：令牌可以透支，返回调用方需要等待的时间，保证整体速率不超过限制。
+     */
+    private synchronized long reserve() {
+        refill(System.nanoTime());
+        tokens -= 1;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / permitsPerNano);
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefillNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(burst, tokens + elapsed * permitsPerNano);
+            lastRefillNanos = now;
+        }
+    }
+}
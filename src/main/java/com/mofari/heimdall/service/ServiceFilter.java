@@ -0,0 +1,244 @@
+package com.mofari.heimdall.service;
+
+import com.mofari.heimdall.config.MonitoringProperties;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * 服务过滤规则编译后的匹配器，不可变，可在多线程间共享；规则变化时整体替换。
+ * <p>
+ * 判断顺序：精确白名单 → 排除关键词 → 排除规则 → 包含规则（为空表示不限）。
+ * 排除关键词编译成一个 Aho-Corasick 自动机，服务名只扫描一遍，匹配时逐字符转小写，不分配新字符串；
+ * 包含和排除规则各自合并成一个正则表达式。
+ */
+public final class ServiceFilter {
+
+    static final String REGEX_PREFIX = "regex:";
+
+    private final Set<String> whitelist;
+    private final KeywordMatcher keywords;
+    private final Pattern include;
+    private final Pattern exclude;
+
+    private ServiceFilter(Set<String> whitelist, KeywordMatcher keywords, Pattern include, Pattern exclude) {
+        this.whitelist = whitelist;
+        this.keywords = keywords;
+        this.include = include;
+        this.exclude = exclude;
+    }
+
+    /**
+     * 根据配置编译过滤规则。
+     * @throws IllegalArgumentException 正则表达式无效
+     */
+    public static ServiceFilter compile(MonitoringProperties properties) {
+        return new ServiceFilter(Set.copyOf(properties.getWhitelistServices()),
+                KeywordMatcher.of(properties.getExcludeServiceKeywords()),
+                union(properties.getIncludeServicePatterns()),
+                union(properties.getExcludeServicePatterns()));
+    }
+
+    /**
+     * @return 服务是否需要监控
+     */
+    public boolean matches(String serviceName) {
+        if (whitelist.contains(serviceName) || keywords.containsAny(serviceName)) {
+            return false;
+        }
+        if (exclude != null && exclude.matcher(serviceName).matches()) {
+            return false;
+        }
+        return include == null || include.matcher(serviceName).matches();
+    }
+
+    /**
+     * 把多条规则合并成一个正则表达式。
+     * @return 没有规则时返回 null
+     */
+    private static Pattern union(Collection<String> rules) {
+        if (rules.isEmpty()) {
+            return null;
+        }
+        StringBuilder regex = new StringBuilder();
+        for (String rule : rules) {
+            if (regex.length() > 0) {
+                regex.append('|');
+            }
+            String expression = rule.startsWith(REGEX_PREFIX) ? rule.substring(REGEX_PREFIX.length()) : globToRegex(rule);
+            try {
+                Pattern.compile(expression);
+            } catch (PatternSyntaxException e) {
+                throw new IllegalArgumentException("Invalid service pattern '" + rule + "': " + e.getDescription(), e);
+            }
+            regex.append("(?:").append(expression).append(')');
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    /**
+     * 把通配符（* 匹配任意字符串，? 匹配单个字符）转换为正则表达式。
+     */
+    static String globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        int start = 0;
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*' || c == '?') {
+                if (i > start) {
+                    regex.append(Pattern.quote(glob.substring(start, i)));
+                }
+                regex.append(c == '*' ? ".*" : ".");
+                start = i + 1;
+            }
+        }
+        if (start < glob.length()) {
+            regex.append(Pattern.quote(glob.substring(start)));
+        }
+        return regex.toString();
+    }
+
+    /**
+     * 忽略大小写的多关键词匹配（Aho-Corasick）。
+     * 每个节点的子节点按字符排序存放，查找用二分；失败指针和输出标记在构建时预先计算。
+     */
+    static final class KeywordMatcher {
+
+        private static final KeywordMatcher EMPTY = new KeywordMatcher(new char[][]{{}}, new int[][]{{}}, new int[]{0}, new boolean[]{false});
+
+        private final char[][] labels;
+        private final int[][] children;
+        private final int[] fail;
+        private final boolean[] terminal;
+
+        private KeywordMatcher(char[][] labels, int[][] children, int[] fail, boolean[] terminal) {
+            this.labels = labels;
+            this.children = children;
+            this.fail = fail;
+            this.terminal = terminal;
+        }
+
+        static KeywordMatcher of(Collection<String> keywords) {
+            // 先用可变结构建 trie，再压缩为数组
+            List<Node> nodes = new ArrayList<>();
+            nodes.add(new Node());
+            boolean any = false;
+            for (String keyword : keywords) {
+                if (keyword == null || keyword.isEmpty()) {
+                    continue;
+                }
+                int state = 0;
+                for (int i = 0; i < keyword.length(); i++) {
+                    char c = Character.toLowerCase(keyword.charAt(i));
+                    Node node = nodes.get(state);
+                    int next = node.child(c);
+                    if (next < 0) {
+                        next = nodes.size();
+                        nodes.add(new Node());
+                        node.add(c, next);
+                    }
+                    state = next;
+                }
+                nodes.get(state).terminal = true;
+                any = true;
+            }
+            if (!any) {
+                return EMPTY;
+            }
+
+            int size = nodes.size();
+            char[][] labels = new char[size][];
+            int[][] children = new int[size][];
+            int[] fail = new int[size];
+            boolean[] terminal = new boolean[size];
+            for (int i = 0; i < size; i++) {
+                Node node = nodes.get(i);
+                Integer[] order = new Integer[node.labels.size()];
+                for (int k = 0; k < order.length; k++) {
+                    order[k] = k;
+                }
+                Arrays.sort(order, (a, b) -> Character.compare(node.labels.get(a), node.labels.get(b)));
+                labels[i] = new char[order.length];
+                children[i] = new int[order.length];
+                for (int k = 0; k < order.length; k++) {
+                    labels[i][k] = node.labels.get(order[k]);
+                    children[i][k] = node.targets.get(order[k]);
+                }
+                terminal[i] = node.terminal;
+            }
+            KeywordMatcher matcher = new KeywordMatcher(labels, children, fail, terminal);
+
+            // 按层遍历计算失败指针，后缀是关键词的节点同样视为命中
+            Deque<Integer> queue = new ArrayDeque<>();
+            for (int child : children[0]) {
+                queue.add(child);
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                for (int k = 0; k < labels[state].length; k++) {
+                    char c = labels[state][k];
+                    int child = children[state][k];
+                    int f = fail[state];
+                    int target;
+                    while ((target = matcher.child(f, c)) < 0 && f != 0) {
+                        f = fail[f];
+                    }
+                    fail[child] = target >= 0 ? target : 0;
+                    terminal[child] |= terminal[fail[child]];
+                    queue.add(child);
+                }
+            }
+            return matcher;
+        }
+
+        /**
+         * @return 文本是否包含任一关键词（忽略大小写）
+         */
+        boolean containsAny(CharSequence text) {
+            if (terminal.length == 1) {
+                return false;
+            }
+            int state = 0;
+            for (int i = 0; i < text.length(); i++) {
+                char c = Character.toLowerCase(text.charAt(i));
+                int next;
+                while ((next = child(state, c)) < 0 && state != 0) {
+                    state = fail[state];
+                }
+                state = next < 0 ? 0 : next;
+                if (terminal[state]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int child(int state, char c) {
+            int index = Arrays.binarySearch(labels[state], c);
+            return index < 0 ? -1 : children[state][index];
+        }
+
+        private static final class Node {
+            final List<Character> labels = new ArrayList<>();
+            final List<Integer> targets = new ArrayList<>();
+            boolean terminal;
+
+            int child(char c) {
+                int index = labels.indexOf(c);
+                return index < 0 ? -1 : targets.get(index);
+            }
+
+            void add(char c, int target) {
+                labels.add(c);
+                targets.add(target);
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.mofari.heimdall.service;
+
+/**
+ * 服务ID与 Nacos 来源、分组、服务名之间的转换。
+ * <p>
+ * 服务ID沿用 Nacos 分组服务名的 {@code @@} 分隔符：命名来源下为 {@code 来源@@分组@@服务名}；
+ * 未命名的来源（只配置了 spring.nacos 时）为 {@code 分组@@服务名}，默认分组再省略分组，
+ * 因此单一来源、默认分组下的服务ID仍是原来的 Nacos 服务名，状态日志和历史记录无需迁移。
+ * Nacos 的服务名和分组名都不允许包含 {@code @@}，来源名同样不允许，解析没有歧义。
+ *
+ * @param source 来源名，未命名的来源为空字符串
+ * @param group  Nacos 分组
+ * @param name   Nacos 服务名
+ */
+public record ServiceRef(String source, String group, String name) {
+
+    public static final String DEFAULT_GROUP = "DEFAULT_GROUP";
+
+    static final String SEPARATOR = "@@";
+
+    /**
+     * @return 服务ID
+     */
+    public String id() {
+        if (!source.isEmpty()) {
+            return source + SEPARATOR + group + SEPARATOR + name;
+        }
+        return DEFAULT_GROUP.equals(group) ? name : group + SEPARATOR + name;
+    }
+
+    /**
+     * 解析服务ID。
+     */
+    public static ServiceRef parse(String serviceId) {
+        int first = serviceId.indexOf(SEPARATOR);
+        if (first < 0) {
+            return new ServiceRef("", DEFAULT_GROUP, serviceId);
+        }
+        int second = serviceId.indexOf(SEPARATOR, first + SEPARATOR.length());
+        if (second < 0) {
+            return new ServiceRef("", serviceId.substring(0, first), serviceId.substring(first + SEPARATOR.length()));
+        }
+        return new ServiceRef(serviceId.substring(0, first), serviceId.substring(first + SEPARATOR.length(), second),
+                serviceId.substring(second + SEPARATOR.length()));
+    }
+
+    /**
+     * @return 服务ID所属的来源名，未命名的来源为空字符串
+     */
+    public static String sourceOf(String serviceId) {
+        int first = serviceId.indexOf(SEPARATOR);
+        if (first < 0 || serviceId.indexOf(SEPARATOR, first + SEPARATOR.length()) < 0) {
+            return "";
+        }
+        return serviceId.substring(0, first);
+    }
+}
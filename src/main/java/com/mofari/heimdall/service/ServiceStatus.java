@@ -0,0 +1,26 @@
+package com.mofari.heimdall.service;
+
+/**
+ * 服务的总体状态。
+ */
+public enum ServiceStatus {
+    /** 尚未收到任何实例数据 */
+    UNKNOWN,
+    /** 所有实例健康 */
+    RUNNING,
+    /** 部分实例不健康 */
+    DEGRADED,
+    /** 所有实例都不健康 */
+    DOWN,
+    /** 目标集群中没有实例 */
+    OFFLINE,
+    /** 短时间内状态反复变化，暂停告警直到稳定 */
+    FLAPPING;
+
+    /**
+     * @return 是否为需要经过确认（滞后）才提交的严重状态
+     */
+    public boolean isSevere() {
+        return this == DOWN || this == OFFLINE;
+    }
+}
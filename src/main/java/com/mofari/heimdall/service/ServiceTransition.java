@@ -0,0 +1,21 @@
+package com.mofari.heimdall.service;
+
+/**
+ * 一次需要通知的服务状态变更（宕机或恢复）。
+ *
+ * @param serviceId   服务ID，见 {@link ServiceRef}
+ * @param displayName 展示名，同时用于查询负责人
+ * @param oldStatus   变更前状态
+ * @param newStatus   变更后状态
+ * @param level       告警级别，DOWN 或 RECOVERY
+ * @param occurredAt  发生时间（毫秒时间戳）
+ * @param instances   变更时的实例概况，如 "3/8 个实例不健康：10.0.4.1:8080, ..."，可能为 null
+ */
+public record ServiceTransition(String serviceId,
+                                String displayName,
+                                String oldStatus,
+                                String newStatus,
+                                AlertLevel level,
+                                long occurredAt,
+                                String instances) {
+}
@@ -0,0 +1,200 @@
+package com.mofari.heimdall.service;
+
+import com.mofari.heimdall.config.MonitoringProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 分片的单写者事件处理引擎。
+ * <p>
+ * 按服务ID哈希到固定数量的分片，每个分片只有一个线程，同一个服务的所有处理（Nacos 推送、抖动抑制计时、
+ * 订阅与清理）都在同一个线程上按顺序执行，因此处理逻辑本身不需要任何锁。
+ * 通过 {@link #executeLatest} 提交的任务在排队期间会被同一服务的新任务替换，积压时只处理最新的实例列表。
+ */
+@Service
+public class ShardedEventProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedEventProcessor.class);
+
+    @Autowired
+    private MonitoringProperties monitoringProperties;
+
+    private Shard[] shards;
+
+    @PostConstruct
+    public void init() {
+        int count = monitoringProperties.getEventProcessing().getShards();
+        if (count <= 0) {
+            count = Runtime.getRuntime().availableProcessors();
+        }
+        this.shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new Shard(i);
+            shards[i].thread.start();
+        }
+        logger.info("Event processor started with {} shards.", count);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (Shard shard : shards) {
+            shard.running = false;
+            shard.thread.interrupt();
+        }
+        for (Shard shard : shards) {
+            shard.thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    /**
+     * 在服务所属的分片上执行任务，同一服务的任务严格按提交顺序执行。
+     */
+    public void execute(String serviceId, Runnable task) {
+        shardFor(serviceId).enqueue(task);
+    }
+
+    /**
+     * 在服务所属的分片上执行任务；如果该服务已有尚未执行的同类任务，用新任务替换它。
+     */
+    public void executeLatest(String serviceId, Runnable task) {
+        Shard shard = shardFor(serviceId);
+        if (shard.latest.put(serviceId, task) == null) {
+            shard.enqueue(() -> {
+                Runnable pending = shard.latest.remove(serviceId);
+                if (pending != null) {
+                    pending.run();
+                }
+            });
+        } else {
+            shard.coalesced.increment();
+        }
+    }
+
+    /**
+     * @return 分片数量
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * @return 每个分片的队列深度、处理数量、合并数量以及排队和处理耗时
+     */
+    public Map<String, Object> getStats() {
+        List<Map<String, Object>> shardStats = new ArrayList<>(shards.length);
+        long queued = 0;
+        for (Shard shard : shards) {
+            Map<String, Object> stats = shard.stats();
+            queued += shard.queue.size();
+            shardStats.add(stats);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("shardCount", shards.length);
+        result.put("queued", queued);
+        result.put("shards", shardStats);
+        return result;
+    }
+
+    private Shard shardFor(String serviceId) {
+        // 再做一次哈希扰动，避免服务名的哈希低位分布不均
+        int h = serviceId.hashCode();
+        h ^= (h >>> 16);
+        return shards[Math.floorMod(h, shards.length)];
+    }
+
+    private record Task(Runnable runnable, long enqueuedNanos) {
+    }
+
+    private static final class Shard implements Runnable {
+
+        private final int index;
+        private final Thread thread;
+        private final BlockingQueue<Task> queue = new LinkedBlockingQueue<>();
+        // 服务ID -> 尚未执行的最新任务
+        private final Map<String, Runnable> latest = new ConcurrentHashMap<>();
+        private final LongAdder coalesced = new LongAdder();
+        private volatile boolean running = true;
+
+        // 以下统计只由分片线程写入
+        private volatile long processed;
+        private volatile long failed;
+        private volatile long totalWaitNanos;
+        private volatile long totalRunNanos;
+        private volatile long maxWaitNanos;
+        private volatile long maxRunNanos;
+
+        private Shard(int index) {
+            this.index = index;
+            this.thread = new Thread(this, "event-shard-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        void enqueue(Runnable runnable) {
+            queue.add(new Task(runnable, System.nanoTime()));
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                Task task;
+                try {
+                    task = queue.take();
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        return;
+                    }
+                    continue;
+                }
+                long start = System.nanoTime();
+                try {
+                    task.runnable().run();
+                } catch (Throwable t) {
+                    failed++;
+                    logger.error("Event processing failed on shard {}: {}", index, t.getMessage(), t);
+                }
+                long end = System.nanoTime();
+                long wait = start - task.enqueuedNanos();
+                long took = end - start;
+                totalWaitNanos += wait;
+                totalRunNanos += took;
+                if (wait > maxWaitNanos) {
+                    maxWaitNanos = wait;
+                }
+                if (took > maxRunNanos) {
+                    maxRunNanos = took;
+                }
+                processed++;
+            }
+        }
+
+        Map<String, Object> stats() {
+            long count = processed;
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("shard", index);
+            stats.put("queueDepth", queue.size());
+            stats.put("pendingServices", latest.size());
+            stats.put("processed", count);
+            stats.put("coalesced", coalesced.sum());
+            stats.put("failed", failed);
+            stats.put("avgWaitMicros", count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalWaitNanos / count));
+            stats.put("maxWaitMicros", TimeUnit.NANOSECONDS.toMicros(maxWaitNanos));
+            stats.put("avgProcessMicros", count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalRunNanos / count));
+            stats.put("maxProcessMicros", TimeUnit.NANOSECONDS.toMicros(maxRunNanos));
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,380 @@
+package com.mofari.heimdall.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.mofari.heimdall.config.MonitoringProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 每个服务的状态变化历史，以及基于历史的可用率、故障次数和 MTTR 统计。
+ * <p>
+ * 每个服务只保存最近若干次状态变化，使用两个并行的原始类型数组（时间戳 long[]、状态 byte[]）组成环形缓冲区，
+ * 不为每个事件创建对象，单个服务占用的内存有固定上限（容量 × 9 字节）。
+ * 只记录状态（status）的变化，实例数的变化不计入历史。
+ * <p>
+ * DOWN、OFFLINE 计为不可用，UNKNOWN 期间不计入统计区间，其它状态计为可用。
+ * <p>
+ * 启用状态日志时，历史定期（以及关闭时）保存在同一目录下，重启后继续累积。保存时记录保存时刻，
+ * 加载时在该时刻为每个服务补一条 UNKNOWN，恢复出的状态从重启时刻重新计入，
+ * 因此 Heimdall 自身停机的时段不计入统计区间，不会抬高可用率或压低 MTTR。
+ */
+@Service
+public class StatusHistory implements StatusListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatusHistory.class);
+
+    private static final ServiceStatus[] STATUSES = ServiceStatus.values();
+    private static final String HISTORY_FILE = "status.history";
+    private static final int HISTORY_MAGIC = 0x48445332; // "HDS2"，带保存时刻
+    private static final int LEGACY_HISTORY_MAGIC = 0x48445348; // "HDSH"，以文件修改时间作为保存时刻
+
+    @Autowired
+    private AppStatusStore appStatusStore;
+
+    @Autowired
+    private MonitoringProperties monitoringProperties;
+
+    private final Map<String, Ring> histories = new ConcurrentHashMap<>();
+
+    private int capacity;
+
+    /**
+     * 时间线上的一段。
+     */
+    public record Segment(long from, long to, ServiceStatus status) {
+    }
+
+    /**
+     * 服务在一段时间内的可用性统计。
+     *
+     * @param id             服务ID
+     * @param name           展示名
+     * @param from           统计区间起点（毫秒时间戳）
+     * @param to             统计区间终点
+     * @param observedMillis 区间内状态已知的时长
+     * @param downMillis     区间内不可用的时长
+     * @param uptimePercent  可用率，状态已知的时长为 0 时为 null
+     * @param incidents      区间内发生（或延续）的故障次数
+     * @param mttrMillis     区间内已恢复故障的平均恢复时间，没有已恢复的故障时为 null
+     * @param durations      区间内各状态的持续时长
+     * @param timeline       时间线，仅单个服务的查询返回
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Availability(String id,
+                               String name,
+                               long from,
+                               long to,
+                               long observedMillis,
+                               long downMillis,
+                               Double uptimePercent,
+                               int incidents,
+                               Long mttrMillis,
+                               Map<ServiceStatus, Long> durations,
+                               List<Segment> timeline) {
+    }
+
+    @PostConstruct
+    public void init() {
+        this.capacity = Math.max(2, monitoringProperties.getHistory().getCapacity());
+        if (monitoringProperties.getJournal().isEnabled()) {
+            load(historyFile());
+        }
+        appStatusStore.addListener(this);
+    }
+
+    /**
+     * 定期把历史写入状态日志目录，重启后继续累积。
+     */
+    @Scheduled(fixedDelayString = "${spring.monitoring.journal.snapshot-interval-millis:300000}",
+            initialDelayString = "${spring.monitoring.journal.snapshot-interval-millis:300000}")
+    @PreDestroy
+    public void save() {
+        if (!monitoringProperties.getJournal().isEnabled()) {
+            return;
+        }
+        Path file = historyFile();
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(HISTORY_MAGIC);
+                out.writeLong(System.currentTimeMillis());
+                out.writeInt(histories.size());
+                for (Map.Entry<String, Ring> entry : histories.entrySet()) {
+                    long[] times;
+                    byte[] statuses;
+                    synchronized (entry.getValue()) {
+                        times = entry.getValue().times();
+                        statuses = entry.getValue().statuses();
+                    }
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(times.length);
+                    for (int i = 0; i < times.length; i++) {
+                        out.writeLong(times[i]);
+                        out.writeByte(statuses[i]);
+                    }
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Failed to save status history to {}: {}", file, e.getMessage());
+        }
+    }
+
+    private void load(Path file) {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int magic = in.readInt();
+            long savedAt;
+            if (magic == HISTORY_MAGIC) {
+                savedAt = in.readLong();
+            } else if (magic == LEGACY_HISTORY_MAGIC) {
+                savedAt = Files.getLastModifiedTime(file).toMillis();
+            } else {
+                logger.warn("Ignoring status history with unknown format: {}", file);
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String id = in.readUTF();
+                int n = in.readInt();
+                Ring ring = new Ring(capacity);
+                for (int j = 0; j < n; j++) {
+                    ring.add(in.readLong(), STATUSES[in.readByte()]);
+                }
+                // 保存之后到重启之前的状态未知
+                ring.add(Math.max(savedAt, ring.lastTime()), ServiceStatus.UNKNOWN);
+                histories.put(id, ring);
+            }
+            logger.info("Loaded status history for {} services.", count);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to load status history from {}: {}", file, e.getMessage());
+            histories.clear();
+        }
+    }
+
+    private Path historyFile() {
+        return Paths.get(monitoringProperties.getJournal().getDirectory(), HISTORY_FILE);
+    }
+
+    @Override
+    public void onStatusUpdated(AppStatus previous, AppStatus status) {
+        if (previous != null && previous.status() == status.status()) {
+            return;
+        }
+        histories.computeIfAbsent(status.id(), k -> new Ring(capacity)).add(status.lastChangeTime(), status.status());
+    }
+
+    /**
+     * 恢复出的状态是停机前最后已知的状态，从重启时刻起重新计入；之后 Nacos 的实时数据会按正常的变化修正。
+     */
+    @Override
+    public void onRestored(List<AppStatus> statuses, long sequence) {
+        long now = System.currentTimeMillis();
+        for (AppStatus status : statuses) {
+            Ring ring = histories.computeIfAbsent(status.id(), k -> new Ring(capacity));
+            ring.add(Math.max(now, ring.lastTime()), status.status());
+        }
+    }
+
+    @Override
+    public void onStatusRemoved(AppStatus removed, long sequence) {
+        histories.remove(removed.id());
+    }
+
+    /**
+     * 单个服务在指定区间内的统计和时间线。
+     * @return 统计结果，服务不存在时返回 null
+     */
+    public Availability getAvailability(String serviceId, long from, long to) {
+        Ring ring = histories.get(serviceId);
+        AppStatus current = appStatusStore.getStatus(serviceId);
+        if (ring == null || current == null) {
+            return null;
+        }
+        return compute(current, ring, from, to, true);
+    }
+
+    /**
+     * 所有服务在指定区间内的统计（不含时间线），按可用率从低到高排序。
+     */
+    public List<Availability> getAllAvailability(long from, long to) {
+        List<Availability> result = new ArrayList<>(histories.size());
+        for (Map.Entry<String, Ring> entry : histories.entrySet()) {
+            AppStatus current = appStatusStore.getStatus(entry.getKey());
+            if (current != null) {
+                result.add(compute(current, entry.getValue(), from, to, false));
+            }
+        }
+        result.sort(Comparator.comparing((Availability a) -> a.uptimePercent() == null ? 101 : a.uptimePercent())
+                .thenComparing(Availability::id));
+        return result;
+    }
+
+    private static Availability compute(AppStatus current, Ring ring, long from, long to, boolean withTimeline) {
+        long[] times;
+        byte[] statuses;
+        synchronized (ring) {
+            times = ring.times();
+            statuses = ring.statuses();
+        }
+        long now = System.currentTimeMillis();
+        int n = times.length;
+
+        long[] durations = new long[STATUSES.length];
+        List<Segment> timeline = withTimeline ? new ArrayList<>() : null;
+        for (int i = 0; i < n; i++) {
+            long start = Math.max(times[i], from);
+            long end = Math.min(i + 1 < n ? times[i + 1] : Math.max(now, times[i]), to);
+            if (start < end) {
+                ServiceStatus status = STATUSES[statuses[i]];
+                durations[status.ordinal()] += end - start;
+                if (timeline != null) {
+                    timeline.add(new Segment(start, end, status));
+                }
+            }
+        }
+
+        // 故障：进入 DOWN/OFFLINE 到恢复为其它已知状态为止，期间在 DOWN 和 OFFLINE 之间切换仍算同一次
+        int incidents = 0;
+        long repairTotal = 0;
+        int repaired = 0;
+        for (int i = 0; i < n; i++) {
+            if (!STATUSES[statuses[i]].isSevere() || (i > 0 && STATUSES[statuses[i - 1]].isSevere())) {
+                continue;
+            }
+            long start = times[i];
+            Long end = null;
+            for (int j = i + 1; j < n; j++) {
+                ServiceStatus next = STATUSES[statuses[j]];
+                if (!next.isSevere() && next != ServiceStatus.UNKNOWN) {
+                    end = times[j];
+                    break;
+                }
+            }
+            if (start < to && (end == null || end > from)) {
+                incidents++;
+            }
+            if (end != null && end >= from && end <= to) {
+                repairTotal += end - start;
+                repaired++;
+            }
+        }
+
+        long observed = 0;
+        long down = 0;
+        Map<ServiceStatus, Long> durationMap = new EnumMap<>(ServiceStatus.class);
+        for (ServiceStatus status : STATUSES) {
+            long d = durations[status.ordinal()];
+            if (d > 0) {
+                durationMap.put(status, d);
+            }
+            if (status != ServiceStatus.UNKNOWN) {
+                observed += d;
+                if (status.isSevere()) {
+                    down += d;
+                }
+            }
+        }
+        Double uptime = observed == 0 ? null : Math.round((observed - down) * 100_000.0 / observed) / 1000.0;
+        Long mttr = repaired == 0 ? null : repairTotal / repaired;
+        return new Availability(current.id(), current.name(), from, to, observed, down, uptime, incidents, mttr,
+                durationMap, timeline);
+    }
+
+    /**
+     * 单个服务的状态变化环形缓冲区，按需扩容，最大为 capacity。写入在状态存储按序投递的监听回调中进行，读取时对自身加锁复制。
+     */
+    private static final class Ring {
+
+        private final int capacity;
+        private long[] times;
+        private byte[] statuses;
+        private int head; // 最旧记录的下标
+        private int size;
+
+        private Ring(int capacity) {
+            this.capacity = capacity;
+            int initial = Math.min(8, capacity);
+            this.times = new long[initial];
+            this.statuses = new byte[initial];
+        }
+
+        synchronized void add(long time, ServiceStatus status) {
+            // 状态未变化时不重复记录
+            if (size > 0 && statuses[(head + size - 1) % statuses.length] == status.ordinal()) {
+                return;
+            }
+            if (size == times.length && times.length < capacity) {
+                int grown = Math.min(capacity, times.length * 2);
+                times = Arrays.copyOf(times(), grown);
+                statuses = Arrays.copyOf(statuses(), grown);
+                head = 0;
+            }
+            int index;
+            if (size < times.length) {
+                index = (head + size) % times.length;
+                size++;
+            } else {
+                // 已满，覆盖最旧的记录
+                index = head;
+                head = (head + 1) % times.length;
+            }
+            times[index] = time;
+            statuses[index] = (byte) status.ordinal();
+        }
+
+        /**
+         * @return 最近一条记录的时间，没有记录时为 0
+         */
+        synchronized long lastTime() {
+            return size == 0 ? 0 : times[(head + size - 1) % times.length];
+        }
+
+        /**
+         * @return 按时间顺序排列的时间戳副本
+         */
+        long[] times() {
+            long[] copy = new long[size];
+            for (int i = 0; i < size; i++) {
+                copy[i] = times[(head + i) % times.length];
+            }
+            return copy;
+        }
+
+        /**
+         * @return 按时间顺序排列的状态副本
+         */
+        byte[] statuses() {
+            byte[] copy = new byte[size];
+            for (int i = 0; i < size; i++) {
+                copy[i] = statuses[(head + i) % statuses.length];
+            }
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,440 @@
+package com.mofari.heimdall.service;
+
+import com.mofari.heimdall.config.MonitoringProperties;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+/**
+ * 本地状态日志，用于重启后恢复状态。
+ * <p>
+ * 状态存储的每次写入（和删除）在监听回调中只做一次入队，由后台线程按批追加到内存映射的日志文件；
+ * 日志写满或到达快照间隔时，把当前全量状态写成快照文件（先写临时文件再原子替换），然后清空日志。
+ * <p>
+ * 启动时先加载快照，再重放日志中序号更大的记录，恢复 {@link AppStatusStore}（含全局序号）。
+ * 之后 Nacos 的实时数据与恢复出的状态不一致时会按正常的状态变更处理并告警，
+ * 因此重启期间宕掉的服务不会因为 UNKNOWN -> DOWN 不告警而被漏报。
+ * <p>
+ * 日志记录格式：[int 长度][int CRC32][正文]，长度最后写入，长度为 0 表示日志结束，CRC 不匹配的记录（写了一半）被丢弃。
+ */
+@Service
+public class StatusJournal implements StatusListener, SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatusJournal.class);
+
+    private static final String JOURNAL_FILE = "status.journal";
+    private static final String SNAPSHOT_FILE = "status.snapshot";
+    private static final int SNAPSHOT_MAGIC = 0x48445353; // "HDSS"
+    private static final int FORMAT_VERSION = 1;
+    private static final byte TYPE_UPDATE = 1;
+    private static final byte TYPE_REMOVE = 2;
+    private static final int RECORD_HEADER = 8;
+
+    private static final ServiceStatus[] STATUSES = ServiceStatus.values();
+
+    @Autowired
+    private AppStatusStore appStatusStore;
+
+    @Autowired
+    private MonitoringProperties monitoringProperties;
+
+    private final ConcurrentLinkedQueue<Object> pending = new ConcurrentLinkedQueue<>();
+
+    private MonitoringProperties.Journal config;
+    private Path directory;
+    private FileChannel journalChannel;
+    private MappedByteBuffer journal;
+    private Thread writer;
+    private volatile boolean running;
+
+    // 以下统计只由写线程写入
+    private volatile long recordsWritten;
+    private volatile long compactions;
+    private volatile long lastSnapshotAt;
+    private volatile long lastFlushMicros;
+    private volatile int restoredServices;
+    private volatile long restoreMillis;
+    private final AtomicInteger queued = new AtomicInteger();
+
+    /**
+     * 删除记录。
+     */
+    private record Removal(String id, long sequence) {
+    }
+
+    /**
+     * 所有单例初始化完成后再恢复，保证其它监听器（看板推送、全局健康度）都已注册，能收到恢复出的状态。
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        this.config = monitoringProperties.getJournal();
+        if (!config.isEnabled()) {
+            return;
+        }
+        try {
+            this.directory = Paths.get(config.getDirectory());
+            Files.createDirectories(directory);
+            restore();
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to open status journal in '{}', journaling disabled: {}", config.getDirectory(), e.getMessage(), e);
+            return;
+        }
+        appStatusStore.addListener(this);
+        this.running = true;
+        this.writer = new Thread(this::writeLoop, "status-journal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        // 不能用 interrupt，中断会关闭正在写入的 FileChannel
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    @Override
+    public void onStatusUpdated(AppStatus previous, AppStatus status) {
+        pending.add(status);
+        queued.incrementAndGet();
+    }
+
+    @Override
+    public void onStatusRemoved(AppStatus removed, long sequence) {
+        pending.add(new Removal(removed.id(), sequence));
+        queued.incrementAndGet();
+    }
+
+    /**
+     * @return 日志的写入量、压缩次数及恢复耗时
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", running);
+        stats.put("directory", directory == null ? null : directory.toAbsolutePath().toString());
+        stats.put("queued", queued.get());
+        stats.put("recordsWritten", recordsWritten);
+        MappedByteBuffer buffer = journal;
+        stats.put("journalBytes", buffer == null ? 0 : buffer.position());
+        stats.put("journalCapacity", buffer == null ? 0 : buffer.capacity());
+        stats.put("compactions", compactions);
+        stats.put("lastSnapshotAt", lastSnapshotAt);
+        stats.put("lastFlushMicros", lastFlushMicros);
+        stats.put("restoredServices", restoredServices);
+        stats.put("restoreMillis", restoreMillis);
+        return stats;
+    }
+
+    // ---------------------------------------------------------------- 恢复
+
+    private void restore() throws IOException {
+        long start = System.nanoTime();
+        Map<String, AppStatus> statuses = new LinkedHashMap<>();
+        long snapshotSequence = readSnapshot(directory.resolve(SNAPSHOT_FILE), statuses);
+        long maxSequence = snapshotSequence;
+
+        this.journalChannel = FileChannel.open(directory.resolve(JOURNAL_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // 调小配置后已有日志可能比配置更大，按实际大小映射以免丢失尾部记录
+        long mappedSize = Math.max(journalChannel.size(), config.getMappedSizeBytes());
+        this.journal = journalChannel.map(FileChannel.MapMode.READ_WRITE, 0, mappedSize);
+
+        int replayed = 0;
+        while (true) {
+            int position = journal.position();
+            Object record = readRecord(journal);
+            if (record == null) {
+                // 日志末尾，或写了一半的记录：从这里开始继续追加
+                journal.position(position);
+                clearFrom(position);
+                break;
+            }
+            if (record instanceof AppStatus status) {
+                if (status.version() > snapshotSequence) {
+                    statuses.put(status.id(), status);
+                    replayed++;
+                }
+                maxSequence = Math.max(maxSequence, status.version());
+            } else if (record instanceof Removal removal) {
+                if (removal.sequence() > snapshotSequence) {
+                    statuses.remove(removal.id());
+                    replayed++;
+                }
+                maxSequence = Math.max(maxSequence, removal.sequence());
+            }
+        }
+
+        appStatusStore.restore(new ArrayList<>(statuses.values()), maxSequence);
+        this.restoredServices = statuses.size();
+        this.restoreMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        logger.info("Restored {} service statuses (snapshot seq {}, {} journal records, seq {}) in {} ms.",
+                statuses.size(), snapshotSequence, replayed, maxSequence, restoreMillis);
+    }
+
+    private long readSnapshot(Path file, Map<String, AppStatus> statuses) {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (buffer.remaining() < 20 || buffer.getInt() != SNAPSHOT_MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                logger.warn("Ignoring status snapshot with unknown format: {}", file);
+                return 0;
+            }
+            long sequence = buffer.getLong();
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                Object record = readRecord(buffer);
+                if (!(record instanceof AppStatus status)) {
+                    logger.warn("Status snapshot {} is corrupted, ignoring it.", file);
+                    statuses.clear();
+                    return 0;
+                }
+                statuses.put(status.id(), status);
+            }
+            return sequence;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to read status snapshot {}: {}", file, e.getMessage());
+            statuses.clear();
+            return 0;
+        }
+    }
+
+    // ---------------------------------------------------------------- 写入
+
+    private void writeLoop() {
+        long nextSnapshot = System.currentTimeMillis() + config.getSnapshotIntervalMillis();
+        // 关闭时写完剩余记录再退出
+        while (true) {
+            if (running) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(config.getFlushIntervalMillis()));
+            }
+            boolean stopping = !running;
+            try {
+                flush();
+                if (System.currentTimeMillis() >= nextSnapshot) {
+                    compact();
+                    nextSnapshot = System.currentTimeMillis() + config.getSnapshotIntervalMillis();
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.error("Status journal write failed: {}", e.getMessage(), e);
+            }
+            if (stopping) {
+                break;
+            }
+        }
+        try {
+            journal.force();
+            journalChannel.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close status journal: {}", e.getMessage());
+        }
+    }
+
+    private void flush() throws IOException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        int written = 0;
+        Object record;
+        while ((record = pending.poll()) != null) {
+            queued.decrementAndGet();
+            byte[] body = encode(record);
+            if (journal.remaining() < RECORD_HEADER + body.length + 4) {
+                compact();
+                if (journal.remaining() < RECORD_HEADER + body.length + 4) {
+                    throw new IOException("Journal record larger than the mapped file: " + body.length);
+                }
+            }
+            writeRecord(journal, body);
+            written++;
+        }
+        if (config.isSyncOnFlush()) {
+            journal.force();
+        }
+        recordsWritten += written;
+        lastFlushMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+    }
+
+    /**
+     * 写入全量快照并清空日志。日志中序号不大于快照序号的记录已包含在快照中；
+     * 快照之后产生、尚在队列中的记录会在清空之后写入日志。
+     */
+    private void compact() throws IOException {
+        StatusSnapshot snapshot = appStatusStore.snapshot();
+        List<byte[]> bodies = new ArrayList<>(snapshot.statuses().size());
+        int size = 20;
+        for (AppStatus status : snapshot.statuses()) {
+            byte[] body = encode(status);
+            bodies.add(body);
+            size += RECORD_HEADER + body.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(SNAPSHOT_MAGIC).putInt(FORMAT_VERSION).putLong(snapshot.sequence()).putInt(bodies.size());
+        for (byte[] body : bodies) {
+            writeRecord(buffer, body);
+        }
+        buffer.flip();
+
+        Path tmp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        int used = journal.position();
+        journal.position(0);
+        clearFrom(0, used);
+        journal.force();
+        compactions++;
+        lastSnapshotAt = System.currentTimeMillis();
+    }
+
+    private void clearFrom(int position) {
+        // 只需要清掉紧随其后的长度字段，即可保证之后的内容不会被当成有效记录
+        clearFrom(position, Math.min(journal.capacity(), position + RECORD_HEADER));
+    }
+
+    private void clearFrom(int from, int to) {
+        for (int i = from; i < to; i++) {
+            journal.put(i, (byte) 0);
+        }
+    }
+
+    // ---------------------------------------------------------------- 编码
+
+    private static void writeRecord(ByteBuffer buffer, byte[] body) {
+        int start = buffer.position();
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        buffer.position(start + 4);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(body);
+        // 长度最后写入，作为记录完整的标志
+        buffer.putInt(start, body.length);
+    }
+
+    private static Object readRecord(ByteBuffer buffer) {
+        if (buffer.remaining() < RECORD_HEADER) {
+            return null;
+        }
+        int start = buffer.position();
+        int length = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (length <= 0 || length > buffer.remaining()) {
+            buffer.position(start);
+            return null;
+        }
+        byte[] body = new byte[length];
+        buffer.get(body);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        if ((int) crc.getValue() != checksum) {
+            buffer.position(start);
+            return null;
+        }
+        return decode(ByteBuffer.wrap(body));
+    }
+
+    static byte[] encode(Object record) {
+        if (record instanceof Removal removal) {
+            byte[] id = removal.id().getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buffer = ByteBuffer.allocate(1 + 8 + 2 + id.length);
+            buffer.put(TYPE_REMOVE).putLong(removal.sequence());
+            putString(buffer, id);
+            return buffer.array();
+        }
+        AppStatus status = (AppStatus) record;
+        byte[] id = status.id().getBytes(StandardCharsets.UTF_8);
+        byte[] name = status.name().getBytes(StandardCharsets.UTF_8);
+        List<byte[]> clusters = new ArrayList<>(status.clusters().size());
+        int size = 1 + 8 + 8 + 1 + 4 + 4 + 2 + id.length + 2 + name.length + 2;
+        for (String cluster : status.clusters()) {
+            byte[] bytes = cluster.getBytes(StandardCharsets.UTF_8);
+            clusters.add(bytes);
+            size += 2 + bytes.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(TYPE_UPDATE)
+                .putLong(status.version())
+                .putLong(status.lastChangeTime())
+                .put((byte) status.status().ordinal())
+                .putInt(status.healthyInstances())
+                .putInt(status.totalInstances());
+        putString(buffer, id);
+        putString(buffer, name);
+        buffer.putShort((short) clusters.size());
+        for (byte[] cluster : clusters) {
+            putString(buffer, cluster);
+        }
+        return buffer.array();
+    }
+
+    static Object decode(ByteBuffer buffer) {
+        byte type = buffer.get();
+        if (type == TYPE_REMOVE) {
+            long sequence = buffer.getLong();
+            return new Removal(getString(buffer), sequence);
+        }
+        if (type != TYPE_UPDATE) {
+            return null;
+        }
+        long version = buffer.getLong();
+        long lastChangeTime = buffer.getLong();
+        ServiceStatus status = STATUSES[buffer.get()];
+        int healthy = buffer.getInt();
+        int total = buffer.getInt();
+        String id = getString(buffer);
+        String name = getString(buffer);
+        int clusterCount = buffer.getShort();
+        List<String> clusters = new ArrayList<>(clusterCount);
+        for (int i = 0; i < clusterCount; i++) {
+            clusters.add(getString(buffer));
+        }
+        return new AppStatus(id, name, status, healthy, total, List.copyOf(clusters), lastChangeTime, version);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
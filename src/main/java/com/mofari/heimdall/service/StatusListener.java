@@ -0,0 +1,40 @@
+package com.mofari.heimdall.service;
+
+import java.util.List;
+
+/**
+ * {@link AppStatusStore} 的变更监听器。
+ * <p>
+ * 回调在存储的写锁之外按全局序号顺序逐个执行，同一时刻只有一个回调在运行，
+ * 但可能在任意一个写入线程上执行。实现必须非常快且不能阻塞（例如只做入队），
+ * 序列化、网络发送等耗时操作应交给自己的线程，否则会拖住负责投递的写入分片。
+ */
+public interface StatusListener {
+
+    /**
+     * 某个服务产生了新版本的状态。
+     * @param previous 写入前的状态，新加入的服务为 null
+     * @param status   新状态，其 version 即本次写入的全局序号
+     */
+    void onStatusUpdated(AppStatus previous, AppStatus status);
+
+    /**
+     * 某个服务的状态被删除。
+     * @param removed  被删除的状态
+     * @param sequence 本次删除的全局序号
+     */
+    default void onStatusRemoved(AppStatus removed, long sequence) {
+    }
+
+    /**
+     * 启动时从持久化的状态恢复。恢复出的状态版本号不连续也不保证有序，
+     * 默认逐个以新增的形式通知 {@link #onStatusUpdated}。
+     * @param statuses 恢复出的状态
+     * @param sequence 恢复后的全局序号
+     */
+    default void onRestored(List<AppStatus> statuses, long sequence) {
+        for (AppStatus status : statuses) {
+            onStatusUpdated(null, status);
+        }
+    }
+}
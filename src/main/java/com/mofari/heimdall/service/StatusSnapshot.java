@@ -0,0 +1,12 @@
+package com.mofari.heimdall.service;
+
+import java.util.List;
+
+/**
+ * 某一时刻全部服务状态的一致性快照。
+ *
+ * @param sequence 快照对应的全局序号，即生成快照时最后一次写入的版本号
+ * @param statuses 所有服务的状态，不可修改
+ */
+public record StatusSnapshot(long sequence, List<AppStatus> statuses) {
+}
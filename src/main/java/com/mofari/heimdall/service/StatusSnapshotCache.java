@@ -0,0 +1,170 @@
+package com.mofari.heimdall.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 状态快照的预编码缓存。
+ * <p>
+ * 每种过滤条件（全部，或状态、集群、来源的任意组合）各缓存一份已序列化的 JSON 及其 gzip 压缩结果，
+ * 只有状态存储的全局序号变化后才会在下一次请求时重建，轮询请求本身几乎不消耗 CPU。
+ * <p>
+ * ETag 取 JSON 内容的摘要：其它服务的写入不会改变未受影响的过滤结果的 ETag，
+ * 进程重启后序号重新计数也不会让不同的内容得到相同的 ETag。内容未变时沿用上一次的 gzip 结果。
+ */
+@Service
+public class StatusSnapshotCache {
+
+    @Autowired
+    private AppStatusStore appStatusStore;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Map<String, Variant> variants = new ConcurrentHashMap<>();
+
+    /**
+     * 一份已编码的快照。
+     *
+     * @param sequence 对应的全局序号
+     * @param etag     强 ETag（不含引号），由 JSON 内容的摘要得出，内容相同则相同
+     * @param json     JSON 字节
+     * @param gzip     gzip 压缩后的 JSON 字节
+     */
+    public record EncodedSnapshot(long sequence, String etag, byte[] json, byte[] gzip) {
+    }
+
+    /**
+     * @return 所有服务的快照
+     */
+    public EncodedSnapshot all() {
+        return get("all", status -> true);
+    }
+
+    /**
+     * @return 指定状态的服务快照
+     */
+    public EncodedSnapshot byStatus(ServiceStatus status) {
+        return filtered(status, null, null);
+    }
+
+    /**
+     * 按状态、集群、Nacos 来源组合过滤，为 null 的条件不参与过滤，缓存键包含所有给出的条件。
+     * 调用方应只传入受监控的集群名和配置中的来源名，以免缓存条目无限增长。
+     * @param status  只包含该状态的服务
+     * @param cluster 只包含在该集群中有实例的服务
+     * @param source  只包含属于该来源的服务
+     * @return 同时满足所有给出条件的服务快照
+     */
+    public EncodedSnapshot filtered(ServiceStatus status, String cluster, String source) {
+        if (status == null && cluster == null && source == null) {
+            return all();
+        }
+        List<String> key = new ArrayList<>(3);
+        Predicate<AppStatus> filter = s -> true;
+        if (status != null) {
+            key.add("status-" + status.name());
+            filter = filter.and(s -> s.status() == status);
+        }
+        if (cluster != null) {
+            key.add("cluster-" + cluster);
+            filter = filter.and(s -> s.clusters().contains(cluster));
+        }
+        if (source != null) {
+            key.add("source-" + source);
+            filter = filter.and(s -> ServiceRef.sourceOf(s.id()).equals(source));
+        }
+        return get(String.join("|", key), filter);
+    }
+
+    private EncodedSnapshot get(String key, Predicate<AppStatus> filter) {
+        Variant variant = variants.computeIfAbsent(key, k -> new Variant(k, filter));
+        return variant.current(appStatusStore.currentSequence());
+    }
+
+    /**
+     * @return 内容的 SHA-256 摘要的前 16 字节（十六进制）
+     */
+    private static String digest(byte[] data) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(data);
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 单个过滤条件的缓存，序号变化时由第一个请求重建，并发请求等待同一次重建的结果。
+     */
+    private final class Variant {
+
+        private final String key;
+        private final Predicate<AppStatus> filter;
+        private volatile EncodedSnapshot encoded;
+
+        private Variant(String key, Predicate<AppStatus> filter) {
+            this.key = key;
+            this.filter = filter;
+        }
+
+        EncodedSnapshot current(long latestSequence) {
+            EncodedSnapshot cached = encoded;
+            if (cached != null && cached.sequence() == latestSequence) {
+                return cached;
+            }
+            synchronized (this) {
+                cached = encoded;
+                if (cached != null && cached.sequence() == appStatusStore.currentSequence()) {
+                    return cached;
+                }
+                encoded = cached = build(cached);
+                return cached;
+            }
+        }
+
+        private EncodedSnapshot build(EncodedSnapshot previous) {
+            StatusSnapshot snapshot = appStatusStore.snapshot();
+            List<AppStatus> filtered = new ArrayList<>();
+            for (AppStatus status : snapshot.statuses()) {
+                if (filter.test(status)) {
+                    filtered.add(status);
+                }
+            }
+            try {
+                byte[] json = objectMapper.writeValueAsBytes(filtered);
+                String etag = digest(json);
+                if (previous != null && previous.etag().equals(etag)) {
+                    return new EncodedSnapshot(snapshot.sequence(), etag, previous.json(), previous.gzip());
+                }
+                return new EncodedSnapshot(snapshot.sequence(), etag, json, gzip(json));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -7,36 +7,63 @@ import jakarta.websocket.OnOpen;
 import jakarta.websocket.Session;
 import jakarta.websocket.server.ServerEndpoint;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mofari.heimdall.config.MonitoringProperties;
+import com.mofari.heimdall.service.HeimdallMetrics;
+import io.micrometer.core.instrument.Gauge;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * 状态推送的 WebSocket 端点，推送内容见 {@link StatusStream}；集群模式下只推送本节点负责的服务。
+ */
 @Slf4j
 @Component
 @CrossOrigin // ✅ 在类上添加这个注解，它会使用你的全局配置或默认允许所有来源
 @ServerEndpoint("/api/v1/status") // 定义WebSocket的访问路径
 public class AppStatusWebSocketServer {
 
-    // 用于存放所有连接的客户端
-    private static final Map<String, Session> clients = new ConcurrentHashMap<>();
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+    // 端点实例由 WebSocket 容器创建，依赖通过 Spring 管理的实例注入到静态字段
+    private static volatile MonitoringProperties.WebSocket config = new MonitoringProperties.WebSocket();
+    private static volatile StatusStream statusStream;
+    private static volatile HeimdallMetrics metrics;
+
+    @Autowired
+    public void setMonitoringProperties(MonitoringProperties monitoringProperties) {
+        AppStatusWebSocketServer.config = monitoringProperties.getWebsocket();
+    }
+
+    @Autowired
+    public void setStatusStream(StatusStream statusStream) {
+        AppStatusWebSocketServer.statusStream = statusStream;
+    }
+
+    @Autowired
+    public void setMetrics(HeimdallMetrics metrics) {
+        AppStatusWebSocketServer.metrics = metrics;
+        Gauge.builder("heimdall.websocket.sessions", AppStatusWebSocketServer::getSessionCount)
+                .description("当前 WebSocket 连接数")
+                .register(metrics.registry());
+    }
 
     @OnOpen
     public void onOpen(Session session) {
-        clients.put(session.getId(), session);
         log.info("New connection: " + session.getId());
-        // 可以在新连接建立时，主动发送一次全量数据
-        // sendFullStatusData(session);
+        // 新连接建立时发送一次全量快照；带同一 epoch 的 lastSeq 重连的客户端只补发缺失的增量
+        SessionOutbound outbound = new SessionOutbound(session, config.getMaxQueuedMessages(), config.getMaxLagMillis());
+        statusStream.open(session.getId(), outbound, parseLastSeq(session), parseEpoch(session));
     }
 
     @OnClose
     public void onClose(Session session) {
-        clients.remove(session.getId());
+        statusStream.close(session.getId());
         log.info("Connection closed: " + session.getId());
     }
 
@@ -47,34 +74,49 @@ public class AppStatusWebSocketServer {
     }
 
     /**
-     * 广播消息给所有连接的客户端
+     * 广播消息给所有连接的客户端。服务状态变更由 {@link StatusStream} 自动推送，这里用于其它类型的消息。
      * @param messagePayload 要发送的消息对象
      */
     public static void broadcast(Object messagePayload) {
-        try {
-            String message = objectMapper.writeValueAsString(messagePayload);
-            for (Session session : clients.values()) {
-                if (session.isOpen()) {
-                    session.getBasicRemote().sendText(message);
-                }
-            }
-        } catch (IOException e) {
-            log.info("Broadcast failed: " + e.getMessage());
+        broadcast(null, messagePayload);
+    }
+
+    /**
+     * 广播消息给所有连接的客户端。
+     * @param coalesceKey    合并键，客户端积压时相同键的消息只保留最新一条；为 null 表示不合并
+     * @param messagePayload 要发送的消息对象
+     */
+    public static void broadcast(String coalesceKey, Object messagePayload) {
+        Map<String, SessionOutbound> clients = clients();
+        if (clients.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        String message = StatusStream.serialize(messagePayload);
+        if (message == null) {
+            return;
         }
+        for (SessionOutbound outbound : clients.values()) {
+            outbound.enqueue(coalesceKey, message);
+        }
+        recordFanOut("broadcast", start);
     }
 
     /**
      * 发送一个标准的 WebSocket PING 控制帧来保持连接活跃。
      */
     public static void sendPing() {
+        Map<String, SessionOutbound> clients = clients();
         if (clients.isEmpty()) {
             return;
         }
 
+        long start = System.nanoTime();
         // Ping 帧可以携带一个小的负载，这里我们发送一个空负载。
         final ByteBuffer pingData = ByteBuffer.wrap(new byte[0]);
 
-        for (Session session : clients.values()) {
+        for (SessionOutbound outbound : clients.values()) {
+            Session session = outbound.session();
             try {
                 if (session.isOpen()) {
                     // 使用 getAsyncRemote() 以异步方式发送，避免阻塞
@@ -85,5 +127,57 @@ public class AppStatusWebSocketServer {
                 log.warn("Failed to send ping to session {}: {}", session.getId(), e.getMessage());
             }
         }
+        recordFanOut("ping", start);
+    }
+
+    static void recordFanOut(String type, long startNanos) {
+        HeimdallMetrics m = metrics;
+        if (m != null) {
+            m.webSocketFanOut(type, startNanos);
+        }
+    }
+
+    /**
+     * @return 当前连接数
+     */
+    public static int getSessionCount() {
+        return clients().size();
+    }
+
+    /**
+     * @return 每个会话的发送队列深度、积压时长、发送/合并/丢弃计数
+     */
+    public static Map<String, Object> getSessionStats() {
+        Map<String, Object> sessions = new LinkedHashMap<>();
+        for (Map.Entry<String, SessionOutbound> entry : clients().entrySet()) {
+            sessions.put(entry.getKey(), entry.getValue().stats());
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sessionCount", sessions.size());
+        stats.put("sessions", sessions);
+        return stats;
+    }
+
+    private static Map<String, SessionOutbound> clients() {
+        StatusStream stream = statusStream;
+        return stream == null ? Collections.emptyMap() : stream.sessions();
+    }
+
+    private static String parseEpoch(Session session) {
+        List<String> values = session.getRequestParameterMap().get("epoch");
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    private static Long parseLastSeq(Session session) {
+        List<String> values = session.getRequestParameterMap().get("lastSeq");
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(values.get(0));
+        } catch (NumberFormatException e) {
+            log.warn("Invalid lastSeq '{}' from session {}, sending full snapshot.", values.get(0), session.getId());
+            return null;
+        }
     }
 }
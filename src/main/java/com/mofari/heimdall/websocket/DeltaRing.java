@@ -0,0 +1,78 @@
+package com.mofari.heimdall.websocket;
+
+import java.util.Arrays;
+
+/**
+ * 最近若干条已序列化增量消息的环形缓冲区，用于断线重连后的补发。
+ * 写入按全局序号递增的顺序进行（由 {@link StatusStream} 的推送线程按存储的回调投递顺序保证）。
+ */
+class DeltaRing {
+
+    private final long[] sequences;
+    private final String[] keys;
+    private final String[] texts;
+    private int head = 0; // 下一个写入位置
+    private int size = 0;
+
+    DeltaRing(int capacity) {
+        int cap = Math.max(1, capacity);
+        this.sequences = new long[cap];
+        this.keys = new String[cap];
+        this.texts = new String[cap];
+    }
+
+    synchronized void add(long sequence, String key, String text) {
+        sequences[head] = sequence;
+        keys[head] = key;
+        texts[head] = text;
+        head = (head + 1) % sequences.length;
+        if (size < sequences.length) {
+            size++;
+        }
+    }
+
+    /**
+     * 清空缓冲区。从持久化恢复后调用，恢复前的序号不再能增量续传。
+     */
+    synchronized void clear() {
+        Arrays.fill(keys, null);
+        Arrays.fill(texts, null);
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * 把序号大于 lastSeq 的所有增量按顺序交给 sink。
+     * @param lastSeq        客户端已收到的最大序号
+     * @param latestSequence 当前全局序号
+     * @return 缓冲区完整覆盖 (lastSeq, latestSequence] 并已全部补发时返回 true；
+     *         客户端落后太多（或序号非法）时返回 false，此时不会调用 sink，应改发全量快照
+     */
+    synchronized boolean replaySince(long lastSeq, long latestSequence, Sink sink) {
+        if (lastSeq > latestSequence || lastSeq < 0) {
+            return false;
+        }
+        if (lastSeq == latestSequence) {
+            return true;
+        }
+        if (size == 0 || sequences[indexOf(0)] > lastSeq + 1) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            int idx = indexOf(i);
+            if (sequences[idx] > lastSeq) {
+                sink.accept(keys[idx], texts[idx]);
+            }
+        }
+        return true;
+    }
+
+    private int indexOf(int offsetFromOldest) {
+        int oldest = (head - size + sequences.length) % sequences.length;
+        return (oldest + offsetFromOldest) % sequences.length;
+    }
+
+    interface Sink {
+        void accept(String key, String text);
+    }
+}
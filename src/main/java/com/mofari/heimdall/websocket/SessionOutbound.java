@@ -0,0 +1,176 @@
+package com.mofari.heimdall.websocket;
+
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.SendHandler;
+import jakarta.websocket.SendResult;
+import jakarta.websocket.Session;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个 WebSocket 会话的发送队列。
+ * <p>
+ * 消息先进入有界队列，再通过异步 API 逐条发送（同一时刻只有一条在途），调用方不会被慢客户端阻塞。
+ * 带有相同合并键（通常是服务ID）的消息在排队期间只保留最新一条，并移动到队尾，保证发送顺序与写入顺序一致。
+ * 队列长度或积压时长超过阈值的会话会被主动断开，由客户端重连后重新获取数据。
+ */
+@Slf4j
+class SessionOutbound implements SendHandler {
+
+    private final Session session;
+    private final int maxQueuedMessages;
+    private final long maxLagMillis;
+
+    // 合并键 -> 待发送消息，保持插入顺序。由 this 保护
+    private final LinkedHashMap<String, Frame> queue = new LinkedHashMap<>();
+    private boolean sending = false;
+    private boolean closed = false;
+    private long uniqueKeySequence = 0;
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private record Frame(String text, long enqueuedAt) {
+    }
+
+    SessionOutbound(Session session, int maxQueuedMessages, long maxLagMillis) {
+        this.session = session;
+        this.maxQueuedMessages = maxQueuedMessages;
+        this.maxLagMillis = maxLagMillis;
+    }
+
+    /**
+     * 将一条已序列化的消息加入发送队列。
+     * @param coalesceKey 合并键，为 null 表示不与其它消息合并
+     * @param text        消息文本
+     * @return 会话已关闭或因积压被断开时返回 false
+     */
+    boolean enqueue(String coalesceKey, String text) {
+        long now = System.currentTimeMillis();
+        Frame next = null;
+        boolean evict = false;
+        synchronized (this) {
+            if (closed) {
+                return false;
+            }
+            String key = coalesceKey != null ? coalesceKey : "#" + (uniqueKeySequence++);
+            if (queue.remove(key) != null) {
+                coalesced.increment();
+            }
+            queue.put(key, new Frame(text, now));
+            if (queue.size() > maxQueuedMessages || lagMillis(now) > maxLagMillis) {
+                evict = true;
+                closed = true;
+                dropped.add(queue.size());
+                queue.clear();
+            } else if (!sending) {
+                sending = true;
+                next = pollFirst();
+            }
+        }
+        if (evict) {
+            evict();
+            return false;
+        }
+        if (next != null) {
+            send(next);
+        }
+        return true;
+    }
+
+    /**
+     * 异步发送完成的回调，接着发送队列中的下一条。
+     */
+    @Override
+    public void onResult(SendResult result) {
+        if (!result.isOK()) {
+            log.warn("Failed to send message to session {}: {}", session.getId(),
+                    result.getException() == null ? "unknown" : result.getException().getMessage());
+            markClosed();
+            return;
+        }
+        sent.increment();
+        Frame next;
+        synchronized (this) {
+            next = pollFirst();
+            if (next == null) {
+                sending = false;
+                return;
+            }
+        }
+        send(next);
+    }
+
+    /**
+     * 会话关闭后丢弃剩余消息。
+     */
+    void markClosed() {
+        synchronized (this) {
+            if (!closed) {
+                closed = true;
+                dropped.add(queue.size());
+                queue.clear();
+            }
+            sending = false;
+        }
+    }
+
+    synchronized int queueDepth() {
+        return queue.size();
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            stats.put("queueDepth", queue.size());
+            stats.put("lagMillis", lagMillis(now));
+        }
+        stats.put("sent", sent.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("dropped", dropped.sum());
+        return stats;
+    }
+
+    Session session() {
+        return session;
+    }
+
+    private void send(Frame frame) {
+        try {
+            session.getAsyncRemote().sendText(frame.text(), this);
+        } catch (Exception e) {
+            onResult(new SendResult(e));
+        }
+    }
+
+    private Frame pollFirst() {
+        Iterator<Frame> it = queue.values().iterator();
+        if (!it.hasNext()) {
+            return null;
+        }
+        Frame frame = it.next();
+        it.remove();
+        return frame;
+    }
+
+    private long lagMillis(long now) {
+        Iterator<Frame> it = queue.values().iterator();
+        return it.hasNext() ? now - it.next().enqueuedAt() : 0;
+    }
+
+    private void evict() {
+        log.warn("Session {} is too slow, disconnecting it ({} messages dropped so far).", session.getId(), dropped.sum());
+        try {
+            session.close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "client too slow"));
+        } catch (IOException e) {
+            log.warn("Failed to close slow session {}: {}", session.getId(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.mofari.heimdall.websocket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mofari.heimdall.config.MonitoringProperties;
+import com.mofari.heimdall.service.AppStatus;
+import com.mofari.heimdall.service.AppStatusStore;
+import com.mofari.heimdall.service.StatusListener;
+import com.mofari.heimdall.service.StatusSnapshot;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 状态推送流：监听状态存储，把每次变更序列化一次后放入重放缓冲区并分发给所有会话。
+ * <p>
+ * 存储的监听回调只把变更交给单独的推送线程，序列化、写入重放缓冲区和分发都在推送线程上进行，
+ * 慢会话的发送、断开不会拖住写入分片。会话的注册通过 {@link AppStatusStore#withSnapshot} 按快照序号排入同一回调顺序，
+ * 推送线程处理到它时，快照序号之前的变更都已进入重放缓冲区、之后的变更都还没有分发，
+ * 因此新会话不会漏掉也不会重复收到任何变更。
+ * <p>
+ * 序号只在同一个 epoch 内连续：启动和从持久化恢复时都会生成新的 epoch，
+ * 客户端带着其他 epoch 的序号重连（本节点重启、恢复出的序号回退，或重连到了集群中的其他节点）时一律发送全量快照。
+ * <p>
+ * 状态存储只含本节点的服务，集群模式下推送的快照和增量都只是本节点负责的分片（约 1/N）。
+ */
+@Slf4j
+@Component
+public class StatusStream implements StatusListener {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    private AppStatusStore appStatusStore;
+
+    @Autowired
+    private MonitoringProperties monitoringProperties;
+
+    private final Map<String, SessionOutbound> sessions = new ConcurrentHashMap<>();
+
+    private DeltaRing ring;
+
+    // 当前序号空间的标识，只在推送线程上更换，与重放缓冲区的清空同步
+    private volatile String epoch = newEpoch();
+
+    // 单线程按存储的回调投递顺序执行，保证重放缓冲区和各会话收到的变更按序号递增
+    private ExecutorService fanOut;
+
+    @PostConstruct
+    public void init() {
+        this.ring = new DeltaRing(monitoringProperties.getWebsocket().getReplayBufferSize());
+        this.fanOut = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "status-stream");
+            t.setDaemon(true);
+            return t;
+        });
+        appStatusStore.addListener(this);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fanOut.shutdownNow();
+    }
+
+    /**
+     * 注册一个会话，并根据 lastSeq 补发增量或发送全量快照。注册在推送线程上异步完成。
+     * @param id       会话ID
+     * @param outbound 会话的发送队列
+     * @param lastSeq  客户端已收到的最大序号，新连接为 null
+     * @param epoch    lastSeq 所属的 epoch，与当前 epoch 不一致时不续传
+     */
+    void open(String id, SessionOutbound outbound, Long lastSeq, String epoch) {
+        appStatusStore.withSnapshot(snapshot -> execute(() -> subscribe(id, outbound, lastSeq, epoch, snapshot)));
+    }
+
+    /**
+     * 注销一个会话并丢弃其未发送的消息。与注册一样在推送线程上执行，因此不会和尚未完成的注册交错。
+     */
+    void close(String id) {
+        execute(() -> {
+            SessionOutbound outbound = sessions.remove(id);
+            if (outbound != null) {
+                outbound.markClosed();
+            }
+        });
+    }
+
+    private void subscribe(String id, SessionOutbound outbound, Long lastSeq, String lastEpoch, StatusSnapshot snapshot) {
+        sessions.put(id, outbound);
+        boolean resumed = lastSeq != null && epoch.equals(lastEpoch)
+                && ring.replaySince(lastSeq, snapshot.sequence(), outbound::enqueue);
+        if (!resumed) {
+            outbound.enqueue(null, serialize(StatusStreamMessage.snapshot(epoch, snapshot.sequence(), snapshot.statuses())));
+        }
+        log.info("Session {} subscribed at seq {} ({}).", id, snapshot.sequence(),
+                resumed ? "resumed from " + lastSeq : "full snapshot");
+    }
+
+    Map<String, SessionOutbound> sessions() {
+        return sessions;
+    }
+
+    String epoch() {
+        return epoch;
+    }
+
+    @Override
+    public void onStatusUpdated(AppStatus previous, AppStatus status) {
+        execute(() -> publish(status.version(), status.id(), StatusStreamMessage.delta(epoch, status)));
+    }
+
+    @Override
+    public void onStatusRemoved(AppStatus removed, long sequence) {
+        execute(() -> publish(sequence, removed.id(), StatusStreamMessage.removed(epoch, removed.id(), sequence)));
+    }
+
+    /**
+     * 恢复出的版本号不连续，不放入重放缓冲区：更换 epoch 并清空缓冲区，已连接的会话改发恢复后的全量快照，
+     * 之后带旧 epoch 重连的客户端也会收到全量快照。
+     */
+    @Override
+    public void onRestored(List<AppStatus> statuses, long sequence) {
+        execute(() -> {
+            epoch = newEpoch();
+            ring.clear();
+            String text = serialize(StatusStreamMessage.snapshot(epoch, sequence, statuses));
+            if (text == null) {
+                return;
+            }
+            for (SessionOutbound outbound : sessions.values()) {
+                outbound.enqueue(null, text);
+            }
+        });
+    }
+
+    private void execute(Runnable task) {
+        try {
+            fanOut.execute(task);
+        } catch (RejectedExecutionException e) {
+            // 正在关闭，丢弃
+        }
+    }
+
+    private void publish(long sequence, String key, StatusStreamMessage message) {
+        long start = System.nanoTime();
+        String text = serialize(message);
+        if (text == null) {
+            return;
+        }
+        ring.add(sequence, key, text);
+        for (SessionOutbound outbound : sessions.values()) {
+            outbound.enqueue(key, text);
+        }
+        AppStatusWebSocketServer.recordFanOut(message.type(), start);
+    }
+
+    private static String newEpoch() {
+        return UUID.randomUUID().toString();
+    }
+
+    static String serialize(Object message) {
+        try {
+            return objectMapper.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            log.info("Serialize failed: " + e.getMessage());
+            return null;
+        }
+    }
+}
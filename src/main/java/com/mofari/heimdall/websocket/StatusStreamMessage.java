@@ -0,0 +1,39 @@
+package com.mofari.heimdall.websocket;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.mofari.heimdall.service.AppStatus;
+
+import java.util.List;
+
+/**
+ * 状态推送协议中的一条消息。
+ * <ul>
+ *     <li>snapshot：连接建立（或无法增量续传）时发送的全量快照，seq 为快照对应的全局序号；</li>
+ *     <li>delta：单个服务的新状态，seq 为该状态的版本号；</li>
+ *     <li>removed：服务不再被监控，seq 为删除时的全局序号。</li>
+ * </ul>
+ * 此外，全局健康度摘要以 {@code summary} 类型、实例级变化以 {@code instances} 类型单独推送，不占用序号，也不参与重放。
+ * 以上三种消息都带有 epoch：服务端每次启动和从持久化恢复时生成新的 epoch，只有同一 epoch 内的序号才可比较。
+ * 客户端记录收到的最大 seq 及其 epoch，重连时通过 {@code ?lastSeq=&epoch=} 传回即可只补发缺失的变更；
+ * epoch 缺失或不一致（服务端重启、恢复出的序号回退、重连到了集群中的其他节点）时改发全量快照。
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record StatusStreamMessage(String type,
+                                  String epoch,
+                                  long seq,
+                                  List<AppStatus> services,
+                                  AppStatus service,
+                                  String id) {
+
+    public static StatusStreamMessage snapshot(String epoch, long seq, List<AppStatus> services) {
+        return new StatusStreamMessage("snapshot", epoch, seq, services, null, null);
+    }
+
+    public static StatusStreamMessage delta(String epoch, AppStatus service) {
+        return new StatusStreamMessage("delta", epoch, service.version(), null, service, null);
+    }
+
+    public static StatusStreamMessage removed(String epoch, String id, long seq) {
+        return new StatusStreamMessage("removed", epoch, seq, null, null, id);
+    }
+}
@@ -0,0 +1,112 @@
+package com.mofari.heimdall.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mofari.heimdall.config.MonitoringProperties;
+import com.mofari.heimdall.service.AppStatus;
+import com.mofari.heimdall.service.AppStatusStore;
+import com.mofari.heimdall.service.ServiceStatus;
+import com.mofari.heimdall.service.StatusSnapshotCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AppStatusControllerTest {
+
+    private AppStatusStore store;
+    private AppStatusController controller;
+
+    @BeforeEach
+    void setUp() {
+        store = new AppStatusStore();
+        store.restore(List.of(new AppStatus("a", "a", ServiceStatus.RUNNING, 1, 1, List.of("DEFAULT"), 0, 1)), 1);
+        StatusSnapshotCache cache = new StatusSnapshotCache();
+        ReflectionTestUtils.setField(cache, "appStatusStore", store);
+        ReflectionTestUtils.setField(cache, "objectMapper", new ObjectMapper());
+        controller = new AppStatusController(store, cache, new MonitoringProperties(), null, null);
+    }
+
+    @Test
+    void returnsNotModifiedForMatchingEtag() {
+        ResponseEntity<byte[]> first = get(null, null);
+        String etag = first.getHeaders().getETag();
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+
+        assertEquals(HttpStatus.NOT_MODIFIED, get(etag, null).getStatusCode());
+        assertEquals(HttpStatus.NOT_MODIFIED, get("W/" + etag, null).getStatusCode());
+        assertEquals(HttpStatus.NOT_MODIFIED, get("\"other\", " + etag, null).getStatusCode());
+        assertEquals(HttpStatus.NOT_MODIFIED, get("*", null).getStatusCode());
+        // 不带引号的不是合法的 ETag
+        assertEquals(HttpStatus.OK, get(etag.replace("\"", ""), null).getStatusCode());
+
+        store.update("a", "a", ServiceStatus.DOWN, 0, 1, List.of("DEFAULT"));
+        ResponseEntity<byte[]> changed = get(etag, null);
+        assertEquals(HttpStatus.OK, changed.getStatusCode());
+        assertNotEquals(etag, changed.getHeaders().getETag());
+    }
+
+    @Test
+    void gzipRepresentationHasItsOwnEtag() throws IOException {
+        ResponseEntity<byte[]> plain = get(null, null);
+        ResponseEntity<byte[]> gzip = get(null, "gzip, deflate");
+
+        assertEquals("gzip", gzip.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertNull(plain.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertArrayEquals(plain.getBody(), gunzip(gzip.getBody()));
+        String gzipEtag = gzip.getHeaders().getETag();
+        assertNotEquals(plain.getHeaders().getETag(), gzipEtag);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, get(gzipEtag, "gzip").getStatusCode());
+        // 缓存的是压缩内容，不能据此对未压缩的请求返回 304
+        assertEquals(HttpStatus.OK, get(gzipEtag, null).getStatusCode());
+    }
+
+    @Test
+    void combinedFiltersAllApply() throws IOException {
+        MonitoringProperties properties = new MonitoringProperties();
+        properties.setTargetClusters(List.of("DEFAULT", "c1"));
+        controller = new AppStatusController(store, (StatusSnapshotCache) ReflectionTestUtils.getField(controller,
+                "statusSnapshotCache"), properties, null, null);
+        store.update("b", "b", ServiceStatus.DOWN, 0, 1, List.of("c1"));
+        store.update("c", "c", ServiceStatus.DOWN, 0, 1, List.of("DEFAULT"));
+        store.update("d", "d", ServiceStatus.RUNNING, 1, 1, List.of("c1"));
+
+        assertEquals(List.of("b"), ids(controller.getAllStatuses("DOWN", "c1", null, null, null)));
+        assertEquals(List.of("c"), ids(controller.getAllStatuses("down", "DEFAULT", null, null, null)));
+        assertEquals(List.of("b", "c"), ids(controller.getAllStatuses("DOWN", null, null, null, null)));
+        assertEquals(List.of("b", "d"), ids(controller.getAllStatuses(null, "c1", null, null, null)));
+    }
+
+    private static List<String> ids(ResponseEntity<byte[]> response) throws IOException {
+        List<String> ids = new ArrayList<>();
+        for (JsonNode node : new ObjectMapper().readTree(response.getBody())) {
+            ids.add(node.get("id").asText());
+        }
+        ids.sort(null);
+        return ids;
+    }
+
+    private ResponseEntity<byte[]> get(String ifNoneMatch, String acceptEncoding) {
+        return controller.getAllStatuses(null, null, null, ifNoneMatch, acceptEncoding);
+    }
+
+    private static byte[] gunzip(byte[] data) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.mofari.heimdall.service;
+
+import com.mofari.heimdall.config.MonitoringProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AlertAggregatorTest {
+
+    private static final long WINDOW_MILLIS = 500;
+
+    private final List<AlertMessage> sent = new CopyOnWriteArrayList<>();
+    private AlertAggregator aggregator;
+
+    @AfterEach
+    void tearDown() {
+        if (aggregator != null) {
+            aggregator.shutdown();
+        }
+    }
+
+    @Test
+    void coalescesTransitionsWithinTheWindow() throws InterruptedException {
+        aggregator = aggregator(new MonitoringProperties());
+
+        // 平静期的第一条立即发送，窗口内的后续变更在窗口结束时合并成一条汇总
+        for (int i = 0; i < 5; i++) {
+            aggregator.submit(transition("svc-" + i + ".app", AlertLevel.DOWN));
+        }
+        assertEquals(List.of("🚨 服务宕机警报"), titles());
+        waitFor(() -> sent.size() == 2);
+        assertEquals("🚨 服务状态汇总：4 个宕机，0 个恢复", sent.get(1).getTitle());
+        assertEquals(AlertLevel.DOWN, sent.get(1).getLevel());
+        String body = sent.get(1).renderBody();
+        assertTrue(body.contains("svc-1.app（负责人：alice）"), body);
+        assertTrue(body.contains("svc-4.app"), body);
+
+        // 一个窗口内没有变更后窗口关闭，之后的变更恢复为立即发送
+        Thread.sleep(WINDOW_MILLIS * 2 + 200);
+        aggregator.submit(transition("svc-9.app", AlertLevel.DOWN));
+        assertEquals(3, sent.size());
+        assertEquals("🚨 服务宕机警报", sent.get(2).getTitle());
+    }
+
+    @Test
+    void fewTransitionsAreStillSentOneByOneAndRecoveriesGetTheirOwnDigest() throws InterruptedException {
+        aggregator = aggregator(new MonitoringProperties());
+
+        aggregator.submit(transition("svc-0.app", AlertLevel.DOWN));
+        aggregator.submit(transition("svc-1.app", AlertLevel.RECOVERY));
+        aggregator.submit(transition("svc-2.app", AlertLevel.RECOVERY));
+        waitFor(() -> sent.size() == 3);
+        assertEquals(List.of("🚨 服务宕机警报", "✅ 服务恢复通知", "✅ 服务恢复通知"), titles());
+
+        // 窗口仍在滚动：超过阈值的恢复合并成恢复汇总
+        for (int i = 3; i < 7; i++) {
+            aggregator.submit(transition("svc-" + i + ".app", AlertLevel.RECOVERY));
+        }
+        waitFor(() -> sent.size() == 4);
+        assertEquals("✅ 服务恢复汇总：4 个恢复", sent.get(3).getTitle());
+        assertEquals(AlertLevel.RECOVERY, sent.get(3).getLevel());
+    }
+
+    @Test
+    void eachOwnersDestinationHasItsOwnWindow() throws InterruptedException {
+        MonitoringProperties properties = new MonitoringProperties();
+        MonitoringProperties.AlertRouting routing = properties.getAlertRouting();
+        routing.getDestinations().put("alice-feishu", destination("https://feishu/alice"));
+        routing.getDestinations().put("bob-feishu", destination("https://feishu/bob"));
+        routing.getRules().add(ownerRule("alice", "alice-feishu"));
+        routing.getRules().add(ownerRule("bob", "bob-feishu"));
+        aggregator = aggregator(properties);
+
+        // 两个负责人的第一条变更都立即发送，互不占用对方的窗口
+        aggregator.submit(transition("order.app", AlertLevel.DOWN));
+        aggregator.submit(transition("bob.pay.app", AlertLevel.DOWN));
+        assertEquals(List.of("https://feishu/alice", "https://feishu/bob"), webhooks());
+
+        for (int i = 0; i < 4; i++) {
+            aggregator.submit(transition("bob.svc-" + i + ".app", AlertLevel.DOWN));
+        }
+        aggregator.submit(transition("user.app", AlertLevel.DOWN));
+        waitFor(() -> sent.size() == 4);
+
+        Map<String, String> byWebhook = Map.of(sent.get(2).getWebhookUrl(), sent.get(2).getTitle(),
+                sent.get(3).getWebhookUrl(), sent.get(3).getTitle());
+        assertEquals(Map.of("https://feishu/alice", "🚨 服务宕机警报",
+                "https://feishu/bob", "🚨 服务状态汇总：4 个宕机，0 个恢复"), byWebhook);
+    }
+
+    private AlertAggregator aggregator(MonitoringProperties properties) {
+        properties.getAlertDigest().setWindowMillis(WINDOW_MILLIS);
+        AlertRouter router = new AlertRouter();
+        ReflectionTestUtils.setField(router, "monitoringProperties", properties);
+        ReflectionTestUtils.setField(router, "notifiers", List.of(notifier()));
+        router.init();
+
+        AlertAggregator result = new AlertAggregator();
+        ReflectionTestUtils.setField(result, "alertDispatcher", new AlertDispatcher() {
+            @Override
+            public boolean dispatch(AlertMessage message) {
+                sent.add(message);
+                return true;
+            }
+        });
+        ReflectionTestUtils.setField(result, "appInfoService", new AppInfoService() {
+            @Override
+            public List<String> getAppOwners(String appName) {
+                return List.of(appName.startsWith("bob.") ? "bob" : "alice");
+            }
+
+            @Override
+            public CompletableFuture<List<String>> getAppOwnersAsync(String appName) {
+                return CompletableFuture.completedFuture(getAppOwners(appName));
+            }
+        });
+        ReflectionTestUtils.setField(result, "alertRouter", router);
+        ReflectionTestUtils.setField(result, "monitoringProperties", properties);
+        result.init();
+        return result;
+    }
+
+    private List<String> titles() {
+        return sent.stream().map(AlertMessage::getTitle).toList();
+    }
+
+    private List<String> webhooks() {
+        return sent.stream().map(AlertMessage::getWebhookUrl).toList();
+    }
+
+    private static ServiceTransition transition(String serviceId, AlertLevel level) {
+        boolean down = level == AlertLevel.DOWN;
+        return new ServiceTransition(serviceId, serviceId, down ? "RUNNING" : "DOWN", down ? "DOWN" : "RUNNING",
+                level, System.currentTimeMillis(), null);
+    }
+
+    private static MonitoringProperties.AlertDestination destination(String webhook) {
+        MonitoringProperties.AlertDestination destination = new MonitoringProperties.AlertDestination();
+        destination.setChannel("feishu");
+        destination.setWebhook(webhook);
+        return destination;
+    }
+
+    private static MonitoringProperties.AlertRule ownerRule(String owner, String destination) {
+        MonitoringProperties.AlertRule rule = new MonitoringProperties.AlertRule();
+        rule.setOwners(List.of(owner));
+        rule.setDestinations(List.of(destination));
+        return rule;
+    }
+
+    private static AlertNotifier notifier() {
+        return new AlertNotifier() {
+            @Override
+            public String channel() {
+                return "feishu";
+            }
+
+            @Override
+            public void sendMarkdownMessage(String title, String markdownText, AlertLevel level) {
+            }
+
+            @Override
+            public void sendMarkdownMessage(String title, String markdownText, String webhookUrl, AlertLevel level) {
+            }
+        };
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met within 5s");
+            Thread.sleep(10);
+        }
+    }
+}
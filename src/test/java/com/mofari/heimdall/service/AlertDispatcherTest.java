@@ -0,0 +1,193 @@
+package com.mofari.heimdall.service;
+
+import com.mofari.heimdall.config.MonitoringProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AlertDispatcherTest {
+
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger flakyFailures = new AtomicInteger();
+    private AlertDispatcher dispatcher;
+
+    private AlertDispatcher newDispatcher(MonitoringProperties properties, boolean blockSlowHook) {
+        AlertNotifier notifier = new AlertNotifier() {
+            @Override
+            public String channel() {
+                return "feishu";
+            }
+
+            @Override
+            public void sendMarkdownMessage(String title, String markdownText, AlertLevel level) {
+                sent.add("default:" + title);
+            }
+
+            @Override
+            public void sendMarkdownMessage(String title, String markdownText, String webhookUrl, AlertLevel level)
+                    throws IOException {
+                if (webhookUrl.equals("dead") || (webhookUrl.equals("flaky") && flakyFailures.getAndIncrement() < 2)) {
+                    throw new IOException("connection refused");
+                }
+                if (blockSlowHook && webhookUrl.equals("slow")) {
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                sent.add(webhookUrl + ":" + title);
+            }
+        };
+        AlertDispatcher d = new AlertDispatcher();
+        ReflectionTestUtils.setField(d, "notifiers", List.of(notifier));
+        ReflectionTestUtils.setField(d, "monitoringProperties", properties);
+        ReflectionTestUtils.setField(d, "metrics", new HeimdallMetrics(new SimpleMeterRegistry()));
+        d.init();
+        return d;
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        release.countDown();
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    void slowWebhookDoesNotBlockOthersAndOrderIsKept() throws Exception {
+        dispatcher = newDispatcher(new MonitoringProperties(), true);
+
+        dispatcher.dispatch(AlertMessage.to("slow", "s1", AlertLevel.DOWN, () -> ""));
+        for (int i = 0; i < 5; i++) {
+            dispatcher.dispatch(AlertMessage.to("fast", "f" + i, AlertLevel.DOWN, () -> ""));
+        }
+        dispatcher.dispatch(AlertMessage.to("slow", "s2", AlertLevel.DOWN, () -> ""));
+
+        waitFor(() -> sent.size() == 5);
+        assertEquals(List.of("fast:f0", "fast:f1", "fast:f2", "fast:f3", "fast:f4"), sent);
+
+        release.countDown();
+        waitFor(() -> sent.size() == 7);
+        assertEquals(List.of("slow:s1", "slow:s2"), sent.subList(5, 7));
+    }
+
+    @Test
+    void dropNewestWhenLaneIsFull() throws Exception {
+        MonitoringProperties properties = new MonitoringProperties();
+        properties.getAlertDispatch().setQueueCapacity(2);
+        properties.getAlertDispatch().setOverflowPolicy(MonitoringProperties.OverflowPolicy.DROP_NEWEST);
+        dispatcher = newDispatcher(properties, true);
+
+        // 第一条被 worker 取走并阻塞，随后两条填满队列，第四条被丢弃
+        assertTrue(dispatcher.dispatch(AlertMessage.to("slow", "a", AlertLevel.DOWN, () -> "")));
+        waitFor(() -> ((Number) laneStats("slow").get("queued")).intValue() == 0);
+        assertTrue(dispatcher.dispatch(AlertMessage.to("slow", "b", AlertLevel.DOWN, () -> "")));
+        assertTrue(dispatcher.dispatch(AlertMessage.to("slow", "c", AlertLevel.DOWN, () -> "")));
+        assertFalse(dispatcher.dispatch(AlertMessage.to("slow", "d", AlertLevel.DOWN, () -> "")));
+
+        release.countDown();
+        waitFor(() -> sent.size() == 3);
+        assertEquals(List.of("slow:a", "slow:b", "slow:c"), sent);
+        assertEquals(1L, dispatcher.getStats().get("dropped"));
+    }
+
+    @Test
+    void higherPriorityAlertsAreSentFirst() throws Exception {
+        dispatcher = newDispatcher(new MonitoringProperties(), true);
+
+        // 第一条被 worker 取走并阻塞，其余的按级别排队
+        dispatcher.dispatch(AlertMessage.to("slow", "first", AlertLevel.INFO, () -> ""));
+        waitFor(() -> ((Number) laneStats("slow").get("queued")).intValue() == 0);
+        dispatcher.dispatch(AlertMessage.to("slow", "info", AlertLevel.INFO, () -> ""));
+        dispatcher.dispatch(AlertMessage.to("slow", "recovery", AlertLevel.RECOVERY, () -> ""));
+        dispatcher.dispatch(AlertMessage.to("slow", "down", AlertLevel.DOWN, () -> ""));
+        dispatcher.dispatch(AlertMessage.to("slow", "critical", AlertLevel.CRITICAL, () -> ""));
+
+        release.countDown();
+        waitFor(() -> sent.size() == 5);
+        assertEquals(List.of("slow:first", "slow:critical", "slow:down", "slow:recovery", "slow:info"), sent);
+    }
+
+    @Test
+    void retriesTransientFailuresWithBackoff() throws Exception {
+        MonitoringProperties properties = new MonitoringProperties();
+        properties.getAlertDispatch().setRetryInitialBackoffMillis(10);
+        dispatcher = newDispatcher(properties, false);
+
+        dispatcher.dispatch(AlertMessage.to("flaky", "a", AlertLevel.DOWN, () -> ""));
+        dispatcher.dispatch(AlertMessage.to("flaky", "b", AlertLevel.DOWN, () -> ""));
+
+        waitFor(() -> sent.size() == 2);
+        assertEquals(List.of("flaky:a", "flaky:b"), sent);
+        assertEquals(2L, laneStats("flaky").get("retried"));
+        assertEquals(0L, dispatcher.getStats().get("failed"));
+    }
+
+    @Test
+    void circuitOpensAfterConsecutiveFailures() throws Exception {
+        MonitoringProperties properties = new MonitoringProperties();
+        properties.getAlertDispatch().setMaxAttempts(1);
+        properties.getAlertDispatch().setCircuitFailureThreshold(2);
+        properties.getAlertDispatch().setCircuitOpenMillis(60_000);
+        dispatcher = newDispatcher(properties, false);
+
+        for (int i = 0; i < 3; i++) {
+            dispatcher.dispatch(AlertMessage.to("dead", "d" + i, AlertLevel.DOWN, () -> ""));
+        }
+
+        // 两次失败后熔断，第三条在队列中等待，不再调用 Webhook
+        waitFor(() -> "OPEN".equals(laneStats("dead").get("circuit")));
+        Thread.sleep(50);
+        assertEquals(2L, laneStats("dead").get("failed"));
+        assertEquals(1, ((Number) laneStats("dead").get("queued")).intValue());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void dryRunSuppressesAlertsUntilEnded() throws Exception {
+        dispatcher = newDispatcher(new MonitoringProperties(), false);
+
+        dispatcher.beginDryRun();
+        dispatcher.beginDryRun();
+        assertTrue(dispatcher.dispatch(AlertMessage.to("fast", "replayed", AlertLevel.DOWN, () -> "")));
+        dispatcher.endDryRun();
+        assertTrue(dispatcher.dispatch(AlertMessage.to("fast", "still-replayed", AlertLevel.DOWN, () -> "")));
+        dispatcher.endDryRun();
+        dispatcher.dispatch(AlertMessage.to("fast", "live", AlertLevel.DOWN, () -> ""));
+
+        waitFor(() -> sent.size() == 1);
+        assertEquals(List.of("fast:live"), sent);
+        assertEquals(2L, dispatcher.getStats().get("dryRunSuppressed"));
+        assertEquals(false, dispatcher.getStats().get("dryRun"));
+    }
+
+    private Map<String, Object> laneStats(String key) {
+        return (Map<String, Object>) ((Map<String, Object>) dispatcher.getStats().get("lanes")).get(key);
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("condition not met within 5s");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
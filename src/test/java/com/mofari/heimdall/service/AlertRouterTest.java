@@ -0,0 +1,150 @@
+package com.mofari.heimdall.service;
+
+import com.mofari.heimdall.config.MonitoringProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AlertRouterTest {
+
+    @Test
+    void unionsDestinationsOfAllMatchingRules() {
+        MonitoringProperties properties = new MonitoringProperties();
+        MonitoringProperties.AlertRouting routing = properties.getAlertRouting();
+        routing.getDestinations().put("ops-feishu", destination("feishu", "https://feishu/ops"));
+        routing.getDestinations().put("ops-dingtalk", destination("dingtalk", "https://dingtalk/ops"));
+        routing.getDestinations().put("pay-feishu", destination("feishu", "https://feishu/pay"));
+        routing.getRules().add(rule(List.of(AlertLevel.CRITICAL, AlertLevel.DOWN), List.of(), List.of(), "ops-feishu", "ops-dingtalk"));
+        routing.getRules().add(rule(List.of(), List.of("pay-*", "checkout.app"), List.of(), "pay-feishu"));
+        routing.getRules().add(rule(List.of(AlertLevel.DOWN), List.of(), List.of("alice"), "pay-feishu", "ops-feishu"));
+        AlertRouter router = open(properties);
+
+        assertTrue(router.usesOwners());
+        assertEquals(List.of("ops-feishu", "ops-dingtalk"), names(router.route(AlertLevel.DOWN, "order.app", List.of("bob"))));
+        assertEquals(List.of("ops-feishu", "ops-dingtalk", "pay-feishu"), names(router.route(AlertLevel.DOWN, "pay-gateway.app", List.of())));
+        assertEquals(List.of("ops-feishu", "ops-dingtalk", "pay-feishu"), names(router.route(AlertLevel.DOWN, "order.app", List.of("alice"))));
+        assertEquals(List.of("pay-feishu"), names(router.route(AlertLevel.RECOVERY, "checkout.app", List.of())));
+        assertEquals(List.of(), router.route(AlertLevel.RECOVERY, "order.app", List.of("alice")));
+        // 全局告警没有服务名，只匹配不限服务名的规则
+        assertEquals(List.of("ops-feishu", "ops-dingtalk"), names(router.route(AlertLevel.CRITICAL, null, List.of())));
+        assertEquals(List.of(), router.route(AlertLevel.RECOVERY, null, List.of()));
+    }
+
+    @Test
+    void rejectsUnknownChannelsAndDestinations() {
+        MonitoringProperties properties = new MonitoringProperties();
+        properties.getAlertRouting().getDestinations().put("wechat", destination("wechat", "https://wechat"));
+        assertThrows(IllegalStateException.class, () -> open(properties));
+
+        MonitoringProperties other = new MonitoringProperties();
+        other.getAlertRouting().getRules().add(rule(List.of(), List.of(), List.of(), "missing"));
+        assertThrows(IllegalStateException.class, () -> open(other));
+
+        assertFalse(open(new MonitoringProperties()).usesOwners());
+    }
+
+    @Test
+    void matchesRulesBySourceAndNacosServiceName() {
+        MonitoringProperties properties = new MonitoringProperties();
+        properties.getSources().add(source("prod"));
+        properties.getSources().add(source("staging"));
+        MonitoringProperties.AlertRouting routing = properties.getAlertRouting();
+        routing.getDestinations().put("prod-feishu", destination("feishu", "https://feishu/prod"));
+        routing.getDestinations().put("pay-feishu", destination("feishu", "https://feishu/pay"));
+        MonitoringProperties.AlertRule prodOnly = rule(List.of(), List.of(), List.of(), "prod-feishu");
+        prodOnly.setSources(List.of("prod"));
+        routing.getRules().add(prodOnly);
+        routing.getRules().add(rule(List.of(), List.of("pay-*"), List.of(), "pay-feishu"));
+        AlertRouter router = open(properties);
+
+        assertEquals(List.of("prod-feishu", "pay-feishu"), names(router.route(AlertLevel.DOWN, "prod@@DEFAULT_GROUP@@pay-gateway.app", List.of())));
+        assertEquals(List.of("pay-feishu"), names(router.route(AlertLevel.DOWN, "staging@@PAY_GROUP@@pay-gateway.app", List.of())));
+        assertEquals(List.of(), router.route(AlertLevel.DOWN, "staging@@DEFAULT_GROUP@@order.app", List.of()));
+        // 限定来源的规则不接收全局告警
+        assertEquals(List.of(), router.route(AlertLevel.CRITICAL, null, List.of()));
+
+        MonitoringProperties unknown = new MonitoringProperties();
+        unknown.getAlertRouting().getDestinations().put("d", destination("feishu", "https://feishu"));
+        MonitoringProperties.AlertRule rule = rule(List.of(), List.of(), List.of(), "d");
+        rule.setSources(List.of("prod"));
+        unknown.getAlertRouting().getRules().add(rule);
+        assertThrows(IllegalStateException.class, () -> open(unknown));
+    }
+
+    @Test
+    void forgetsCachedMatchesOfUntrackedServices() {
+        MonitoringProperties properties = new MonitoringProperties();
+        properties.getAlertRouting().getDestinations().put("pay-feishu", destination("feishu", "https://feishu/pay"));
+        properties.getAlertRouting().getRules().add(rule(List.of(), List.of("pay-*"), List.of(), "pay-feishu"));
+        AlertRouter router = open(properties);
+        Map<?, ?> cached = (Map<?, ?>) ReflectionTestUtils.getField(router, "serviceMasks");
+
+        router.route(AlertLevel.DOWN, "pay-gateway.app", List.of());
+        router.route(AlertLevel.DOWN, "order.app", List.of());
+        assertEquals(2, cached.size());
+
+        router.forget("pay-gateway.app");
+        router.forget("order.app");
+        assertEquals(0, cached.size());
+        assertEquals(List.of("pay-feishu"), names(router.route(AlertLevel.DOWN, "pay-gateway.app", List.of())));
+    }
+
+    private static MonitoringProperties.NacosSource source(String name) {
+        MonitoringProperties.NacosSource source = new MonitoringProperties.NacosSource();
+        source.setName(name);
+        return source;
+    }
+
+    private static AlertRouter open(MonitoringProperties properties) {
+        AlertRouter router = new AlertRouter();
+        ReflectionTestUtils.setField(router, "monitoringProperties", properties);
+        ReflectionTestUtils.setField(router, "notifiers", List.of(notifier("feishu"), notifier("dingtalk")));
+        router.init();
+        return router;
+    }
+
+    private static List<String> names(List<AlertRouter.Destination> destinations) {
+        return destinations.stream().map(AlertRouter.Destination::name).toList();
+    }
+
+    private static MonitoringProperties.AlertDestination destination(String channel, String webhook) {
+        MonitoringProperties.AlertDestination destination = new MonitoringProperties.AlertDestination();
+        destination.setChannel(channel);
+        destination.setWebhook(webhook);
+        return destination;
+    }
+
+    private static MonitoringProperties.AlertRule rule(List<AlertLevel> levels, List<String> services,
+                                                       List<String> owners, String... destinations) {
+        MonitoringProperties.AlertRule rule = new MonitoringProperties.AlertRule();
+        rule.setLevels(levels);
+        rule.setServices(services);
+        rule.setOwners(owners);
+        rule.setDestinations(List.of(destinations));
+        return rule;
+    }
+
+    private static AlertNotifier notifier(String channel) {
+        return new AlertNotifier() {
+            @Override
+            public String channel() {
+                return channel;
+            }
+
+            @Override
+            public void sendMarkdownMessage(String title, String markdownText, AlertLevel level) {
+            }
+
+            @Override
+            public void sendMarkdownMessage(String title, String markdownText, String webhookUrl, AlertLevel level) {
+            }
+        };
+    }
+}
@@ -0,0 +1,140 @@
+package com.mofari.heimdall.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.mofari.heimdall.config.MonitoringProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AppInfoServiceTest {
+
+    private final Map<String, String> responses = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+    private final AtomicBoolean failing = new AtomicBoolean();
+    private final AtomicLong nanos = new AtomicLong();
+
+    private AppInfoService service;
+
+    @BeforeEach
+    void setUp() {
+        // 缓存配置使用默认值：TTL 60 分钟、负缓存 5 分钟、30 分钟后刷新
+        service = new AppInfoService();
+        ReflectionTestUtils.setField(service, "detailApiUrl", "http://appinfo/detail?app={appName}");
+        ReflectionTestUtils.setField(service, "monitoringProperties", new MonitoringProperties());
+        ReflectionTestUtils.setField(service, "httpClient", new OutboundHttpClient() {
+            @Override
+            public Response get(String url) throws IOException {
+                String app = url.substring(url.indexOf("app=") + 4);
+                calls.computeIfAbsent(app, k -> new AtomicInteger()).incrementAndGet();
+                if (failing.get()) {
+                    throw new IOException("appinfo unavailable");
+                }
+                return new Response(200, responses.get(app));
+            }
+        });
+        ReflectionTestUtils.setField(service, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(service, "metrics", new HeimdallMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(service, "ticker", (Ticker) nanos::get);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void servesCachedOwnersWithoutCallingTheApiAgain() {
+        responses.put("order", owners("alice", "bob"));
+
+        assertEquals(List.of("alice", "bob"), service.getAppOwners("order"));
+        assertEquals(List.of("alice", "bob"), service.getAppOwners("order"));
+        assertEquals(List.of("alice", "bob"), service.getAppOwnersAsync("order").join());
+
+        assertEquals(1, calls.get("order").get());
+        assertEquals(2L, service.getOwnerCacheStats().get("hitCount"));
+    }
+
+    @Test
+    void cachesMissingOwnersForTheShorterNegativeTtl() {
+        responses.put("orphan", "{\"data\":{\"roleUsers\":{}}}");
+        responses.put("order", owners("alice"));
+        service.getAppOwners("orphan");
+        service.getAppOwners("order");
+
+        advanceMinutes(4);
+        assertEquals(List.of(), service.getAppOwners("orphan"));
+        assertEquals(1, calls.get("orphan").get());
+
+        // 负缓存过期后重新查询，有负责人的结果仍在缓存中
+        advanceMinutes(2);
+        responses.put("orphan", owners("carol"));
+        assertEquals(List.of("carol"), service.getAppOwners("orphan"));
+        assertEquals(2, calls.get("orphan").get());
+        assertEquals(List.of("alice"), service.getAppOwners("order"));
+        assertEquals(1, calls.get("order").get());
+    }
+
+    @Test
+    void keepsServingTheStaleValueWhenRefreshFails() throws InterruptedException {
+        responses.put("order", owners("alice"));
+        service.getAppOwners("order");
+
+        // 超过刷新时间但未过期：访问立即返回旧值并触发后台刷新，刷新失败时旧值保留
+        advanceMinutes(31);
+        failing.set(true);
+        assertEquals(List.of("alice"), service.getAppOwners("order"));
+        waitFor(() -> calls.get("order").get() == 2 && (long) service.getOwnerCacheStats().get("loadFailureCount") == 1);
+        assertEquals(List.of("alice"), service.getAppOwners("order"));
+
+        // 接口恢复后下一次访问刷新为新值
+        failing.set(false);
+        responses.put("order", owners("bob"));
+        advanceMinutes(1);
+        service.getAppOwners("order");
+        waitFor(() -> service.getAppOwners("order").equals(List.of("bob")));
+    }
+
+    @Test
+    void failedLookupsAreNotCached() {
+        failing.set(true);
+        assertEquals(List.of(), service.getAppOwners("order"));
+
+        failing.set(false);
+        responses.put("order", owners("alice"));
+        assertEquals(List.of("alice"), service.getAppOwners("order"));
+        assertEquals(2, calls.get("order").get());
+    }
+
+    private void advanceMinutes(long minutes) {
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(minutes));
+    }
+
+    private static String owners(String... names) {
+        return "{\"data\":{\"roleUsers\":{\"OWNER\":[\"" + String.join("\",\"", names) + "\"]}}}";
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met within 5s");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.mofari.heimdall.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AppStatusStoreTest {
+
+    @Test
+    void concurrentWritersDeliverCallbacksInSequenceOrderOutsideTheWriteLock() throws Exception {
+        AppStatusStore store = new AppStatusStore();
+        List<Long> delivered = new ArrayList<>();
+        AtomicLong concurrentCallbacks = new AtomicLong();
+        AtomicLong running = new AtomicLong();
+        store.addListener((previous, status) -> {
+            if (running.incrementAndGet() > 1) {
+                concurrentCallbacks.incrementAndGet();
+            }
+            // 回调期间其他分片的写入仍能分配序号，说明回调不在写锁内
+            delivered.add(status.version());
+            running.decrementAndGet();
+        });
+
+        int threads = 4;
+        int perThread = 2000;
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            String id = "svc-" + t;
+            new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        store.update(id, id, ServiceStatus.RUNNING, i % 2, 1, List.of("DEFAULT"));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        assertEquals(threads * perThread, store.currentSequence());
+        assertEquals(threads * perThread, delivered.size());
+        for (int i = 0; i < delivered.size(); i++) {
+            assertEquals(i + 1, delivered.get(i));
+        }
+        assertEquals(0, concurrentCallbacks.get());
+    }
+
+    @Test
+    void unchangedUpdateProducesNoVersion() {
+        AppStatusStore store = new AppStatusStore();
+        List<Long> delivered = new ArrayList<>();
+        store.addListener((previous, status) -> delivered.add(status.version()));
+
+        store.update("a", "a", ServiceStatus.RUNNING, 1, 1, List.of("DEFAULT"));
+        assertNull(store.update("a", "a", ServiceStatus.RUNNING, 1, 1, List.of("DEFAULT")));
+
+        assertEquals(1, store.currentSequence());
+        assertEquals(List.of(1L), delivered);
+    }
+
+    @Test
+    void snapshotActionRunsBetweenCallbacksAtTheSnapshotSequence() {
+        AppStatusStore store = new AppStatusStore();
+        List<String> events = new ArrayList<>();
+        store.addListener((previous, status) -> {
+            events.add("update:" + status.version());
+            if (status.version() == 1) {
+                // 投递第 1 条变更期间写入第 2 条并获取快照：快照回调排在两条变更的通知之后
+                store.update("b", "b", ServiceStatus.DOWN, 0, 1, List.of("DEFAULT"));
+                store.withSnapshot(snapshot -> events.add("snapshot:" + snapshot.sequence()));
+                assertFalse(events.contains("snapshot:2"));
+            }
+        });
+
+        store.update("a", "a", ServiceStatus.RUNNING, 1, 1, List.of("DEFAULT"));
+
+        assertEquals(List.of("update:1", "update:2", "snapshot:2"), events);
+    }
+}
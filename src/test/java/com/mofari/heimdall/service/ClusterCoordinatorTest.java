@@ -0,0 +1,187 @@
+package com.mofari.heimdall.service;
+
+import com.alibaba.nacos.api.naming.listener.NamingEvent;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import com.mofari.heimdall.config.MonitoringProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClusterCoordinatorTest {
+
+    private static final int SERVICES = 3000;
+
+    @Test
+    void eachServiceHasExactlyOneOwner() {
+        InMemoryClusterMembership.Registry registry = new InMemoryClusterMembership.Registry();
+        List<ClusterCoordinator> nodes = List.of(node(registry, "a"), node(registry, "b"), node(registry, "c"));
+
+        Map<String, Integer> owned = new HashMap<>();
+        for (int i = 0; i < SERVICES; i++) {
+            String service = "svc-" + i + ".app";
+            int owners = 0;
+            for (ClusterCoordinator node : nodes) {
+                if (node.isOwner(service)) {
+                    owners++;
+                    owned.merge(String.valueOf(node.getStats().get("nodeId")), 1, Integer::sum);
+                }
+            }
+            assertEquals(1, owners, service);
+        }
+        // 虚拟节点使负载大致均匀
+        for (int count : owned.values()) {
+            assertTrue(count > SERVICES / 3 * 0.7 && count < SERVICES / 3 * 1.3, owned.toString());
+        }
+        assertEquals(1, nodes.stream().filter(ClusterCoordinator::isLeader).count());
+        nodes.forEach(ClusterCoordinator::shutdown);
+    }
+
+    @Test
+    void survivorsTakeOverOnlyTheFailedNodesServices() throws InterruptedException {
+        InMemoryClusterMembership.Registry registry = new InMemoryClusterMembership.Registry();
+        ClusterCoordinator a = node(registry, "a");
+        ClusterCoordinator b = node(registry, "b");
+        ClusterCoordinator c = node(registry, "c");
+        List<String> ownedByA = new ArrayList<>();
+        List<String> ownedByB = new ArrayList<>();
+        for (int i = 0; i < SERVICES; i++) {
+            String service = "svc-" + i + ".app";
+            if (a.isOwner(service)) {
+                ownedByA.add(service);
+            } else if (b.isOwner(service)) {
+                ownedByB.add(service);
+            }
+        }
+        CountDownLatch rebalanced = new CountDownLatch(1);
+        a.addRebalanceListener(rebalanced::countDown);
+
+        c.shutdown();
+
+        assertTrue(rebalanced.await(5, TimeUnit.SECONDS));
+        for (String service : ownedByA) {
+            assertTrue(a.isOwner(service), service);
+        }
+        for (String service : ownedByB) {
+            assertTrue(b.isOwner(service), service);
+        }
+        for (int i = 0; i < SERVICES; i++) {
+            String service = "svc-" + i + ".app";
+            assertTrue(a.isOwner(service) ^ b.isOwner(service), service);
+        }
+        a.shutdown();
+        b.shutdown();
+    }
+
+    @Test
+    void takenOverServicesAlertExactlyOnceAgainstThePreviousOwnersState() throws InterruptedException {
+        InMemoryClusterMembership.Registry registry = new InMemoryClusterMembership.Registry();
+        ClusterCoordinator a = node(registry, "a");
+        ClusterCoordinator b = node(registry, "b");
+        List<String> ownedByB = new ArrayList<>();
+        String ownedByA = null;
+        for (int i = 0; ownedByB.size() < 2 || ownedByA == null; i++) {
+            String service = "svc-" + i + ".app";
+            if (b.isOwner(service)) {
+                ownedByB.add(service);
+            } else if (ownedByA == null) {
+                ownedByA = service;
+            }
+        }
+        String alreadyDown = ownedByB.get(0);
+        String goesDown = ownedByB.get(1);
+        // b 已为 alreadyDown 发过宕机告警并发布了 DOWN 集合；goesDown 在 b 宕机期间才宕机
+        b.publishMetadata(Map.of(ClusterCoordinator.DOWN_SERVICES_METADATA, alreadyDown));
+
+        CountDownLatch rebalanced = new CountDownLatch(1);
+        a.addRebalanceListener(rebalanced::countDown);
+        b.shutdown();
+        assertTrue(rebalanced.await(5, TimeUnit.SECONDS));
+        assertEquals(ServiceStatus.DOWN, a.takeoverBaseline(alreadyDown));
+        assertEquals(ServiceStatus.RUNNING, a.takeoverBaseline(goesDown));
+        assertNull(a.takeoverBaseline(ownedByA));
+
+        List<ServiceTransition> alerts = new CopyOnWriteArrayList<>();
+        MonitoringProperties properties = new MonitoringProperties();
+        properties.setTargetClusters(List.of("DEFAULT"));
+        properties.getEventProcessing().setShards(1);
+        ShardedEventProcessor eventProcessor = new ShardedEventProcessor();
+        ReflectionTestUtils.setField(eventProcessor, "monitoringProperties", properties);
+        eventProcessor.init();
+        FlapDamper flapDamper = new FlapDamper();
+        ReflectionTestUtils.setField(flapDamper, "monitoringProperties", properties);
+        flapDamper.init();
+        NacosListenerService listener = new NacosListenerService();
+        ReflectionTestUtils.setField(listener, "appStatusStore", new AppStatusStore());
+        ReflectionTestUtils.setField(listener, "flapDamper", flapDamper);
+        ReflectionTestUtils.setField(listener, "monitoringProperties", properties);
+        ReflectionTestUtils.setField(listener, "eventProcessor", eventProcessor);
+        ReflectionTestUtils.setField(listener, "clusterCoordinator", a);
+        ReflectionTestUtils.setField(listener, "metrics", new HeimdallMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(listener, "alertAggregator", new AlertAggregator() {
+            @Override
+            public void submit(ServiceTransition transition) {
+                alerts.add(transition);
+            }
+        });
+        listener.init();
+
+        for (String service : ownedByB) {
+            listener.track(service, a.takeoverBaseline(service));
+        }
+        process(eventProcessor, listener, alreadyDown, false);
+        process(eventProcessor, listener, goesDown, false);
+        // 只有交接期间宕机的服务告警，b 已告警过的服务不重复告警
+        assertEquals(List.of(goesDown + ":DOWN"), summarize(alerts));
+
+        process(eventProcessor, listener, alreadyDown, true);
+        process(eventProcessor, listener, goesDown, true);
+        assertEquals(List.of(goesDown + ":DOWN", alreadyDown + ":RECOVERY", goesDown + ":RECOVERY"), summarize(alerts));
+
+        flapDamper.shutdown();
+        eventProcessor.shutdown();
+        a.shutdown();
+    }
+
+    private static void process(ShardedEventProcessor eventProcessor, NacosListenerService listener,
+                                String service, boolean healthy) throws InterruptedException {
+        Instance instance = new Instance();
+        instance.setIp("10.0.0.1");
+        instance.setPort(8080);
+        instance.setClusterName("DEFAULT");
+        instance.setHealthy(healthy);
+        NamingEvent event = new NamingEvent(service, "DEFAULT_GROUP", null, List.of(instance));
+        CountDownLatch done = new CountDownLatch(1);
+        eventProcessor.execute(service, () -> {
+            listener.handleNacosEvent(event, System.nanoTime());
+            done.countDown();
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    private static List<String> summarize(List<ServiceTransition> alerts) {
+        return alerts.stream().map(t -> t.serviceId() + ":" + t.level()).toList();
+    }
+
+    private static ClusterCoordinator node(InMemoryClusterMembership.Registry registry, String id) {
+        MonitoringProperties properties = new MonitoringProperties();
+        properties.getCluster().setEnabled(true);
+        properties.getCluster().setMetadataPublishIntervalMillis(0);
+        ClusterCoordinator coordinator = new ClusterCoordinator();
+        ReflectionTestUtils.setField(coordinator, "membership", new InMemoryClusterMembership(registry, id));
+        ReflectionTestUtils.setField(coordinator, "monitoringProperties", properties);
+        coordinator.init();
+        return coordinator;
+    }
+}
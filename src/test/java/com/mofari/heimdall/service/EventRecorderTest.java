@@ -0,0 +1,152 @@
+package com.mofari.heimdall.service;
+
+import com.alibaba.nacos.api.naming.listener.NamingEvent;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import com.mofari.heimdall.config.MonitoringProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventRecorderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordsEventsAcrossRotatedFilesInOrder() throws Exception {
+        // 文件只够写几条记录，迫使写入过程中多次切换文件
+        EventRecorder recorder = open(2048, 100);
+        for (int i = 0; i < 200; i++) {
+            recorder.record(event("svc-" + (i % 7) + ".app", i));
+        }
+        recorder.shutdown();
+
+        List<EventRecorder.RecordingFile> files = recorder.listFiles();
+        assertTrue(files.size() > 1);
+        List<EventLog.RecordedEvent> events = readAll(files);
+        assertEquals(200, events.size());
+        for (int i = 0; i < 200; i++) {
+            NamingEvent event = events.get(i).event();
+            assertEquals("svc-" + (i % 7) + ".app", event.getServiceName());
+            assertEquals("DEFAULT_GROUP", event.getGroupName());
+            assertEquals(i % 4 + 1, event.getInstances().size());
+            Instance first = event.getInstances().get(0);
+            assertEquals("10.0.0." + i % 250, first.getIp());
+            assertEquals(8080, first.getPort());
+            assertEquals("c1", first.getClusterName());
+            assertEquals(i % 2 == 0, first.isHealthy());
+            assertEquals(i % 4 == 0 ? "c1" : "c2", event.getInstances().get(event.getInstances().size() - 1).getClusterName());
+        }
+    }
+
+    @Test
+    void deletesOldestFilesBeyondRetention() throws Exception {
+        EventRecorder recorder = open(1024, 3);
+        for (int i = 0; i < 200; i++) {
+            recorder.record(event("svc.app", i));
+        }
+        recorder.shutdown();
+
+        assertEquals(3, recorder.listFiles().size());
+        assertNull(recorder.resolve("../events.rec"));
+    }
+
+    @Test
+    void stopsAtTruncatedRecord() throws Exception {
+        EventRecorder recorder = open(1024 * 1024, 10);
+        for (int i = 0; i < 10; i++) {
+            recorder.record(event("svc.app", i));
+        }
+        recorder.shutdown();
+
+        Path file = recorder.resolve(recorder.listFiles().get(0).name());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+        try (EventLog.Reader reader = new EventLog.Reader(file, 4096)) {
+            int count = 0;
+            while (reader.next() != null) {
+                count++;
+            }
+            assertEquals(9, count);
+        }
+    }
+
+    @Test
+    void stopsAtCorruptLengthWithoutAllocatingIt() throws Exception {
+        EventRecorder recorder = open(1024 * 1024, 10);
+        for (int i = 0; i < 3; i++) {
+            recorder.record(event("svc.app", i));
+        }
+        recorder.shutdown();
+
+        // 把第二条记录的长度改成接近 Integer.MAX_VALUE
+        Path file = recorder.resolve(recorder.listFiles().get(0).name());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer length = ByteBuffer.allocate(4);
+            channel.read(length, EventLog.FILE_HEADER);
+            long second = EventLog.FILE_HEADER + EventLog.RECORD_HEADER + length.flip().getInt();
+            channel.write(ByteBuffer.allocate(4).putInt(0, Integer.MAX_VALUE - 16), second);
+        }
+        try (EventLog.Reader reader = new EventLog.Reader(file, 4096)) {
+            assertNotNull(reader.next());
+            assertNull(reader.next());
+        }
+    }
+
+    private EventRecorder open(long maxFileBytes, int maxFiles) {
+        MonitoringProperties properties = new MonitoringProperties();
+        MonitoringProperties.Recorder config = properties.getRecorder();
+        config.setEnabled(true);
+        config.setDirectory(directory.toString());
+        config.setMaxFileBytes(maxFileBytes);
+        config.setMaxFiles(maxFiles);
+        config.setFlushIntervalMillis(10);
+        EventRecorder recorder = new EventRecorder();
+        ReflectionTestUtils.setField(recorder, "monitoringProperties", properties);
+        recorder.init();
+        assertTrue(recorder.isEnabled());
+        return recorder;
+    }
+
+    private List<EventLog.RecordedEvent> readAll(List<EventRecorder.RecordingFile> files) throws IOException {
+        List<EventLog.RecordedEvent> events = new ArrayList<>();
+        for (EventRecorder.RecordingFile file : files) {
+            try (EventLog.Reader reader = new EventLog.Reader(directory.resolve(file.name()), 4096)) {
+                EventLog.RecordedEvent event;
+                while ((event = reader.next()) != null) {
+                    events.add(event);
+                }
+            }
+        }
+        assertFalse(events.isEmpty());
+        return events;
+    }
+
+    private static NamingEvent event(String service, int i) {
+        List<Instance> instances = new ArrayList<>();
+        for (int j = 0; j <= i % 4; j++) {
+            Instance instance = new Instance();
+            instance.setIp("10.0.0." + (i + j) % 250);
+            instance.setPort(8080);
+            instance.setClusterName(j == 0 ? "c1" : "c2");
+            instance.setHealthy((i + j) % 2 == 0);
+            instances.add(instance);
+        }
+        return new NamingEvent(service, "DEFAULT_GROUP", null, instances);
+    }
+}
@@ -0,0 +1,84 @@
+package com.mofari.heimdall.service;
+
+import com.mofari.heimdall.config.MonitoringProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static com.mofari.heimdall.service.ServiceStatus.DOWN;
+import static com.mofari.heimdall.service.ServiceStatus.FLAPPING;
+import static com.mofari.heimdall.service.ServiceStatus.RUNNING;
+import static com.mofari.heimdall.service.ServiceStatus.UNKNOWN;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FlapDamperTest {
+
+    private static final String SERVICE = "order-service.app";
+
+    private FlapDamper damper;
+    private MonitoringProperties.FlapDamping config;
+
+    @BeforeEach
+    void setUp() {
+        MonitoringProperties properties = new MonitoringProperties();
+        config = properties.getFlapDamping();
+        config.setSevereConfirmObservations(3);
+        config.setSevereHoldMillis(10_000);
+        config.setFlapThreshold(4);
+        config.setFlapWindowMillis(60_000);
+        config.setFlapQuietMillis(30_000);
+        damper = new FlapDamper();
+        ReflectionTestUtils.setField(damper, "monitoringProperties", properties);
+        damper.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        damper.shutdown();
+    }
+
+    @Test
+    void firstObservationIsCommittedImmediately() {
+        FlapDamper.Decision decision = damper.observe(SERVICE, UNKNOWN, DOWN, 0);
+        assertEquals(new FlapDamper.Decision(DOWN, UNKNOWN), decision);
+    }
+
+    @Test
+    void downIsCommittedAfterHoldTime() {
+        damper.observe(SERVICE, UNKNOWN, RUNNING, 0);
+        assertNull(damper.observe(SERVICE, RUNNING, DOWN, 1_000));
+        assertNull(damper.evaluate(SERVICE, RUNNING, 5_000));
+        assertEquals(new FlapDamper.Decision(DOWN, RUNNING), damper.evaluate(SERVICE, RUNNING, 11_000));
+    }
+
+    @Test
+    void downIsCommittedAfterConsecutiveObservations() {
+        damper.observe(SERVICE, UNKNOWN, RUNNING, 0);
+        assertNull(damper.observe(SERVICE, RUNNING, DOWN, 1_000));
+        assertNull(damper.observe(SERVICE, RUNNING, DOWN, 1_100));
+        assertEquals(new FlapDamper.Decision(DOWN, RUNNING), damper.observe(SERVICE, RUNNING, DOWN, 1_200));
+    }
+
+    @Test
+    void shortBlipIsSuppressed() {
+        damper.observe(SERVICE, UNKNOWN, RUNNING, 0);
+        assertNull(damper.observe(SERVICE, RUNNING, DOWN, 1_000));
+        assertNull(damper.observe(SERVICE, RUNNING, RUNNING, 2_000));
+        assertNull(damper.evaluate(SERVICE, RUNNING, 20_000));
+    }
+
+    @Test
+    void flappingServiceIsMarkedAndAlertsAreSuppressedUntilStable() {
+        damper.observe(SERVICE, UNKNOWN, RUNNING, 0);
+        assertNull(damper.observe(SERVICE, RUNNING, DOWN, 1_000));
+        assertNull(damper.observe(SERVICE, RUNNING, RUNNING, 2_000));
+        assertNull(damper.observe(SERVICE, RUNNING, DOWN, 3_000));
+        assertEquals(new FlapDamper.Decision(FLAPPING, null), damper.observe(SERVICE, RUNNING, RUNNING, 4_000));
+        assertNull(damper.observe(SERVICE, FLAPPING, DOWN, 5_000));
+        assertNull(damper.evaluate(SERVICE, FLAPPING, 20_000));
+        // 稳定为 DOWN，按抖动前的 RUNNING 判断需要告警
+        assertEquals(new FlapDamper.Decision(DOWN, RUNNING), damper.evaluate(SERVICE, FLAPPING, 35_000));
+    }
+}
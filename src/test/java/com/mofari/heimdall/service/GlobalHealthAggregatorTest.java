@@ -0,0 +1,157 @@
+package com.mofari.heimdall.service;
+
+import com.mofari.heimdall.config.MonitoringProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GlobalHealthAggregatorTest {
+
+    private final List<AlertLevel> sent = new CopyOnWriteArrayList<>();
+    private AppStatusStore store;
+    private GlobalHealthAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        store = new AppStatusStore();
+        aggregator = aggregator(store, new ClusterCoordinator());
+    }
+
+    @Test
+    void countsFollowTransitionsAndRemovals() {
+        store.update("a", "a", ServiceStatus.RUNNING, 2, 2, List.of("c1"));
+        store.update("b", "b", ServiceStatus.RUNNING, 1, 1, List.of("c1", "c2"));
+        store.update("b", "b", ServiceStatus.DOWN, 0, 1, List.of("c2"));
+        store.remove("a");
+        aggregator.sample();
+
+        GlobalHealthAggregator.HealthSummary summary = aggregator.getSummary();
+        assertEquals(1, summary.total());
+        assertEquals(0L, summary.byStatus().get(ServiceStatus.RUNNING));
+        assertEquals(1L, summary.byStatus().get(ServiceStatus.DOWN));
+        assertEquals(0L, summary.byCluster().get("c1").get(ServiceStatus.RUNNING));
+        assertEquals(1L, summary.byCluster().get("c2").get(ServiceStatus.DOWN));
+    }
+
+    @Test
+    void raisesAndClearsOncePerEpisode() {
+        store.update("a", "a", ServiceStatus.DOWN, 0, 1, List.of());
+        store.update("b", "b", ServiceStatus.RUNNING, 1, 1, List.of());
+
+        // 窗口未填满前不告警
+        aggregator.sample();
+        aggregator.sample();
+        assertTrue(sent.isEmpty());
+        aggregator.sample();
+        aggregator.sample();
+        assertEquals(List.of(AlertLevel.CRITICAL), sent);
+        assertTrue(aggregator.isGlobalAlertActive());
+
+        // 短暂恢复不足一个窗口，不发送恢复通知
+        store.update("a", "a", ServiceStatus.RUNNING, 1, 1, List.of());
+        aggregator.sample();
+        aggregator.sample();
+        assertEquals(1, sent.size());
+        aggregator.sample();
+        assertEquals(List.of(AlertLevel.CRITICAL, AlertLevel.RECOVERY), sent);
+        assertFalse(aggregator.isGlobalAlertActive());
+        aggregator.sample();
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    void clusterRatioCoversAllMembersAndAlertStateSurvivesFailover() throws InterruptedException {
+        InMemoryClusterMembership.Registry registry = new InMemoryClusterMembership.Registry();
+        ClusterCoordinator a = node(registry, "a");
+        ClusterCoordinator b = node(registry, "b");
+        AppStatusStore storeA = new AppStatusStore();
+        AppStatusStore storeB = new AppStatusStore();
+        GlobalHealthAggregator onA = aggregator(storeA, a);
+        GlobalHealthAggregator onB = aggregator(storeB, b);
+        storeA.update("a1", "a1", ServiceStatus.RUNNING, 1, 1, List.of());
+        for (int i = 1; i <= 3; i++) {
+            storeB.update("b" + i, "b" + i, ServiceStatus.DOWN, 0, 1, List.of());
+        }
+
+        // 主节点 a 自己的分片全部正常，但全集群 3/4 的服务宕机；两个节点都进入告警状态，只有主节点发送
+        for (int i = 0; i < 3; i++) {
+            onB.sample();
+            onA.sample();
+        }
+        assertTrue(a.isLeader());
+        assertEquals(List.of(AlertLevel.CRITICAL), sent);
+        assertEquals(0.75, onA.getSummary().alertRatio());
+        assertTrue(onA.isGlobalAlertActive());
+        assertTrue(onB.isGlobalAlertActive());
+
+        // 新加入的节点窗口未填满时沿用其它成员的告警状态
+        ClusterCoordinator c = node(registry, "c");
+        GlobalHealthAggregator onC = aggregator(new AppStatusStore(), c);
+        onC.sample();
+        assertTrue(onC.isGlobalAlertActive());
+
+        // 主节点下线后 b 成为主节点，已有的告警状态使其不重复告警，恢复时由 b 发送一次恢复通知
+        CountDownLatch rebalanced = new CountDownLatch(1);
+        b.addRebalanceListener(rebalanced::countDown);
+        a.shutdown();
+        assertTrue(rebalanced.await(5, TimeUnit.SECONDS));
+        assertTrue(b.isLeader());
+        onB.sample();
+        assertEquals(1, sent.size());
+        for (int i = 1; i <= 3; i++) {
+            storeB.update("b" + i, "b" + i, ServiceStatus.RUNNING, 1, 1, List.of());
+        }
+        for (int i = 0; i < 3; i++) {
+            onB.sample();
+        }
+        assertEquals(List.of(AlertLevel.CRITICAL, AlertLevel.RECOVERY), sent);
+        b.shutdown();
+        c.shutdown();
+    }
+
+    private GlobalHealthAggregator aggregator(AppStatusStore appStatusStore, ClusterCoordinator clusterCoordinator) {
+        MonitoringProperties properties = new MonitoringProperties();
+        properties.setGlobalDownThreshold(0.5);
+        properties.getGlobalHealth().setWindowMillis(3_000);
+        properties.getGlobalHealth().setSampleIntervalMillis(1_000);
+        AlertDispatcher dispatcher = new AlertDispatcher() {
+            @Override
+            public boolean dispatch(AlertMessage message) {
+                sent.add(message.getLevel());
+                return true;
+            }
+        };
+        GlobalHealthAggregator result = new GlobalHealthAggregator();
+        ReflectionTestUtils.setField(result, "appStatusStore", appStatusStore);
+        ReflectionTestUtils.setField(result, "alertDispatcher", dispatcher);
+        ReflectionTestUtils.setField(result, "monitoringProperties", properties);
+        ReflectionTestUtils.setField(result, "clusterCoordinator", clusterCoordinator);
+        AlertRouter router = new AlertRouter();
+        ReflectionTestUtils.setField(router, "monitoringProperties", properties);
+        ReflectionTestUtils.setField(router, "notifiers", List.of());
+        router.init();
+        ReflectionTestUtils.setField(result, "alertRouter", router);
+        result.init();
+        return result;
+    }
+
+    private static ClusterCoordinator node(InMemoryClusterMembership.Registry registry, String id) {
+        MonitoringProperties properties = new MonitoringProperties();
+        properties.getCluster().setEnabled(true);
+        properties.getCluster().setMetadataPublishIntervalMillis(0);
+        ClusterCoordinator coordinator = new ClusterCoordinator();
+        ReflectionTestUtils.setField(coordinator, "membership", new InMemoryClusterMembership(registry, id));
+        ReflectionTestUtils.setField(coordinator, "monitoringProperties", properties);
+        coordinator.init();
+        return coordinator;
+    }
+}
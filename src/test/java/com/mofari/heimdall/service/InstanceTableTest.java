@@ -0,0 +1,66 @@
+package com.mofari.heimdall.service;
+
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class InstanceTableTest {
+
+    private static final Set<String> TARGET = Set.of("c1", "c2");
+
+    @Test
+    void reportsAddedRemovedAndHealthFlips() {
+        InstanceTable table = new InstanceTable();
+        InstanceTable.InstanceDiff first = table.apply(List.of(
+                instance("10.0.4.1", 8080, "c1", true),
+                instance("10.0.4.1", 8081, "c1", true),
+                instance("10.0.4.2", 8080, "c2", true),
+                instance("10.0.9.9", 8080, "other", false)), TARGET);
+        assertEquals(3, first.added().size());
+        assertEquals(3, table.total());
+        assertEquals(3, table.healthy());
+        assertEquals(List.of("c1", "c2"), table.clusters());
+
+        InstanceTable.InstanceDiff second = table.apply(List.of(
+                instance("10.0.4.1", 8080, "c1", false),
+                instance("10.0.4.1", 8081, "c1", true),
+                instance("10.0.4.3", 8080, "c1", true)), TARGET);
+        assertEquals(List.of(new InstanceTable.InstanceChange("10.0.4.3", 8080, "c1", true)), second.added());
+        assertEquals(List.of(new InstanceTable.InstanceChange("10.0.4.2", 8080, "c2", true)), second.removed());
+        assertEquals(List.of(new InstanceTable.InstanceChange("10.0.4.1", 8080, "c1", false)), second.healthChanged());
+        assertEquals(3, table.total());
+        assertEquals(2, table.healthy());
+        assertEquals(List.of("c1"), table.clusters());
+        assertEquals(List.of("10.0.4.1:8080"), table.unhealthyAddresses(5));
+    }
+
+    @Test
+    void unchangedListProducesNoDiff() {
+        InstanceTable table = new InstanceTable();
+        List<Instance> instances = List.of(instance("10.0.4.1", 8080, "c1", true), instance("10.0.4.2", 8080, "c1", false));
+        table.apply(instances, TARGET);
+        List<String> clusters = table.clusters();
+
+        assertSame(InstanceTable.NO_CHANGE, table.apply(instances, TARGET));
+        assertSame(clusters, table.clusters());
+        assertEquals(1, table.healthy());
+
+        assertEquals(2, table.apply(List.of(), TARGET).removed().size());
+        assertEquals(0, table.total());
+        assertEquals(List.of(), table.clusters());
+    }
+
+    private static Instance instance(String ip, int port, String cluster, boolean healthy) {
+        Instance instance = new Instance();
+        instance.setIp(ip);
+        instance.setPort(port);
+        instance.setClusterName(cluster);
+        instance.setHealthy(healthy);
+        return instance;
+    }
+}
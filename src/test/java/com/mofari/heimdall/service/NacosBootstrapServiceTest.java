@@ -0,0 +1,205 @@
+package com.mofari.heimdall.service;
+
+import com.alibaba.nacos.api.exception.NacosException;
+import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.naming.pojo.ListView;
+import com.mofari.heimdall.config.MonitoringProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NacosBootstrapServiceTest {
+
+    private final Set<String> failingSubscribes = ConcurrentHashMap.newKeySet();
+    private final Map<String, AtomicInteger> subscribeCalls = new ConcurrentHashMap<>();
+    private final AtomicInteger primeCalls = new AtomicInteger();
+    private final AtomicBoolean listingFails = new AtomicBoolean();
+    private final Map<String, AtomicInteger> unsubscribeCalls = new ConcurrentHashMap<>();
+
+    private MonitoringProperties properties;
+
+    private ShardedEventProcessor eventProcessor;
+    private FlapDamper flapDamper;
+    private NacosListenerService listener;
+    private NacosBootstrapService bootstrap;
+
+    @BeforeEach
+    void setUp() {
+        properties = new MonitoringProperties();
+        properties.setTargetClusters(List.of("DEFAULT"));
+        properties.getEventProcessing().setShards(1);
+        properties.getBootstrap().setRateLimitPerSecond(10_000);
+
+        eventProcessor = new ShardedEventProcessor();
+        ReflectionTestUtils.setField(eventProcessor, "monitoringProperties", properties);
+        eventProcessor.init();
+        flapDamper = new FlapDamper();
+        ReflectionTestUtils.setField(flapDamper, "monitoringProperties", properties);
+        flapDamper.init();
+        ClusterCoordinator clusterCoordinator = new ClusterCoordinator();
+        ReflectionTestUtils.setField(clusterCoordinator, "monitoringProperties", properties);
+
+        NacosSources sources = new NacosSources(List.of(new NacosSources.Source("", "", List.of("DEFAULT_GROUP"), namingService())), Map.of());
+        listener = new NacosListenerService();
+        ReflectionTestUtils.setField(listener, "nacosSources", sources);
+        ReflectionTestUtils.setField(listener, "appStatusStore", new AppStatusStore());
+        ReflectionTestUtils.setField(listener, "flapDamper", flapDamper);
+        AlertRouter router = new AlertRouter();
+        ReflectionTestUtils.setField(router, "monitoringProperties", properties);
+        ReflectionTestUtils.setField(router, "notifiers", List.of());
+        router.init();
+        ReflectionTestUtils.setField(listener, "alertRouter", router);
+        ReflectionTestUtils.setField(listener, "monitoringProperties", properties);
+        ReflectionTestUtils.setField(listener, "eventProcessor", eventProcessor);
+        ReflectionTestUtils.setField(listener, "clusterCoordinator", clusterCoordinator);
+        ReflectionTestUtils.setField(listener, "metrics", new HeimdallMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(listener, "eventRecorder", new EventRecorder());
+        listener.init();
+
+        bootstrap = new NacosBootstrapService();
+        ReflectionTestUtils.setField(bootstrap, "nacosSources", sources);
+        ReflectionTestUtils.setField(bootstrap, "nacosListenerService", listener);
+        ReflectionTestUtils.setField(bootstrap, "appInfoService", new AppInfoService() {
+            @Override
+            public void warmUp(Collection<String> appNames) {
+            }
+        });
+        ReflectionTestUtils.setField(bootstrap, "monitoringProperties", properties);
+        ReflectionTestUtils.setField(bootstrap, "clusterCoordinator", clusterCoordinator);
+        bootstrap.init();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        bootstrap.shutdown();
+        flapDamper.shutdown();
+        eventProcessor.shutdown();
+    }
+
+    @Test
+    void subscribesEvenWhenPrimeFailsAndRetriesFailedSubscriptionsOnRefresh() throws InterruptedException {
+        failingSubscribes.add("order.app");
+
+        bootstrap.bootstrap();
+
+        // 查询实例全部失败，但每个服务都尝试了订阅
+        assertEquals(2, primeCalls.get());
+        assertEquals(1, subscribeCalls.get("order.app").get());
+        assertEquals(1, subscribeCalls.get("user.app").get());
+        assertEquals(Set.of("order.app", "user.app"), listener.getTrackedServices());
+        assertTrue(listener.isSubscribed("user.app"));
+        assertEquals(false, listener.isSubscribed("order.app"));
+
+        // 下一轮增量发现在线程池中重试订阅失败的服务，已订阅的服务不再重复订阅
+        failingSubscribes.clear();
+        bootstrap.refresh();
+
+        waitFor(() -> listener.isSubscribed("order.app"));
+        assertEquals(2, subscribeCalls.get("order.app").get());
+        assertEquals(1, subscribeCalls.get("user.app").get());
+        assertEquals(1, bootstrap.getProgress().get("servicesRetried"));
+
+        bootstrap.refresh();
+        assertEquals(2, subscribeCalls.get("order.app").get());
+        assertEquals(1, bootstrap.getProgress().get("servicesRetried"));
+    }
+
+    @Test
+    void failedSourceRecoversOnRefresh() throws InterruptedException {
+        listingFails.set(true);
+        bootstrap.bootstrap();
+        assertEquals(NacosBootstrapService.Phase.FAILED, bootstrap.getPhase());
+        assertEquals(Set.of(), listener.getTrackedServices());
+
+        listingFails.set(false);
+        bootstrap.refresh();
+        assertEquals(NacosBootstrapService.Phase.COMPLETED, bootstrap.getPhase());
+        waitFor(() -> listener.getSubscribedCount() == 2);
+    }
+
+    @Test
+    void reloadSubscribesAndUnsubscribesOnlyAffectedServices() throws InterruptedException {
+        bootstrap.bootstrap();
+        MonitoringConfigReloader reloader = new MonitoringConfigReloader();
+        ReflectionTestUtils.setField(reloader, "monitoringProperties", properties);
+        ReflectionTestUtils.setField(reloader, "nacosListenerService", listener);
+        ReflectionTestUtils.setField(reloader, "nacosBootstrapService", bootstrap);
+        reloader.init();
+
+        // 排除 user.app：只注销它，order.app 的订阅不受影响
+        assertTrue(reloader.apply("spring.monitoring.exclude-service-patterns=user.*", "test", "monitoring.properties"));
+        assertEquals(Set.of("order.app"), listener.getTrackedServices());
+        assertEquals(1, unsubscribeCalls.get("user.app").get());
+        assertEquals(1, subscribeCalls.get("order.app").get());
+
+        // 配置中删除该字段后恢复为启动时的规则，user.app 重新订阅
+        assertTrue(reloader.apply("spring.monitoring.target-clusters=DEFAULT", "test", "monitoring.properties"));
+        waitFor(() -> listener.isSubscribed("user.app"));
+        assertEquals(Set.of("order.app", "user.app"), listener.getTrackedServices());
+        assertEquals(2, subscribeCalls.get("user.app").get());
+        assertEquals(1, subscribeCalls.get("order.app").get());
+        assertEquals(List.of(), properties.getExcludeServicePatterns());
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met within 5s");
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * 只支持启动订阅用到的方法：列出 order.app 和 user.app 两个服务（listingFails 时失败），查询实例总是失败，
+     * failingSubscribes 中的服务订阅失败，取消订阅只计数。
+     */
+    private NamingService namingService() {
+        return (NamingService) Proxy.newProxyInstance(NamingService.class.getClassLoader(), new Class<?>[]{NamingService.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getServicesOfServer" -> {
+                        if (listingFails.get()) {
+                            throw new NacosException(NacosException.SERVER_ERROR, "unavailable");
+                        }
+                        ListView<String> page = new ListView<>();
+                        page.setData(List.of("order.app", "user.app"));
+                        page.setCount(2);
+                        yield page;
+                    }
+                    case "getAllInstances" -> {
+                        primeCalls.incrementAndGet();
+                        throw new NacosException(NacosException.SERVER_ERROR, "timeout");
+                    }
+                    case "subscribe" -> {
+                        String serviceName = (String) args[0];
+                        subscribeCalls.computeIfAbsent(serviceName, k -> new AtomicInteger()).incrementAndGet();
+                        if (failingSubscribes.contains(serviceName)) {
+                            throw new NacosException(NacosException.SERVER_ERROR, "unavailable");
+                        }
+                        yield null;
+                    }
+                    case "unsubscribe" -> {
+                        unsubscribeCalls.computeIfAbsent((String) args[0], k -> new AtomicInteger()).incrementAndGet();
+                        yield null;
+                    }
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "StubNamingService";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -0,0 +1,112 @@
+package com.mofari.heimdall.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mofari.heimdall.config.MonitoringProperties;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutboundHttpClientTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private HttpServer server;
+    private OutboundHttpClient client;
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/echo", exchange -> {
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            respond(exchange, 200, body);
+        });
+        server.createContext("/error", exchange -> respond(exchange, 500, "boom".getBytes(StandardCharsets.UTF_8)));
+        server.createContext("/hang", exchange -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 200, new byte[0]);
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        MonitoringProperties properties = new MonitoringProperties();
+        properties.getOutboundHttp().setRequestTimeoutMillis(300);
+        // 本地桩服务只支持 HTTP/1.1
+        properties.getOutboundHttp().setHttp2(false);
+        client = new OutboundHttpClient();
+        ReflectionTestUtils.setField(client, "monitoringProperties", properties);
+        ReflectionTestUtils.setField(client, "objectMapper", new ObjectMapper());
+        client.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        client.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void postsJsonAndRecordsHostMetrics() throws Exception {
+        OutboundHttpClient.Response response = client.postJson(baseUrl + "/echo", Map.of("msg_type", "text"));
+        assertEquals(200, response.statusCode());
+        assertEquals("{\"msg_type\":\"text\"}", response.body());
+
+        assertEquals(200, client.getAsync(baseUrl + "/echo").get(1, TimeUnit.SECONDS).statusCode());
+
+        Map<String, Object> host = hostStats();
+        assertEquals(2L, host.get("requests"));
+        assertEquals(0L, host.get("errors"));
+        assertEquals(0, host.get("inFlight"));
+    }
+
+    @Test
+    void nonSuccessStatusIsReportedAsError() {
+        OutboundHttpClient.HttpStatusException e = assertThrows(OutboundHttpClient.HttpStatusException.class,
+                () -> client.get(baseUrl + "/error"));
+        assertEquals(500, e.getStatusCode());
+        assertEquals(1L, hostStats().get("errors"));
+    }
+
+    @Test
+    void hungEndpointTimesOut() {
+        long start = System.nanoTime();
+        assertThrows(IOException.class, () -> client.postJson(baseUrl + "/hang", List.of()));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 3000);
+        assertEquals(1L, hostStats().get("errors"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> hostStats() {
+        Map<String, Object> hosts = (Map<String, Object>) client.getStats().get("hosts");
+        return (Map<String, Object>) hosts.get(baseUrl);
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            exchange.getResponseBody().write(body);
+        }
+        exchange.close();
+    }
+}
@@ -0,0 +1,102 @@
+package com.mofari.heimdall.service;
+
+import com.mofari.heimdall.config.MonitoringProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServiceFilterTest {
+
+    @Test
+    void keywordsMatchIgnoringCaseIncludingOverlaps() {
+        MonitoringProperties properties = new MonitoringProperties();
+        properties.setExcludeServiceKeywords(List.of("Sidecar", "cart", "art-x", "he"));
+        ServiceFilter filter = ServiceFilter.compile(properties);
+
+        assertFalse(filter.matches("order-SIDECAR.app"));
+        // "cart" 匹配失败后经失败指针转到 "art-x"
+        assertFalse(filter.matches("carart-x.app"));
+        assertFalse(filter.matches("THE-app"));
+        assertTrue(filter.matches("order.app"));
+        assertTrue(filter.matches("car-art.app"));
+    }
+
+    @Test
+    void appliesWhitelistExcludeAndIncludePatterns() {
+        MonitoringProperties properties = new MonitoringProperties();
+        properties.setWhitelistServices(List.of("pay-tool.app"));
+        properties.setIncludeServicePatterns(List.of("pay-*", "regex:order-v\\d+\\.app"));
+        properties.setExcludeServicePatterns(List.of("*-canary.app", "pay-?.app"));
+        ServiceFilter filter = ServiceFilter.compile(properties);
+
+        assertTrue(filter.matches("pay-gateway.app"));
+        assertTrue(filter.matches("order-v2.app"));
+        assertFalse(filter.matches("order-vx.app"));
+        assertFalse(filter.matches("user.app"));
+        assertFalse(filter.matches("pay-tool.app"));
+        assertFalse(filter.matches("pay-gateway-canary.app"));
+        assertFalse(filter.matches("pay-a.app"));
+        assertTrue(filter.matches("pay-ab.app"));
+
+        assertTrue(ServiceFilter.compile(new MonitoringProperties()).matches("anything.app"));
+        properties.setExcludeServicePatterns(List.of("regex:(unclosed"));
+        assertThrows(IllegalArgumentException.class, () -> ServiceFilter.compile(properties));
+    }
+
+    @Test
+    void reloadOverridesPresentFieldsRestoresMissingOnesAndRejectsInvalidRules() {
+        MonitoringProperties properties = new MonitoringProperties();
+        properties.setTargetClusters(List.of("a"));
+        properties.setExcludeServiceKeywords(List.of("sidecar"));
+        List<Boolean> filterChanges = new ArrayList<>();
+        NacosListenerService listener = new NacosListenerService() {
+            @Override
+            public synchronized boolean reloadFilters() {
+                return true;
+            }
+        };
+        NacosBootstrapService bootstrap = new NacosBootstrapService() {
+            @Override
+            public void applyFilterChange(boolean clustersChanged) {
+                filterChanges.add(clustersChanged);
+            }
+        };
+        MonitoringConfigReloader reloader = new MonitoringConfigReloader();
+        ReflectionTestUtils.setField(reloader, "monitoringProperties", properties);
+        ReflectionTestUtils.setField(reloader, "nacosListenerService", listener);
+        ReflectionTestUtils.setField(reloader, "nacosBootstrapService", bootstrap);
+        reloader.init();
+
+        String yaml = """
+                spring:
+                  monitoring:
+                    target-clusters: [a, b]
+                    include-service-patterns:
+                      - "pay-*"
+                """;
+        assertTrue(reloader.apply(yaml, "test", "monitoring.yml"));
+        assertEquals(List.of("a", "b"), properties.getTargetClusters());
+        assertEquals(List.of("pay-*"), properties.getIncludeServicePatterns());
+        assertEquals(List.of("sidecar"), properties.getExcludeServiceKeywords());
+        assertEquals(List.of(true), filterChanges);
+
+        // 内容相同或规则无效时不生效
+        assertFalse(reloader.apply(yaml, "test", "monitoring.yml"));
+        assertFalse(reloader.apply("spring.monitoring.exclude-service-patterns=regex:(", "test", "monitoring.properties"));
+        assertEquals(List.of(), properties.getExcludeServicePatterns());
+
+        // 删除的字段恢复为启动时的值，而不是保留上一次热加载的值
+        assertTrue(reloader.apply("spring.monitoring.exclude-service-keywords=", "test", "monitoring.properties"));
+        assertEquals(List.of(), properties.getExcludeServiceKeywords());
+        assertEquals(List.of("a"), properties.getTargetClusters());
+        assertEquals(List.of(), properties.getIncludeServicePatterns());
+        assertEquals(List.of(true, true), filterChanges);
+    }
+}
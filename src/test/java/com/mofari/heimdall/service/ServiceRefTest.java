@@ -0,0 +1,26 @@
+package com.mofari.heimdall.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ServiceRefTest {
+
+    @Test
+    void legacyIdsStayPlainAndQualifiedIdsRoundTrip() {
+        assertEquals("order.app", new ServiceRef("", ServiceRef.DEFAULT_GROUP, "order.app").id());
+        assertEquals("PAY_GROUP@@order.app", new ServiceRef("", "PAY_GROUP", "order.app").id());
+        assertEquals("prod@@DEFAULT_GROUP@@order.app", new ServiceRef("prod", ServiceRef.DEFAULT_GROUP, "order.app").id());
+
+        // Dubbo 风格的服务名中可能包含冒号
+        for (String id : new String[]{"order.app", "providers:com.foo.Bar::", "PAY_GROUP@@order.app",
+                "prod@@PAY_GROUP@@providers:com.foo.Bar::"}) {
+            assertEquals(id, ServiceRef.parse(id).id());
+        }
+        assertEquals(new ServiceRef("prod", "PAY_GROUP", "order.app"), ServiceRef.parse("prod@@PAY_GROUP@@order.app"));
+        assertEquals("prod", ServiceRef.sourceOf("prod@@PAY_GROUP@@order.app"));
+        assertEquals("", ServiceRef.sourceOf("PAY_GROUP@@order.app"));
+        assertEquals("", ServiceRef.sourceOf("order.app"));
+        assertEquals("order", NacosListenerService.formatDisplayName("prod@@PAY_GROUP@@order.app"));
+    }
+}
@@ -0,0 +1,83 @@
+package com.mofari.heimdall.service;
+
+import com.mofari.heimdall.config.MonitoringProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardedEventProcessorTest {
+
+    private ShardedEventProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        MonitoringProperties properties = new MonitoringProperties();
+        properties.getEventProcessing().setShards(1);
+        processor = new ShardedEventProcessor();
+        ReflectionTestUtils.setField(processor, "monitoringProperties", properties);
+        processor.init();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        processor.shutdown();
+    }
+
+    @Test
+    void queuedEventsForSameServiceAreCoalesced() throws InterruptedException {
+        List<String> processed = new CopyOnWriteArrayList<>();
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+
+        // 先阻塞唯一的分片线程，使后续事件在队列中堆积
+        processor.execute("blocker", () -> {
+            try {
+                blocked.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        for (int i = 1; i <= 5; i++) {
+            String event = "a" + i;
+            processor.executeLatest("a", () -> processed.add(event));
+        }
+        processor.executeLatest("b", () -> processed.add("b1"));
+        processor.execute("a", done::countDown);
+        blocked.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("a5", "b1"), processed);
+    }
+
+    @Test
+    void tasksForSameServiceRunInOrder() throws InterruptedException {
+        processor.shutdown();
+        MonitoringProperties properties = new MonitoringProperties();
+        properties.getEventProcessing().setShards(4);
+        ReflectionTestUtils.setField(processor, "monitoringProperties", properties);
+        processor.init();
+
+        List<Integer> processed = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        for (int i = 0; i < 1000; i++) {
+            int n = i;
+            processor.execute("order-service.app", () -> processed.add(n));
+        }
+        processor.execute("order-service.app", done::countDown);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1000, processed.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, processed.get(i));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.mofari.heimdall.service;
+
+import com.mofari.heimdall.config.MonitoringProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatusHistoryTest {
+
+    private static final String SERVICE = "order-service.app";
+
+    private StatusHistory history;
+
+    @BeforeEach
+    void setUp() {
+        MonitoringProperties properties = new MonitoringProperties();
+        properties.getJournal().setEnabled(false);
+        properties.getHistory().setCapacity(4);
+        // 查询要求服务存在于状态存储中；在注册监听器之前放入，不计入历史
+        AppStatusStore store = new AppStatusStore();
+        store.restore(List.of(status(0, ServiceStatus.UNKNOWN)), 0);
+        history = new StatusHistory();
+        ReflectionTestUtils.setField(history, "appStatusStore", store);
+        ReflectionTestUtils.setField(history, "monitoringProperties", properties);
+        history.init();
+    }
+
+    @Test
+    void computesUptimeIncidentsAndMttr() {
+        record(1_000, ServiceStatus.RUNNING);
+        record(2_000, ServiceStatus.DOWN);
+        record(2_500, ServiceStatus.OFFLINE); // 同一次故障
+        record(3_000, ServiceStatus.RUNNING);
+
+        StatusHistory.Availability a = history.getAvailability(SERVICE, 1_000, 5_000);
+        assertEquals(4_000, a.observedMillis());
+        assertEquals(1_000, a.downMillis());
+        assertEquals(75.0, a.uptimePercent());
+        assertEquals(1, a.incidents());
+        assertEquals(1_000L, a.mttrMillis());
+        assertEquals(List.of(
+                new StatusHistory.Segment(1_000, 2_000, ServiceStatus.RUNNING),
+                new StatusHistory.Segment(2_000, 2_500, ServiceStatus.DOWN),
+                new StatusHistory.Segment(2_500, 3_000, ServiceStatus.OFFLINE),
+                new StatusHistory.Segment(3_000, 5_000, ServiceStatus.RUNNING)), a.timeline());
+    }
+
+    @Test
+    void ringKeepsOnlyTheMostRecentTransitions() {
+        for (int i = 0; i < 10; i++) {
+            record(1_000L * (i + 1), i % 2 == 0 ? ServiceStatus.RUNNING : ServiceStatus.DOWN);
+        }
+        // 容量为 4，只保留 7000 之后的变化，更早的时间不计入统计
+        StatusHistory.Availability a = history.getAvailability(SERVICE, 0, 11_000);
+        assertEquals(4, a.timeline().size());
+        assertEquals(7_000, a.timeline().get(0).from());
+        assertEquals(4_000, a.observedMillis());
+        assertEquals(2, a.incidents());
+    }
+
+    @Test
+    void downtimeBetweenSaveAndRestartIsNotCountedAsUptime(@TempDir Path dir) throws Exception {
+        long start = System.currentTimeMillis() - 60_000;
+        StatusHistory before = journaled(dir, new AppStatusStore());
+        before.onStatusUpdated(null, status(start, ServiceStatus.RUNNING));
+        before.save();
+        long savedBy = System.currentTimeMillis();
+
+        Thread.sleep(50);
+
+        // 重启：加载历史后，状态日志恢复出停机前的 RUNNING
+        AppStatusStore store = new AppStatusStore();
+        StatusHistory after = journaled(dir, store);
+        long restartedFrom = System.currentTimeMillis();
+        store.restore(List.of(status(start, ServiceStatus.RUNNING)), 1);
+        // 让重启之后的 RUNNING 至少持续 1 毫秒，才会出现在时间线上
+        Thread.sleep(10);
+        long to = System.currentTimeMillis() + 1;
+
+        StatusHistory.Availability a = after.getAvailability(SERVICE, start, to);
+        List<StatusHistory.Segment> timeline = a.timeline();
+        assertEquals(3, timeline.size());
+        assertEquals(ServiceStatus.RUNNING, timeline.get(0).status());
+        StatusHistory.Segment gap = timeline.get(1);
+        assertEquals(ServiceStatus.UNKNOWN, gap.status());
+        assertTrue(gap.from() <= savedBy && gap.to() >= restartedFrom, gap.toString());
+        assertEquals(ServiceStatus.RUNNING, timeline.get(2).status());
+
+        assertEquals(timeline.get(2).to() - start - (gap.to() - gap.from()), a.observedMillis());
+        assertEquals(100.0, a.uptimePercent());
+    }
+
+    private static StatusHistory journaled(Path dir, AppStatusStore store) {
+        MonitoringProperties properties = new MonitoringProperties();
+        properties.getJournal().setEnabled(true);
+        properties.getJournal().setDirectory(dir.toString());
+        StatusHistory history = new StatusHistory();
+        ReflectionTestUtils.setField(history, "appStatusStore", store);
+        ReflectionTestUtils.setField(history, "monitoringProperties", properties);
+        history.init();
+        return history;
+    }
+
+    private void record(long time, ServiceStatus status) {
+        history.onStatusUpdated(null, status(time, status));
+    }
+
+    private static AppStatus status(long time, ServiceStatus status) {
+        return new AppStatus(SERVICE, "order-service", status, 0, 0, List.of(), time, time);
+    }
+}
@@ -0,0 +1,80 @@
+package com.mofari.heimdall.service;
+
+import com.mofari.heimdall.config.MonitoringProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatusJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void restoresStatusesAndSequenceAfterRestart() throws InterruptedException {
+        AppStatusStore store = new AppStatusStore();
+        StatusJournal journal = open(store, 1024 * 1024);
+        store.update("a", "a", ServiceStatus.RUNNING, 2, 2, List.of("c1"));
+        store.update("b", "b", ServiceStatus.RUNNING, 1, 1, List.of("c1", "c2"));
+        store.update("a", "a", ServiceStatus.DOWN, 0, 2, List.of("c1"));
+        store.update("c", "c", ServiceStatus.UNKNOWN, 0, 0, List.of());
+        store.remove("c");
+        long sequence = store.currentSequence();
+        journal.shutdown();
+
+        AppStatusStore restored = new AppStatusStore();
+        StatusJournal reopened = open(restored, 1024 * 1024);
+        try {
+            assertEquals(sequence, restored.currentSequence());
+            assertEquals(store.getStatus("a"), restored.getStatus("a"));
+            assertEquals(store.getStatus("b"), restored.getStatus("b"));
+            assertNull(restored.getStatus("c"));
+        } finally {
+            reopened.shutdown();
+        }
+    }
+
+    @Test
+    void compactsIntoSnapshotWhenJournalIsFull() throws InterruptedException {
+        AppStatusStore store = new AppStatusStore();
+        // 日志只够写几十条记录，迫使写入过程中多次生成快照
+        StatusJournal journal = open(store, 4096);
+        for (int i = 0; i < 500; i++) {
+            store.update("svc-" + (i % 20), "svc", i % 2 == 0 ? ServiceStatus.RUNNING : ServiceStatus.DOWN,
+                    i % 3, 3, List.of("c1"));
+        }
+        journal.shutdown();
+        assertTrue((Long) journal.getStats().get("compactions") > 0);
+
+        AppStatusStore restored = new AppStatusStore();
+        StatusJournal reopened = open(restored, 4096);
+        try {
+            assertEquals(20, restored.size());
+            assertEquals(store.currentSequence(), restored.currentSequence());
+            for (AppStatus status : store.getAllStatuses()) {
+                assertEquals(status, restored.getStatus(status.id()));
+            }
+        } finally {
+            reopened.shutdown();
+        }
+    }
+
+    private StatusJournal open(AppStatusStore store, long mappedSize) {
+        MonitoringProperties properties = new MonitoringProperties();
+        properties.getJournal().setDirectory(directory.toString());
+        properties.getJournal().setMappedSizeBytes(mappedSize);
+        properties.getJournal().setFlushIntervalMillis(10);
+        StatusJournal journal = new StatusJournal();
+        ReflectionTestUtils.setField(journal, "appStatusStore", store);
+        ReflectionTestUtils.setField(journal, "monitoringProperties", properties);
+        journal.afterSingletonsInstantiated();
+        return journal;
+    }
+}
@@ -0,0 +1,58 @@
+package com.mofari.heimdall.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class StatusSnapshotCacheTest {
+
+    @Test
+    void etagFollowsContentNotSequence() {
+        AppStatusStore store = new AppStatusStore();
+        store.restore(List.of(status("a", ServiceStatus.RUNNING, 1), status("b", ServiceStatus.DOWN, 2)), 2);
+        StatusSnapshotCache cache = cache(store);
+
+        StatusSnapshotCache.EncodedSnapshot all = cache.all();
+        StatusSnapshotCache.EncodedSnapshot down = cache.byStatus(ServiceStatus.DOWN);
+
+        // 只改变了 RUNNING 服务的实例数：全部服务的 ETag 变化，DOWN 的过滤结果及其压缩内容不变
+        store.update("a", "a", ServiceStatus.RUNNING, 2, 2, List.of("DEFAULT"));
+        assertNotEquals(all.etag(), cache.all().etag());
+        StatusSnapshotCache.EncodedSnapshot downAfter = cache.byStatus(ServiceStatus.DOWN);
+        assertEquals(3, downAfter.sequence());
+        assertEquals(down.etag(), downAfter.etag());
+        assertSame(down.gzip(), downAfter.gzip());
+    }
+
+    @Test
+    void sameSequenceWithDifferentContentGetsDifferentEtag() {
+        // 模拟未开启状态日志时重启：序号从头开始，同一序号对应不同内容
+        AppStatusStore before = new AppStatusStore();
+        before.restore(List.of(status("a", ServiceStatus.RUNNING, 1)), 1);
+        AppStatusStore after = new AppStatusStore();
+        after.restore(List.of(status("b", ServiceStatus.RUNNING, 1)), 1);
+
+        assertNotEquals(cache(before).all().etag(), cache(after).all().etag());
+
+        AppStatusStore same = new AppStatusStore();
+        same.restore(List.of(status("a", ServiceStatus.RUNNING, 1)), 1);
+        assertEquals(cache(before).all().etag(), cache(same).all().etag());
+    }
+
+    private static StatusSnapshotCache cache(AppStatusStore store) {
+        StatusSnapshotCache cache = new StatusSnapshotCache();
+        ReflectionTestUtils.setField(cache, "appStatusStore", store);
+        ReflectionTestUtils.setField(cache, "objectMapper", new ObjectMapper());
+        return cache;
+    }
+
+    private static AppStatus status(String id, ServiceStatus status, long version) {
+        return new AppStatus(id, id, status, 1, 1, List.of("DEFAULT"), 1_717_200_000_000L, version);
+    }
+}
@@ -0,0 +1,57 @@
+package com.mofari.heimdall.websocket;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeltaRingTest {
+
+    @Test
+    void replaysOnlyWhatTheClientMissed() {
+        DeltaRing ring = new DeltaRing(4);
+        for (long seq = 1; seq <= 3; seq++) {
+            ring.add(seq, "svc-" + seq, "m" + seq);
+        }
+        List<String> replayed = new ArrayList<>();
+
+        assertTrue(ring.replaySince(1, 3, (key, text) -> replayed.add(text)));
+        assertEquals(List.of("m2", "m3"), replayed);
+
+        // 已是最新：无需补发
+        replayed.clear();
+        assertTrue(ring.replaySince(3, 3, (key, text) -> replayed.add(text)));
+        assertEquals(List.of(), replayed);
+
+        // 比服务端还新或非法的序号：改发快照
+        assertFalse(ring.replaySince(4, 3, (key, text) -> replayed.add(text)));
+        assertFalse(ring.replaySince(-1, 3, (key, text) -> replayed.add(text)));
+        assertEquals(List.of(), replayed);
+    }
+
+    @Test
+    void fallsBackToSnapshotOnceOverwrittenOrCleared() {
+        DeltaRing ring = new DeltaRing(2);
+        for (long seq = 1; seq <= 5; seq++) {
+            ring.add(seq, "svc-" + seq, "m" + seq);
+        }
+        List<String> replayed = new ArrayList<>();
+
+        // 缓冲区只剩 4、5，缺 3
+        assertFalse(ring.replaySince(2, 5, (key, text) -> replayed.add(text)));
+        assertTrue(ring.replaySince(3, 5, (key, text) -> replayed.add(text)));
+        assertEquals(List.of("m4", "m5"), replayed);
+
+        ring.clear();
+        replayed.clear();
+        assertFalse(ring.replaySince(4, 5, (key, text) -> replayed.add(text)));
+        assertTrue(ring.replaySince(5, 5, (key, text) -> replayed.add(text)));
+        ring.add(6, "svc-6", "m6");
+        assertTrue(ring.replaySince(5, 6, (key, text) -> replayed.add(text)));
+        assertEquals(List.of("m6"), replayed);
+    }
+}
@@ -0,0 +1,204 @@
+package com.mofari.heimdall.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mofari.heimdall.config.MonitoringProperties;
+import com.mofari.heimdall.service.AppStatus;
+import com.mofari.heimdall.service.AppStatusStore;
+import com.mofari.heimdall.service.ServiceStatus;
+import jakarta.websocket.RemoteEndpoint;
+import jakarta.websocket.SendHandler;
+import jakarta.websocket.SendResult;
+import jakarta.websocket.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class StatusStreamTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private AppStatusStore store;
+    private StatusStream stream;
+
+    @BeforeEach
+    void setUp() {
+        MonitoringProperties properties = new MonitoringProperties();
+        properties.getWebsocket().setReplayBufferSize(3);
+        store = new AppStatusStore();
+        stream = new StatusStream();
+        ReflectionTestUtils.setField(stream, "appStatusStore", store);
+        ReflectionTestUtils.setField(stream, "monitoringProperties", properties);
+        stream.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        stream.shutdown();
+    }
+
+    @Test
+    void newSessionGetsSnapshotThenLaterDeltas() throws Exception {
+        update("a", ServiceStatus.RUNNING);
+        update("b", ServiceStatus.DOWN);
+        List<String> received = open("s1", null);
+        update("a", ServiceStatus.DOWN);
+        store.remove("b");
+        drain();
+
+        assertEquals(List.of("snapshot:2", "delta:3", "removed:4"), summarize(received));
+        assertEquals(2, objectMapper.readTree(received.get(0)).get("services").size());
+    }
+
+    @Test
+    void resumeReplaysMissedDeltasOrFallsBackToSnapshot() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            update("svc-" + i, ServiceStatus.RUNNING);
+        }
+
+        // 缓冲区保留 3、4、5
+        String epoch = stream.epoch();
+        assertEquals(List.of("delta:4", "delta:5"), summarize(open("resume", 3L, epoch)));
+        assertEquals(List.of(), summarize(open("latest", 5L, epoch)));
+        assertEquals(List.of("snapshot:5"), summarize(open("too-old", 1L, epoch)));
+        assertEquals(List.of("snapshot:5"), summarize(open("ahead", 9L, epoch)));
+
+        // 续传的会话之后照常收到新的增量
+        List<String> resumed = open("resume-2", 4L, epoch);
+        update("svc-0", ServiceStatus.DOWN);
+        drain();
+        assertEquals(List.of("delta:5", "delta:6"), summarize(resumed));
+    }
+
+    @Test
+    void lastSeqFromAnotherEpochGetsSnapshotEvenWhenInsideTheReplayRange() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            update("svc-" + i, ServiceStatus.RUNNING);
+        }
+        List<String> received = open("s1", null);
+        String epoch = objectMapper.readTree(received.get(0)).get("epoch").asText();
+        assertEquals(stream.epoch(), epoch);
+
+        // 另一个进程（重启前的本节点或集群中的其他节点）的序号 2 也落在本节点缓冲区范围内，不能续传
+        assertEquals(List.of("snapshot:3"), summarize(open("other-node", 2L, "other-epoch")));
+        assertEquals(List.of("snapshot:3"), summarize(open("no-epoch", 2L, null)));
+        assertEquals(List.of("delta:3"), summarize(open("same-epoch", 2L, epoch)));
+
+        update("svc-0", ServiceStatus.DOWN);
+        drain();
+        assertEquals(epoch, objectMapper.readTree(received.get(1)).get("epoch").asText());
+    }
+
+    @Test
+    void restoreResetsReplayBufferInsteadOfReplayingOldVersions() throws Exception {
+        List<String> early = open("early", null);
+        String before = stream.epoch();
+        store.restore(List.of(status("a", 7), status("b", 3)), 5);
+        drain();
+
+        // 恢复出的旧版本不进入缓冲区并更换 epoch：已连接的会话收到恢复后的快照，带旧 epoch 重连的客户端也只能拿到快照
+        assertEquals(List.of("snapshot:0", "snapshot:7"), summarize(early));
+        String after = objectMapper.readTree(early.get(1)).get("epoch").asText();
+        assertNotEquals(before, after);
+        assertEquals(List.of("snapshot:7"), summarize(open("stale", 7L, before)));
+        List<String> current = open("current", 7L, after);
+        update("b", ServiceStatus.DOWN);
+        drain();
+        assertEquals(List.of("delta:8"), summarize(current));
+    }
+
+    @Test
+    void writesDoNotWaitForFanOut() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        fanOut().execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        List<String> received = new CopyOnWriteArrayList<>();
+        stream.open("s1", new SessionOutbound(session("s1", received), 100, 60_000), null, null);
+
+        // 推送线程被占住时写入照常返回，会话稍后按序收到
+        assertTimeoutPreemptively(Duration.ofSeconds(1), () -> {
+            update("a", ServiceStatus.RUNNING);
+            update("a", ServiceStatus.DOWN);
+        });
+        release.countDown();
+        drain();
+        assertEquals(List.of("snapshot:0", "delta:1", "delta:2"), summarize(received));
+    }
+
+    private void update(String id, ServiceStatus status) {
+        store.update(id, id, status, 1, 1, List.of("DEFAULT"));
+    }
+
+    private static AppStatus status(String id, long version) {
+        return new AppStatus(id, id, ServiceStatus.RUNNING, 1, 1, List.of("DEFAULT"), 0, version);
+    }
+
+    /**
+     * 打开一个会话并等待注册完成，返回它收到的消息（同步发送）。
+     */
+    private List<String> open(String id, Long lastSeq) throws Exception {
+        return open(id, lastSeq, null);
+    }
+
+    private List<String> open(String id, Long lastSeq, String epoch) throws Exception {
+        List<String> received = new CopyOnWriteArrayList<>();
+        stream.open(id, new SessionOutbound(session(id, received), 100, 60_000), lastSeq, epoch);
+        drain();
+        return received;
+    }
+
+    private void drain() throws Exception {
+        fanOut().submit(() -> {
+        }).get();
+    }
+
+    private ExecutorService fanOut() {
+        return (ExecutorService) ReflectionTestUtils.getField(stream, "fanOut");
+    }
+
+    private static List<String> summarize(List<String> messages) throws Exception {
+        List<String> summary = new ArrayList<>();
+        for (String message : messages) {
+            JsonNode node = objectMapper.readTree(message);
+            summary.add(node.get("type").asText() + ":" + node.get("seq").asLong());
+        }
+        return summary;
+    }
+
+    private static Session session(String id, List<String> received) {
+        RemoteEndpoint.Async remote = (RemoteEndpoint.Async) Proxy.newProxyInstance(StatusStreamTest.class.getClassLoader(),
+                new Class<?>[]{RemoteEndpoint.Async.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("sendText") && args.length == 2) {
+                        received.add((String) args[0]);
+                        ((SendHandler) args[1]).onResult(new SendResult());
+                        return null;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        return (Session) Proxy.newProxyInstance(StatusStreamTest.class.getClassLoader(), new Class<?>[]{Session.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getId" -> id;
+                    case "getAsyncRemote" -> remote;
+                    case "isOpen" -> true;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}